@@ -16,13 +16,14 @@ import org.repositoryminer.domain.Reference;
 import org.repositoryminer.domain.ReferenceType;
 import org.repositoryminer.domain.Repository;
 import org.repositoryminer.exception.RepositoryMinerException;
+import org.repositoryminer.persistence.dao.AsyncWriter;
 import org.repositoryminer.persistence.dao.CommitDAO;
 import org.repositoryminer.persistence.dao.ReferenceDAO;
 import org.repositoryminer.persistence.dao.RepositoryDAO;
 import org.repositoryminer.scm.ISCM;
 import org.repositoryminer.scm.SCMFactory;
+import org.repositoryminer.scm.WorkspaceManager;
 import org.repositoryminer.util.HashingUtils;
-import org.repositoryminer.util.RMFileUtils;
 
 import com.mongodb.client.model.Projections;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
@@ -31,12 +32,14 @@ public class CheckStyleMiner {
 
 	private ISCM scm;
 	private String tempRepository;
+	private WorkspaceManager workspaceManager = new WorkspaceManager();
 	
 	private Repository repository;
 
 	private CommitDAO commitPersist = new CommitDAO();
 	private ReferenceDAO refPersist = new ReferenceDAO();
 	private CheckstyleAuditDAO checkstylePersist = new CheckstyleAuditDAO();
+	private AsyncWriter writer;
 
 	private CheckStyleExecutor checkstyleExecutor;
 
@@ -58,15 +61,15 @@ public class CheckStyleMiner {
 	}
 	
 	public void execute(String name, ReferenceType type) {
-		final Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.slice("commits", 1));
+		final Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.exclude("commit_ranges"));
 		final Reference reference = Reference.parseDocument(refDoc);
-		final String commitId = reference.getCommits().get(0);
+		final String commitId = reference.getTip();
 		persistAnalysis(commitId, reference);
 	}
 	
 	public void prepare() throws IOException {
 		File repositoryFolder = new File(repository.getPath());
-		tempRepository = RMFileUtils.copyFolderToTmp(repositoryFolder.getAbsolutePath(), repository.getName());
+		tempRepository = workspaceManager.acquire(repositoryFolder.getAbsolutePath(), repository.getName());
 		
 		scm = SCMFactory.getSCM(repository.getScm());
 		scm.open(tempRepository);
@@ -76,7 +79,7 @@ public class CheckStyleMiner {
 	
 	public void dispose() throws IOException {
 		scm.close();
-		RMFileUtils.deleteFolder(tempRepository);
+		workspaceManager.release(tempRepository);
 	}
 	
 	private void persistAnalysis(String commitId, Reference ref) {
@@ -111,7 +114,10 @@ public class CheckStyleMiner {
 			documents.add(doc);
 		}
 		
-		checkstylePersist.insertMany(documents);
+		if (writer != null)
+			writer.insertMany(checkstylePersist, documents);
+		else
+			checkstylePersist.insertMany(documents);
 	}
 	
 	private void configureCheckstyle() {
@@ -135,4 +141,26 @@ public class CheckStyleMiner {
 		this.configFile = configFile;
 	}
 
-}
\ No newline at end of file
+	public WorkspaceManager getWorkspaceManager() {
+		return workspaceManager;
+	}
+
+	public void setWorkspaceManager(WorkspaceManager workspaceManager) {
+		this.workspaceManager = workspaceManager;
+	}
+
+	public AsyncWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @param writer
+	 *            a writer to queue the analyses in, shared with other miners,
+	 *            instead of writing them before returning. It is closed by the
+	 *            caller.
+	 */
+	public void setWriter(AsyncWriter writer) {
+		this.writer = writer;
+	}
+
+}
@@ -2,6 +2,7 @@ package org.repositoryminer.checkstyle.persistence;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.repositoryminer.persistence.IndexManager;
 import org.repositoryminer.persistence.dao.GenericDAO;
 
 import com.mongodb.BasicDBObject;
@@ -11,6 +12,10 @@ public class CheckstyleAuditDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "checkstyle_audit";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "filehash", "commit");
+	}
+
 	public CheckstyleAuditDAO() {
 		super(COLLECTION_NAME);
 	}
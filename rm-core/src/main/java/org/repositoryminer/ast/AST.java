@@ -1,11 +1,9 @@
 package org.repositoryminer.ast;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
-import org.repositoryminer.metric.MetricID;
+import org.bson.Document;
+import org.repositoryminer.metric.MetricVector;
 
 /**
  * This class represents the file and is also the Abstract Syntax Tree root
@@ -15,12 +13,13 @@ public class AST {
 
 	private String name;
 	private String source;
+	private LineIndex lineIndex;
 	private String language;
 	private List<AbstractType> types;
 	private List<AbstractMethod> methods;
 	private List<AbstractImport> imports;
 	private String packageDeclaration;
-	private Map<MetricID, Object> metrics = new HashMap<MetricID, Object>();
+	private MetricVector metrics = new MetricVector();
 
 	public String getName() {
 		return name;
@@ -36,6 +35,21 @@ public class AST {
 
 	public void setSource(String source) {
 		this.source = source;
+		this.lineIndex = null;
+	}
+
+	/**
+	 * @return the line offsets of the source, built on the first call if the
+	 *         parser did not set them.
+	 */
+	public LineIndex getLineIndex() {
+		if (lineIndex == null)
+			lineIndex = new LineIndex(source);
+		return lineIndex;
+	}
+
+	public void setLineIndex(LineIndex lineIndex) {
+		this.lineIndex = lineIndex;
 	}
 
 	public String getLanguage() {
@@ -78,20 +92,16 @@ public class AST {
 		this.packageDeclaration = packageDeclaration;
 	}
 
-	public Map<MetricID, Object> getMetrics() {
+	public MetricVector getMetrics() {
 		return metrics;
 	}
 
-	public void setMetrics(Map<MetricID, Object> metrics) {
+	public void setMetrics(MetricVector metrics) {
 		this.metrics = metrics;
 	}
 
-	public Map<String, Object> convertMetrics() {
-		Map<String, Object> result = new HashMap<String, Object>();
-		for (Entry<MetricID, Object> entry : metrics.entrySet()) {
-			result.put(entry.getKey().toString(), entry.getValue());
-		}
-		return result;
+	public Document convertMetrics() {
+		return metrics.toDocument();
 	}
 	
 }
\ No newline at end of file
@@ -1,5 +1,13 @@
 package org.repositoryminer.ast;
 
+/**
+ * This class represents a field access.
+ * 
+ * @deprecated read the field accesses from the {@link StatementStore} of the
+ *             method. The store does not keep the type of the field, so it is
+ *             null in the adapters it builds.
+ */
+@Deprecated
 public class AbstractFieldAccess extends AbstractStatement {
 
 	private String type;
@@ -53,4 +61,4 @@ public class AbstractFieldAccess extends AbstractStatement {
 		this.builtIn = builtIn;
 	}
 
-}
\ No newline at end of file
+}
@@ -1,15 +1,13 @@
 package org.repositoryminer.ast;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
 
+import org.bson.Document;
 import org.repositoryminer.codesmell.CodeSmellID;
-import org.repositoryminer.metric.MetricID;
+import org.repositoryminer.metric.MetricVector;
 
 /**
  * This class represents a method declaration.
@@ -23,13 +21,13 @@ public class AbstractMethod {
 	private boolean isConstructor;
 	private boolean isVarargs;
 	private List<String> modifiers;
-	private List<AbstractStatement> statements;
+	private StatementStore statements;
 	private List<AbstractParameter> parameters;
 	private List<String> thrownsExceptions;
 	private int maxDepth;
 	private boolean accessor;
 	private String accessoredField;
-	private Map<MetricID, Object> metrics = new HashMap<MetricID, Object>();
+	private MetricVector metrics = new MetricVector();
 	private Set<CodeSmellID> codeSmells = new HashSet<CodeSmellID>();
 
 	public String getName() {
@@ -88,14 +86,32 @@ public class AbstractMethod {
 		this.modifiers = modifiers;
 	}
 
-	public List<AbstractStatement> getStatements() {
+	public StatementStore getStatementStore() {
 		return statements;
 	}
 
-	public void setStatements(List<AbstractStatement> statements) {
+	public void setStatementStore(StatementStore statements) {
 		this.statements = statements;
 	}
 
+	/**
+	 * @return the statements, built from the {@link StatementStore} on each
+	 *         call.
+	 * @deprecated use {@link #getStatementStore()}.
+	 */
+	@Deprecated
+	public List<AbstractStatement> getStatements() {
+		return statements != null ? statements.toStatements() : null;
+	}
+
+	/**
+	 * @deprecated use {@link #setStatementStore(StatementStore)}.
+	 */
+	@Deprecated
+	public void setStatements(List<AbstractStatement> statements) {
+		this.statements = statements != null ? StatementStore.fromStatements(statements) : null;
+	}
+
 	public List<AbstractParameter> getParameters() {
 		return parameters;
 	}
@@ -136,20 +152,16 @@ public class AbstractMethod {
 		this.accessoredField = accessoredField;
 	}
 
-	public Map<MetricID, Object> getMetrics() {
+	public MetricVector getMetrics() {
 		return metrics;
 	}
 
-	public void setMetrics(Map<MetricID, Object> metrics) {
+	public void setMetrics(MetricVector metrics) {
 		this.metrics = metrics;
 	}
 
-	public Map<String, Object> convertMetrics() {
-		Map<String, Object> result = new HashMap<String, Object>();
-		for (Entry<MetricID, Object> entry : metrics.entrySet()) {
-			result.put(entry.getKey().toString(), entry.getValue());
-		}
-		return result;
+	public Document convertMetrics() {
+		return metrics.toDocument();
 	}
 	
 	public List<String> convertCodeSmells() {
@@ -2,7 +2,11 @@ package org.repositoryminer.ast;
 
 /**
  * This class represents a method invocation.
+ * 
+ * @deprecated read the method invocations from the {@link StatementStore} of
+ *             the method.
  */
+@Deprecated
 public class AbstractMethodInvocation extends AbstractStatement {
 
 	private String declaringClass;
@@ -45,4 +49,4 @@ public class AbstractMethodInvocation extends AbstractStatement {
 		this.accessedField = accessedField;
 	}
 
-}
\ No newline at end of file
+}
@@ -2,7 +2,14 @@ package org.repositoryminer.ast;
 
 /**
  * This class represents a generic statement.
+ * 
+ * @deprecated the statements of a method are kept in a {@link StatementStore}
+ *             and read by index. This class is only an adapter built by
+ *             {@link StatementStore#toStatements()} and read by
+ *             {@link StatementStore#fromStatements(java.util.List)}, and will
+ *             be removed in the next release.
  */
+@Deprecated
 public class AbstractStatement {
 
 	private NodeType nodeType;
@@ -33,4 +40,4 @@ public class AbstractStatement {
 		this.expression = expression;
 	}
 
-}
\ No newline at end of file
+}
@@ -1,15 +1,13 @@
 package org.repositoryminer.ast;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
+import org.bson.Document;
 import org.repositoryminer.codesmell.CodeSmellID;
-import org.repositoryminer.metric.MetricID;
+import org.repositoryminer.metric.MetricVector;
 
 /**
  * This class represents an abstract type declaration.
@@ -24,7 +22,7 @@ public class AbstractType {
 	private NodeType nodeType;
 	private List<AbstractMethod> methods;
 	private List<AbstractField> fields;
-	private Map<MetricID, Object> metrics = new HashMap<MetricID, Object>();
+	private MetricVector metrics = new MetricVector();
 	private Set<CodeSmellID> codeSmells = new HashSet<CodeSmellID>();
 
 	public String getName() {
@@ -75,16 +73,12 @@ public class AbstractType {
 		this.fields = fields;
 	}
 
-	public Map<MetricID, Object> getMetrics() {
+	public MetricVector getMetrics() {
 		return metrics;
 	}
 
-	public Map<String, Object> convertMetrics() {
-		Map<String, Object> result = new HashMap<String, Object>();
-		for (Entry<MetricID, Object> entry : metrics.entrySet()) {
-			result.put(entry.getKey().toString(), entry.getValue());
-		}
-		return result;
+	public Document convertMetrics() {
+		return metrics.toDocument();
 	}
 	
 	public List<String> convertCodeSmells() {
@@ -95,7 +89,7 @@ public class AbstractType {
 		return result;
 	}
 	
-	public void setMetrics(Map<MetricID, Object> metrics) {
+	public void setMetrics(MetricVector metrics) {
 		this.metrics = metrics;
 	}
 
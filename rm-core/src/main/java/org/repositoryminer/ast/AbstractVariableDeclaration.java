@@ -2,7 +2,13 @@ package org.repositoryminer.ast;
 
 /**
  * This class represents a local variable declaration.
+ * 
+ * @deprecated read the variable declarations from the {@link StatementStore}
+ *             of the method. The store does not keep the type and the
+ *             initializer of the variable, so they are null in the adapters it
+ *             builds.
  */
+@Deprecated
 public class AbstractVariableDeclaration extends AbstractStatement {
 
 	private String type;
@@ -35,4 +41,4 @@ public class AbstractVariableDeclaration extends AbstractStatement {
 		this.initializer = initializer;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package org.repositoryminer.ast;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the offsets where the lines of a source code start, so the lines of
+ * any range of the source can be counted with two binary searches, without
+ * copying or scanning the range. A line ends at \r\n, \n or \r.
+ */
+public class LineIndex {
+
+	private int length;
+	private int[] lineStarts;
+	private int lines;
+
+	/**
+	 * @param source
+	 *            the source code, may be null.
+	 */
+	public LineIndex(String source) {
+		length = source != null ? source.length() : 0;
+		lineStarts = new int[16];
+		lines = 1;
+
+		for (int i = 0; i < length; i++) {
+			char c = source.charAt(i);
+			if (c == '\r' && i + 1 < length && source.charAt(i + 1) == '\n')
+				i++;
+			else if (c != '\r' && c != '\n')
+				continue;
+
+			if (lines == lineStarts.length)
+				lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+			lineStarts[lines++] = i + 1;
+		}
+	}
+
+	/**
+	 * @return the number of lines of the source, or 0 if it is empty.
+	 */
+	public int getLineCount() {
+		return length > 0 ? lines : 0;
+	}
+
+	/**
+	 * @param start
+	 *            the first offset, inclusive.
+	 * @param end
+	 *            the last offset, exclusive.
+	 * @return the number of lines of the range, or 0 if it is empty.
+	 */
+	public int countLines(int start, int end) {
+		if (end <= start)
+			return 0;
+
+		return 1 + countLineStarts(end) - countLineStarts(start);
+	}
+
+	/**
+	 * @return the line, starting at 1, of an offset.
+	 */
+	public int getLineNumber(int offset) {
+		return countLineStarts(offset);
+	}
+
+	// number of lines that start at or before the offset
+	private int countLineStarts(int offset) {
+		int i = Arrays.binarySearch(lineStarts, 0, lines, offset);
+		return i >= 0 ? i + 1 : -(i + 1);
+	}
+
+}
@@ -0,0 +1,293 @@
+package org.repositoryminer.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the statements of a method in parallel arrays, one position per
+ * statement, instead of one object per statement.
+ * <p>
+ * Names are kept as ids of the {@link SymbolTable} of the file. Decision
+ * statements keep the number of boolean operators of their condition (&& and
+ * || for conditions, | for multi-catch clauses) instead of its source code.
+ */
+public class StatementStore {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final byte ACCESSOR = 1;
+	private static final byte PRIMITIVE = 2;
+	private static final byte BUILT_IN = 4;
+
+	private static final NodeType[] NODE_TYPES = NodeType.values();
+
+	/*
+	 * The stores converted from statement lists have no file to share a table
+	 * with, so they share this one and a name has the same id in all of their
+	 * methods, as the cohesion metrics expect.
+	 */
+	private static final SymbolTable LEGACY_SYMBOLS = new SymbolTable() {
+		@Override
+		public synchronized int intern(String symbol) {
+			return super.intern(symbol);
+		}
+
+		@Override
+		public synchronized int find(String symbol) {
+			return super.find(symbol);
+		}
+
+		@Override
+		public synchronized String get(int id) {
+			return super.get(id);
+		}
+
+		@Override
+		public synchronized int size() {
+			return super.size();
+		}
+	};
+
+	private SymbolTable symbols;
+	private int size;
+	private byte[] nodeTypes;
+	private byte[] flags;
+	private int[] names;
+	private int[] declaringClasses;
+	private int[] accessedFields;
+	private int[] operators;
+
+	/**
+	 * @param symbols
+	 *            the symbol table of the file.
+	 */
+	public StatementStore(SymbolTable symbols) {
+		this.symbols = symbols;
+		nodeTypes = new byte[0];
+		flags = new byte[0];
+		names = new int[0];
+		declaringClasses = new int[0];
+		accessedFields = new int[0];
+		operators = new int[0];
+	}
+
+	/**
+	 * Adds a statement that is only counted by its type (e.g. return, break).
+	 */
+	public void addStatement(NodeType nodeType) {
+		add(nodeType, SymbolTable.NONE, SymbolTable.NONE, SymbolTable.NONE, 0, (byte) 0);
+	}
+
+	/**
+	 * Adds a decision statement (e.g. if, while, catch).
+	 *
+	 * @param operators
+	 *            the number of boolean operators of the condition.
+	 */
+	public void addDecision(NodeType nodeType, int operators) {
+		add(nodeType, SymbolTable.NONE, SymbolTable.NONE, SymbolTable.NONE, operators, (byte) 0);
+	}
+
+	public void addVariableDeclaration(String name) {
+		add(NodeType.VARIABLE_DECLARATION, symbols.intern(name), SymbolTable.NONE, SymbolTable.NONE, 0, (byte) 0);
+	}
+
+	public void addFieldAccess(String name, String declaringClass, boolean primitive, boolean builtIn) {
+		byte flag = (byte) ((primitive ? PRIMITIVE : 0) | (builtIn ? BUILT_IN : 0));
+		add(NodeType.FIELD_ACCESS, symbols.intern(name), symbols.intern(declaringClass), SymbolTable.NONE, 0, flag);
+	}
+
+	/**
+	 * @param expression
+	 *            the method name followed by its parameter types.
+	 * @param accessedField
+	 *            the field accessed by a getter or setter, null otherwise.
+	 */
+	public void addMethodInvocation(String expression, String declaringClass, String accessedField) {
+		add(NodeType.METHOD_INVOCATION, symbols.intern(expression), symbols.intern(declaringClass),
+				symbols.intern(accessedField), 0, accessedField != null ? ACCESSOR : 0);
+	}
+
+	private void add(NodeType nodeType, int name, int declaringClass, int accessedField, int operator, byte flag) {
+		if (size == nodeTypes.length)
+			grow();
+
+		nodeTypes[size] = (byte) nodeType.ordinal();
+		names[size] = name;
+		declaringClasses[size] = declaringClass;
+		accessedFields[size] = accessedField;
+		operators[size] = operator;
+		flags[size] = flag;
+		size++;
+	}
+
+	private void grow() {
+		int capacity = Math.max(INITIAL_CAPACITY, nodeTypes.length * 2);
+		nodeTypes = Arrays.copyOf(nodeTypes, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		names = Arrays.copyOf(names, capacity);
+		declaringClasses = Arrays.copyOf(declaringClasses, capacity);
+		accessedFields = Arrays.copyOf(accessedFields, capacity);
+		operators = Arrays.copyOf(operators, capacity);
+	}
+
+	/**
+	 * Converts the statements of the former API. The boolean operators of the
+	 * decision statements are counted from their expressions.
+	 * 
+	 * @deprecated build the store with the symbol table of the file and its
+	 *             add methods instead.
+	 */
+	@Deprecated
+	public static StatementStore fromStatements(List<AbstractStatement> statements) {
+		StatementStore store = new StatementStore(LEGACY_SYMBOLS);
+		for (AbstractStatement statement : statements) {
+			NodeType nodeType = statement.getNodeType();
+			String expression = statement.getExpression();
+			switch (nodeType) {
+			case VARIABLE_DECLARATION:
+				store.addVariableDeclaration(expression);
+				break;
+			case FIELD_ACCESS:
+				AbstractFieldAccess fieldAccess = (AbstractFieldAccess) statement;
+				store.addFieldAccess(expression, fieldAccess.getDeclaringClass(), fieldAccess.isPrimitive(),
+						fieldAccess.isBuiltIn());
+				break;
+			case METHOD_INVOCATION:
+				AbstractMethodInvocation invocation = (AbstractMethodInvocation) statement;
+				store.addMethodInvocation(expression, invocation.getDeclaringClass(),
+						invocation.isAccessor() ? invocation.getAccessedField() : null);
+				break;
+			case IF:
+			case FOR:
+			case DO_WHILE:
+			case WHILE:
+			case CATCH:
+			case CONDITIONAL_EXPRESSION:
+				store.addDecision(nodeType, countOperators(expression, nodeType == NodeType.CATCH));
+				break;
+			default:
+				store.addStatement(nodeType);
+				break;
+			}
+		}
+		return store;
+	}
+
+	/*
+	 * Counts the && and || of a condition, or the | of a multi-catch clause.
+	 */
+	private static int countOperators(String expression, boolean alternatives) {
+		if (expression == null)
+			return 0;
+
+		int operators = 0;
+		for (int i = 0; i < expression.length() - 1; i++) {
+			char c = expression.charAt(i);
+			if (alternatives ? c == '|' : (c == '&' || c == '|') && expression.charAt(i + 1) == c)
+				operators++;
+		}
+		return operators;
+	}
+
+	/**
+	 * Builds the statements of the former API, one object per statement. The
+	 * store does not keep the conditions of the decision statements, nor the
+	 * types of the fields and variables, so they are null.
+	 * 
+	 * @deprecated read the statements by index instead.
+	 */
+	@Deprecated
+	public List<AbstractStatement> toStatements() {
+		List<AbstractStatement> statements = new ArrayList<AbstractStatement>(size);
+		for (int i = 0; i < size; i++) {
+			NodeType nodeType = getNodeType(i);
+			String name = symbols.get(names[i]);
+			String declaringClass = symbols.get(declaringClasses[i]);
+			switch (nodeType) {
+			case VARIABLE_DECLARATION:
+				statements.add(new AbstractVariableDeclaration(name, null, null));
+				break;
+			case FIELD_ACCESS:
+				statements.add(new AbstractFieldAccess(name, null, declaringClass, isPrimitive(i), isBuiltIn(i)));
+				break;
+			case METHOD_INVOCATION:
+				statements.add(new AbstractMethodInvocation(name, declaringClass, isAccessor(i),
+						symbols.get(accessedFields[i])));
+				break;
+			default:
+				statements.add(new AbstractStatement(nodeType));
+				break;
+			}
+		}
+		return statements;
+	}
+
+	/**
+	 * Combines two ids in a single value, e.g. to count the distinct pairs of
+	 * declaring class and field.
+	 */
+	public static long pair(int first, int second) {
+		return ((long) first << 32) | (second & 0xffffffffL);
+	}
+
+	public SymbolTable getSymbols() {
+		return symbols;
+	}
+
+	/**
+	 * @return the number of statements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public NodeType getNodeType(int index) {
+		return NODE_TYPES[nodeTypes[index]];
+	}
+
+	/**
+	 * @return the id of the variable, field or invocation expression, or
+	 *         {@link SymbolTable#NONE}.
+	 */
+	public int getName(int index) {
+		return names[index];
+	}
+
+	/**
+	 * @return the id of the class that declares the accessed field or the
+	 *         invoked method, or {@link SymbolTable#NONE}.
+	 */
+	public int getDeclaringClass(int index) {
+		return declaringClasses[index];
+	}
+
+	/**
+	 * @return the id of the field accessed by a getter or setter invocation,
+	 *         or {@link SymbolTable#NONE}.
+	 */
+	public int getAccessedField(int index) {
+		return accessedFields[index];
+	}
+
+	/**
+	 * @return the number of boolean operators of a decision statement.
+	 */
+	public int getOperators(int index) {
+		return operators[index];
+	}
+
+	public boolean isAccessor(int index) {
+		return (flags[index] & ACCESSOR) != 0;
+	}
+
+	public boolean isPrimitive(int index) {
+		return (flags[index] & PRIMITIVE) != 0;
+	}
+
+	public boolean isBuiltIn(int index) {
+		return (flags[index] & BUILT_IN) != 0;
+	}
+
+}
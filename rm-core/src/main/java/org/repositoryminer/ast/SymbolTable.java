@@ -0,0 +1,62 @@
+package org.repositoryminer.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the names found in a file (e.g. fields, variables and declaring
+ * classes), so the statements refer to them by an integer id and equal names
+ * have equal ids.
+ */
+public class SymbolTable {
+
+	public static final int NONE = -1;
+
+	private Map<String, Integer> ids = new HashMap<String, Integer>();
+	private List<String> symbols = new ArrayList<String>();
+
+	/**
+	 * @param symbol
+	 *            a name, may be null.
+	 * @return the id of the name, or {@link #NONE} if it is null.
+	 */
+	public int intern(String symbol) {
+		if (symbol == null)
+			return NONE;
+
+		Integer id = ids.get(symbol);
+		if (id == null) {
+			id = symbols.size();
+			ids.put(symbol, id);
+			symbols.add(symbol);
+		}
+
+		return id;
+	}
+
+	/**
+	 * @param symbol
+	 *            a name.
+	 * @return the id of the name, or {@link #NONE} if it was not interned.
+	 */
+	public int find(String symbol) {
+		Integer id = symbol != null ? ids.get(symbol) : null;
+		return id != null ? id : NONE;
+	}
+
+	/**
+	 * @param id
+	 *            a name id.
+	 * @return the name, or null for {@link #NONE}.
+	 */
+	public String get(int id) {
+		return id == NONE ? null : symbols.get(id);
+	}
+
+	public int size() {
+		return symbols.size();
+	}
+
+}
@@ -3,11 +3,13 @@ package org.repositoryminer.codesmell;
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.metric.MetricEvaluation;
 import org.repositoryminer.metric.MetricID;
 
-public class BrainClass implements ICodeSmell {
+public class BrainClass implements ILazyCodeSmell {
 
 	private static final MetricID[] REQUIRED_METRICS = { MetricID.WMC, MetricID.TCC, MetricID.LOC };
+	private static final MetricID[] LAZY_METRICS = { MetricID.TCC };
 	private static final CodeSmellID[] REQUIRED_CODESMELLS = { CodeSmellID.BRAIN_METHOD };
 
 	private int wmcThreshold = 47;
@@ -27,16 +29,32 @@ public class BrainClass implements ICodeSmell {
 
 	@Override
 	public void detect(AST ast) {
+		detect(ast, null);
+	}
+
+	/**
+	 * TCC is only calculated if a type of the file has the brain methods, the
+	 * LOC and the WMC of a brain class.
+	 */
+	@Override
+	public void detect(AST ast, MetricEvaluation evaluation) {
 		for (AbstractType type : ast.getTypes()) {
-			int wmc = (Integer) type.getMetrics().get(MetricID.WMC);
-			float tcc = (Float) type.getMetrics().get(MetricID.TCC);
-			int loc = (Integer) type.getMetrics().get(MetricID.LOC);
+			int wmc = type.getMetrics().getInt(MetricID.WMC);
+			int loc = type.getMetrics().getInt(MetricID.LOC);
 			int nbm = 0;
 
 			for (AbstractMethod method : type.getMethods())
 				if (method.getCodeSmells().contains(CodeSmellID.BRAIN_METHOD))
 					nbm++;
 
+			// 0 is the lowest TCC, no other value detects the smell
+			if (!detect(nbm, loc, wmc, 0f))
+				continue;
+
+			if (evaluation != null)
+				evaluation.require(MetricID.TCC);
+
+			float tcc = type.getMetrics().getFloat(MetricID.TCC);
 			if (detect(nbm, loc, wmc, tcc))
 				type.getCodeSmells().add(CodeSmellID.BRAIN_CLASS);
 		}
@@ -59,6 +77,11 @@ public class BrainClass implements ICodeSmell {
 		return REQUIRED_METRICS;
 	}
 
+	@Override
+	public MetricID[] getLazyMetrics() {
+		return LAZY_METRICS;
+	}
+
 	@Override
 	public CodeSmellID[] getRequiredCodeSmells() {
 		return REQUIRED_CODESMELLS;
@@ -29,10 +29,10 @@ public class BrainMethod implements ICodeSmell {
 	public void detect(AST ast) {
 		for (AbstractType type : ast.getTypes()) {
 			for (AbstractMethod method : type.getMethods()) {
-				int mloc = (Integer) method.getMetrics().get(MetricID.LOC);
-				int cyclo = (Integer) method.getMetrics().get(MetricID.CYCLO);
-				int noav = (Integer) method.getMetrics().get(MetricID.NOAV);
-				int maxnesting = (Integer) method.getMetrics().get(MetricID.MAXNESTING);
+				int mloc = method.getMetrics().getInt(MetricID.LOC);
+				int cyclo = method.getMetrics().getInt(MetricID.CYCLO);
+				int noav = method.getMetrics().getInt(MetricID.NOAV);
+				int maxnesting = method.getMetrics().getInt(MetricID.MAXNESTING);
 				if (detect(cyclo, mloc, noav, maxnesting))
 					method.getCodeSmells().add(CodeSmellID.BRAIN_METHOD);
 			}
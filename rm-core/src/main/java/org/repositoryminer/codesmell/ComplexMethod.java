@@ -21,14 +21,14 @@ public class ComplexMethod implements ICodeSmell {
 	@Override
 	public void detect(AST ast) {
 		for (AbstractMethod method : ast.getMethods()) {
-			int cyclo = (Integer) method.getMetrics().get(MetricID.CYCLO);
+			int cyclo = method.getMetrics().getInt(MetricID.CYCLO);
 			if (cyclo > cycloThreshold)
 				method.getCodeSmells().add(CodeSmellID.COMPLEX_METHOD);
 		}
 
 		for (AbstractType type : ast.getTypes()) {
 			for (AbstractMethod method : type.getMethods()) {
-				int cyclo = (Integer) method.getMetrics().get(MetricID.CYCLO);
+				int cyclo = method.getMetrics().getInt(MetricID.CYCLO);
 				if (cyclo > cycloThreshold)
 					method.getCodeSmells().add(CodeSmellID.COMPLEX_METHOD);
 			}
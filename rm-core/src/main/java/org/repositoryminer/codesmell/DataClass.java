@@ -29,10 +29,10 @@ public class DataClass implements ICodeSmell {
 	@Override
 	public void detect(AST ast) {
 		for (AbstractType type : ast.getTypes()) {
-			float woc = (Float) type.getMetrics().get(MetricID.WOC);
-			int nopa = (Integer) type.getMetrics().get(MetricID.NOPA);
-			int noam = (Integer) type.getMetrics().get(MetricID.NOAM);
-			int wmc = (Integer) type.getMetrics().get(MetricID.WMC);
+			float woc = type.getMetrics().getFloat(MetricID.WOC);
+			int nopa = type.getMetrics().getInt(MetricID.NOPA);
+			int noam = type.getMetrics().getInt(MetricID.NOAM);
+			int wmc = type.getMetrics().getInt(MetricID.WMC);
 			if (detect(woc, nopa, noam, wmc)) {
 				type.getCodeSmells().add(CodeSmellID.DATA_CLASS);
 			}
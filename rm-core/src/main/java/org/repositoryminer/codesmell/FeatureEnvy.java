@@ -26,9 +26,9 @@ public class FeatureEnvy implements ICodeSmell {
 	public void detect(AST ast) {
 		for (AbstractType type : ast.getTypes()) {
 			for (AbstractMethod method : type.getMethods()) {
-				float laa = (Float) method.getMetrics().get(MetricID.LAA);
-				int fdp = (Integer) method.getMetrics().get(MetricID.FDP);
-				int atfd = (Integer) method.getMetrics().get(MetricID.ATFD);
+				float laa = method.getMetrics().getFloat(MetricID.LAA);
+				int fdp = method.getMetrics().getInt(MetricID.FDP);
+				int atfd = method.getMetrics().getInt(MetricID.ATFD);
 				if (detect(laa, atfd, fdp))
 					method.getCodeSmells().add(CodeSmellID.FEATURE_ENVY);
 			}
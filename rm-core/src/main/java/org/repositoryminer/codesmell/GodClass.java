@@ -2,11 +2,13 @@ package org.repositoryminer.codesmell;
 
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.metric.MetricEvaluation;
 import org.repositoryminer.metric.MetricID;
 
-public class GodClass implements ICodeSmell {
+public class GodClass implements ILazyCodeSmell {
 
 	private static final MetricID[] REQUIRED_METRICS = { MetricID.ATFD, MetricID.WMC, MetricID.TCC };
+	private static final MetricID[] LAZY_METRICS = { MetricID.TCC };
 
 	private int atfdThreshold = 5;
 	private int wmcThreshold = 47;
@@ -23,10 +25,25 @@ public class GodClass implements ICodeSmell {
 
 	@Override
 	public void detect(AST ast) {
+		detect(ast, null);
+	}
+
+	/**
+	 * TCC is only calculated if a type of the file has the ATFD and the WMC of
+	 * a god class.
+	 */
+	@Override
+	public void detect(AST ast, MetricEvaluation evaluation) {
 		for (AbstractType type : ast.getTypes()) {
-			int atfd = (Integer) type.getMetrics().get(MetricID.ATFD);
-			int wmc = (Integer) type.getMetrics().get(MetricID.WMC);
-			float tcc = (Float) type.getMetrics().get(MetricID.TCC);
+			int atfd = type.getMetrics().getInt(MetricID.ATFD);
+			int wmc = type.getMetrics().getInt(MetricID.WMC);
+			if (atfd <= atfdThreshold || wmc < wmcThreshold)
+				continue;
+
+			if (evaluation != null)
+				evaluation.require(MetricID.TCC);
+
+			float tcc = type.getMetrics().getFloat(MetricID.TCC);
 			if (detect(atfd, wmc, tcc))
 				type.getCodeSmells().add(CodeSmellID.GOD_CLASS);
 		}
@@ -46,6 +63,11 @@ public class GodClass implements ICodeSmell {
 		return REQUIRED_METRICS;
 	}
 
+	@Override
+	public MetricID[] getLazyMetrics() {
+		return LAZY_METRICS;
+	}
+
 	@Override
 	public CodeSmellID[] getRequiredCodeSmells() {
 		return null;
@@ -0,0 +1,30 @@
+package org.repositoryminer.codesmell;
+
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.metric.MetricEvaluation;
+import org.repositoryminer.metric.MetricID;
+
+/**
+ * A code smell that asks for some of its required metrics only when its other
+ * conditions hold, so the metrics are not calculated for the files where they
+ * are not needed.
+ */
+public interface ILazyCodeSmell extends ICodeSmell {
+
+	/**
+	 * @return the required metrics that are only calculated when requested to
+	 *         the evaluation.
+	 */
+	public MetricID[] getLazyMetrics();
+
+	/**
+	 * Detects the code smell and stores the result in the ast. The required
+	 * metrics that are not lazy were already calculated.
+	 * 
+	 * @param ast
+	 * @param evaluation
+	 *            calculates the lazy metrics of the file.
+	 */
+	public void detect(AST ast, MetricEvaluation evaluation);
+
+}
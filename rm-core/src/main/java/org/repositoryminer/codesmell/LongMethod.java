@@ -21,14 +21,14 @@ public class LongMethod implements ICodeSmell {
 	@Override
 	public void detect(AST ast) {
 		for (AbstractMethod method : ast.getMethods()) {
-			int loc = (Integer) method.getMetrics().get(MetricID.LOC);
+			int loc = method.getMetrics().getInt(MetricID.LOC);
 			if (loc > mlocThreshold)
 				method.getCodeSmells().add(CodeSmellID.LONG_METHOD);
 		}
 
 		for (AbstractType type : ast.getTypes()) {
 			for (AbstractMethod method : type.getMethods()) {
-				int loc = (Integer) method.getMetrics().get(MetricID.LOC);
+				int loc = method.getMetrics().getInt(MetricID.LOC);
 				if (loc > mlocThreshold)
 					method.getCodeSmells().add(CodeSmellID.LONG_METHOD);
 			}
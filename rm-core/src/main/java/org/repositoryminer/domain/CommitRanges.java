@@ -0,0 +1,138 @@
+package org.repositoryminer.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+
+/**
+ * The commits of a reference, newest first, as ranges of commit ordinals. The
+ * ordinals are numbers given to the commits of a repository in the order they
+ * were mined, so the commits of a reference are mostly consecutive and a few
+ * ranges replace the list of their names.
+ * <p>
+ * Each range goes from its first to its last ordinal, in ascending order, and
+ * the ranges are kept in the order of the commits.
+ */
+public class CommitRanges {
+
+	// the first and the last ordinal of each range
+	private int[] bounds;
+	private int rangeCount;
+	private int size;
+
+	public CommitRanges() {
+		bounds = new int[8];
+	}
+
+	/**
+	 * Builds the ranges of a list of ordinals.
+	 *
+	 * @param ordinals
+	 *            the ordinals of the commits, newest first.
+	 * @return the ranges.
+	 */
+	public static CommitRanges fromOrdinals(List<Integer> ordinals) {
+		CommitRanges ranges = new CommitRanges();
+		for (int ordinal : ordinals)
+			ranges.add(ordinal);
+		return ranges;
+	}
+
+	/**
+	 * Converts a list of documents to ranges.
+	 *
+	 * @param documents
+	 *            the documents.
+	 * @return the ranges.
+	 */
+	public static CommitRanges parseDocuments(List<Document> documents) {
+		CommitRanges ranges = new CommitRanges();
+		if (documents != null) {
+			for (Document doc : documents)
+				ranges.addRange(doc.getInteger("from"), doc.getInteger("to"));
+		}
+		return ranges;
+	}
+
+	/**
+	 * Converts the ranges to a list of documents.
+	 *
+	 * @return a list of documents.
+	 */
+	public List<Document> toDocumentList() {
+		List<Document> docs = new ArrayList<Document>(rangeCount);
+		for (int i = 0; i < rangeCount; i++)
+			docs.add(new Document("from", getFrom(i)).append("to", getTo(i)));
+		return docs;
+	}
+
+	/**
+	 * Appends a commit, after the ones already added.
+	 *
+	 * @param ordinal
+	 *            the ordinal of the commit.
+	 */
+	public void add(int ordinal) {
+		addRange(ordinal, ordinal);
+	}
+
+	/**
+	 * Appends the commits of other ranges, after the ones already added.
+	 *
+	 * @param ranges
+	 *            the ranges to be appended.
+	 */
+	public void addAll(CommitRanges ranges) {
+		for (int i = 0; i < ranges.rangeCount; i++)
+			addRange(ranges.getFrom(i), ranges.getTo(i));
+	}
+
+	private void addRange(int from, int to) {
+		size += to - from + 1;
+		if (rangeCount > 0 && bounds[2 * rangeCount - 1] + 1 == from) {
+			bounds[2 * rangeCount - 1] = to;
+			return;
+		}
+
+		if (2 * rangeCount == bounds.length)
+			bounds = Arrays.copyOf(bounds, bounds.length * 2);
+
+		bounds[2 * rangeCount] = from;
+		bounds[2 * rangeCount + 1] = to;
+		rangeCount++;
+	}
+
+	/**
+	 * @param ordinal
+	 *            the ordinal of a commit.
+	 * @return true if the commit is in the ranges.
+	 */
+	public boolean contains(int ordinal) {
+		for (int i = 0; i < rangeCount; i++)
+			if (ordinal >= getFrom(i) && ordinal <= getTo(i))
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return the number of commits.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getRangeCount() {
+		return rangeCount;
+	}
+
+	public int getFrom(int range) {
+		return bounds[2 * range];
+	}
+
+	public int getTo(int range) {
+		return bounds[2 * range + 1];
+	}
+
+}
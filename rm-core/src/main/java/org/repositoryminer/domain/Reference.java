@@ -16,7 +16,9 @@ public class Reference {
 	private String name;
 	private String path;
 	private ReferenceType type;
+	private String tip;
 	private List<String> commits;
+	private CommitRanges commitRanges;
 
 	/**
 	 * Converts a list of documents to references.
@@ -46,6 +48,12 @@ public class Reference {
 				document.getString("name"), document.getString("path"),
 				ReferenceType.valueOf(document.getString("type")), document.get("commits", List.class));
 
+		r.setTip(document.getString("tip"));
+		// a reference mined by an older version only has the list of commits
+		if (r.getTip() == null && r.getCommits() != null && !r.getCommits().isEmpty())
+			r.setTip(r.getCommits().get(0));
+		if (document.containsKey("commit_ranges"))
+			r.setCommitRanges(CommitRanges.parseDocuments(document.get("commit_ranges", List.class)));
 		return r;
 	}
 
@@ -57,7 +65,9 @@ public class Reference {
 	public Document toDocument() {
 		Document doc = new Document();
 		doc.append("repository", new ObjectId(repository)).append("name", name).append("path", path)
-		.append("type", type.toString()).append("commits", commits);
+		.append("type", type.toString()).append("tip", tip);
+		if (commitRanges != null)
+			doc.append("commit_ranges", commitRanges.toDocumentList());
 		return doc;
 	}
 
@@ -113,6 +123,22 @@ public class Reference {
 		this.type = type;
 	}
 
+	/**
+	 * @return the commit the reference points to.
+	 */
+	public String getTip() {
+		return tip;
+	}
+
+	public void setTip(String tip) {
+		this.tip = tip;
+	}
+
+	/**
+	 * @return the commits of the reference, newest first, if they were set.
+	 *         They are not stored in the reference document, which keeps
+	 *         their {@link CommitRanges ranges}.
+	 */
 	public List<String> getCommits() {
 		return commits;
 	}
@@ -121,6 +147,14 @@ public class Reference {
 		this.commits = commits;
 	}
 
+	public CommitRanges getCommitRanges() {
+		return commitRanges;
+	}
+
+	public void setCommitRanges(CommitRanges commitRanges) {
+		this.commitRanges = commitRanges;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -15,11 +15,25 @@ public enum ErrorMessage {
 	GIT_BRANCH_COMMITS_ERROR("GIT - It was impossible to retrieve the commits of a branch."),
 	GIT_TAG_COMMITS_ERROR("GIT - It was impossible to retrieve the commits of a tag."),
 	GIT_RETRIEVE_DATA_ERROR("GIT - It was impossible to retrieve the data from a file."),
+	GIT_LIST_FILES_ERROR("GIT - It was impossible to list the files of a commit."),
 	GIT_REPOSITORY_IOERROR("GIT - It was impossible to analyze the repository, some unexpected IO error has ocurred."),
 	SCM_NOT_FOUND("Not found SCM system."),
+	SCM_OPERATION_NOT_SUPPORTED("The SCM does not support the operation:"),
 	DUPLICATE_REPOSITORY("Repository already exists in database."),
 	REPOSITORY_NOT_FOUND("Repository not found."),
-	JDT_HAS_NO_BINDING_RECOVERY("JDT binding was not activated.");
+	CODE_ANALYSIS_ERROR("It was impossible to analyze the files of a commit."),
+	CHECKOUT_FREE_BINDINGS("The checkout-free mode can not be used with metrics that require bindings."),
+	JDT_HAS_NO_BINDING_RECOVERY("JDT binding was not activated."),
+	METRIC_DEPENDENCY_CYCLE("The required metrics have a cycle."),
+	METRIC_NOT_CALCULATED("The metric was not calculated:"),
+	METRIC_VECTOR_CAPACITY("There are more metric ids than bits in the masks of the metric vector."),
+	CODE_SMELL_DEPENDENCY_CYCLE("The required code smells have a cycle."),
+	PERSISTENCE_ERROR("It was impossible to write the documents in the database."),
+	WRITER_CLOSED("The documents can not be written after the writer is closed."),
+	STORAGE_UNSUPPORTED_OPERATOR("The embedded storage does not support the query operator"),
+	STORAGE_IO_ERROR("It was impossible to read or write the embedded storage."),
+	STORAGE_DUPLICATE_KEY("A document with the same _id already exists."),
+	STORAGE_LOCKED("The embedded storage is already open by another process or storage.");
 	
 	private String message;
 	
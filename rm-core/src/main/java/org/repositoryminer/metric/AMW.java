@@ -5,17 +5,13 @@ import java.math.BigDecimal;
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractType;
 
-public class AMW implements IMetric {
+public class AMW implements IVisitorMetric {
 
 	private static final MetricID[] REQUIRED_METRICS = {MetricID.WMC, MetricID.NOM};
 	
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes()) {
-			int wmc = (Integer) type.getMetrics().get(MetricID.WMC);
-			int nom = (Integer) type.getMetrics().get(MetricID.NOM);
-			type.getMetrics().put(MetricID.AMW, calculate(wmc, nom));
-		}
+		MetricEngine.calculate(this, ast);
 	}
 
 	public float calculate(int wmc, int nom) {
@@ -25,6 +21,18 @@ public class AMW implements IMetric {
 		return new BigDecimal(wmc * 1f / nom).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
 	}
 
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				int wmc = type.getMetrics().getInt(MetricID.WMC);
+				int nom = type.getMetrics().getInt(MetricID.NOM);
+				type.getMetrics().put(MetricID.AMW, calculate(wmc, nom));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.AMW;
@@ -35,4 +43,9 @@ public class AMW implements IMetric {
 		return REQUIRED_METRICS;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
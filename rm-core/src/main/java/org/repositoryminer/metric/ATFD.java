@@ -4,55 +4,94 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.repositoryminer.ast.AST;
-import org.repositoryminer.ast.AbstractFieldAccess;
 import org.repositoryminer.ast.AbstractMethod;
-import org.repositoryminer.ast.AbstractMethodInvocation;
-import org.repositoryminer.ast.AbstractStatement;
 import org.repositoryminer.ast.AbstractType;
 import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
 
-public class ATFD implements IMetric {
+public class ATFD implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes()) {
-			int atfdClass = 0;
-			for (AbstractMethod method : type.getMethods()) {
-				int atfdMethod = calculate(type, method);
-				atfdClass += atfdMethod;
-				method.getMetrics().put(MetricID.ATFD, atfdMethod);
-			}
-			type.getMetrics().put(MetricID.ATFD, atfdClass);
-		}
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(AbstractType currType, AbstractMethod method) {
-		Set<String> accessedFields = new HashSet<String>();
-		for (AbstractStatement stmt : method.getStatements()) {
-			String field = null;
-			String declarringClass = null;
-
-			if (stmt.getNodeType() == NodeType.FIELD_ACCESS) {
-				AbstractFieldAccess fieldAccess = (AbstractFieldAccess) stmt;
-				field = fieldAccess.getExpression();
-				declarringClass = fieldAccess.getDeclaringClass();
-			} else if (stmt.getNodeType() == NodeType.METHOD_INVOCATION) {
-				AbstractMethodInvocation methodInvocation = (AbstractMethodInvocation) stmt;
-				if (!methodInvocation.isAccessor()) 
-					continue;
-				
-				field = methodInvocation.getAccessedField();
-				declarringClass = methodInvocation.getDeclaringClass();
-			} else 
-				continue;
-
-			if (!currType.getName().equals(declarringClass))
-				accessedFields.add(declarringClass + '.' + field);
-		}
+		Set<Long> accessedFields = new HashSet<Long>();
+		StatementStore statements = method.getStatementStore();
+		int currClass = statements.getSymbols().find(currType.getName());
+		for (int i = 0; i < statements.size(); i++)
+			collect(statements, i, currClass, accessedFields);
 
 		return accessedFields.size();
 	}
 
+	private static void collect(StatementStore statements, int index, int currClass, Set<Long> accessedFields) {
+		int field;
+		NodeType nodeType = statements.getNodeType(index);
+
+		if (nodeType == NodeType.FIELD_ACCESS) {
+			field = statements.getName(index);
+		} else if (nodeType == NodeType.METHOD_INVOCATION) {
+			if (!statements.isAccessor(index))
+				return;
+
+			field = statements.getAccessedField(index);
+		} else
+			return;
+
+		int declaringClass = statements.getDeclaringClass(index);
+		if (declaringClass == SymbolTable.NONE || declaringClass != currClass)
+			accessedFields.add(StatementStore.pair(declaringClass, field));
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private Set<Long> accessedFields = new HashSet<Long>();
+			private int currClass;
+			private int atfdClass;
+
+			@Override
+			public boolean visitsStatements() {
+				return true;
+			}
+
+			@Override
+			public void visitType(AbstractType type) {
+				atfdClass = 0;
+			}
+
+			@Override
+			public void visitMethod(AbstractType type, AbstractMethod method) {
+				accessedFields.clear();
+				currClass = type != null ? method.getStatementStore().getSymbols().find(type.getName())
+						: SymbolTable.NONE;
+			}
+
+			@Override
+			public void visitStatement(StatementStore statements, int index) {
+				collect(statements, index, currClass, accessedFields);
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				if (type == null)
+					return;
+
+				int atfdMethod = accessedFields.size();
+				atfdClass += atfdMethod;
+				method.getMetrics().put(MetricID.ATFD, atfdMethod);
+			}
+
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.ATFD, atfdClass);
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.ATFD;
@@ -63,4 +102,9 @@ public class ATFD implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package org.repositoryminer.metric;
+
+/**
+ * Base class for the metrics that only implement the basic operations of
+ * {@link IMetric}: the calculation, the identifier and the required metrics.
+ * Such a metric may use any information of the AST, so it is assumed to
+ * require the resolution of bindings.
+ */
+public abstract class AbstractMetric implements IMetric {
+
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
+}
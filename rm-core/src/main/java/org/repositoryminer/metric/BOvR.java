@@ -0,0 +1,63 @@
+package org.repositoryminer.metric;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.repositoryminer.ast.AST;
+
+/**
+ * Base-class Overriding Ratio: the number of methods of a type that override a
+ * method of its superclasses, relative to the number of methods of the type.
+ * Only the superclasses declared in the repository are considered.
+ */
+public class BOvR implements IHierarchyMetric {
+
+	@Override
+	public void calculate(AST ast) {
+		TypeIndex.calculate(this, ast);
+	}
+
+	@Override
+	public void calculate(TypeIndex index, TypeInfo type, MetricVector metrics) {
+		metrics.put(MetricID.BOvR, calculate(index, type));
+	}
+
+	public float calculate(TypeIndex index, TypeInfo type) {
+		if (type.getMethods().isEmpty())
+			return 0;
+
+		Set<String> inherited = new HashSet<String>();
+		Set<String> visited = new HashSet<String>();
+		visited.add(type.getName());
+		TypeInfo superClass = index.getSuperClass(type);
+		while (superClass != null && visited.add(superClass.getName())) {
+			inherited.addAll(superClass.getMethods());
+			superClass = index.getSuperClass(superClass);
+		}
+
+		int overridden = 0;
+		for (String method : type.getMethods())
+			if (inherited.contains(method))
+				overridden++;
+
+		float result = overridden * 1.0f / type.getMethods().size();
+		return new BigDecimal(result).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
+	}
+
+	@Override
+	public MetricID getId() {
+		return MetricID.BOvR;
+	}
+
+	@Override
+	public MetricID[] getRequiredMetrics() {
+		return null;
+	}
+
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.repositoryminer.metric;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.repositoryminer.ast.AST;
+
+/**
+ * Base-class Usage Ratio: the number of protected members of the superclass
+ * that a type uses, relative to the number of protected members of the
+ * superclass. It is 0 if the superclass is not declared in the repository or
+ * has no protected members.
+ */
+public class BUR implements IHierarchyMetric {
+
+	@Override
+	public void calculate(AST ast) {
+		TypeIndex.calculate(this, ast);
+	}
+
+	@Override
+	public void calculate(TypeIndex index, TypeInfo type, MetricVector metrics) {
+		metrics.put(MetricID.BUR, calculate(index, type));
+	}
+
+	public float calculate(TypeIndex index, TypeInfo type) {
+		TypeInfo superClass = index.getSuperClass(type);
+		if (superClass == null || superClass.getProtectedMembers().isEmpty())
+			return 0;
+
+		Set<String> usedMembers = new HashSet<String>(type.getUsedMembers());
+		int used = 0;
+		for (String member : superClass.getProtectedMembers())
+			if (usedMembers.contains(superClass.getName() + '#' + member))
+				used++;
+
+		float result = used * 1.0f / superClass.getProtectedMembers().size();
+		return new BigDecimal(result).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
+	}
+
+	@Override
+	public MetricID getId() {
+		return MetricID.BUR;
+	}
+
+	@Override
+	public MetricID[] getRequiredMetrics() {
+		return null;
+	}
+
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
+}
@@ -2,66 +2,69 @@ package org.repositoryminer.metric;
 
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
-import org.repositoryminer.ast.AbstractStatement;
 import org.repositoryminer.ast.AbstractType;
-import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
 
-public class CYCLO implements IMetric {
+public class CYCLO implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractMethod method : ast.getMethods())
-			method.getMetrics().put(MetricID.CYCLO, calculate(method));
-
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
-				method.getMetrics().put(MetricID.CYCLO, calculate(method));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(AbstractMethod method) {
-		if (method.getStatements() == null)
+		if (method.getStatementStore() == null)
 			return 1;
 
 		int cc = 1;
-		for (AbstractStatement statement : method.getStatements()) {
-			switch (statement.getNodeType()) {
-			case SWITCH_CASE:
-				cc++;
-				break;
-			case IF:
-			case FOR:
-			case DO_WHILE:
-			case WHILE:
-			case CATCH:
-			case CONDITIONAL_EXPRESSION:
-				cc += calculateExpression(statement.getExpression(), statement.getNodeType());
-				break;
-			default:
-				break;
-			}
-		}
+		StatementStore statements = method.getStatementStore();
+		for (int i = 0; i < statements.size(); i++)
+			cc += calculate(statements, i);
 
 		return cc;
 	}
 
-	private int calculateExpression(String expression, NodeType type) {
-		int cc = 1;
-		char[] chars = expression.toCharArray();
+	private static int calculate(StatementStore statements, int index) {
+		switch (statements.getNodeType(index)) {
+		case SWITCH_CASE:
+			return 1;
+		case IF:
+		case FOR:
+		case DO_WHILE:
+		case WHILE:
+		case CATCH:
+		case CONDITIONAL_EXPRESSION:
+			return 1 + statements.getOperators(index);
+		default:
+			return 0;
+		}
+	}
 
-		if (type != NodeType.CATCH) {
-			for (int i = 0; i < chars.length - 1; i++) {
-				char next = chars[i];
-				if ((next == '&' || next == '|') && (next == chars[i + 1]))
-					cc++;
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private int cc;
+
+			@Override
+			public boolean visitsStatements() {
+				return true;
 			}
-		} else {
-			for (int i = 0; i < chars.length - 1; i++)
-				if (chars[i] == '|') {
-					cc++;
-				}
-		}
 
-		return cc;
+			@Override
+			public void visitMethod(AbstractType type, AbstractMethod method) {
+				cc = 1;
+			}
+
+			@Override
+			public void visitStatement(StatementStore statements, int index) {
+				cc += calculate(statements, index);
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				method.getMetrics().put(MetricID.CYCLO, cc);
+			}
+		};
 	}
 
 	@Override
@@ -74,4 +77,9 @@ public class CYCLO implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
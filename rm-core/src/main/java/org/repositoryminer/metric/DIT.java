@@ -0,0 +1,58 @@
+package org.repositoryminer.metric;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.repositoryminer.ast.AST;
+
+/**
+ * Depth of Inheritance Tree: the number of classes from a type to the root of
+ * its hierarchy. A type without superclass has depth 1 (it extends Object).
+ * A superclass that is not declared in the repository counts as one more
+ * level, since its own superclasses are unknown.
+ */
+public class DIT implements IHierarchyMetric {
+
+	@Override
+	public void calculate(AST ast) {
+		TypeIndex.calculate(this, ast);
+	}
+
+	@Override
+	public void calculate(TypeIndex index, TypeInfo type, MetricVector metrics) {
+		metrics.put(MetricID.DIT, calculate(index, type));
+	}
+
+	public int calculate(TypeIndex index, TypeInfo type) {
+		int depth = 1;
+		Set<String> visited = new HashSet<String>();
+		visited.add(type.getName());
+
+		TypeInfo superClass = index.getSuperClass(type);
+		while (superClass != null && visited.add(superClass.getName())) {
+			depth++;
+			type = superClass;
+			superClass = index.getSuperClass(type);
+		}
+
+		if (superClass == null && type.getSuperClass() != null)
+			depth++;
+		return depth;
+	}
+
+	@Override
+	public MetricID getId() {
+		return MetricID.DIT;
+	}
+
+	@Override
+	public MetricID[] getRequiredMetrics() {
+		return null;
+	}
+
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
+}
@@ -4,46 +4,73 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.repositoryminer.ast.AST;
-import org.repositoryminer.ast.AbstractFieldAccess;
 import org.repositoryminer.ast.AbstractMethod;
-import org.repositoryminer.ast.AbstractMethodInvocation;
-import org.repositoryminer.ast.AbstractStatement;
 import org.repositoryminer.ast.AbstractType;
 import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
 
-public class FDP implements IMetric {
+public class FDP implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
-				method.getMetrics().put(MetricID.FDP, calculate(type, method));
+		MetricEngine.calculate(this, ast);
 	}
 	
 	public int calculate(AbstractType currType, AbstractMethod method) {
-		Set<String> accessedClasses = new HashSet<String>();
-		for (AbstractStatement stmt : method.getStatements()) {
-			String declarringClass = null;
-
-			if (stmt.getNodeType() == NodeType.FIELD_ACCESS) {
-				AbstractFieldAccess fieldAccess = (AbstractFieldAccess) stmt;
-				declarringClass = fieldAccess.getDeclaringClass();
-			} else if (stmt.getNodeType() == NodeType.METHOD_INVOCATION) {
-				AbstractMethodInvocation methodInvocation = (AbstractMethodInvocation) stmt;
-				if (!methodInvocation.isAccessor())
-					continue;
-				
-				declarringClass = methodInvocation.getDeclaringClass();
-			} else
-				continue;
-
-			if (!currType.getName().equals(declarringClass))
-				accessedClasses.add(declarringClass);
-		}
+		Set<Integer> accessedClasses = new HashSet<Integer>();
+		StatementStore statements = method.getStatementStore();
+		int currClass = statements.getSymbols().find(currType.getName());
+		for (int i = 0; i < statements.size(); i++)
+			collect(statements, i, currClass, accessedClasses);
 
 		return accessedClasses.size();
 	}
 
+	private static void collect(StatementStore statements, int index, int currClass, Set<Integer> accessedClasses) {
+		NodeType nodeType = statements.getNodeType(index);
+		if (nodeType == NodeType.METHOD_INVOCATION) {
+			if (!statements.isAccessor(index))
+				return;
+		} else if (nodeType != NodeType.FIELD_ACCESS)
+			return;
+
+		int declaringClass = statements.getDeclaringClass(index);
+		if (declaringClass == SymbolTable.NONE || declaringClass != currClass)
+			accessedClasses.add(declaringClass);
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private Set<Integer> accessedClasses = new HashSet<Integer>();
+			private int currClass;
+
+			@Override
+			public boolean visitsStatements() {
+				return true;
+			}
+
+			@Override
+			public void visitMethod(AbstractType type, AbstractMethod method) {
+				accessedClasses.clear();
+				currClass = type != null ? method.getStatementStore().getSymbols().find(type.getName())
+						: SymbolTable.NONE;
+			}
+
+			@Override
+			public void visitStatement(StatementStore statements, int index) {
+				collect(statements, index, currClass, accessedClasses);
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				if (type != null)
+					method.getMetrics().put(MetricID.FDP, accessedClasses.size());
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.FDP;
@@ -54,4 +81,9 @@ public class FDP implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
 }
\ No newline at end of file
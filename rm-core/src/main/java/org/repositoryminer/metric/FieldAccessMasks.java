@@ -0,0 +1,123 @@
+package org.repositoryminer.metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields of a type that each of its methods accesses, used by the cohesion
+ * metrics. The fields are mapped to dense indices and each method keeps a mask
+ * with a bit per accessed field, so two methods are connected when their masks
+ * have a bit in common.
+ */
+class FieldAccessMasks {
+
+	private Map<Integer, Integer> fieldIndices = new HashMap<Integer, Integer>();
+	private List<long[]> masks = new ArrayList<long[]>();
+	private long[] current;
+
+	public void startMethod() {
+		current = new long[Math.max(1, (fieldIndices.size() + 63) >>> 6)];
+		masks.add(current);
+	}
+
+	/**
+	 * Marks a field as accessed by the current method.
+	 *
+	 * @param field
+	 *            the symbol of the field.
+	 */
+	public void addField(int field) {
+		Integer index = fieldIndices.get(field);
+		if (index == null) {
+			index = fieldIndices.size();
+			fieldIndices.put(field, index);
+		}
+
+		int word = index >>> 6;
+		if (word >= current.length) {
+			current = Arrays.copyOf(current, Math.max(word + 1, current.length * 2));
+			masks.set(masks.size() - 1, current);
+		}
+		current[word] |= 1L << index;
+	}
+
+	public int getMethodCount() {
+		return masks.size();
+	}
+
+	/**
+	 * @return the number of method pairs that access a common field.
+	 */
+	public int countDirectConnections() {
+		int connections = 0;
+		for (int i = 0; i < masks.size(); i++)
+			for (int j = i + 1; j < masks.size(); j++)
+				if (intersects(masks.get(i), masks.get(j)))
+					connections++;
+
+		return connections;
+	}
+
+	/**
+	 * @return the number of method pairs connected directly or through other
+	 *         methods.
+	 */
+	public int countIndirectConnections() {
+		int n = masks.size();
+		int[] parents = new int[n];
+		for (int i = 0; i < n; i++)
+			parents[i] = i;
+
+		// joins each method with the first method that accessed the same field
+		int[] firstAccess = new int[fieldIndices.size()];
+		Arrays.fill(firstAccess, -1);
+		for (int i = 0; i < n; i++) {
+			long[] mask = masks.get(i);
+			for (int word = 0; word < mask.length; word++) {
+				long bits = mask[word];
+				while (bits != 0) {
+					int field = (word << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					if (firstAccess[field] < 0)
+						firstAccess[field] = i;
+					else
+						union(parents, firstAccess[field], i);
+				}
+			}
+		}
+
+		int[] sizes = new int[n];
+		for (int i = 0; i < n; i++)
+			sizes[find(parents, i)]++;
+
+		int connections = 0;
+		for (int size : sizes)
+			connections += (size * (size - 1)) / 2;
+
+		return connections;
+	}
+
+	private static boolean intersects(long[] mask1, long[] mask2) {
+		int length = Math.min(mask1.length, mask2.length);
+		for (int i = 0; i < length; i++)
+			if ((mask1[i] & mask2[i]) != 0)
+				return true;
+		return false;
+	}
+
+	private static int find(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parents, int i, int j) {
+		parents[find(parents, i)] = find(parents, j);
+	}
+
+}
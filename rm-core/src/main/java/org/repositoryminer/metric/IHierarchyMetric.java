@@ -0,0 +1,25 @@
+package org.repositoryminer.metric;
+
+import org.repositoryminer.ast.AST;
+
+/**
+ * A metric of a type that depends on its superclasses, which may be declared
+ * in other files. The metric is calculated from a {@link TypeIndex} of the
+ * repository, after the index was updated with the changes of the commit.
+ * {@link IMetric#calculate(AST)} only knows the types of the file.
+ */
+public interface IHierarchyMetric extends IMetric {
+
+	/**
+	 * Calculates the metric of a type.
+	 *
+	 * @param index
+	 *            the types of the repository.
+	 * @param type
+	 *            the type.
+	 * @param metrics
+	 *            where the result is stored.
+	 */
+	public void calculate(TypeIndex index, TypeInfo type, MetricVector metrics);
+
+}
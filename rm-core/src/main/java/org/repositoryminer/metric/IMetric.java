@@ -2,6 +2,13 @@ package org.repositoryminer.metric;
 
 import org.repositoryminer.ast.AST;
 
+/**
+ * A metric of the source code.
+ * <p>
+ * New operations are added to this interface as the mining evolves, so a
+ * metric should extend {@link AbstractMetric}, which implements them on top of
+ * the basic ones.
+ */
 public interface IMetric {
 
 	/**
@@ -21,4 +28,11 @@ public interface IMetric {
 	 */
 	public MetricID[] getRequiredMetrics();
 
+	/**
+	 * @return true if the metric uses information that only the resolution of
+	 *         bindings provides (e.g. the declaring class of an accessed field),
+	 *         or false if the syntax of the source code is enough.
+	 */
+	public boolean requiresBindings();
+
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package org.repositoryminer.metric;
+
+import org.repositoryminer.ast.AST;
+
+/**
+ * A metric computed by a {@link MetricVisitor}, so the {@link MetricEngine} can
+ * compute it together with other metrics in a single walk over the file.
+ */
+public interface IVisitorMetric extends IMetric {
+
+	/**
+	 * @param ast
+	 *            the file.
+	 * @return a new visitor that stores the metric in the visited elements.
+	 */
+	public MetricVisitor createVisitor(AST ast);
+
+}
@@ -5,44 +5,70 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.repositoryminer.ast.AST;
-import org.repositoryminer.ast.AbstractFieldAccess;
 import org.repositoryminer.ast.AbstractMethod;
-import org.repositoryminer.ast.AbstractMethodInvocation;
-import org.repositoryminer.ast.AbstractStatement;
 import org.repositoryminer.ast.AbstractType;
 import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
 
-public class LAA implements IMetric {
+public class LAA implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
-				method.getMetrics().put(MetricID.LAA, calculate(type, method));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public float calculate(AbstractType type, AbstractMethod method) {
-		int countFields = countAccessedFields(method);
+		return calculate(type, countAccessedFields(method));
+	}
+
+	private float calculate(AbstractType type, int countFields) {
 		float result = countFields > 0 ? (type.getFields().size() * 1.0f) / countFields : 0;
 		return new BigDecimal(result).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
 	}
 
 	public static int countAccessedFields(AbstractMethod method) {
-		Set<String> accessedFields = new HashSet<String>();
-		for (AbstractStatement stmt : method.getStatements()) {
-			if (stmt.getNodeType() == NodeType.FIELD_ACCESS) {
-				AbstractFieldAccess fieldAccess = (AbstractFieldAccess) stmt;
-				accessedFields.add(fieldAccess.getDeclaringClass() + '.' + fieldAccess.getExpression());
-			} else if (stmt.getNodeType() == NodeType.METHOD_INVOCATION) {
-				AbstractMethodInvocation methodInvocation = (AbstractMethodInvocation) stmt;
-				if (methodInvocation.isAccessor())
-					accessedFields.add(methodInvocation.getDeclaringClass() + '.' + methodInvocation.getExpression());
-			} else
-				continue;
-		}
+		Set<Long> accessedFields = new HashSet<Long>();
+		StatementStore statements = method.getStatementStore();
+		for (int i = 0; i < statements.size(); i++)
+			collectAccessedField(statements, i, accessedFields);
+
 		return accessedFields.size();
 	}
 
+	static void collectAccessedField(StatementStore statements, int index, Set<Long> accessedFields) {
+		NodeType nodeType = statements.getNodeType(index);
+		if (nodeType == NodeType.FIELD_ACCESS || (nodeType == NodeType.METHOD_INVOCATION && statements.isAccessor(index)))
+			accessedFields.add(StatementStore.pair(statements.getDeclaringClass(index), statements.getName(index)));
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private Set<Long> accessedFields = new HashSet<Long>();
+
+			@Override
+			public boolean visitsStatements() {
+				return true;
+			}
+
+			@Override
+			public void visitMethod(AbstractType type, AbstractMethod method) {
+				accessedFields.clear();
+			}
+
+			@Override
+			public void visitStatement(StatementStore statements, int index) {
+				collectAccessedField(statements, index, accessedFields);
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				if (type != null)
+					method.getMetrics().put(MetricID.LAA, calculate(type, accessedFields.size()));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.LAA;
@@ -53,4 +79,9 @@ public class LAA implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
 }
\ No newline at end of file
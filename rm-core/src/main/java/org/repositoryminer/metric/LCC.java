@@ -0,0 +1,58 @@
+package org.repositoryminer.metric;
+
+import java.math.BigDecimal;
+
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractType;
+
+/**
+ * Loose Class Cohesion: the relative number of method pairs of a type that
+ * access a common field, directly or through other methods. It considers the
+ * same methods and field accesses as {@link TCC}.
+ */
+public class LCC implements IVisitorMetric {
+
+	@Override
+	public void calculate(AST ast) {
+		MetricEngine.calculate(this, ast);
+	}
+
+	public float calculate(AbstractType type) {
+		return calculate(TCC.createMasks(type));
+	}
+
+	private float calculate(FieldAccessMasks masks) {
+		int n = masks.getMethodCount();
+		int npc = (n * (n - 1)) / 2;
+		int nic = masks.countIndirectConnections();
+
+		float result = npc > 0 ? nic * 1.0f / npc : 0;
+		return new BigDecimal(result).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new TCC.CohesionVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.LCC, calculate(getMasks()));
+			}
+		};
+	}
+
+	@Override
+	public MetricID getId() {
+		return MetricID.LCC;
+	}
+
+	@Override
+	public MetricID[] getRequiredMetrics() {
+		return null;
+	}
+
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
+}
@@ -1,55 +1,57 @@
 package org.repositoryminer.metric;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.LineIndex;
 
-public class LOC implements IMetric {
-
-	private Pattern pattern;
-
-	public LOC() {
-		pattern = Pattern.compile("(\r\n)|(\n)|(\r)");
-	}
+public class LOC implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		ast.getMetrics().put(MetricID.LOC, calculate(ast.getSource()));
-
-		for (AbstractMethod method : ast.getMethods())
-			method.getMetrics().put(MetricID.LOC, calculate(ast, method));
-
-		for (AbstractType type : ast.getTypes()) {
-			type.getMetrics().put(MetricID.LOC, calculate(ast, type));
-			for (AbstractMethod method : type.getMethods())
-				method.getMetrics().put(MetricID.LOC, calculate(ast, method));
-		}
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(AST ast, AbstractType type) {
-		String clazz = ast.getSource().substring(type.getStartPosition(), type.getEndPosition());
-		String body = clazz.substring(clazz.indexOf('{'));
-		return calculate(body);
+		return calculateBody(ast, type.getStartPosition(), type.getEndPosition());
 	}
 
 	public int calculate(AST ast, AbstractMethod method) {
-		String m = ast.getSource().substring(method.getStartPosition(), method.getEndPosition());
-		return m.contains("{") ? calculate(m.substring(m.indexOf('{'))) : 0;
+		return calculateBody(ast, method.getStartPosition(), method.getEndPosition());
 	}
 
 	public int calculate(String source) {
-		if (source == null || source.length() == 0)
-			return 0;
+		return new LineIndex(source).getLineCount();
+	}
 
-		int lines = 1;
-		Matcher matcher = pattern.matcher(source);
-		while (matcher.find())
-			lines++;
+	// counts the lines from the first brace of the declaration to its end
+	private int calculateBody(AST ast, int start, int end) {
+		String source = ast.getSource();
+		for (int i = start; i < end; i++)
+			if (source.charAt(i) == '{')
+				return ast.getLineIndex().countLines(i, end);
 
-		return lines;
+		return 0;
+	}
+
+	@Override
+	public MetricVisitor createVisitor(final AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				method.getMetrics().put(MetricID.LOC, calculate(ast, method));
+			}
+
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.LOC, calculate(ast, type));
+			}
+
+			@Override
+			public void endFile(AST ast) {
+				ast.getMetrics().put(MetricID.LOC, ast.getLineIndex().getLineCount());
+			}
+		};
 	}
 
 	@Override
@@ -62,4 +64,9 @@ public class LOC implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
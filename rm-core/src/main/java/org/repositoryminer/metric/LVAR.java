@@ -1,37 +1,64 @@
 package org.repositoryminer.metric;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
-import org.repositoryminer.ast.AbstractStatement;
 import org.repositoryminer.ast.AbstractType;
 import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
 
-public class LVAR implements IMetric {
+public class LVAR implements IVisitorMetric {
 
 	private static final MetricID ID = MetricID.LVAR;
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractMethod method : ast.getMethods())
-			method.getMetrics().put(ID, calculate(method));
-
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
-				method.getMetrics().put(ID, calculate(method));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(AbstractMethod method) {
-		List<String> lvar = new ArrayList<String>();
-		for (AbstractStatement statement : method.getStatements())
-			if (statement.getNodeType() == NodeType.VARIABLE_DECLARATION && !lvar.contains(statement.getExpression()))
-				lvar.add(statement.getExpression());
-		
+		Set<Integer> lvar = new HashSet<Integer>();
+		StatementStore statements = method.getStatementStore();
+		for (int i = 0; i < statements.size(); i++)
+			collect(statements, i, lvar);
+
 		return lvar.size();
 	}
 
+	private static void collect(StatementStore statements, int index, Set<Integer> lvar) {
+		if (statements.getNodeType(index) == NodeType.VARIABLE_DECLARATION)
+			lvar.add(statements.getName(index));
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private Set<Integer> lvar = new HashSet<Integer>();
+
+			@Override
+			public boolean visitsStatements() {
+				return true;
+			}
+
+			@Override
+			public void visitMethod(AbstractType type, AbstractMethod method) {
+				lvar.clear();
+			}
+
+			@Override
+			public void visitStatement(StatementStore statements, int index) {
+				collect(statements, index, lvar);
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				method.getMetrics().put(ID, lvar.size());
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.LVAR;
@@ -42,4 +69,9 @@ public class LVAR implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
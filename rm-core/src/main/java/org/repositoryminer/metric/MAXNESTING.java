@@ -4,16 +4,21 @@ import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
 
-public class MAXNESTING implements IMetric {
+public class MAXNESTING implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractMethod method : ast.getMethods())
-			method.getMetrics().put(MetricID.MAXNESTING, method.getMaxDepth());
-		
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
+		MetricEngine.calculate(this, ast);
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
 				method.getMetrics().put(MetricID.MAXNESTING, method.getMaxDepth());
+			}
+		};
 	}
 
 	@Override
@@ -25,5 +30,10 @@ public class MAXNESTING implements IMetric {
 	public MetricID[] getRequiredMetrics() {
 		return null;
 	}
-	
+
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
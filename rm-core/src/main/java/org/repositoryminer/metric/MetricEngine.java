@@ -0,0 +1,110 @@
+package org.repositoryminer.metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.StatementStore;
+
+/**
+ * Calculates a set of metrics. The consecutive {@link IVisitorMetric}s are
+ * calculated together, in a single walk over the types, methods and statements
+ * of the file, while the other metrics are calculated on their own by
+ * {@link IMetric#calculate(AST)}.
+ * <p>
+ * The metrics must be given in dependency order (a metric after the ones it
+ * requires). The visitors are called in that order for each element, so a
+ * visitor can read, when a method or type ends, the values stored by the
+ * metrics before it. The engine keeps no state between files and can be shared
+ * by several threads.
+ */
+public class MetricEngine {
+
+	private List<List<IMetric>> stages = new ArrayList<List<IMetric>>();
+
+	/**
+	 * @param metrics
+	 *            the metrics, in dependency order.
+	 */
+	public MetricEngine(Collection<IMetric> metrics) {
+		List<IMetric> stage = null;
+		for (IMetric metric : metrics) {
+			if (!(metric instanceof IVisitorMetric)) {
+				stages.add(Collections.singletonList(metric));
+				stage = null;
+				continue;
+			}
+
+			if (stage == null) {
+				stage = new ArrayList<IMetric>();
+				stages.add(stage);
+			}
+			stage.add(metric);
+		}
+	}
+
+	public void calculate(AST ast) {
+		for (List<IMetric> stage : stages) {
+			if (stage.get(0) instanceof IVisitorMetric)
+				walk(stage, ast);
+			else
+				stage.get(0).calculate(ast);
+		}
+	}
+
+	/**
+	 * Calculates a single metric.
+	 */
+	public static void calculate(IVisitorMetric metric, AST ast) {
+		walk(Collections.<IMetric> singletonList(metric), ast);
+	}
+
+	private static void walk(List<IMetric> metrics, AST ast) {
+		MetricVisitor[] visitors = new MetricVisitor[metrics.size()];
+		List<MetricVisitor> statementVisitors = new ArrayList<MetricVisitor>();
+		for (int i = 0; i < visitors.length; i++) {
+			visitors[i] = ((IVisitorMetric) metrics.get(i)).createVisitor(ast);
+			if (visitors[i].visitsStatements())
+				statementVisitors.add(visitors[i]);
+		}
+
+		MetricVisitor[] statementArray = statementVisitors.toArray(new MetricVisitor[statementVisitors.size()]);
+		for (AbstractMethod method : ast.getMethods())
+			walk(visitors, statementArray, null, method);
+
+		for (AbstractType type : ast.getTypes()) {
+			for (MetricVisitor visitor : visitors)
+				visitor.visitType(type);
+
+			for (AbstractMethod method : type.getMethods())
+				walk(visitors, statementArray, type, method);
+
+			for (MetricVisitor visitor : visitors)
+				visitor.endType(type);
+		}
+
+		for (MetricVisitor visitor : visitors)
+			visitor.endFile(ast);
+	}
+
+	private static void walk(MetricVisitor[] visitors, MetricVisitor[] statementVisitors, AbstractType type,
+			AbstractMethod method) {
+		for (MetricVisitor visitor : visitors)
+			visitor.visitMethod(type, method);
+
+		StatementStore statements = method.getStatementStore();
+		if (statementVisitors.length > 0 && statements != null) {
+			for (int i = 0; i < statements.size(); i++)
+				for (MetricVisitor visitor : statementVisitors)
+					visitor.visitStatement(statements, i);
+		}
+
+		for (MetricVisitor visitor : visitors)
+			visitor.endMethod(type, method);
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.repositoryminer.metric;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.repositoryminer.ast.AST;
+
+/**
+ * Calculates the lazy metrics of a file on request. Each metric is calculated
+ * at most once, after its requirements, and the metrics requested together are
+ * calculated in a single walk over the file.
+ */
+public class MetricEvaluation {
+
+	private MetricGraph graph;
+	private AST ast;
+	private Set<MetricID> calculated = new HashSet<MetricID>();
+
+	MetricEvaluation(MetricGraph graph, AST ast) {
+		this.graph = graph;
+		this.ast = ast;
+	}
+
+	/**
+	 * Calculates the metrics that were not calculated yet, so their values can
+	 * be read from the file, its types and methods.
+	 */
+	public void require(MetricID... ids) {
+		Set<MetricID> missing = new HashSet<MetricID>();
+		for (MetricID id : ids)
+			addMissing(id, missing);
+
+		if (missing.isEmpty())
+			return;
+
+		List<IMetric> metrics = new ArrayList<IMetric>();
+		for (IMetric metric : graph.getMetrics())
+			if (missing.contains(metric.getId()))
+				metrics.add(metric);
+
+		new MetricEngine(metrics).calculate(ast);
+		calculated.addAll(missing);
+	}
+
+	private void addMissing(MetricID id, Set<MetricID> missing) {
+		if (!graph.isLazy(id) || calculated.contains(id) || !missing.add(id))
+			return;
+
+		MetricID[] required = graph.getMetric(id).getRequiredMetrics();
+		if (required != null)
+			for (MetricID requiredId : required)
+				addMissing(requiredId, missing);
+	}
+
+}
@@ -8,12 +8,20 @@ public class MetricFactory {
 			return new AMW();
 		case ATFD:
 			return new ATFD();
+		case BOvR:
+			return new BOvR();
+		case BUR:
+			return new BUR();
 		case CYCLO:
 			return new CYCLO();
+		case DIT:
+			return new DIT();
 		case FDP:
 			return new FDP();
 		case LAA:
 			return new LAA();
+		case LCC:
+			return new LCC();
 		case LOC:
 			return new LOC();
 		case LVAR:
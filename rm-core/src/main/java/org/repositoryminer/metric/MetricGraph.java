@@ -0,0 +1,159 @@
+package org.repositoryminer.metric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * The metrics of an analysis and their requirements, in dependency order (a
+ * metric after the ones it requires).
+ * <p>
+ * The metrics are eager or lazy. The eager ones are calculated for every file,
+ * in a single walk. A lazy metric is only calculated when a
+ * {@link MetricEvaluation} asks for it, so a code smell can skip an expensive
+ * metric when its other conditions already fail. A metric required by an eager
+ * metric is always eager.
+ * <p>
+ * The graph is sorted on the first use, which must happen before it is shared
+ * by several threads, and keeps no state between files.
+ */
+public class MetricGraph {
+
+	private Map<MetricID, IMetric> metrics = new LinkedHashMap<MetricID, IMetric>();
+	private Set<MetricID> requestedLazy = new HashSet<MetricID>();
+
+	private List<IMetric> order;
+	private Set<MetricID> lazy;
+	private MetricEngine engine;
+
+	/**
+	 * Adds a metric to be calculated eagerly. The given instance is used
+	 * instead of the one the {@link MetricFactory} creates for the same id.
+	 */
+	public void addMetric(IMetric metric) {
+		metrics.put(metric.getId(), metric);
+		requestedLazy.remove(metric.getId());
+		order = null;
+	}
+
+	/**
+	 * Adds a metric by id, unless it was already added.
+	 *
+	 * @param lazy
+	 *            true if the metric is calculated only when requested.
+	 */
+	public void addMetric(MetricID id, boolean lazy) {
+		if (!metrics.containsKey(id)) {
+			metrics.put(id, MetricFactory.getMetric(id));
+			if (lazy)
+				requestedLazy.add(id);
+		} else if (!lazy) {
+			requestedLazy.remove(id);
+		}
+		order = null;
+	}
+
+	/**
+	 * @return all the metrics, eager and lazy, in dependency order.
+	 */
+	public List<IMetric> getMetrics() {
+		build();
+		return order;
+	}
+
+	/**
+	 * @return true if the metric is calculated only when requested.
+	 */
+	public boolean isLazy(MetricID id) {
+		build();
+		return lazy.contains(id);
+	}
+
+	/**
+	 * Calculates the eager metrics of a file.
+	 *
+	 * @return the evaluation that calculates the lazy metrics of the file.
+	 */
+	public MetricEvaluation calculate(AST ast) {
+		build();
+		engine.calculate(ast);
+		return new MetricEvaluation(this, ast);
+	}
+
+	IMetric getMetric(MetricID id) {
+		return metrics.get(id);
+	}
+
+	/*
+	 * Sorts the metrics by their requirements, adding the required metrics that
+	 * are missing, and marks as eager the requirements of the eager metrics.
+	 */
+	private void build() {
+		if (order != null)
+			return;
+
+		List<IMetric> sorted = new ArrayList<IMetric>();
+		Map<MetricID, Boolean> visited = new HashMap<MetricID, Boolean>();
+		for (IMetric metric : new ArrayList<IMetric>(metrics.values()))
+			visit(metric, sorted, visited);
+
+		Set<MetricID> eager = new HashSet<MetricID>();
+		for (int i = sorted.size() - 1; i >= 0; i--) {
+			IMetric metric = sorted.get(i);
+			if (!requestedLazy.contains(metric.getId()) || eager.contains(metric.getId())) {
+				eager.add(metric.getId());
+				if (metric.getRequiredMetrics() != null)
+					Collections.addAll(eager, metric.getRequiredMetrics());
+			}
+		}
+
+		List<IMetric> eagerMetrics = new ArrayList<IMetric>();
+		Set<MetricID> lazyMetrics = new HashSet<MetricID>();
+		for (IMetric metric : sorted) {
+			if (eager.contains(metric.getId()))
+				eagerMetrics.add(metric);
+			else
+				lazyMetrics.add(metric.getId());
+		}
+
+		lazy = lazyMetrics;
+		engine = new MetricEngine(eagerMetrics);
+		order = sorted;
+	}
+
+	// depth-first, the visited map is false while the metric is being visited
+	private void visit(IMetric metric, List<IMetric> sorted, Map<MetricID, Boolean> visited) {
+		Boolean done = visited.get(metric.getId());
+		if (done != null) {
+			if (!done)
+				throw new RepositoryMinerException(ErrorMessage.METRIC_DEPENDENCY_CYCLE);
+			return;
+		}
+
+		visited.put(metric.getId(), false);
+		if (metric.getRequiredMetrics() != null) {
+			for (MetricID id : metric.getRequiredMetrics()) {
+				IMetric required = metrics.get(id);
+				if (required == null) {
+					required = MetricFactory.getMetric(id);
+					metrics.put(id, required);
+					requestedLazy.add(id);
+				}
+				visit(required, sorted, visited);
+			}
+		}
+
+		visited.put(metric.getId(), true);
+		sorted.add(metric);
+	}
+
+}
@@ -1,6 +1,6 @@
 package org.repositoryminer.metric;
 
 public enum MetricID {
-	ATFD, CYCLO, LVAR, MAXNESTING, MLOC, NOM, NOA, NOAV, PAR, LOC, TCC, WMC, AMW, DIT, NProtM, BOvR, BUR, WOC, NOPA, NOAM, LAA, FDP;
+	ATFD, CYCLO, LVAR, MAXNESTING, MLOC, NOM, NOA, NOAV, PAR, LOC, TCC, WMC, AMW, DIT, NProtM, BOvR, BUR, WOC, NOPA, NOAM, LAA, FDP, LCC;
 
 }
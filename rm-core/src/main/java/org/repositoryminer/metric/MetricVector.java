@@ -0,0 +1,96 @@
+package org.repositoryminer.metric;
+
+import org.bson.Document;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * Stores the metrics of a file, type or method in a slot per {@link MetricID},
+ * without boxing the values. A slot keeps an int or the bits of a float, and
+ * two masks tell which slots are set and which of them keep floats. The masks
+ * are longs, so there can be at most 64 metric ids.
+ */
+public class MetricVector {
+
+	private static final MetricID[] IDS = MetricID.values();
+
+	static {
+		if (IDS.length > Long.SIZE)
+			throw new RepositoryMinerException(ErrorMessage.METRIC_VECTOR_CAPACITY);
+	}
+
+	private int[] values;
+	private long set;
+	private long floats;
+
+	public void put(MetricID id, int value) {
+		store(id, value);
+		floats &= ~bit(id);
+	}
+
+	public void put(MetricID id, float value) {
+		store(id, Float.floatToRawIntBits(value));
+		floats |= bit(id);
+	}
+
+	public boolean contains(MetricID id) {
+		return (set & bit(id)) != 0;
+	}
+
+	public int getInt(MetricID id) {
+		check(id);
+		if ((floats & bit(id)) != 0)
+			return (int) Float.intBitsToFloat(values[id.ordinal()]);
+		return values[id.ordinal()];
+	}
+
+	public float getFloat(MetricID id) {
+		check(id);
+		if ((floats & bit(id)) != 0)
+			return Float.intBitsToFloat(values[id.ordinal()]);
+		return values[id.ordinal()];
+	}
+
+	/**
+	 * @return the boxed value of the metric, or null if it is not set.
+	 */
+	public Number get(MetricID id) {
+		if (!contains(id))
+			return null;
+		if ((floats & bit(id)) != 0)
+			return Float.intBitsToFloat(values[id.ordinal()]);
+		return values[id.ordinal()];
+	}
+
+	public boolean isEmpty() {
+		return set == 0;
+	}
+
+	/**
+	 * @return the metrics, by name, in the order of their ids.
+	 */
+	public Document toDocument() {
+		Document doc = new Document();
+		for (MetricID id : IDS)
+			if (contains(id))
+				doc.append(id.toString(), get(id));
+		return doc;
+	}
+
+	private void store(MetricID id, int bits) {
+		if (values == null)
+			values = new int[IDS.length];
+		values[id.ordinal()] = bits;
+		set |= bit(id);
+	}
+
+	private void check(MetricID id) {
+		if (!contains(id))
+			throw new RepositoryMinerException(ErrorMessage.METRIC_NOT_CALCULATED.toString() + " " + id);
+	}
+
+	private static long bit(MetricID id) {
+		return 1L << id.ordinal();
+	}
+
+}
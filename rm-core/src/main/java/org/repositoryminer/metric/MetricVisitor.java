@@ -0,0 +1,51 @@
+package org.repositoryminer.metric;
+
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.StatementStore;
+
+/**
+ * Receives the elements of a file while the {@link MetricEngine} walks it. The
+ * methods declared outside types are visited first, with a null type, then
+ * each type and its methods, and at last the file is ended. A visitor is
+ * created for each file, so it can keep the partial results.
+ */
+public abstract class MetricVisitor {
+
+	/**
+	 * @return true if the visitor needs the statements of the methods.
+	 */
+	public boolean visitsStatements() {
+		return false;
+	}
+
+	public void visitType(AbstractType type) {
+	}
+
+	/**
+	 * @param type
+	 *            the type that declares the method, or null.
+	 * @param method
+	 *            the method.
+	 */
+	public void visitMethod(AbstractType type, AbstractMethod method) {
+	}
+
+	/**
+	 * Called for each statement of the visited method, if
+	 * {@link #visitsStatements()} is true.
+	 */
+	public void visitStatement(StatementStore statements, int index) {
+	}
+
+	public void endMethod(AbstractType type, AbstractMethod method) {
+	}
+
+	public void endType(AbstractType type) {
+	}
+
+	public void endFile(AST ast) {
+	}
+
+}
@@ -3,12 +3,21 @@ package org.repositoryminer.metric;
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractType;
 
-public class NOA implements IMetric {
+public class NOA implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.NOA, type.getFields().size());
+		MetricEngine.calculate(this, ast);
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.NOA, type.getFields().size());
+			}
+		};
 	}
 
 	@Override
@@ -21,4 +30,9 @@ public class NOA implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -7,12 +7,11 @@ import org.repositoryminer.ast.AbstractField;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
 
-public class NOAM implements IMetric {
+public class NOAM implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.NOAM, calculate(type.getMethods(), type.getFields()));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(List<AbstractMethod> methods, List<AbstractField> fields) {
@@ -24,6 +23,16 @@ public class NOAM implements IMetric {
 		return accessorMehtods;
 	}
 
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.NOAM, calculate(type.getMethods(), type.getFields()));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.NOAM;
@@ -34,4 +43,9 @@ public class NOAM implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -1,30 +1,59 @@
 package org.repositoryminer.metric;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.StatementStore;
 
-public class NOAV implements IMetric {
+public class NOAV implements IVisitorMetric {
 
 	private static final MetricID[] REQUIRED_METRICS = { MetricID.LVAR };
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractMethod method : ast.getMethods())
-			method.getMetrics().put(MetricID.NOAV, calculate(method));
-
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
-				method.getMetrics().put(MetricID.NOAV, calculate(method));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(AbstractMethod method) {
-		int accessFields = LAA.countAccessedFields(method);
-		int nVar = (Integer) method.getMetrics().get(MetricID.LVAR);
+		return calculate(method, LAA.countAccessedFields(method));
+	}
+
+	private int calculate(AbstractMethod method, int accessFields) {
+		int nVar = method.getMetrics().getInt(MetricID.LVAR);
 		int nParams = method.getParameters().size();
 		return accessFields + nVar + nParams;
 	}
 
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private Set<Long> accessedFields = new HashSet<Long>();
+
+			@Override
+			public boolean visitsStatements() {
+				return true;
+			}
+
+			@Override
+			public void visitMethod(AbstractType type, AbstractMethod method) {
+				accessedFields.clear();
+			}
+
+			@Override
+			public void visitStatement(StatementStore statements, int index) {
+				LAA.collectAccessedField(statements, index, accessedFields);
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				method.getMetrics().put(MetricID.NOAV, calculate(method, accessedFields.size()));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.NOAV;
@@ -35,4 +64,9 @@ public class NOAV implements IMetric {
 		return REQUIRED_METRICS;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
 }
\ No newline at end of file
@@ -3,13 +3,26 @@ package org.repositoryminer.metric;
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractType;
 
-public class NOM implements IMetric {
+public class NOM implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		ast.getMetrics().put(MetricID.NOM, ast.getMethods().size());
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.NOM, type.getMethods().size());
+		MetricEngine.calculate(this, ast);
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.NOM, type.getMethods().size());
+			}
+
+			@Override
+			public void endFile(AST ast) {
+				ast.getMetrics().put(MetricID.NOM, ast.getMethods().size());
+			}
+		};
 	}
 
 	@Override
@@ -22,4 +35,9 @@ public class NOM implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -6,12 +6,11 @@ import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractField;
 import org.repositoryminer.ast.AbstractType;
 
-public class NOPA implements IMetric {
+public class NOPA implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.NOPA, calculate(type.getFields()));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(List<AbstractField> fields) {
@@ -23,6 +22,16 @@ public class NOPA implements IMetric {
 		return publicMembers;
 	}
 
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.NOPA, calculate(type.getFields()));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.NOPA;
@@ -33,4 +42,9 @@ public class NOPA implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -7,12 +7,11 @@ import org.repositoryminer.ast.AbstractField;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
 
-public class NProtM implements IMetric {
+public class NProtM implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.NProtM, calculate(type.getMethods(), type.getFields()));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public int calculate(List<AbstractMethod> methods, List<AbstractField> fields) {
@@ -35,6 +34,16 @@ public class NProtM implements IMetric {
 		return false;
 	}
 
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.NProtM, calculate(type.getMethods(), type.getFields()));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.NProtM;
@@ -45,4 +54,9 @@ public class NProtM implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
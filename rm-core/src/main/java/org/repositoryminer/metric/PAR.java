@@ -4,16 +4,21 @@ import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
 
-public class PAR implements IMetric {
+public class PAR implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractMethod method : ast.getMethods())
-			method.getMetrics().put(MetricID.PAR, method.getParameters().size());
+		MetricEngine.calculate(this, ast);
+	}
 
-		for (AbstractType type : ast.getTypes())
-			for (AbstractMethod method : type.getMethods())
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
 				method.getMetrics().put(MetricID.PAR, method.getParameters().size());
+			}
+		};
 	}
 
 	@Override
@@ -26,4 +31,9 @@ public class PAR implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -7,66 +7,143 @@ import java.util.List;
 import java.util.Set;
 
 import org.repositoryminer.ast.AST;
-import org.repositoryminer.ast.AbstractFieldAccess;
 import org.repositoryminer.ast.AbstractMethod;
-import org.repositoryminer.ast.AbstractMethodInvocation;
-import org.repositoryminer.ast.AbstractStatement;
 import org.repositoryminer.ast.AbstractType;
 import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
 
-public class TCC implements IMetric {
+public class TCC implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.TCC, calculate(type));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public float calculate(AbstractType type) {
-		List<AbstractMethod> methodList = new ArrayList<AbstractMethod>();
-		for (AbstractMethod m : type.getMethods())
-			if (!(m.getModifiers().contains("abstract") || m.isConstructor()))
-				methodList.add(m);
+		return calculate(createMasks(type));
+	}
 
-		int n = methodList.size();
+	private float calculate(FieldAccessMasks masks) {
+		int n = masks.getMethodCount();
 		int npc = (n * (n - 1)) / 2;
-		int ndc = 0;
-
-		List<List<String>> accessedFieldsByMethods = new ArrayList<List<String>>();
-		for (AbstractMethod method : methodList)
-			accessedFieldsByMethods.add(processAccessedFields(type, method));
-
-		for (int i = 0; i < accessedFieldsByMethods.size(); i++)
-			for (int j = i + 1; j < accessedFieldsByMethods.size(); j++)
-				if (isConnected(accessedFieldsByMethods.get(i), accessedFieldsByMethods.get(j)))
-					ndc++;
+		int ndc = masks.countDirectConnections();
 
 		float result = npc > 0 ? ndc * 1.0f / npc : 0;
 		return new BigDecimal(result).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
 	}
 
+	/**
+	 * @return the fields of the type accessed by each of its methods, except
+	 *         the abstract ones and the constructors.
+	 */
+	static FieldAccessMasks createMasks(AbstractType type) {
+		FieldAccessMasks masks = new FieldAccessMasks();
+		for (AbstractMethod method : type.getMethods()) {
+			if (!isConsidered(method))
+				continue;
+
+			masks.startMethod();
+			StatementStore statements = method.getStatementStore();
+			int currClass = statements.getSymbols().find(type.getName());
+			for (int i = 0; i < statements.size(); i++) {
+				int field = getAccessedField(statements, i, currClass);
+				if (field != SymbolTable.NONE)
+					masks.addField(field);
+			}
+		}
+		return masks;
+	}
+
+	static boolean isConsidered(AbstractMethod method) {
+		return !(method.getModifiers().contains("abstract") || method.isConstructor());
+	}
+
+	/**
+	 * @return the names of the fields of the type accessed by the method.
+	 */
 	public List<String> processAccessedFields(AbstractType currType, AbstractMethod method) {
 		Set<String> fields = new HashSet<String>();
-		for (AbstractStatement stmt : method.getStatements()) {
-			if (stmt.getNodeType() == NodeType.FIELD_ACCESS) {
-				AbstractFieldAccess fdAccess = (AbstractFieldAccess) stmt;
-				if (currType.getName().equals(fdAccess.getDeclaringClass()))
-					fields.add(stmt.getExpression());
-			} else if (stmt.getNodeType() == NodeType.METHOD_INVOCATION) {
-				AbstractMethodInvocation methodInv = (AbstractMethodInvocation) stmt;
-				if (methodInv.isAccessor() && currType.getName().equals(methodInv.getDeclaringClass()))
-					fields.add(methodInv.getAccessedField());
-			} else
-				continue;
+		StatementStore statements = method.getStatementStore();
+		SymbolTable symbols = statements.getSymbols();
+		int currClass = symbols.find(currType.getName());
+		for (int i = 0; i < statements.size(); i++) {
+			int field = getAccessedField(statements, i, currClass);
+			if (field != SymbolTable.NONE)
+				fields.add(symbols.get(field));
 		}
+
 		return new ArrayList<String>(fields);
 	}
 
-	private boolean isConnected(List<String> method1, List<String> method2) {
-		for (String field : method1)
-			if (method2.contains(field))
-				return true;
-		return false;
+	/**
+	 * @return the field of the current class the statement accesses, or
+	 *         {@link SymbolTable#NONE}.
+	 */
+	static int getAccessedField(StatementStore statements, int index, int currClass) {
+		if (currClass == SymbolTable.NONE || statements.getDeclaringClass(index) != currClass)
+			return SymbolTable.NONE;
+
+		NodeType nodeType = statements.getNodeType(index);
+		if (nodeType == NodeType.FIELD_ACCESS)
+			return statements.getName(index);
+		else if (nodeType == NodeType.METHOD_INVOCATION && statements.isAccessor(index))
+			return statements.getAccessedField(index);
+		return SymbolTable.NONE;
+	}
+
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new CohesionVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.TCC, calculate(getMasks()));
+			}
+		};
+	}
+
+	/**
+	 * Builds the field masks of each type while the methods are visited.
+	 */
+	static class CohesionVisitor extends MetricVisitor {
+
+		private FieldAccessMasks masks;
+		private boolean considered;
+		private int currClass;
+
+		@Override
+		public boolean visitsStatements() {
+			return true;
+		}
+
+		@Override
+		public void visitType(AbstractType type) {
+			masks = new FieldAccessMasks();
+		}
+
+		@Override
+		public void visitMethod(AbstractType type, AbstractMethod method) {
+			considered = type != null && isConsidered(method);
+			if (considered) {
+				masks.startMethod();
+				currClass = method.getStatementStore().getSymbols().find(type.getName());
+			}
+		}
+
+		@Override
+		public void visitStatement(StatementStore statements, int index) {
+			if (!considered)
+				return;
+
+			int field = getAccessedField(statements, index, currClass);
+			if (field != SymbolTable.NONE)
+				masks.addField(field);
+		}
+
+		protected FieldAccessMasks getMasks() {
+			return masks;
+		}
+
 	}
 
 	@Override
@@ -79,4 +156,9 @@ public class TCC implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return true;
+	}
+
 }
\ No newline at end of file
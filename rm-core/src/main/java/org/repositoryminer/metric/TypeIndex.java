@@ -0,0 +1,126 @@
+package org.repositoryminer.metric;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractType;
+
+/**
+ * The types of the whole repository at a commit, by name and by file, so the
+ * inheritance metrics can follow the superclasses of a type that are declared
+ * in other files. The index is updated file by file, from the changes of each
+ * commit.
+ * <p>
+ * The superclasses are resolved by the name of the type, as the parser
+ * qualified it, or else by the imports and the package of the subclass.
+ */
+public class TypeIndex {
+
+	private Map<String, TypeInfo> types = new HashMap<String, TypeInfo>();
+	private Map<String, List<TypeInfo>> typesByFile = new HashMap<String, List<TypeInfo>>();
+
+	/**
+	 * Calculates a metric for the types of a single file, without a repository
+	 * index, so only the superclasses declared in the file are known.
+	 */
+	public static void calculate(IHierarchyMetric metric, AST ast) {
+		TypeIndex index = new TypeIndex();
+		index.putFile(ast.getName(), TypeInfo.fromAST(ast));
+		for (AbstractType type : ast.getTypes()) {
+			TypeInfo info = index.getType(type.getName());
+			if (info != null)
+				metric.calculate(index, info, type.getMetrics());
+		}
+	}
+
+	/**
+	 * Replaces the types declared in a file.
+	 */
+	public void putFile(String file, List<TypeInfo> fileTypes) {
+		removeFile(file);
+		typesByFile.put(file, fileTypes);
+		for (TypeInfo type : fileTypes)
+			types.put(type.getName(), type);
+	}
+
+	public void removeFile(String file) {
+		List<TypeInfo> fileTypes = typesByFile.remove(file);
+		if (fileTypes == null)
+			return;
+
+		// another file may declare a type with the same name
+		for (TypeInfo type : fileTypes)
+			if (types.get(type.getName()) == type)
+				types.remove(type.getName());
+	}
+
+	public void clear() {
+		types.clear();
+		typesByFile.clear();
+	}
+
+	public boolean containsFile(String file) {
+		return typesByFile.containsKey(file);
+	}
+
+	public TypeInfo getType(String name) {
+		return types.get(name);
+	}
+
+	/**
+	 * @return the superclass of a type, or null if it has no superclass or if
+	 *         the superclass is not declared in the repository.
+	 */
+	public TypeInfo getSuperClass(TypeInfo type) {
+		String name = type.getSuperClass();
+		if (name == null)
+			return null;
+
+		int generics = name.indexOf('<');
+		if (generics >= 0)
+			name = name.substring(0, generics);
+
+		TypeInfo superClass = resolve(type, name);
+		return superClass != type ? superClass : null;
+	}
+
+	private TypeInfo resolve(TypeInfo type, String name) {
+		TypeInfo found = types.get(name);
+		if (found != null)
+			return found;
+
+		// nested types are indexed by the package and their simple name
+		int dot = name.indexOf('.');
+		String first = dot >= 0 ? name.substring(0, dot) : name;
+		String last = name.substring(name.lastIndexOf('.') + 1);
+
+		for (String imp : type.getImports()) {
+			if (!imp.endsWith(".*") && imp.endsWith('.' + first)) {
+				found = types.get(imp + name.substring(first.length()));
+				if (found == null)
+					found = types.get(imp.substring(0, imp.length() - first.length()) + last);
+				if (found != null)
+					return found;
+			}
+		}
+
+		String prefix = type.getPackageName() != null ? type.getPackageName() + '.' : "";
+		found = types.get(prefix + name);
+		if (found == null)
+			found = types.get(prefix + last);
+		if (found != null)
+			return found;
+
+		for (String imp : type.getImports()) {
+			if (imp.endsWith(".*")) {
+				found = types.get(imp.substring(0, imp.length() - 1) + name);
+				if (found != null)
+					return found;
+			}
+		}
+		return null;
+	}
+
+}
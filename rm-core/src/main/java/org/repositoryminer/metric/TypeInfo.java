@@ -0,0 +1,157 @@
+package org.repositoryminer.metric;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractClass;
+import org.repositoryminer.ast.AbstractField;
+import org.repositoryminer.ast.AbstractImport;
+import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
+
+/**
+ * What the {@link TypeIndex} keeps of a type: its superclass, as written in the
+ * source, the methods a subclass can override, the protected members and the
+ * members of other types it uses.
+ */
+public class TypeInfo {
+
+	private String name;
+	private String packageName;
+	private List<String> imports;
+	private String superClass;
+	private boolean isInterface;
+	private List<String> methods;
+	private List<String> protectedMembers;
+	private List<String> usedMembers;
+
+	/**
+	 * Extracts the types of a file.
+	 */
+	public static List<TypeInfo> fromAST(AST ast) {
+		List<String> imports = new ArrayList<String>();
+		if (ast.getImports() != null) {
+			for (AbstractImport imp : ast.getImports())
+				if (!imp.isStatic())
+					imports.add(imp.isOnDemand() ? imp.getName() + ".*" : imp.getName());
+		}
+
+		List<TypeInfo> types = new ArrayList<TypeInfo>();
+		for (AbstractType type : ast.getTypes()) {
+			TypeInfo info = new TypeInfo();
+			info.name = type.getName();
+			info.packageName = ast.getPackageDeclaration();
+			info.imports = imports;
+			if (type instanceof AbstractClass) {
+				info.superClass = ((AbstractClass) type).getSuperClass();
+				info.isInterface = ((AbstractClass) type).isInterface();
+			}
+
+			info.methods = new ArrayList<String>();
+			info.protectedMembers = new ArrayList<String>();
+			Set<String> usedMembers = new LinkedHashSet<String>();
+			for (AbstractMethod method : type.getMethods()) {
+				List<String> modifiers = method.getModifiers();
+				if (!method.isConstructor() && !modifiers.contains("private") && !modifiers.contains("static"))
+					info.methods.add(method.getName());
+				if (modifiers.contains("protected"))
+					info.protectedMembers.add(method.getName());
+				collectUsedMembers(type, method.getStatementStore(), usedMembers);
+			}
+
+			for (AbstractField field : type.getFields())
+				if (field.getModifiers().contains("protected"))
+					info.protectedMembers.add(field.getName());
+
+			info.usedMembers = new ArrayList<String>(usedMembers);
+			types.add(info);
+		}
+		return types;
+	}
+
+	/*
+	 * The members are named by their declaring class and their name, e.g.
+	 * pkg.Base#field or pkg.Base#method(int), which needs resolved bindings.
+	 */
+	private static void collectUsedMembers(AbstractType type, StatementStore statements, Set<String> usedMembers) {
+		if (statements == null)
+			return;
+
+		SymbolTable symbols = statements.getSymbols();
+		for (int i = 0; i < statements.size(); i++) {
+			NodeType nodeType = statements.getNodeType(i);
+			if (nodeType != NodeType.FIELD_ACCESS && nodeType != NodeType.METHOD_INVOCATION)
+				continue;
+
+			String declaringClass = symbols.get(statements.getDeclaringClass(i));
+			if (declaringClass != null && !declaringClass.equals(type.getName()))
+				usedMembers.add(declaringClass + '#' + symbols.get(statements.getName(i)));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public static TypeInfo parseDocument(Document document) {
+		TypeInfo info = new TypeInfo();
+		info.name = document.getString("name");
+		info.packageName = document.getString("package");
+		info.imports = document.get("imports", List.class);
+		info.superClass = document.getString("super_class");
+		info.isInterface = document.getBoolean("interface", false);
+		info.methods = document.get("methods", List.class);
+		info.protectedMembers = document.get("protected_members", List.class);
+		info.usedMembers = document.get("used_members", List.class);
+		return info;
+	}
+
+	public Document toDocument() {
+		Document doc = new Document();
+		doc.append("name", name).append("package", packageName).append("imports", imports)
+				.append("super_class", superClass).append("interface", isInterface).append("methods", methods)
+				.append("protected_members", protectedMembers).append("used_members", usedMembers);
+		return doc;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getPackageName() {
+		return packageName;
+	}
+
+	public List<String> getImports() {
+		return imports;
+	}
+
+	/**
+	 * @return the superclass as written in the source (or qualified, if the
+	 *         bindings were resolved), or null.
+	 */
+	public String getSuperClass() {
+		return superClass;
+	}
+
+	public boolean isInterface() {
+		return isInterface;
+	}
+
+	public List<String> getMethods() {
+		return methods;
+	}
+
+	public List<String> getProtectedMembers() {
+		return protectedMembers;
+	}
+
+	public List<String> getUsedMembers() {
+		return usedMembers;
+	}
+
+}
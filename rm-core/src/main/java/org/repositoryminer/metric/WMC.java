@@ -4,19 +4,36 @@ import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
 
-public class WMC implements IMetric {
+public class WMC implements IVisitorMetric {
 
 	private static final MetricID[] REQUIRED_METRICS = { MetricID.CYCLO };
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes()) {
-			int wmc = 0;
-			for (AbstractMethod method : type.getMethods())
-				wmc += (Integer) method.getMetrics().get(MetricID.CYCLO);
+		MetricEngine.calculate(this, ast);
+	}
 
-			type.getMetrics().put(MetricID.WMC, wmc);
-		}
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			private int wmc;
+
+			@Override
+			public void visitType(AbstractType type) {
+				wmc = 0;
+			}
+
+			@Override
+			public void endMethod(AbstractType type, AbstractMethod method) {
+				if (type != null)
+					wmc += method.getMetrics().getInt(MetricID.CYCLO);
+			}
+
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.WMC, wmc);
+			}
+		};
 	}
 
 	@Override
@@ -29,4 +46,9 @@ public class WMC implements IMetric {
 		return REQUIRED_METRICS;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
@@ -8,12 +8,11 @@ import org.repositoryminer.ast.AbstractField;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractType;
 
-public class WOC implements IMetric {
+public class WOC implements IVisitorMetric {
 
 	@Override
 	public void calculate(AST ast) {
-		for (AbstractType type : ast.getTypes())
-			type.getMetrics().put(MetricID.WOC, calculate(type.getMethods(), type.getFields()));
+		MetricEngine.calculate(this, ast);
 	}
 
 	public float calculate(List<AbstractMethod> methods, List<AbstractField> fields) {
@@ -36,6 +35,16 @@ public class WOC implements IMetric {
 		return new BigDecimal(result).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
 	}
 
+	@Override
+	public MetricVisitor createVisitor(AST ast) {
+		return new MetricVisitor() {
+			@Override
+			public void endType(AbstractType type) {
+				type.getMetrics().put(MetricID.WOC, calculate(type.getMethods(), type.getFields()));
+			}
+		};
+	}
+
 	@Override
 	public MetricID getId() {
 		return MetricID.WOC;
@@ -46,4 +55,9 @@ public class WOC implements IMetric {
 		return null;
 	}
 
+	@Override
+	public boolean requiresBindings() {
+		return false;
+	}
+
 }
\ No newline at end of file
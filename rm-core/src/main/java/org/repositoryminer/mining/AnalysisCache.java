@@ -0,0 +1,140 @@
+package org.repositoryminer.mining;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.repositoryminer.persistence.dao.AnalysisCacheDAO;
+import org.repositoryminer.persistence.dao.AsyncWriter;
+import org.repositoryminer.util.HashingUtils;
+
+import com.mongodb.client.model.Projections;
+
+/**
+ * Keeps the code analyses already computed, so a file content that shows up
+ * in many commits (across branches, reverts, cherry-picks) is parsed only
+ * once.
+ * <p>
+ * An analysis is identified by the content of the file (its git blob id), the
+ * parser environment and the metrics and code smells configuration. The most
+ * recently used analyses are kept in memory and, if the cache is persistent,
+ * all of them are stored in the database to be reused by later minings. A
+ * persistent cache uses the database of the mining it is opened for and
+ * queues the new analyses to the writer of that mining.
+ */
+public class AnalysisCache {
+
+	private static final int DEFAULT_CAPACITY = 1000;
+
+	private Map<String, Document> memory;
+	private boolean persistent;
+	private AnalysisCacheDAO dao;
+	private AsyncWriter writer;
+	private Set<String> queued = new HashSet<String>();
+
+	/**
+	 * Creates a cache that keeps the analyses only in memory.
+	 */
+	public AnalysisCache() {
+		this(DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * @param capacity
+	 *            how many analyses are kept in memory.
+	 * @param persistent
+	 *            if true, the analyses are also stored in the database.
+	 */
+	public AnalysisCache(final int capacity, boolean persistent) {
+		memory = new LinkedHashMap<String, Document>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+				return size() > capacity;
+			}
+		};
+
+		this.persistent = persistent;
+	}
+
+	/**
+	 * Prepares the cache for a mining. A persistent cache reads the analyses
+	 * from the database connected now and writes the new ones through the
+	 * writer.
+	 * 
+	 * @param writer
+	 *            the writer of the mining.
+	 */
+	public synchronized void open(AsyncWriter writer) {
+		if (!persistent)
+			return;
+
+		dao = new AnalysisCacheDAO();
+		this.writer = writer;
+		queued.clear();
+	}
+
+	/**
+	 * Detaches the cache from the mining it was opened for. The analyses in
+	 * memory are kept for the next mining.
+	 */
+	public synchronized void close() {
+		dao = null;
+		writer = null;
+		queued.clear();
+	}
+
+	/**
+	 * Builds the key of an analysis.
+	 * 
+	 * @param data
+	 *            the file content.
+	 * @param parserFingerprint
+	 *            the parser environment fingerprint.
+	 * @param configFingerprint
+	 *            the metrics and code smells fingerprint.
+	 * @return the cache key.
+	 */
+	public static String createKey(byte[] data, String parserFingerprint, String configFingerprint) {
+		return HashingUtils.encodeToGitBlobId(data) + ":"
+				+ HashingUtils.encodeToSHA1(parserFingerprint + "|" + configFingerprint);
+	}
+
+	/**
+	 * @param key
+	 *            the cache key.
+	 * @return the analysis or null if it was not computed yet.
+	 */
+	public synchronized Document get(String key) {
+		Document analysis = memory.get(key);
+		if (analysis != null || dao == null)
+			return analysis;
+
+		Document doc = dao.findById(key, Projections.include("analysis"));
+		if (doc == null)
+			return null;
+
+		analysis = doc.get("analysis", Document.class);
+		memory.put(key, analysis);
+		return analysis;
+	}
+
+	/**
+	 * Stores an analysis. An analysis computed twice before it reaches the
+	 * database, e.g. for two files with the same content, is written once.
+	 * 
+	 * @param key
+	 *            the cache key.
+	 * @param analysis
+	 *            the analysis.
+	 */
+	public synchronized void put(String key, Document analysis) {
+		memory.put(key, analysis);
+		if (writer != null && queued.add(key))
+			writer.insert(dao, AnalysisCacheDAO.toDocument(key, analysis));
+	}
+
+}
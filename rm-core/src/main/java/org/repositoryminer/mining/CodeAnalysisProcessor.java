@@ -2,13 +2,26 @@ package org.repositoryminer.mining;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.bson.Document;
 import org.bson.types.ObjectId;
@@ -18,13 +31,22 @@ import org.repositoryminer.ast.AbstractType;
 import org.repositoryminer.codesmell.CodeSmellFactory;
 import org.repositoryminer.codesmell.CodeSmellID;
 import org.repositoryminer.codesmell.ICodeSmell;
+import org.repositoryminer.codesmell.ILazyCodeSmell;
 import org.repositoryminer.domain.Change;
 import org.repositoryminer.domain.ChangeType;
 import org.repositoryminer.domain.Commit;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+import org.repositoryminer.metric.IHierarchyMetric;
 import org.repositoryminer.metric.IMetric;
-import org.repositoryminer.metric.MetricFactory;
+import org.repositoryminer.metric.MetricEvaluation;
+import org.repositoryminer.metric.MetricGraph;
 import org.repositoryminer.metric.MetricID;
+import org.repositoryminer.metric.MetricVector;
+import org.repositoryminer.metric.TypeIndex;
+import org.repositoryminer.metric.TypeInfo;
 import org.repositoryminer.parser.IParser;
+import org.repositoryminer.persistence.dao.AsyncWriter;
 import org.repositoryminer.persistence.dao.CodeAnalysisDAO;
 import org.repositoryminer.persistence.dao.CommitDAO;
 import org.repositoryminer.scm.ISCM;
@@ -38,6 +60,9 @@ public class CodeAnalysisProcessor {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(CodeAnalysisProcessor.class);
 
+	private static final int PARSE_BATCH_SIZE = 100;
+	private static final int FILE_TYPES_CAPACITY = 100000;
+
 	private ISCM scm;
 	private RepositoryMiner rm;
 	private String repoId;
@@ -46,77 +71,488 @@ public class CodeAnalysisProcessor {
 
 	private CodeAnalysisDAO codeAnalysisDAO = new CodeAnalysisDAO();
 	private CommitDAO commitDAO = new CommitDAO();
+	private AsyncWriter writer;
 
-	private Map<MetricID, IMetric> metrics = new LinkedHashMap<MetricID, IMetric>();
+	private MetricGraph metricGraph = new MetricGraph();
 	private Map<CodeSmellID, ICodeSmell> codeSmells = new LinkedHashMap<CodeSmellID, ICodeSmell>();
-
-	public void start() throws IOException {
+	private List<IHierarchyMetric> hierarchyMetrics = new ArrayList<IHierarchyMetric>();
+	private TypeIndex typeIndex;
+	private Map<String, List<TypeInfo>> fileTypes;
+
+	private AnalysisCache analysisCache;
+	private String configFingerprint;
+
+	private ExecutorService executor;
+	private int threads;
+
+	/**
+	 * Builds the metrics and code smells of the analysis and checks that they
+	 * can be used, so a wrong configuration fails before the repository is
+	 * mined. The checkout-free mode has no working tree of the analyzed
+	 * commits to resolve the bindings against, so it does not accept the
+	 * metrics that require them.
+	 */
+	public void configure() {
 		if (rm.hasMetrics()) {
-			for (IMetric metric : rm.getMetrics())
-				visitMetric(metric);
+			for (IMetric metric : rm.getMetrics()) {
+				if (metric instanceof IHierarchyMetric)
+					hierarchyMetrics.add((IHierarchyMetric) metric);
+				else
+					metricGraph.addMetric(metric);
+			}
+		}
+
+		if (!hierarchyMetrics.isEmpty()) {
+			typeIndex = new TypeIndex();
+			fileTypes = new LinkedHashMap<String, List<TypeInfo>>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, List<TypeInfo>> eldest) {
+					return size() > FILE_TYPES_CAPACITY;
+				}
+			};
 		}
 
 		if (rm.hasCodeSmells()) {
+			Map<CodeSmellID, ICodeSmell> givenCodeSmells = new HashMap<CodeSmellID, ICodeSmell>();
 			for (ICodeSmell codeSmell : rm.getCodeSmells())
-				visitCodeSmell(codeSmell);
+				givenCodeSmells.put(codeSmell.getId(), codeSmell);
+
+			Map<CodeSmellID, Boolean> visited = new HashMap<CodeSmellID, Boolean>();
+			for (ICodeSmell codeSmell : rm.getCodeSmells())
+				visitCodeSmell(codeSmell, givenCodeSmells, visited);
+
+			for (ICodeSmell codeSmell : codeSmells.values())
+				addRequiredMetrics(codeSmell);
 		}
-		
-		for (String commitName : selectedCommits) {
-			Commit commit = Commit.parseDocument(commitDAO.findById(commitName, Projections.include("diffs")));
-			scm.checkout(commit.getId());
 
-			for (IParser parser : rm.getParsers())
-				parser.scanRepository(repoPath);
+		// sorts the metrics before the worker threads share the graph
+		metricGraph.getMetrics();
+
+		boolean resolveBindings = requiresBindings();
+		if (resolveBindings && rm.isCheckoutFree())
+			throw new RepositoryMinerException(ErrorMessage.CHECKOUT_FREE_BINDINGS);
 
-			for (Change diff : commit.getDiffs())
-				if (diff.getType() != ChangeType.DELETE)
-					processDiff(diff.getPath(), commit);
+		for (IParser parser : rm.getParsers())
+			parser.setResolveBindings(resolveBindings);
+
+		analysisCache = rm.getAnalysisCache();
+		configFingerprint = createConfigFingerprint();
+	}
+
+	/**
+	 * Analyzes the selected commits. The processor must be configured first.
+	 */
+	public void start() throws IOException {
+		threads = Math.max(1, rm.getAnalysisThreads());
+		if (threads > 1)
+			executor = Executors.newFixedThreadPool(threads);
+		if (analysisCache != null)
+			analysisCache.open(writer);
+
+		try {
+			// without bindings the environment does not depend on the commit
+			if (rm.isCheckoutFree()) {
+				for (IParser parser : rm.getParsers())
+					parser.scanRepository(repoPath);
+			}
+
+			String previousCommit = null;
+			for (String commitName : selectedCommits) {
+				Commit commit = Commit
+						.parseDocument(commitDAO.findById(commitName, Projections.include("diffs", "parents")));
+
+				boolean incremental = isIncremental(commit, previousCommit);
+				if (!rm.isCheckoutFree()) {
+					scm.checkout(commit.getId());
+					prepareParsers(commit, incremental);
+				}
+				previousCommit = commit.getId();
+
+				processCommit(commit, incremental);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+			if (analysisCache != null)
+				analysisCache.close();
+		}
+	}
+
+	/*
+	 * The files are analyzed by the worker threads, but the results are
+	 * cached and queued to the writer by this thread in the order the tasks
+	 * were created, so the output does not depend on the number of threads.
+	 * The analyses of a commit are queued after the type index has all of its
+	 * changes.
+	 */
+	private void processCommit(Commit commit, boolean incremental) throws IOException {
+		Map<String, String> cacheKeys = new LinkedHashMap<String, String>();
+		Map<String, String> typesKeys = new HashMap<String, String>();
+		Map<IParser, Map<String, String>> batches = new LinkedHashMap<IParser, Map<String, String>>();
+		List<Future<Map<String, Document>>> tasks = new ArrayList<Future<Map<String, Document>>>();
+		Map<String, Document> analyses = new LinkedHashMap<String, Document>();
+
+		for (Change diff : commit.getDiffs())
+			if (diff.getType() != ChangeType.DELETE)
+				processDiff(diff.getPath(), commit, cacheKeys, typesKeys, batches, tasks, analyses);
+
+		for (Entry<IParser, Map<String, String>> batch : batches.entrySet())
+			processBatch(batch.getKey(), batch.getValue(), tasks);
+
+		for (Future<Map<String, Document>> task : tasks) {
+			for (Entry<String, Document> analysis : waitFor(task).entrySet()) {
+				if (analysisCache != null)
+					analysisCache.put(cacheKeys.get(analysis.getKey()), analysis.getValue());
+
+				analyses.put(analysis.getKey(), analysis.getValue());
+			}
 		}
+
+		if (typeIndex != null)
+			updateTypeIndex(commit, analyses, typesKeys, incremental);
+
+		for (Entry<String, Document> analysis : analyses.entrySet())
+			persistAnalysis(commit, analysis.getKey(), analysis.getValue());
+	}
+
+	/*
+	 * The changes of a commit are relative to its first parent, so the parsers
+	 * and the type index are updated from them only when that parent was the
+	 * last prepared state. Merges have no changes stored and are always
+	 * scanned.
+	 */
+	private boolean isIncremental(Commit commit, String previousCommit) {
+		List<String> parents = commit.getParents();
+		return previousCommit != null && parents != null && parents.size() == 1
+				&& parents.get(0).equals(previousCommit);
 	}
 
-	private void processDiff(String filePath, Commit commit) throws IOException {
+	private void prepareParsers(Commit commit, boolean incremental) {
+		for (IParser parser : rm.getParsers()) {
+			if (incremental)
+				parser.updateRepository(repoPath, commit.getDiffs());
+			else
+				parser.scanRepository(repoPath);
+		}
+	}
+
+	/*
+	 * Files whose analysis is not cached are parsed in batches after all the
+	 * changes of the commit were seen, except in the checkout-free mode, where
+	 * there are no files on the disk to hand to the parser. The batches keep
+	 * the sources read here, so the parser does not read the files again.
+	 */
+	private void processDiff(String filePath, Commit commit, Map<String, String> cacheKeys,
+			Map<String, String> typesKeys, Map<IParser, Map<String, String>> batches,
+			List<Future<Map<String, Document>>> tasks, Map<String, Document> analyses) throws IOException {
 		File f = new File(repoPath, filePath);
-		if (f.isDirectory()) {
+		if (!rm.isCheckoutFree() && f.isDirectory()) {
 			return;
 		}
 
-		IParser parser = null;
-		for (IParser p : rm.getParsers()) {
-			if (p.accept(filePath)) {
-				parser = p;
-				break;
-			}
-		}
+		IParser parser = findParser(filePath);
 
 		LOGGER.info("Processing file " + filePath + " at state " + commit.getId());
 		if (parser == null) {
 			return;
 		}
 
-		byte[] data = Files.readAllBytes(Paths.get(f.getAbsolutePath()));
+		byte[] data = readData(commit, filePath);
 		if (data == null) {
 			return;
 		}
 
-		String source = new String(data, "utf-8");
-		AST ast = parser.generate(filePath, source);
-		processFile(commit, filePath, ast);
+		if (typeIndex != null)
+			typesKeys.put(filePath, createTypesKey(data, parser));
+
+		String cacheKey = null;
+		if (analysisCache != null) {
+			cacheKey = AnalysisCache.createKey(data, parser.getFingerprint(), configFingerprint);
+			Document analysis = analysisCache.get(cacheKey);
+			if (analysis != null) {
+				analyses.put(filePath, analysis);
+				return;
+			}
+		}
+
+		cacheKeys.put(filePath, cacheKey);
+		final String source = new String(data, "utf-8");
+		if (!rm.isCheckoutFree()) {
+			addToBatch(batches, parser, filePath, source);
+			return;
+		}
+
+		final IParser fileParser = parser;
+		final String filename = filePath;
+		tasks.add(submit(new Callable<Map<String, Document>>() {
+			@Override
+			public Map<String, Document> call() {
+				Map<String, Document> result = new LinkedHashMap<String, Document>();
+				result.put(filename, processFile(fileParser.generate(filename, source)));
+				return result;
+			}
+		}));
+	}
+
+	/*
+	 * With several threads, the batches are split so every thread gets a part
+	 * of the files, even when the commit changed less than a full batch.
+	 */
+	private void processBatch(final IParser parser, Map<String, String> sources,
+			List<Future<Map<String, Document>>> tasks) {
+		int chunkSize = Math.min(PARSE_BATCH_SIZE, (sources.size() + threads - 1) / threads);
+		for (final Map<String, String> chunk : split(sources, chunkSize)) {
+			tasks.add(submit(new Callable<Map<String, Document>>() {
+				@Override
+				public Map<String, Document> call() {
+					Map<String, AST> asts = parser.generate(repoPath, chunk);
+					Map<String, Document> result = new LinkedHashMap<String, Document>();
+					for (String filename : chunk.keySet()) {
+						AST ast = asts.get(filename);
+						if (ast != null)
+							result.put(filename, processFile(ast));
+					}
+					return result;
+				}
+			}));
+		}
+	}
+
+	private void addToBatch(Map<IParser, Map<String, String>> batches, IParser parser, String filePath,
+			String source) {
+		Map<String, String> batch = batches.get(parser);
+		if (batch == null) {
+			batch = new LinkedHashMap<String, String>();
+			batches.put(parser, batch);
+		}
+		batch.put(filePath, source);
+	}
+
+	private List<Map<String, String>> split(Map<String, String> sources, int chunkSize) {
+		List<Map<String, String>> chunks = new ArrayList<Map<String, String>>();
+		Map<String, String> chunk = null;
+		for (Entry<String, String> source : sources.entrySet()) {
+			if (chunk == null || chunk.size() == chunkSize) {
+				chunk = new LinkedHashMap<String, String>();
+				chunks.add(chunk);
+			}
+			chunk.put(source.getKey(), source.getValue());
+		}
+		return chunks;
+	}
+
+	private IParser findParser(String filePath) {
+		for (IParser parser : rm.getParsers())
+			if (parser.accept(filePath))
+				return parser;
+		return null;
+	}
+
+	private byte[] readData(Commit commit, String filePath) throws IOException {
+		if (rm.isCheckoutFree())
+			return scm.getData(commit.getId(), filePath);
+
+		File f = new File(repoPath, filePath);
+		return f.isFile() ? Files.readAllBytes(Paths.get(f.getAbsolutePath())) : null;
 	}
 
-	private void processFile(Commit commit, String filename, AST ast) {
+	/*
+	 * Updates the type index from the analyses of the commit, which keep the
+	 * types of the changed files. Without the previous state, the index is
+	 * built again from all the files of the commit. The types of a file are
+	 * kept by its content, so only the contents never seen before are parsed.
+	 */
+	private void updateTypeIndex(Commit commit, Map<String, Document> analyses, Map<String, String> typesKeys,
+			boolean incremental) throws IOException {
+		if (incremental) {
+			for (Change change : commit.getDiffs()) {
+				if (change.getType() == ChangeType.DELETE)
+					typeIndex.removeFile(change.getPath());
+				else if (change.getType() == ChangeType.MOVE)
+					typeIndex.removeFile(change.getOldPath());
+			}
+		} else {
+			typeIndex.clear();
+			indexFiles(commit, analyses.keySet());
+		}
+
+		for (Entry<String, Document> analysis : analyses.entrySet()) {
+			List<TypeInfo> types = parseTypes(analysis.getValue());
+			fileTypes.put(typesKeys.get(analysis.getKey()), types);
+			typeIndex.putFile(analysis.getKey(), types);
+		}
+	}
+
+	/*
+	 * The types depend on the file content and, with bindings, on the parser
+	 * environment, but not on the metrics configuration.
+	 */
+	private String createTypesKey(byte[] data, IParser parser) {
+		return HashingUtils.encodeToGitBlobId(data) + ":" + parser.getFingerprint();
+	}
+
+	private void indexFiles(Commit commit, Set<String> analyzedFiles) throws IOException {
+		Map<IParser, Map<String, String>> batches = new LinkedHashMap<IParser, Map<String, String>>();
+		Map<String, String> typesKeys = new HashMap<String, String>();
+		List<Future<Map<String, List<TypeInfo>>>> tasks = new ArrayList<Future<Map<String, List<TypeInfo>>>>();
+
+		for (String filePath : scm.getFiles(commit.getId())) {
+			final IParser parser = findParser(filePath);
+			if (parser == null || analyzedFiles.contains(filePath))
+				continue;
+
+			byte[] data = readData(commit, filePath);
+			if (data == null)
+				continue;
+
+			String typesKey = createTypesKey(data, parser);
+			List<TypeInfo> types = fileTypes.get(typesKey);
+			if (types == null && analysisCache != null) {
+				Document analysis = analysisCache
+						.get(AnalysisCache.createKey(data, parser.getFingerprint(), configFingerprint));
+				if (analysis != null)
+					types = parseTypes(analysis);
+			}
+
+			if (types != null) {
+				fileTypes.put(typesKey, types);
+				typeIndex.putFile(filePath, types);
+				continue;
+			}
+
+			typesKeys.put(filePath, typesKey);
+
+			final String source = new String(data, "utf-8");
+			if (!rm.isCheckoutFree()) {
+				addToBatch(batches, parser, filePath, source);
+				continue;
+			}
+
+			final String filename = filePath;
+			tasks.add(submit(new Callable<Map<String, List<TypeInfo>>>() {
+				@Override
+				public Map<String, List<TypeInfo>> call() {
+					return Collections.singletonMap(filename, TypeInfo.fromAST(parser.generate(filename, source)));
+				}
+			}));
+		}
+
+		for (Entry<IParser, Map<String, String>> batch : batches.entrySet()) {
+			final IParser parser = batch.getKey();
+			for (final Map<String, String> chunk : split(batch.getValue(), PARSE_BATCH_SIZE)) {
+				tasks.add(submit(new Callable<Map<String, List<TypeInfo>>>() {
+					@Override
+					public Map<String, List<TypeInfo>> call() {
+						Map<String, List<TypeInfo>> result = new LinkedHashMap<String, List<TypeInfo>>();
+						for (Entry<String, AST> ast : parser.generate(repoPath, chunk).entrySet())
+							result.put(ast.getKey(), TypeInfo.fromAST(ast.getValue()));
+						return result;
+					}
+				}));
+			}
+		}
+
+		for (Future<Map<String, List<TypeInfo>>> task : tasks) {
+			for (Entry<String, List<TypeInfo>> types : waitFor(task).entrySet()) {
+				fileTypes.put(typesKeys.get(types.getKey()), types.getValue());
+				typeIndex.putFile(types.getKey(), types.getValue());
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<TypeInfo> parseTypes(Document analysis) {
+		List<TypeInfo> types = new ArrayList<TypeInfo>();
+		List<Document> docs = analysis.get("hierarchy", List.class);
+		if (docs != null)
+			for (Document doc : docs)
+				types.add(TypeInfo.parseDocument(doc));
+		return types;
+	}
+
+	/*
+	 * The inheritance metrics depend on other files, so they are not part of
+	 * the cached analysis and are added to a copy of its types.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Document> addHierarchyMetrics(Document analysis) {
+		List<Document> types = new ArrayList<Document>();
+		for (Document type : (List<Document>) analysis.get("types")) {
+			TypeInfo info = typeIndex.getType(type.getString("name"));
+			if (info == null) {
+				types.add(type);
+				continue;
+			}
+
+			MetricVector metrics = new MetricVector();
+			for (IHierarchyMetric metric : hierarchyMetrics)
+				metric.calculate(typeIndex, info, metrics);
+
+			Document typeMetrics = new Document(type.get("metrics", Document.class));
+			typeMetrics.putAll(metrics.toDocument());
+			types.add(new Document(type).append("metrics", typeMetrics));
+		}
+		return types;
+	}
+
+	private <T> Future<T> submit(Callable<T> task) {
+		if (executor != null)
+			return executor.submit(task);
+
+		FutureTask<T> future = new FutureTask<T>(task);
+		future.run();
+		return future;
+	}
+
+	private <T> T waitFor(Future<T> task) {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositoryMinerException(ErrorMessage.CODE_ANALYSIS_ERROR.toString(), e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RepositoryMinerException)
+				throw (RepositoryMinerException) e.getCause();
+			throw new RepositoryMinerException(ErrorMessage.CODE_ANALYSIS_ERROR.toString(), e.getCause());
+		}
+	}
+
+	private void persistAnalysis(Commit commit, String filename, Document analysis) {
 		Document doc = new Document();
 		doc.append("commit", commit.getId());
-		doc.append("package", ast.getPackageDeclaration());
+		doc.append("package", analysis.get("package"));
 		doc.append("filename", filename);
 		doc.append("repository", new ObjectId(repoId));
-		doc.append("filename_hash", HashingUtils.encodeToCRC32(filename));
+		doc.append("filehash", HashingUtils.encodeToCRC32(filename));
+		doc.append("metrics", analysis.get("metrics"));
+		doc.append("methods", analysis.get("methods"));
+		doc.append("types", typeIndex != null ? addHierarchyMetrics(analysis) : analysis.get("types"));
 
-		for (IMetric metric : metrics.values()) {
-			metric.calculate(ast);
-		}
+		writer.insert(codeAnalysisDAO, doc);
+	}
+
+	/*
+	 * Computes the metrics and code smells of a file. The result does not
+	 * depend on the commit or the file name, so it can be cached by content.
+	 * The metrics and code smells keep no state between files, so the worker
+	 * threads share them. The eager metrics are calculated in a single walk
+	 * over the file, the lazy ones only if a code smell asks for them.
+	 */
+	private Document processFile(AST ast) {
+		Document doc = new Document();
+		doc.append("package", ast.getPackageDeclaration());
+
+		MetricEvaluation evaluation = metricGraph.calculate(ast);
 
 		for (ICodeSmell codeSmell : codeSmells.values()) {
-			codeSmell.detect(ast);
+			if (codeSmell instanceof ILazyCodeSmell)
+				((ILazyCodeSmell) codeSmell).detect(ast, evaluation);
+			else
+				codeSmell.detect(ast);
 		}
 
 		doc.append("metrics", ast.convertMetrics());
@@ -139,48 +575,116 @@ public class CodeAnalysisProcessor {
 		}
 		doc.append("types", docTypes);
 
-		codeAnalysisDAO.insert(doc);
+		if (typeIndex != null) {
+			List<Document> docHierarchy = new ArrayList<Document>();
+			for (TypeInfo type : TypeInfo.fromAST(ast))
+				docHierarchy.add(type.toDocument());
+			doc.append("hierarchy", docHierarchy);
+		}
+
+		return doc;
+	}
+
+	/*
+	 * The code smells are computed from their required metrics, which were
+	 * added to the metric graph. A lazy metric might be calculated, so it
+	 * counts too.
+	 */
+	private boolean requiresBindings() {
+		for (IMetric metric : metricGraph.getMetrics())
+			if (metric.requiresBindings())
+				return true;
+
+		for (IMetric metric : hierarchyMetrics)
+			if (metric.requiresBindings())
+				return true;
+
+		return false;
 	}
 
-	private void visitMetric(IMetric metricParam) {
-		if (metricParam.getRequiredMetrics() != null) {
-			for (MetricID id: metricParam.getRequiredMetrics()) {
-				if (!metrics.containsKey(id)) {
-					IMetric metric = MetricFactory.getMetric(id);
-					if (metric.getRequiredMetrics() == null)
-						metrics.put(id, metric);
-					else
-						visitMetric(metric);
+	private String createConfigFingerprint() {
+		StringBuilder sb = new StringBuilder();
+		for (IMetric metric : metricGraph.getMetrics())
+			sb.append(metric.getId()).append(metricGraph.isLazy(metric.getId()) ? "?," : ",");
+
+		for (ICodeSmell codeSmell : codeSmells.values())
+			sb.append('|').append(codeSmell.getId()).append(describeConfiguration(codeSmell));
+
+		if (typeIndex != null)
+			sb.append("|hierarchy");
+
+		return sb.toString();
+	}
+
+	/*
+	 * The configuration of a code smell (e.g. its thresholds) is read from the
+	 * fields of the instance, so the code smells do not have to describe it. A
+	 * field that can not be read makes the instance unique to this mining.
+	 */
+	private static String describeConfiguration(Object instance) {
+		List<String> fields = new ArrayList<String>();
+		for (Class<?> type = instance.getClass(); type != Object.class; type = type.getSuperclass()) {
+			for (Field field : type.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic())
+					continue;
+
+				Object value;
+				try {
+					field.setAccessible(true);
+					value = field.get(instance);
+				} catch (IllegalAccessException | RuntimeException e) {
+					value = "@" + System.identityHashCode(instance);
 				}
+				fields.add(type.getName() + "." + field.getName() + "=" + Arrays.deepToString(new Object[] { value }));
 			}
 		}
 
-		if (!metrics.containsKey(metricParam.getId()))
-			metrics.put(metricParam.getId(), metricParam);
+		Collections.sort(fields);
+		return instance.getClass().getName() + fields;
 	}
 
-	private void visitCodeSmell(ICodeSmell codeSmellParam) {
-		if (codeSmellParam.getRequiredMetrics() != null) {
-			for (MetricID id : codeSmellParam.getRequiredMetrics()) {
-				IMetric metric = MetricFactory.getMetric(id);
-				visitMetric(metric);
-			}
+	/*
+	 * Adds the code smells after the ones they require, depth-first. The
+	 * visited map is false while a code smell is being visited. The given
+	 * instances are used instead of the ones the factory creates.
+	 */
+	private void visitCodeSmell(ICodeSmell codeSmellParam, Map<CodeSmellID, ICodeSmell> givenCodeSmells,
+			Map<CodeSmellID, Boolean> visited) {
+		Boolean done = visited.get(codeSmellParam.getId());
+		if (done != null) {
+			if (!done)
+				throw new RepositoryMinerException(ErrorMessage.CODE_SMELL_DEPENDENCY_CYCLE);
+			return;
 		}
-		
+
+		visited.put(codeSmellParam.getId(), false);
 		if (codeSmellParam.getRequiredCodeSmells() != null) {
 			for (CodeSmellID id : codeSmellParam.getRequiredCodeSmells()) {
-				if (!codeSmells.containsKey(id)) {
-					ICodeSmell codeSmell = CodeSmellFactory.getCodeSmell(id);
-					if (codeSmell.getRequiredCodeSmells() == null)
-						codeSmells.put(id, codeSmell);
-					else
-						visitCodeSmell(codeSmell);
-				}
+				ICodeSmell codeSmell = givenCodeSmells.get(id);
+				if (codeSmell == null)
+					codeSmell = CodeSmellFactory.getCodeSmell(id);
+				visitCodeSmell(codeSmell, givenCodeSmells, visited);
 			}
 		}
 
-		if (!codeSmells.containsKey(codeSmellParam.getId()))
-			codeSmells.put(codeSmellParam.getId(), codeSmellParam);
+		visited.put(codeSmellParam.getId(), true);
+		codeSmells.put(codeSmellParam.getId(), codeSmellParam);
+	}
+
+	/*
+	 * The metrics a code smell requires are lazy only if the code smell asks
+	 * for them when it needs them.
+	 */
+	private void addRequiredMetrics(ICodeSmell codeSmell) {
+		if (codeSmell.getRequiredMetrics() == null)
+			return;
+
+		Set<MetricID> lazyMetrics = new HashSet<MetricID>();
+		if (codeSmell instanceof ILazyCodeSmell)
+			Collections.addAll(lazyMetrics, ((ILazyCodeSmell) codeSmell).getLazyMetrics());
+
+		for (MetricID id : codeSmell.getRequiredMetrics())
+			metricGraph.addMetric(id, lazyMetrics.contains(id));
 	}
 
 	/*** GETTERS AND SETTERS ***/
@@ -202,4 +706,13 @@ public class CodeAnalysisProcessor {
 		this.selectedCommits = selectedCommits;
 	}
 
+	/**
+	 * @param writer
+	 *            the writer the analyses are queued in. It is closed by the
+	 *            caller.
+	 */
+	public void setWriter(AsyncWriter writer) {
+		this.writer = writer;
+	}
+
 }
\ No newline at end of file
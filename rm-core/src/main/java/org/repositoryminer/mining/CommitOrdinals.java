@@ -0,0 +1,88 @@
+package org.repositoryminer.mining;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.repositoryminer.domain.CommitRanges;
+import org.repositoryminer.persistence.dao.AsyncWriter;
+import org.repositoryminer.persistence.dao.CommitOrdinalDAO;
+
+/**
+ * Numbers the commits of a repository as they are first seen, so the
+ * references store their commits as {@link CommitRanges}. Only the ordinals of
+ * the commits being converted are looked up in the database, in batches, and
+ * the new ones are queued to the writer.
+ */
+class CommitOrdinals {
+
+	private static final int LOOKUP_BATCH_SIZE = 1000;
+
+	private String repositoryId;
+	private AsyncWriter writer;
+	private CommitOrdinalDAO ordinalDAO = new CommitOrdinalDAO();
+	private Map<String, Integer> ordinals = new HashMap<String, Integer>();
+	private int nextOrdinal;
+
+	public CommitOrdinals(String repositoryId, AsyncWriter writer) {
+		this.repositoryId = repositoryId;
+		this.writer = writer;
+		nextOrdinal = ordinalDAO.findMaxOrdinal(repositoryId) + 1;
+	}
+
+	/**
+	 * Numbers the commits that have no ordinal yet, in the given order.
+	 */
+	public void addAll(List<String> commits) {
+		lookUp(commits);
+		for (String commit : commits)
+			getOrdinal(commit);
+	}
+
+	/**
+	 * @param commits
+	 *            the commits of a reference, newest first.
+	 * @return the ranges of the commits, numbering the new ones.
+	 */
+	public CommitRanges toRanges(List<String> commits) {
+		lookUp(commits);
+		CommitRanges ranges = new CommitRanges();
+		for (String commit : commits)
+			ranges.add(getOrdinal(commit));
+		return ranges;
+	}
+
+	/*
+	 * A repository without ordinals has nothing to look up, as when it is
+	 * mined for the first time.
+	 */
+	private void lookUp(List<String> commits) {
+		if (nextOrdinal == 0)
+			return;
+
+		List<String> batch = new ArrayList<String>(LOOKUP_BATCH_SIZE);
+		for (String commit : commits) {
+			if (ordinals.containsKey(commit))
+				continue;
+
+			batch.add(commit);
+			if (batch.size() == LOOKUP_BATCH_SIZE) {
+				ordinals.putAll(ordinalDAO.findOrdinals(repositoryId, batch));
+				batch.clear();
+			}
+		}
+		ordinals.putAll(ordinalDAO.findOrdinals(repositoryId, batch));
+	}
+
+	private int getOrdinal(String commit) {
+		Integer ordinal = ordinals.get(commit);
+		if (ordinal == null) {
+			ordinal = nextOrdinal++;
+			ordinals.put(commit, ordinal);
+			writer.insert(ordinalDAO, CommitOrdinalDAO.toDocument(repositoryId, commit, ordinal));
+		}
+		return ordinal;
+	}
+
+}
@@ -3,30 +3,42 @@ package org.repositoryminer.mining;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
 import org.bson.Document;
 import org.repositoryminer.domain.Commit;
+import org.repositoryminer.domain.CommitRanges;
 import org.repositoryminer.domain.PersonIdent;
 import org.repositoryminer.domain.Reference;
 import org.repositoryminer.domain.Repository;
 import org.repositoryminer.exception.RepositoryMinerException;
+import org.repositoryminer.persistence.dao.AsyncWriter;
 import org.repositoryminer.persistence.dao.CommitDAO;
 import org.repositoryminer.persistence.dao.ReferenceDAO;
 import org.repositoryminer.persistence.dao.RepositoryDAO;
 import org.repositoryminer.scm.ISCM;
-import org.repositoryminer.util.RMFileUtils;
+import org.repositoryminer.scm.ReachabilityIndex;
+
+import com.mongodb.client.model.Projections;
 
 public class MiningProcessor {
 
+	private static final int LOOKUP_BATCH_SIZE = 1000;
+
 	private ISCM scm;
 	private RepositoryMiner rm;
 	private Set<String> selectedCommits = new LinkedHashSet<String>();
+	private AsyncWriter writer;
+	private CodeAnalysisProcessor codeAnalysis;
 
 	/**
 	 * Starts the mining process
@@ -38,43 +50,125 @@ public class MiningProcessor {
 	 * @throws IOException
 	 */
 	public void mine(RepositoryMiner rm) throws IOException {
+		this.rm = rm;
+		configureCodeAnalysis();
+
 		File repositoryFolder = new File(rm.getRepositoryPath());
-		String tempRepo = RMFileUtils.copyFolderToTmp(repositoryFolder.getAbsolutePath(), rm.getRepositoryName());
+		String tempRepo = prepareRepository(rm, repositoryFolder);
+
+		scm = rm.getScm();
+		scm.open(tempRepo);
+		writer = new AsyncWriter(rm.getWriteQueueSize(), rm.getWriteBatchSize(), rm.getWriteFlushInterval());
+
+		try {
+			Repository repository = new Repository(null, rm.getRepositoryKey(), rm.getRepositoryName(),
+					rm.getRepositoryPath(), rm.getScm().getSCM(), rm.getRepositoryDescription(),
+					new ArrayList<PersonIdent>());
 
+			repository.setPath(FilenameUtils.normalize(repositoryFolder.getAbsolutePath(), true));
+
+			RepositoryDAO repoHandler = new RepositoryDAO();
+			Document repoDoc = repository.toDocument();
+			repoHandler.insert(repoDoc);
+			repository.setId(repoDoc.get("_id").toString());
+
+			saveReferences(repository.getId());
+			repoHandler.updateOnlyContributors(repository.getId(), PersonIdent.toDocumentList(
+					saveCommits(repository.getId(), scm.getCommitsIterator(), false, null)));
+
+			startCodeAnalysis(repository.getId(), tempRepo);
+			writer.close();
+		} finally {
+			writer.abort();
+			scm.close();
+			releaseRepository(rm, tempRepo);
+		}
+	}
+
+	/**
+	 * Updates an already mined repository. Only the commits that are not
+	 * reachable from the previously mined references are extracted, the
+	 * references are brought up to date and only the new selected commits are
+	 * analyzed.
+	 * 
+	 * @param rm
+	 *            instance of {@link org.repositoryminer.mining.RepositoryMiner} .
+	 *            It must <b>NEVER<b> be null, since it will provide important
+	 *            parameters for the source-code analysis and persistence
+	 * @throws IOException
+	 */
+	public void update(RepositoryMiner rm) throws IOException {
 		this.rm = rm;
+		configureCodeAnalysis();
+
+		File repositoryFolder = new File(rm.getRepositoryPath());
+		String tempRepo = prepareRepository(rm, repositoryFolder);
+
 		scm = rm.getScm();
 		scm.open(tempRepo);
+		writer = new AsyncWriter(rm.getWriteQueueSize(), rm.getWriteBatchSize(), rm.getWriteFlushInterval());
 
-		Repository repository = new Repository(null, rm.getRepositoryKey(), rm.getRepositoryName(),
-				rm.getRepositoryPath(), rm.getScm().getSCM(), rm.getRepositoryDescription(),
-				new ArrayList<PersonIdent>());
+		try {
+			RepositoryDAO repoHandler = new RepositoryDAO();
+			Repository repository = Repository.parseDocument(repoHandler.findByKey(rm.getRepositoryKey(),
+					Projections.include("_id", "key", "name", "path", "scm", "description", "contributors")));
 
-		repository.setPath(FilenameUtils.normalize(repositoryFolder.getAbsolutePath(), true));
+			Set<String> minedTips = updateReferences(repository.getId());
 
-		RepositoryDAO repoHandler = new RepositoryDAO();
-		Document repoDoc = repository.toDocument();
-		repoHandler.insert(repoDoc);
-		repository.setId(repoDoc.get("_id").toString());
+			// a tip that was not stored or does not exist anymore lets the walk
+			// reach commits that were already saved
+			Set<String> newCommits = new HashSet<String>();
+			Set<PersonIdent> contributors = new LinkedHashSet<PersonIdent>(repository.getContributors());
+			contributors.addAll(saveCommits(repository.getId(), scm.getCommitsIterator(minedTips), true,
+					newCommits));
+			repoHandler.updateOnlyContributors(repository.getId(), PersonIdent.toDocumentList(contributors));
 
-		saveReferences(repository.getId());
-		repoHandler.updateOnlyContributors(repository.getId(),
-				PersonIdent.toDocumentList(saveCommits(repository.getId())));
+			selectedCommits.retainAll(newCommits);
+			startCodeAnalysis(repository.getId(), tempRepo);
+			writer.close();
+		} finally {
+			writer.abort();
+			scm.close();
+			releaseRepository(rm, tempRepo);
+		}
+	}
+
+	/*
+	 * The analysis checks out every selected commit, so it works on a
+	 * workspace, unless the files are read from the SCM objects.
+	 */
+	private String prepareRepository(RepositoryMiner rm, File repositoryFolder) throws IOException {
+		if (rm.isCheckoutFree())
+			return repositoryFolder.getAbsolutePath();
+
+		return rm.getWorkspaceManager().acquire(repositoryFolder.getAbsolutePath(), rm.getRepositoryName());
+	}
+
+	private void releaseRepository(RepositoryMiner rm, String repositoryPath) throws IOException {
+		if (!rm.isCheckoutFree())
+			rm.getWorkspaceManager().release(repositoryPath);
+	}
 
-		startCodeAnalysis(repository.getId(), tempRepo);
+	/*
+	 * The configuration of the analysis is checked before anything is stored.
+	 */
+	private void configureCodeAnalysis() {
+		if (!rm.hasParsers())
+			return;
 
-		scm.close();
-		RMFileUtils.deleteFolder(tempRepo);
+		codeAnalysis = new CodeAnalysisProcessor();
+		codeAnalysis.setRm(rm);
+		codeAnalysis.configure();
 	}
 
 	private void startCodeAnalysis(String repoId, String repoPath) {
-		if (!rm.hasParsers() || selectedCommits.size() == 0)
+		if (codeAnalysis == null || selectedCommits.size() == 0)
 			return;
 		
-		CodeAnalysisProcessor codeAnalysis = new CodeAnalysisProcessor();
 		codeAnalysis.setRepoId(repoId);
 		codeAnalysis.setRepoPath(repoPath);
-		codeAnalysis.setRm(rm);
 		codeAnalysis.setSelectedCommits(selectedCommits);
+		codeAnalysis.setWriter(writer);
 		
 		try {
 			codeAnalysis.start();
@@ -85,35 +179,138 @@ public class MiningProcessor {
 
 	private void saveReferences(String repositoryId) {
 		ReferenceDAO refDocumentHandler = new ReferenceDAO();
-		List<Reference> references = scm.getReferences();
+		ReachabilityIndex index = scm.getReachabilityIndex();
+
+		// numbered in the traversal order, the references get few ranges
+		CommitOrdinals ordinals = new CommitOrdinals(repositoryId, writer);
+		ordinals.addAll(index.getCommits());
 
-		for (Reference ref : references) {
-			List<String> commits = scm.getCommitsNames(ref);
+		for (Reference ref : index.getReferences()) {
+			List<String> commits = index.getCommits(ref);
 
 			ref.setRepository(repositoryId);
 			ref.setCommits(commits);
+			ref.setCommitRanges(ordinals.toRanges(commits));
+			writer.insert(refDocumentHandler, ref.toDocument());
+
+			selectCommits(ref, commits);
+		}
+	}
+
+	/*
+	 * Brings the stored references up to date and returns the commits they
+	 * pointed to before, whose history does not need to be extracted again. A
+	 * reference that only moved forward gets the ranges of the new commits
+	 * prepended to the stored ones, otherwise its commits are listed again. A
+	 * reference mined by an older version has no tip nor ranges, so it is
+	 * listed again and its legacy list of commits is replaced by the ranges.
+	 */
+	private Set<String> updateReferences(String repositoryId) {
+		ReferenceDAO refDocumentHandler = new ReferenceDAO();
+		CommitOrdinals ordinals = new CommitOrdinals(repositoryId, writer);
+
+		Map<String, Document> storedRefs = new HashMap<String, Document>();
+		Set<String> minedTips = new HashSet<String>();
+		for (Document doc : refDocumentHandler.findByRepository(repositoryId, Projections.include("path", "tip"))) {
+			storedRefs.put(doc.getString("path"), doc);
+
+			String tip = doc.getString("tip");
+			if (tip != null)
+				minedTips.add(tip);
+		}
 
-			Document refDoc = ref.toDocument();
-			refDocumentHandler.insert(refDoc);
+		for (Reference ref : scm.getReferences()) {
+			Document storedRef = storedRefs.remove(ref.getPath());
 
-			if (rm.hasReferences() && rm.getReferences().contains(new ReferenceEntry(ref.getName(), ref.getType()))) {
-				Collections.reverse(commits);
-				selectedCommits.addAll(commits);
+			if (storedRef == null) {
+				List<String> commits = scm.getCommitsNames(ref);
+				ref.setRepository(repositoryId);
+				ref.setCommits(commits);
+				ref.setCommitRanges(ordinals.toRanges(commits));
+				writer.insert(refDocumentHandler, ref.toDocument());
+				selectCommits(ref, commits);
+				continue;
 			}
+
+			String storedTip = storedRef.getString("tip");
+			if (ref.getTip().equals(storedTip))
+				continue;
+
+			String refId = storedRef.getObjectId("_id").toHexString();
+			List<String> newCommits = storedTip != null ? scm.getCommitsNames(ref, storedTip) : null;
+			CommitRanges storedRanges = newCommits != null ? refDocumentHandler.findCommitRanges(refId) : null;
+			CommitRanges ranges;
+			if (storedRanges != null) {
+				ranges = ordinals.toRanges(newCommits);
+				ranges.addAll(storedRanges);
+			} else {
+				List<String> commits = scm.getCommitsNames(ref);
+				newCommits = new ArrayList<String>(commits);
+				newCommits.removeAll(new HashSet<String>(refDocumentHandler.findCommits(refId, 0)));
+				ranges = ordinals.toRanges(commits);
+			}
+
+			refDocumentHandler.updateTipAndCommits(refId, ref.getTip(), ranges);
+			selectCommits(ref, newCommits);
+		}
+
+		for (Document vanishedRef : storedRefs.values())
+			refDocumentHandler.delete(vanishedRef.getObjectId("_id").toHexString());
+
+		return minedTips;
+	}
+
+	private void selectCommits(Reference ref, List<String> commits) {
+		if (rm.hasReferences() && rm.getReferences().contains(new ReferenceEntry(ref.getName(), ref.getType()))) {
+			List<String> reversed = new ArrayList<String>(commits);
+			Collections.reverse(reversed);
+			selectedCommits.addAll(reversed);
 		}
 	}
 
-	private Set<PersonIdent> saveCommits(String repositoryId) {
+	/*
+	 * When updating, the walked commits are checked against the stored ones in
+	 * batches, so only the ids of the walked commits are queried.
+	 */
+	private Set<PersonIdent> saveCommits(String repositoryId, Iterator<Commit> commits, boolean skipStored,
+			Collection<String> savedCommits) {
 		CommitDAO documentHandler = new CommitDAO();
 		Set<PersonIdent> contributors = new HashSet<PersonIdent>();
 
-		for (Commit commit : scm.getCommits()) {
-			commit.setRepository(repositoryId);
-			contributors.add(commit.getCommitter());
-			documentHandler.insert(commit.toDocument());
+		List<Commit> batch = new ArrayList<Commit>();
+		while (commits.hasNext()) {
+			batch.add(commits.next());
+			if (batch.size() == LOOKUP_BATCH_SIZE || !commits.hasNext()) {
+				saveCommits(repositoryId, batch, skipStored, documentHandler, contributors, savedCommits);
+				batch.clear();
+			}
 		}
 
+		// the code analysis reads the commits, so all of them are written here
+		writer.flush();
 		return contributors;
 	}
 
-}
\ No newline at end of file
+	private void saveCommits(String repositoryId, List<Commit> commits, boolean skipStored,
+			CommitDAO documentHandler, Set<PersonIdent> contributors, Collection<String> savedCommits) {
+		Set<String> storedCommits = Collections.emptySet();
+		if (skipStored) {
+			List<String> ids = new ArrayList<String>(commits.size());
+			for (Commit commit : commits)
+				ids.add(commit.getId());
+			storedCommits = documentHandler.findStoredIds(repositoryId, ids);
+		}
+
+		for (Commit commit : commits) {
+			if (storedCommits.contains(commit.getId()))
+				continue;
+			if (savedCommits != null)
+				savedCommits.add(commit.getId());
+
+			commit.setRepository(repositoryId);
+			contributors.add(commit.getCommitter());
+			writer.insert(documentHandler, commit.toDocument());
+		}
+	}
+
+}
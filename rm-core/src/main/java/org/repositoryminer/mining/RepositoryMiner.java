@@ -9,6 +9,7 @@ import org.repositoryminer.metric.IMetric;
 import org.repositoryminer.parser.IParser;
 import org.repositoryminer.persistence.dao.RepositoryDAO;
 import org.repositoryminer.scm.ISCM;
+import org.repositoryminer.scm.WorkspaceManager;
 
 public class RepositoryMiner {
 
@@ -22,12 +23,29 @@ public class RepositoryMiner {
 	private List<IMetric> metrics;
 	private List<ICodeSmell> codeSmells;
 	private Set<ReferenceEntry> references;
-
+	private boolean incremental;
+	private boolean checkoutFree;
+	private WorkspaceManager workspaceManager = new WorkspaceManager();
+	private AnalysisCache analysisCache = new AnalysisCache();
+	private int analysisThreads = 1;
+	private int writeBatchSize = 1000;
+	private long writeFlushInterval = 5000;
+	private int writeQueueSize = 10000;
+
+	/**
+	 * Mines the repository. If it was already mined, it is only updated when
+	 * the incremental mode is enabled, otherwise nothing is done.
+	 * 
+	 * @throws IOException
+	 */
 	public void mine() throws IOException {
 		RepositoryDAO repoDocHandler = new RepositoryDAO();
 		if (!repoDocHandler.wasMined(repositoryKey)) {
 			MiningProcessor processor = new MiningProcessor();
 			processor.mine(this);
+		} else if (incremental) {
+			MiningProcessor processor = new MiningProcessor();
+			processor.update(this);
 		}
 	}
 
@@ -121,4 +139,108 @@ public class RepositoryMiner {
 		this.references = references;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @param incremental
+	 *            if true, an already mined repository is updated with the
+	 *            commits and references created since the last mining.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public boolean isCheckoutFree() {
+		return checkoutFree;
+	}
+
+	/**
+	 * @param checkoutFree
+	 *            if true, the analyzed files are read straight from the SCM
+	 *            objects, so the repository is neither copied nor checked out.
+	 *            The files are parsed without bindings, so the metrics that
+	 *            require them (e.g. ATFD, TCC and BUR), directly or through a
+	 *            code smell, are rejected before the mining starts.
+	 */
+	public void setCheckoutFree(boolean checkoutFree) {
+		this.checkoutFree = checkoutFree;
+	}
+
+	public WorkspaceManager getWorkspaceManager() {
+		return workspaceManager;
+	}
+
+	/**
+	 * @param workspaceManager
+	 *            provides the working copy where the commits are checked out.
+	 */
+	public void setWorkspaceManager(WorkspaceManager workspaceManager) {
+		this.workspaceManager = workspaceManager;
+	}
+
+	public AnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+
+	/**
+	 * @param analysisCache
+	 *            the cache of code analyses, or null to always analyze the
+	 *            files. The default cache keeps the analyses only in memory,
+	 *            a persistent cache also stores them in the database.
+	 */
+	public void setAnalysisCache(AnalysisCache analysisCache) {
+		this.analysisCache = analysisCache;
+	}
+
+	public int getAnalysisThreads() {
+		return analysisThreads;
+	}
+
+	/**
+	 * @param analysisThreads
+	 *            the number of threads that parse and analyze the files of a
+	 *            commit. The analyses are persisted in the same order as with
+	 *            a single thread.
+	 */
+	public void setAnalysisThreads(int analysisThreads) {
+		this.analysisThreads = analysisThreads;
+	}
+
+	public int getWriteBatchSize() {
+		return writeBatchSize;
+	}
+
+	/**
+	 * @param writeBatchSize
+	 *            the maximum number of commits, references or analyses sent
+	 *            to the database in a single bulk write.
+	 */
+	public void setWriteBatchSize(int writeBatchSize) {
+		this.writeBatchSize = writeBatchSize;
+	}
+
+	public long getWriteFlushInterval() {
+		return writeFlushInterval;
+	}
+
+	/**
+	 * @param writeFlushInterval
+	 *            the maximum time, in milliseconds, a document waits to be
+	 *            written while its batch is not full.
+	 */
+	public void setWriteFlushInterval(long writeFlushInterval) {
+		this.writeFlushInterval = writeFlushInterval;
+	}
+
+	public int getWriteQueueSize() {
+		return writeQueueSize;
+	}
+
+	/**
+	 * @param writeQueueSize
+	 *            the maximum number of documents waiting to be written. The
+	 *            mining waits while the queue is full.
+	 */
+	public void setWriteQueueSize(int writeQueueSize) {
+		this.writeQueueSize = writeQueueSize;
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.repositoryminer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.domain.Change;
+import org.repositoryminer.util.HashingUtils;
+
+/**
+ * Base class for the parsers that only implement the basic operations of
+ * {@link IParser}: the generation of the AST of a file, the accepted files,
+ * the language and the scan of the repository. The other operations are
+ * built on top of them: the files of a batch are parsed one by one, an update
+ * scans the repository again and the bindings are always resolved as the
+ * parser does it.
+ */
+public abstract class AbstractParser implements IParser {
+
+	/**
+	 * Parses each file on its own, reading it from the disk. Files that can
+	 * not be read are left out.
+	 */
+	@Override
+	public Map<String, AST> generate(String repositoryPath, List<String> filenames) {
+		Map<String, String> sources = new LinkedHashMap<String, String>();
+		for (String filename : filenames) {
+			try {
+				sources.put(filename, FileUtils.readFileToString(new File(repositoryPath, filename), "UTF-8"));
+			} catch (IOException e) {
+				// the file is left out
+			}
+		}
+		return generate(repositoryPath, sources);
+	}
+
+	/**
+	 * Parses each file on its own.
+	 */
+	@Override
+	public Map<String, AST> generate(String repositoryPath, Map<String, String> sources) {
+		Map<String, AST> asts = new HashMap<String, AST>();
+		for (Entry<String, String> source : sources.entrySet()) {
+			AST ast = generate(source.getKey(), source.getValue());
+			if (ast != null)
+				asts.put(source.getKey(), ast);
+		}
+		return asts;
+	}
+
+	@Override
+	public void updateRepository(String repositoryPath, List<Change> changes) {
+		scanRepository(repositoryPath);
+	}
+
+	/**
+	 * Hashes the parser class, its version and its configuration, so the
+	 * analyses are reused across runs while none of them changes. A parser
+	 * whose ASTs depend on more than its configuration (e.g. on the classpath
+	 * of the repository) must override this method.
+	 */
+	@Override
+	public String getFingerprint() {
+		Package parserPackage = getClass().getPackage();
+		String version = parserPackage != null ? parserPackage.getImplementationVersion() : null;
+		return HashingUtils.encodeToSHA1(getClass().getName() + "|" + version + "|" + getLanguage() + "|"
+				+ getConfiguration());
+	}
+
+	/**
+	 * Describes the settings that change the generated ASTs, such as the
+	 * accepted extensions and the source folders, for the fingerprint. Paths
+	 * inside the repository must be relative to it.
+	 * 
+	 * @return the parser configuration, empty by default.
+	 */
+	protected String getConfiguration() {
+		return "";
+	}
+
+	@Override
+	public void setResolveBindings(boolean resolveBindings) {
+	}
+
+}
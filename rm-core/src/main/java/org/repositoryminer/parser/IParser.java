@@ -1,9 +1,20 @@
 package org.repositoryminer.parser;
 
+import java.util.List;
+import java.util.Map;
+
 import org.repositoryminer.ast.AST;
+import org.repositoryminer.domain.Change;
 
 /**
  * This interface defines a parser to a programming language.
+ * <p>
+ * The generate methods may be called concurrently by several threads, while
+ * the scan and update of the repository are never called during parsing.
+ * <p>
+ * New operations are added to this interface as the mining evolves, so a
+ * parser should extend {@link AbstractParser}, which implements them on top of
+ * the basic ones.
  */
 public interface IParser {
 
@@ -17,6 +28,35 @@ public interface IParser {
 	 */
 	public AST generate(String filename, String source);
 
+	/**
+	 * Generates the ASTs of several files of the repository at once, sharing
+	 * the parser environment among them. The files are read from the disk.
+	 * 
+	 * @param repositoryPath
+	 *            the repository path.
+	 * @param filenames
+	 *            the file paths, relative to the repository.
+	 * 
+	 * @return the ASTs by file path. Files that could not be parsed are left
+	 *         out.
+	 */
+	public Map<String, AST> generate(String repositoryPath, List<String> filenames);
+
+	/**
+	 * Generates the ASTs of several files of the repository at once, as
+	 * {@link #generate(String, List)} does, from sources already read by the
+	 * caller (e.g. to hash them), so the parser does not read them again.
+	 * 
+	 * @param repositoryPath
+	 *            the repository path.
+	 * @param sources
+	 *            the source codes by file path, relative to the repository.
+	 * 
+	 * @return the ASTs by file path. Files that could not be parsed are left
+	 *         out.
+	 */
+	public Map<String, AST> generate(String repositoryPath, Map<String, String> sources);
+
 	/**
 	 * @return true if the file is supported by the parser or false otherwise
 	 */
@@ -34,4 +74,37 @@ public interface IParser {
 	 */
 	public void scanRepository(String repositoryPath);
 
+	/**
+	 * Updates what was found by the last scan with the changes of a commit,
+	 * instead of scanning the whole repository again. The repository must be
+	 * at the commit state and the last scan at its parent state.
+	 * 
+	 * @param repositoryPath
+	 *            the repository path.
+	 * @param changes
+	 *            the changes made by the commit.
+	 */
+	public void updateRepository(String repositoryPath, List<Change> changes);
+
+	/**
+	 * Identifies the parser environment found by the last scan (e.g. the source
+	 * folders and the classpath), so that ASTs generated under the same
+	 * environment can be reused. Paths inside the repository must be relative
+	 * to it, so copies of the repository share the fingerprint.
+	 * 
+	 * @return the environment fingerprint.
+	 */
+	public String getFingerprint();
+
+	/**
+	 * Enables the resolution of bindings (e.g. the types of the accessed
+	 * fields and the declaring classes of the invoked methods). Without it, the
+	 * parser does not need to know the environment of the repository and only
+	 * the syntax of the files is analyzed.
+	 * 
+	 * @param resolveBindings
+	 *            true to resolve the bindings.
+	 */
+	public void setResolveBindings(boolean resolveBindings);
+
 }
\ No newline at end of file
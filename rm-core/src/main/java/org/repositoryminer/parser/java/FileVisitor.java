@@ -15,12 +15,14 @@ import org.repositoryminer.ast.AbstractClass;
 import org.repositoryminer.ast.AbstractEnum;
 import org.repositoryminer.ast.AbstractImport;
 import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.SymbolTable;
 
 public class FileVisitor extends ASTVisitor {
 
 	private String packageName;
 	private List<AbstractImport> imports = new ArrayList<>();
 	private List<AbstractType> types = new ArrayList<>();
+	private SymbolTable symbols = new SymbolTable();
 
 	public String getPackageName() {
 		return packageName;
@@ -63,7 +65,7 @@ public class FileVisitor extends ASTVisitor {
 		AbstractClass clazz = new AbstractClass();
 		if (node.getSuperclassType() != null) {
 			ITypeBinding bind = node.getSuperclassType().resolveBinding();
-			clazz.setSuperClass(bind.getQualifiedName());
+			clazz.setSuperClass(bind != null ? bind.getQualifiedName() : node.getSuperclassType().toString());
 		}
 
 		clazz.setInterface(node.isInterface());
@@ -73,7 +75,7 @@ public class FileVisitor extends ASTVisitor {
 			clazz.setName(node.getName().getFullyQualifiedName());
 		}
 
-		TypeVisitor visitor = new TypeVisitor();
+		TypeVisitor visitor = new TypeVisitor(symbols);
 		node.accept(visitor);
 
 		clazz.setMethods(visitor.getMethods());
@@ -95,7 +97,7 @@ public class FileVisitor extends ASTVisitor {
 			absEnum.setName(node.getName().getFullyQualifiedName());
 		}
 
-		TypeVisitor visitor = new TypeVisitor();
+		TypeVisitor visitor = new TypeVisitor(symbols);
 		node.accept(visitor);
 		
 		absEnum.setMethods(visitor.getMethods());
@@ -118,7 +120,7 @@ public class FileVisitor extends ASTVisitor {
 			absAnnotation.setName(node.getName().getFullyQualifiedName());
 		}
 
-		TypeVisitor visitor = new TypeVisitor();
+		TypeVisitor visitor = new TypeVisitor(symbols);
 		node.accept(visitor);
 		
 		absAnnotation.setMethods(visitor.getMethods());
@@ -1,9 +1,17 @@
 package org.repositoryminer.parser.java;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
@@ -11,12 +19,16 @@ import org.apache.commons.io.FilenameUtils;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.repositoryminer.ast.AST;
 import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.LineIndex;
+import org.repositoryminer.domain.Change;
 import org.repositoryminer.exception.ErrorMessage;
 import org.repositoryminer.exception.RepositoryMinerException;
 import org.repositoryminer.parser.IParser;
 import org.repositoryminer.parser.Language;
+import org.repositoryminer.util.HashingUtils;
 
 /**
  * Java AST generator
@@ -24,19 +36,41 @@ import org.repositoryminer.parser.Language;
  * This class has the job to create an abstract AST upon Java source code.
  * 
  * The extensions accepted for this generator are: java
+ * 
+ * The generate methods can be called by several threads at once, each thread
+ * parses with its own JDT parser. The repository must not be scanned or
+ * updated while files are being parsed.
+ * 
+ * When the bindings are not resolved, the source folders and the classpath are
+ * not searched and the types are named as they are written in the source code.
  */
 
 public class JavaParser implements IParser {
 
 	private static final String[] EXTENSIONS = { "java", "jar" };
+	private static final String JDT_VERSION = findJdtVersion();
+
+	private ThreadLocal<ASTParser> parsers = new ThreadLocal<ASTParser>() {
+		@Override
+		protected ASTParser initialValue() {
+			return ASTParser.newParser(org.eclipse.jdt.core.dom.AST.JLS8);
+		}
+	};
 
-	private ASTParser parser = ASTParser.newParser(org.eclipse.jdt.core.dom.AST.JLS8);
 	private String[] classpath;
 	private String[] srcFolders;
 	private String[] encoding;
+	private String fingerprint;
+	private boolean resolveBindings = true;
+
+	private String repositoryPath;
+	private Map<String, String> fileSrcFolders = new HashMap<String, String>();
+	private Map<String, Integer> srcFolderFiles = new HashMap<String, Integer>();
+	private Set<String> jars = new HashSet<String>();
 
 	private List<String> userClasspath;
-	
+	private Map<String, String> jarDigests = new HashMap<String, String>();
+
 	@Override
 	public boolean accept(String filepath) {
 		return filepath.endsWith(".java");
@@ -49,10 +83,97 @@ public class JavaParser implements IParser {
 
 	@Override
 	public void scanRepository(String repositoryPath) {
-		List<File> files = (List<File>) FileUtils.listFiles(new File(repositoryPath), EXTENSIONS, true);
-		Set<String> jars = SrcFolderDetector.findJars(files);
-		Set<String> folders = SrcFolderDetector.findSrcFolders(files);
+		this.repositoryPath = repositoryPath;
+		fileSrcFolders.clear();
+		srcFolderFiles.clear();
+		jars.clear();
 
+		if (resolveBindings) {
+			List<File> files = (List<File>) FileUtils.listFiles(new File(repositoryPath), EXTENSIONS, true);
+			for (File file : files)
+				addFile(file);
+		}
+
+		updateEnvironment();
+	}
+
+	/*
+	 * Only the files touched by the changes are read. A modified Java file is
+	 * read again because its package may have changed.
+	 */
+	@Override
+	public void updateRepository(String repositoryPath, List<Change> changes) {
+		if (!repositoryPath.equals(this.repositoryPath)) {
+			scanRepository(repositoryPath);
+			return;
+		}
+
+		if (!resolveBindings)
+			return;
+
+		for (Change change : changes) {
+			File file = new File(repositoryPath, change.getPath());
+			switch (change.getType()) {
+			case ADD:
+			case COPY:
+				addFile(file);
+				break;
+			case MODIFY:
+				removeFile(file);
+				addFile(file);
+				break;
+			case DELETE:
+				removeFile(file);
+				break;
+			case MOVE:
+				removeFile(new File(repositoryPath, change.getOldPath()));
+				addFile(file);
+				break;
+			}
+		}
+
+		updateEnvironment();
+	}
+
+	private void addFile(File file) {
+		String path = file.getAbsolutePath();
+		if (FilenameUtils.isExtension(path, "jar")) {
+			if (file.isFile())
+				jars.add(path);
+			return;
+		}
+
+		String srcFolder = SrcFolderDetector.findSrcFolder(file);
+		if (srcFolder == null)
+			return;
+
+		fileSrcFolders.put(path, srcFolder);
+		Integer count = srcFolderFiles.get(srcFolder);
+		srcFolderFiles.put(srcFolder, count == null ? 1 : count + 1);
+	}
+
+	private void removeFile(File file) {
+		String path = file.getAbsolutePath();
+		jars.remove(path);
+
+		String srcFolder = fileSrcFolders.remove(path);
+		if (srcFolder == null)
+			return;
+
+		int count = srcFolderFiles.get(srcFolder) - 1;
+		if (count == 0)
+			srcFolderFiles.remove(srcFolder);
+		else
+			srcFolderFiles.put(srcFolder, count);
+	}
+
+	private void updateEnvironment() {
+		if (!resolveBindings) {
+			fingerprint = HashingUtils.encodeToSHA1(getLanguage() + "|syntax|jdt:" + JDT_VERSION);
+			return;
+		}
+
+		Set<String> folders = srcFolderFiles.keySet();
 		encoding = new String[folders.size()];
 		Arrays.fill(encoding, "UTF-8");
 		srcFolders = folders.toArray(new String[folders.size()]);
@@ -64,29 +185,95 @@ public class JavaParser implements IParser {
 			classpathTemp.addAll(userClasspath);
 		}
 		classpath = classpathTemp.toArray(new String[classpathTemp.size()]);
+		fingerprint = createFingerprint(repositoryPath);
 	}
 
 	@Override
-	public AST generate(String filename, String source) {
-		AST ast = new AST();
-		ast.setName(filename);
-		ast.setSource(source);
+	public String getFingerprint() {
+		return fingerprint;
+	}
 
-		parser.setResolveBindings(true);
-		parser.setKind(ASTParser.K_COMPILATION_UNIT);
-		parser.setBindingsRecovery(true);
-		parser.setCompilerOptions(JavaCore.getOptions());
+	@Override
+	public AST generate(String filename, String source) {
+		ASTParser parser = configureParser();
 		parser.setUnitName(filename);
-
-		parser.setEnvironment(classpath, srcFolders, encoding, true);
 		parser.setSource(source.toCharArray());
 
 		CompilationUnit cu = (CompilationUnit) parser.createAST(null);
+		return createAST(filename, source, cu);
+	}
+
+	/**
+	 * Reads each file once and parses the batch with the sources read. Files
+	 * that can not be read are left out.
+	 */
+	@Override
+	public Map<String, AST> generate(String repositoryPath, List<String> filenames) {
+		Map<String, String> sources = new LinkedHashMap<String, String>();
+		for (String filename : filenames) {
+			try {
+				sources.put(filename, FileUtils.readFileToString(new File(repositoryPath, filename), "UTF-8"));
+			} catch (IOException e) {
+				// the file is left out
+			}
+		}
+		return generate(repositoryPath, sources);
+	}
+
+	/*
+	 * All the files are parsed by a single createASTs call, so JDT builds the
+	 * name environment and reads the classpath once for the whole batch. JDT
+	 * reads the files by their paths, but the source and the line index of the
+	 * ASTs come from the given sources instead of a second read.
+	 */
+	@Override
+	public Map<String, AST> generate(String repositoryPath, final Map<String, String> sources) {
+		final Map<String, String> names = new HashMap<String, String>();
+		String[] paths = new String[sources.size()];
+		String[] encodings = new String[sources.size()];
+
+		int i = 0;
+		for (String filename : sources.keySet()) {
+			paths[i] = new File(repositoryPath, filename).getAbsolutePath();
+			encodings[i] = "UTF-8";
+			names.put(paths[i], filename);
+			i++;
+		}
 
-		if (!cu.getAST().hasBindingsRecovery()) {
+		final Map<String, AST> asts = new HashMap<String, AST>();
+		ASTParser parser = configureParser();
+		parser.createASTs(paths, encodings, new String[0], new FileASTRequestor() {
+			@Override
+			public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+				String filename = names.get(sourceFilePath);
+				asts.put(filename, createAST(filename, sources.get(filename), cu));
+			}
+		}, null);
+
+		return asts;
+	}
+
+	private ASTParser configureParser() {
+		ASTParser parser = parsers.get();
+		parser.setResolveBindings(resolveBindings);
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setBindingsRecovery(resolveBindings);
+		parser.setCompilerOptions(JavaCore.getOptions());
+		if (resolveBindings)
+			parser.setEnvironment(classpath, srcFolders, encoding, true);
+		return parser;
+	}
+
+	private AST createAST(String filename, String source, CompilationUnit cu) {
+		if (resolveBindings && !cu.getAST().hasBindingsRecovery()) {
 			throw new RepositoryMinerException(ErrorMessage.JDT_HAS_NO_BINDING_RECOVERY);
 		}
 
+		AST ast = new AST();
+		ast.setName(filename);
+		ast.setSource(source);
+		ast.setLineIndex(new LineIndex(source));
+
 		FileVisitor visitor = new FileVisitor();
 		cu.accept(visitor);
 
@@ -98,6 +285,86 @@ public class JavaParser implements IParser {
 		return ast;
 	}
 
+	/*
+	 * The jars are identified by their content, so an upgraded jar of the same
+	 * size does not reuse the analyses made with the old one.
+	 */
+	private String createFingerprint(String repositoryPath) {
+		String root = FilenameUtils.normalize(new File(repositoryPath).getAbsolutePath(), true) + "/";
+		StringBuilder sb = new StringBuilder(getLanguage().toString()).append("|jdt:").append(JDT_VERSION);
+
+		List<String> folders = new ArrayList<String>(Arrays.asList(srcFolders));
+		Collections.sort(folders);
+		for (String folder : folders)
+			sb.append("|src:").append(relativize(root, folder));
+
+		List<String> jars = new ArrayList<String>(Arrays.asList(classpath));
+		Collections.sort(jars);
+		for (String jar : jars)
+			sb.append("|jar:").append(relativize(root, jar)).append(':').append(getJarDigest(new File(jar)));
+
+		return HashingUtils.encodeToSHA1(sb.toString());
+	}
+
+	/*
+	 * A jar is hashed again only if its size or modification time changed
+	 * since it was last hashed.
+	 */
+	private String getJarDigest(File jar) {
+		if (!jar.isFile())
+			return "missing";
+
+		String key = jar.getAbsolutePath() + ":" + jar.length() + ":" + jar.lastModified();
+		String digest = jarDigests.get(key);
+		if (digest == null) {
+			try {
+				digest = HashingUtils.encodeToSHA1(jar);
+			} catch (IOException e) {
+				throw new RepositoryMinerException(e.getMessage(), e);
+			}
+			jarDigests.put(key, digest);
+		}
+		return digest;
+	}
+
+	/*
+	 * The JDT jars have no implementation version in their manifest, so the
+	 * jar itself is hashed.
+	 */
+	private static String findJdtVersion() {
+		try {
+			URL location = ASTParser.class.getProtectionDomain().getCodeSource().getLocation();
+			File jar = new File(location.toURI());
+			if (jar.isFile())
+				return HashingUtils.encodeToSHA1(jar);
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			// the version is unknown
+		}
+
+		Package jdtPackage = ASTParser.class.getPackage();
+		return jdtPackage != null ? String.valueOf(jdtPackage.getImplementationVersion()) : "unknown";
+	}
+
+	private String relativize(String root, String path) {
+		String normalized = FilenameUtils.normalize(path, true);
+		return normalized != null && normalized.startsWith(root) ? normalized.substring(root.length()) : path;
+	}
+
+	/*
+	 * The environment found by the last scan depends on the mode, so the next
+	 * update scans the repository again.
+	 */
+	@Override
+	public void setResolveBindings(boolean resolveBindings) {
+		if (this.resolveBindings != resolveBindings)
+			repositoryPath = null;
+		this.resolveBindings = resolveBindings;
+	}
+
+	public boolean isResolveBindings() {
+		return resolveBindings;
+	}
+
 	public List<String> getUserClasspath() {
 		return userClasspath;
 	}
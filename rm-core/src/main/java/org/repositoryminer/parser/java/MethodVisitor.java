@@ -1,6 +1,5 @@
 package org.repositoryminer.parser.java;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.jdt.core.dom.ASTVisitor;
@@ -11,6 +10,7 @@ import org.eclipse.jdt.core.dom.ConditionalExpression;
 import org.eclipse.jdt.core.dom.ContinueStatement;
 import org.eclipse.jdt.core.dom.DoStatement;
 import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.ExpressionStatement;
 import org.eclipse.jdt.core.dom.ForStatement;
 import org.eclipse.jdt.core.dom.IBinding;
@@ -18,18 +18,19 @@ import org.eclipse.jdt.core.dom.IMethodBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.IVariableBinding;
 import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.InfixExpression;
 import org.eclipse.jdt.core.dom.ReturnStatement;
 import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.SwitchCase;
 import org.eclipse.jdt.core.dom.SwitchStatement;
+import org.eclipse.jdt.core.dom.Type;
+import org.eclipse.jdt.core.dom.UnionType;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.dom.WhileStatement;
-import org.repositoryminer.ast.AbstractFieldAccess;
-import org.repositoryminer.ast.AbstractMethodInvocation;
-import org.repositoryminer.ast.AbstractStatement;
-import org.repositoryminer.ast.AbstractVariableDeclaration;
 import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,15 +38,19 @@ public class MethodVisitor extends ASTVisitor {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MethodVisitor.class);
 	
-	private List<AbstractStatement> statements = new ArrayList<>();
+	private StatementStore statements;
 	private int maxDepth = 0;
 	private int depth = 0;
 
+	public MethodVisitor(SymbolTable symbols) {
+		statements = new StatementStore(symbols);
+	}
+
 	public int getMaxDepth() {
 		return maxDepth;
 	}
 
-	public List<AbstractStatement> getStatements() {
+	public StatementStore getStatements() {
 		return statements;
 	}
 
@@ -63,105 +68,102 @@ public class MethodVisitor extends ASTVisitor {
 
 	@Override
 	public boolean visit(BreakStatement node) {
-		statements.add(new AbstractStatement(NodeType.BREAK, null));
+		statements.addStatement(NodeType.BREAK);
 		return true;
 	}
 
 	@Override
 	public boolean visit(ContinueStatement node) {
-		statements.add(new AbstractStatement(NodeType.CONTINUE, null));
+		statements.addStatement(NodeType.CONTINUE);
 		return true;
 	}
 
 	@Override
 	public boolean visit(ReturnStatement node) {
-		statements.add(new AbstractStatement(NodeType.RETURN, null));
+		statements.addStatement(NodeType.RETURN);
 		return true;
 	}
 
 	@Override
 	public boolean visit(DoStatement node) {
-		statements.add(new AbstractStatement(NodeType.DO_WHILE, node.getExpression().toString()));
+		statements.addDecision(NodeType.DO_WHILE, countOperators(node.getExpression()));
 		return true;
 	}
 
 	@Override
 	public boolean visit(EnhancedForStatement node) {
-		statements.add(new AbstractStatement(NodeType.FOR,
-				node.getExpression() != null ? node.getExpression().toString() : ""));
+		statements.addDecision(NodeType.FOR, countOperators(node.getExpression()));
 		return true;
 	}
 
 	@Override
 	public boolean visit(ForStatement node) {
-		statements.add(new AbstractStatement(NodeType.FOR,
-				node.getExpression() != null ? node.getExpression().toString() : ""));
+		statements.addDecision(NodeType.FOR, countOperators(node.getExpression()));
 		return true;
 	}
 
 	@Override
 	public boolean visit(IfStatement node) {
-		statements.add(new AbstractStatement(NodeType.IF, node.getExpression().toString()));
+		statements.addDecision(NodeType.IF, countOperators(node.getExpression()));
 		return true;
 	}
 
 	@Override
 	public boolean visit(WhileStatement node) {
-		statements.add(new AbstractStatement(NodeType.WHILE, node.getExpression().toString()));
+		statements.addDecision(NodeType.WHILE, countOperators(node.getExpression()));
 		return true;
 	}
 
 	@Override
 	public boolean visit(SwitchStatement node) {
-		statements.add(new AbstractStatement(NodeType.SWITCH, node.getExpression().toString()));
+		statements.addStatement(NodeType.SWITCH);
 		return true;
 	}
 
 	@Override
 	public boolean visit(SwitchCase node) {
 		if (node.isDefault()) {
-			statements.add(new AbstractStatement(NodeType.SWITCH_DEFAULT, null));
+			statements.addStatement(NodeType.SWITCH_DEFAULT);
 		} else {
-			statements.add(new AbstractStatement(NodeType.SWITCH_CASE, node.getExpression().toString()));
+			statements.addStatement(NodeType.SWITCH_CASE);
 		}
 		return true;
 	}
 
 	@Override
 	public boolean visit(CatchClause node) {
-		statements.add(new AbstractStatement(NodeType.CATCH, node.getException().toString()));
+		Type type = node.getException().getType();
+		int alternatives = type.isUnionType() ? ((UnionType) type).types().size() : 1;
+		statements.addDecision(NodeType.CATCH, alternatives - 1);
 		return true;
 	}
 
 	@Override
 	public boolean visit(ConditionalExpression node) {
-		statements.add(new AbstractStatement(NodeType.CONDITIONAL_EXPRESSION, node.getExpression().toString()));
+		statements.addDecision(NodeType.CONDITIONAL_EXPRESSION, countOperators(node.getExpression()));
 		return true;
 	}
 
 	@Override
 	public boolean visit(ExpressionStatement node) {
-		statements.add(new AbstractStatement(NodeType.EXPRESSION, node.getExpression().toString()));
+		statements.addStatement(NodeType.EXPRESSION);
 		return true;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public boolean visit(VariableDeclarationStatement node) {
-		ITypeBinding bind = node.getType().resolveBinding();
-		String type = null;
-		if (bind != null)
-			type = bind.getQualifiedName();
-			
 		for (VariableDeclarationFragment frag : (List<VariableDeclarationFragment>) node.fragments()) {
-			statements.add(new AbstractVariableDeclaration(frag.getName().getIdentifier(), type,
-					frag.getInitializer() != null ? frag.getInitializer().toString() : null));
+			statements.addVariableDeclaration(frag.getName().getIdentifier());
 		}
 		return true;
 	}
 
 	@Override
 	public boolean visit(SimpleName node) {
+		if (!node.getAST().hasResolvedBindings())
+			return true;
+
 		IBinding bind = node.resolveBinding();
 		if (bind == null) {
 			LOGGER.warn("Bind not solve to "+node.toString()+" at position "+node.getStartPosition()+".");
@@ -172,10 +174,10 @@ public class MethodVisitor extends ASTVisitor {
 			IVariableBinding varBind = (IVariableBinding) bind;
 			if (varBind.isField()) {
 				String type = varBind.getType().getQualifiedName();
-				statements.add(new AbstractFieldAccess(varBind.getName(), type,
+				statements.addFieldAccess(varBind.getName(),
 						varBind.getDeclaringClass() != null ? varBind.getDeclaringClass().getQualifiedName() : null,
 						varBind.getType().isPrimitive(),
-						type.startsWith("java") || type.startsWith("javax") ? true : false));
+						type.startsWith("java") || type.startsWith("javax") ? true : false);
 			}
 		} else if (bind.getKind() == IBinding.METHOD) {
 			IMethodBinding mBind = (IMethodBinding) bind;
@@ -185,9 +187,6 @@ public class MethodVisitor extends ASTVisitor {
 	}
 
 	private void analyzeMethodInvocation(IMethodBinding mBind) {
-		AbstractMethodInvocation methodInv = new AbstractMethodInvocation();
-		methodInv.setDeclaringClass(mBind.getDeclaringClass().getQualifiedName());
-
 		StringBuilder parameters = new StringBuilder();
 		for (ITypeBinding type : mBind.getParameterTypes()) {
 			parameters.append(type.getQualifiedName() + ",");
@@ -196,21 +195,40 @@ public class MethodVisitor extends ASTVisitor {
 		if (mBind.getParameterTypes().length > 0) {
 			parameters.deleteCharAt(parameters.length() - 1);
 		}
-		methodInv.setExpression(mBind.getName() + '(' + parameters.toString() + ')');
+		String expression = mBind.getName() + '(' + parameters.toString() + ')';
 
 		String fieldName = null;
 		if ((mBind.getName().startsWith("get") || mBind.getName().startsWith("set")) && mBind.getName().length() > 3) {
 			fieldName = mBind.getName().substring(3);
 		} else if (mBind.getName().startsWith("is") && mBind.getName().length() > 2) {
 			fieldName = mBind.getName().substring(2);
-		} else {
-			statements.add(methodInv);
-			return;
 		}
 
-		methodInv.setAccessor(true);
-		methodInv.setAccessedField(Character.toLowerCase(fieldName.charAt(0)) + fieldName.substring(1));
-		statements.add(methodInv);
+		String accessedField = fieldName != null
+				? Character.toLowerCase(fieldName.charAt(0)) + fieldName.substring(1) : null;
+		statements.addMethodInvocation(expression, mBind.getDeclaringClass().getQualifiedName(), accessedField);
+	}
+
+	/*
+	 * Counts the && and || operators of a condition, including the ones of
+	 * nested expressions, without rendering it as a string.
+	 */
+	private static int countOperators(Expression expression) {
+		if (expression == null)
+			return 0;
+
+		final int[] count = { 0 };
+		expression.accept(new ASTVisitor() {
+			@Override
+			public boolean visit(InfixExpression node) {
+				InfixExpression.Operator operator = node.getOperator();
+				if (operator == InfixExpression.Operator.CONDITIONAL_AND
+						|| operator == InfixExpression.Operator.CONDITIONAL_OR)
+					count[0] += 1 + node.extendedOperands().size();
+				return true;
+			}
+		});
+		return count[0];
 	}
 
 }
\ No newline at end of file
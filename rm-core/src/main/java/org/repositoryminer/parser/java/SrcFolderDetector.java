@@ -25,46 +25,56 @@ public class SrcFolderDetector {
 		Set<String> srcFolders = new HashSet<String>();
 
 		for (File file : files) {
-			if (!FilenameUtils.isExtension(file.getName(), "java") || file.getName().equals("package-info.java"))
-				continue;
+			String srcFolder = findSrcFolder(file);
+			if (srcFolder != null)
+				srcFolders.add(srcFolder);
+		}
 
-			BufferedReader buffer = null;
-			try {
-				buffer = new BufferedReader(new FileReader(file));
+		return srcFolders;
+	}
 
-				String line = null;
-				String pkg = null;
+	/**
+	 * Finds the source folder of a Java file from its package declaration.
+	 * 
+	 * @param file
+	 *            the file.
+	 * @return the source folder, or null if the file is not a Java source file
+	 *         or can not be read.
+	 */
+	public static String findSrcFolder(File file) {
+		if (!FilenameUtils.isExtension(file.getName(), "java") || file.getName().equals("package-info.java"))
+			return null;
 
-				while ((line = buffer.readLine()) != null) {
-					line = line.trim();
-					if (line.startsWith("package")) {
-						pkg = findPackageName(line);
-						break;
-					}
-				}
+		BufferedReader buffer = null;
+		try {
+			buffer = new BufferedReader(new FileReader(file));
 
-				if (pkg == null)
-					srcFolders.add(file.getParentFile().getAbsolutePath());
-				else {
-					String folder = file.getParentFile().getAbsolutePath();
-					srcFolders.add(folder.substring(0, folder.length() - pkg.length() - 1));
-				}
+			String line = null;
+			String pkg = null;
 
-				buffer.close();
-			} catch (IOException e) {
-				continue;
-			} finally {
-				if (buffer != null)
-					try {
-						buffer.close();
-					} catch (IOException e) {
-						continue;
-					}
+			while ((line = buffer.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith("package")) {
+					pkg = findPackageName(line);
+					break;
+				}
 			}
 
+			String folder = file.getParentFile().getAbsolutePath();
+			if (pkg == null)
+				return folder;
+			else
+				return folder.substring(0, folder.length() - pkg.length() - 1);
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (buffer != null)
+				try {
+					buffer.close();
+				} catch (IOException e) {
+					// nothing to do
+				}
 		}
-
-		return srcFolders;
 	}
 
 	private static String findPackageName(String line) {
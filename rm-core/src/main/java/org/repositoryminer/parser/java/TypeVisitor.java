@@ -19,7 +19,8 @@ import org.repositoryminer.ast.AbstractEnumConstant;
 import org.repositoryminer.ast.AbstractField;
 import org.repositoryminer.ast.AbstractMethod;
 import org.repositoryminer.ast.AbstractParameter;
-import org.repositoryminer.ast.AbstractStatement;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
 
 public class TypeVisitor extends ASTVisitor {
 
@@ -27,6 +28,15 @@ public class TypeVisitor extends ASTVisitor {
 	private List<AbstractAnnotationMember> annotationMembers = new ArrayList<>();
 	private List<AbstractField> fields = new ArrayList<>();
 	private List<AbstractEnumConstant> enumConstants = new ArrayList<>();
+	private SymbolTable symbols;
+
+	/**
+	 * @param symbols
+	 *            the symbol table of the file.
+	 */
+	public TypeVisitor(SymbolTable symbols) {
+		this.symbols = symbols;
+	}
 
 	public List<AbstractMethod> getMethods() {
 		return methods;
@@ -62,8 +72,8 @@ public class TypeVisitor extends ASTVisitor {
 
 	@Override
 	public boolean visit(AnnotationTypeMemberDeclaration node) {
-		AbstractAnnotationMember annoMember = new AbstractAnnotationMember(
-				node.getType().resolveBinding().getQualifiedName(), node.getName().getIdentifier());
+		AbstractAnnotationMember annoMember = new AbstractAnnotationMember(getTypeName(node.getType()),
+				node.getName().getIdentifier());
 		annoMember.setDefaultExpression(node.getDefault() != null ? node.getDefault().toString() : null);
 
 		annotationMembers.add(annoMember);
@@ -90,14 +100,14 @@ public class TypeVisitor extends ASTVisitor {
 	public boolean visit(FieldDeclaration node) {
 		List<AbstractField> fields2 = new ArrayList<>();
 		ITypeBinding bind = node.getType().resolveBinding();
-		String type = bind.getQualifiedName();
+		String type = getTypeName(node.getType());
 
 		List<String> modifiers = new ArrayList<String>();
 		for (Object modifier : node.modifiers()) {
 			modifiers.add(modifier.toString());
 		}
 
-		boolean primitive = bind.isPrimitive();
+		boolean primitive = bind != null ? bind.isPrimitive() : node.getType().isPrimitiveType();
 		boolean builtIn = type.startsWith("java.") || type.startsWith("javax.") ? true : false;
 		
 		for (VariableDeclarationFragment vdf : (List<VariableDeclarationFragment>) node.fragments()) {
@@ -122,7 +132,13 @@ public class TypeVisitor extends ASTVisitor {
 		List<AbstractParameter> params = new ArrayList<>();
 		for (SingleVariableDeclaration var : (List<SingleVariableDeclaration>) node.parameters()) {
 			IVariableBinding varBind = var.resolveBinding();
-			AbstractParameter param = new AbstractParameter(varBind.getType().getQualifiedName(), varBind.getName());
+			AbstractParameter param;
+			if (varBind != null) {
+				param = new AbstractParameter(varBind.getType().getQualifiedName(), varBind.getName());
+			} else {
+				String type = var.getType().toString() + (var.isVarargs() ? "[]" : "");
+				param = new AbstractParameter(type, var.getName().getIdentifier());
+			}
 			params.add(param);
 			builder.append(param.getType() + ",");
 		}
@@ -152,16 +168,16 @@ public class TypeVisitor extends ASTVisitor {
 
 		
 		if (node.getBody() != null) {
-			MethodVisitor visitor = new MethodVisitor();
+			MethodVisitor visitor = new MethodVisitor(symbols);
 			node.getBody().accept(visitor);
 			method.setMaxDepth(visitor.getMaxDepth());
-			method.setStatements(visitor.getStatements());
+			method.setStatementStore(visitor.getStatements());
 		} else {
-			method.setStatements(new ArrayList<AbstractStatement>());
+			method.setStatementStore(new StatementStore(symbols));
 		}
 
 		if (node.getReturnType2() != null) {
-			method.setReturnType(node.getReturnType2().resolveBinding().getQualifiedName());
+			method.setReturnType(getTypeName(node.getReturnType2()));
 		}
 
 		method.setStartPosition(node.getStartPosition());
@@ -171,6 +187,14 @@ public class TypeVisitor extends ASTVisitor {
 		return true;
 	}
 
+	/*
+	 * Without bindings, the type is named as it is written.
+	 */
+	private String getTypeName(Type type) {
+		ITypeBinding bind = type.resolveBinding();
+		return bind != null ? bind.getQualifiedName() : type.toString();
+	}
+
 	public void verifyAccessorMethod(AbstractMethod method) {
 		String name = method.getName();
 		String field = null;
@@ -1,13 +1,12 @@
 package org.repositoryminer.persistence;
 
-import org.bson.Document;
-
-import com.mongodb.MongoClient;
-import com.mongodb.MongoClientURI;
-import com.mongodb.client.MongoCollection;
+import org.repositoryminer.persistence.storage.IDocumentCollection;
+import org.repositoryminer.persistence.storage.IStorage;
+import org.repositoryminer.persistence.storage.MongoStorage;
 
 /**
- * This class handles MongoDB database connection.
+ * This class handles the database connection. The collections are kept by an
+ * {@link IStorage}, a MongoDB database unless another storage is connected.
  */
 public class Connection {
 
@@ -15,8 +14,7 @@ public class Connection {
 		private static final Connection INSTANCE = new Connection();
 	}
 
-	private static MongoClient client;
-	private String database;
+	private static IStorage storage;
 
 	private Connection() {
 	}
@@ -29,7 +27,7 @@ public class Connection {
 	}
 
 	/**
-	 * Opens database connection.
+	 * Opens database connection and creates the declared indexes.
 	 * 
 	 * @param uri
 	 *            the database URI.
@@ -37,8 +35,18 @@ public class Connection {
 	 *            the database name.
 	 */
 	public void connect(String uri, String database) {
-		Connection.client = new MongoClient(new MongoClientURI(uri));
-		this.database = database;
+		connect(new MongoStorage(uri, database));
+	}
+
+	/**
+	 * Connects to a storage and creates the declared indexes.
+	 * 
+	 * @param storage
+	 *            the storage of the collections.
+	 */
+	public void connect(IStorage storage) {
+		Connection.storage = storage;
+		IndexManager.getInstance().ensureIndexes(this);
 	}
 
 	/**
@@ -48,15 +56,15 @@ public class Connection {
 	 *            the collection name.
 	 * @return the collection handler.
 	 */
-	public MongoCollection<Document> getCollection(String collection) {
-		return Connection.client.getDatabase(database).getCollection(collection);
+	public IDocumentCollection getCollection(String collection) {
+		return Connection.storage.getCollection(collection);
 	}
 
 	/**
 	 * Closes database connection.
 	 */
 	public void close() {
-		Connection.client.close();
+		Connection.storage.close();
 	}
 
-}
\ No newline at end of file
+}
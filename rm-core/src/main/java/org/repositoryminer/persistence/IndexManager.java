@@ -0,0 +1,108 @@
+package org.repositoryminer.persistence;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.bson.conversions.Bson;
+import org.repositoryminer.persistence.storage.IDocumentCollection;
+
+import com.mongodb.client.model.Indexes;
+
+/**
+ * This class keeps the indexes each collection needs for its queries and
+ * creates them in the storage. The DAOs declare the indexes of their
+ * collections when they are loaded, and the indexes are ensured the first time
+ * a collection is used after connecting, or when connecting for the
+ * collections already declared.
+ * <p>
+ * The fields compared by equality come first in the keys, so a query on a
+ * prefix of them uses the index too.
+ */
+public class IndexManager {
+
+	private static class LazyHelper {
+		private static final IndexManager INSTANCE = new IndexManager();
+	}
+
+	private Map<String, List<Bson>> indexes = new LinkedHashMap<String, List<Bson>>();
+	private Set<String> ensured = new HashSet<String>();
+
+	private IndexManager() {
+	}
+
+	/**
+	 * @return a shared instance of index manager.
+	 */
+	public static IndexManager getInstance() {
+		return LazyHelper.INSTANCE;
+	}
+
+	/**
+	 * Declares an ascending index of a collection.
+	 *
+	 * @param collection
+	 *            the collection name.
+	 * @param fields
+	 *            the fields of the index, in order.
+	 */
+	public synchronized void declare(String collection, String... fields) {
+		declare(collection, Indexes.ascending(fields));
+	}
+
+	/**
+	 * Declares an index of a collection. It is created in the storage when
+	 * the collection is used next.
+	 *
+	 * @param collection
+	 *            the collection name.
+	 * @param keys
+	 *            the index keys.
+	 */
+	public synchronized void declare(String collection, Bson keys) {
+		List<Bson> declared = indexes.get(collection);
+		if (declared == null) {
+			declared = new ArrayList<Bson>();
+			indexes.put(collection, declared);
+		}
+
+		declared.add(keys);
+		ensured.remove(collection);
+	}
+
+	/**
+	 * Creates the declared indexes of a collection, unless they were already
+	 * created since the connection was opened. Creating an existing index does
+	 * nothing.
+	 *
+	 * @param name
+	 *            the collection name.
+	 * @param collection
+	 *            the collection handler.
+	 */
+	public synchronized void ensureIndexes(String name, IDocumentCollection collection) {
+		List<Bson> declared = indexes.get(name);
+		if (declared == null || !ensured.add(name))
+			return;
+
+		for (Bson keys : declared)
+			collection.createIndex(keys);
+	}
+
+	/**
+	 * Creates the declared indexes of all the collections in a new connection.
+	 *
+	 * @param connection
+	 *            the connection handler.
+	 */
+	public synchronized void ensureIndexes(Connection connection) {
+		ensured.clear();
+		for (Entry<String, List<Bson>> entry : indexes.entrySet())
+			ensureIndexes(entry.getKey(), connection.getCollection(entry.getKey()));
+	}
+
+}
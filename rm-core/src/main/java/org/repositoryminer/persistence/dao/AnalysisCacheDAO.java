@@ -0,0 +1,37 @@
+package org.repositoryminer.persistence.dao;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Filters;
+
+/**
+ * This class handles rm_analysis_cache collection.
+ */
+public class AnalysisCacheDAO extends GenericDAO {
+
+	private static final String COLLECTION_NAME = "rm_analysis_cache";
+
+	public AnalysisCacheDAO() {
+		super(COLLECTION_NAME);
+	}
+
+	@Override
+	public Document findById(String id, Bson projection) {
+		return findOne(Filters.eq("_id", id), projection);
+	}
+
+	/**
+	 * Creates the document that stores an analysis.
+	 * 
+	 * @param key
+	 *            the cache key.
+	 * @param analysis
+	 *            the analysis.
+	 * @return the document to be stored.
+	 */
+	public static Document toDocument(String key, Document analysis) {
+		return new Document("_id", key).append("analysis", analysis);
+	}
+
+}
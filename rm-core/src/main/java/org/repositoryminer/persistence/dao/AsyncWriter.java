@@ -0,0 +1,202 @@
+package org.repositoryminer.persistence.dao;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * Writes documents in a thread of its own, so the mining and the analyses go
+ * on while the database is written. The documents wait in a bounded queue and
+ * are sent in {@link BatchWriter batches}, per collection. When the queue is
+ * full, the threads that insert documents wait for it.
+ * <p>
+ * The first failure of a write is thrown by the next call to insert, flush or
+ * close, and the documents inserted after it are discarded. A writer can be
+ * shared by several miners and threads.
+ */
+public class AsyncWriter implements Closeable {
+
+	private static final Entry STOP = new Entry(null, null, null);
+
+	private BlockingQueue<Entry> queue;
+	private int batchSize;
+	private long flushInterval;
+
+	private Thread thread;
+	private volatile RuntimeException failure;
+	private volatile boolean closed;
+
+	/**
+	 * @param capacity
+	 *            the maximum number of documents waiting to be written.
+	 * @param batchSize
+	 *            the maximum number of documents in a bulk write.
+	 * @param flushInterval
+	 *            the maximum time, in milliseconds, a document waits for its
+	 *            batch.
+	 */
+	public AsyncWriter(int capacity, int batchSize, long flushInterval) {
+		queue = new ArrayBlockingQueue<Entry>(Math.max(1, capacity));
+		this.batchSize = batchSize;
+		this.flushInterval = Math.max(1, flushInterval);
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write();
+			}
+		}, "repositoryminer-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a document, waiting while the queue is full.
+	 *
+	 * @param dao
+	 *            the collection the document is inserted in.
+	 * @param document
+	 *            the document to be stored.
+	 */
+	public void insert(GenericDAO dao, Document document) {
+		checkFailure();
+		put(new Entry(dao, document, null));
+	}
+
+	public void insertMany(GenericDAO dao, List<Document> documents) {
+		for (Document document : documents)
+			insert(dao, document);
+	}
+
+	/**
+	 * Waits until the documents queued so far are written.
+	 */
+	public void flush() {
+		CountDownLatch latch = new CountDownLatch(1);
+		put(new Entry(null, null, latch));
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositoryMinerException(ErrorMessage.PERSISTENCE_ERROR.toString(), e);
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Writes the queued documents and stops the writer thread.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			put(STOP);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RepositoryMinerException(ErrorMessage.PERSISTENCE_ERROR.toString(), e);
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Stops the writer thread without writing the queued documents, e.g. when
+	 * the mining fails. Does nothing if the writer is closed.
+	 */
+	public void abort() {
+		if (closed)
+			return;
+
+		closed = true;
+		thread.interrupt();
+	}
+
+	private void put(Entry entry) {
+		if (closed && entry != STOP)
+			throw new RepositoryMinerException(ErrorMessage.WRITER_CLOSED);
+
+		try {
+			queue.put(entry);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RepositoryMinerException(ErrorMessage.PERSISTENCE_ERROR.toString(), e);
+		}
+	}
+
+	private void checkFailure() {
+		if (failure != null)
+			throw new RepositoryMinerException(ErrorMessage.PERSISTENCE_ERROR.toString(), failure);
+	}
+
+	// runs in the writer thread, the batches are flushed when the queue is idle
+	private void write() {
+		Map<GenericDAO, BatchWriter> batches = new LinkedHashMap<GenericDAO, BatchWriter>();
+		try {
+			while (true) {
+				Entry entry = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (entry == null || entry == STOP || entry.latch != null)
+					flushAll(batches);
+				else if (failure == null)
+					add(batches, entry);
+
+				if (entry == STOP)
+					return;
+				if (entry != null && entry.latch != null)
+					entry.latch.countDown();
+			}
+		} catch (InterruptedException e) {
+			// aborted, the queued documents are discarded
+		}
+	}
+
+	private void add(Map<GenericDAO, BatchWriter> batches, Entry entry) {
+		try {
+			BatchWriter batch = batches.get(entry.dao);
+			if (batch == null) {
+				batch = entry.dao.createBatchWriter(batchSize, flushInterval);
+				batches.put(entry.dao, batch);
+			}
+			batch.insert(entry.document);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+	}
+
+	private void flushAll(Map<GenericDAO, BatchWriter> batches) {
+		if (failure != null)
+			return;
+
+		try {
+			for (BatchWriter batch : batches.values())
+				batch.flush();
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+	}
+
+	private static class Entry {
+
+		private GenericDAO dao;
+		private Document document;
+		private CountDownLatch latch;
+
+		private Entry(GenericDAO dao, Document document, CountDownLatch latch) {
+			this.dao = dao;
+			this.document = document;
+			this.latch = latch;
+		}
+
+	}
+
+}
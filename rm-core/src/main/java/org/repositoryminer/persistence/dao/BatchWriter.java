@@ -0,0 +1,64 @@
+package org.repositoryminer.persistence.dao;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+
+/**
+ * Buffers the documents inserted in a collection and sends them in unordered
+ * bulk writes, instead of a round-trip per document. The buffer is flushed when
+ * it reaches the batch size, when a document is added after the flush interval
+ * has passed since the last flush, and on close.
+ * <p>
+ * A writer is used by a single thread. The documents written through it are
+ * only visible to queries after they are flushed.
+ */
+public class BatchWriter implements Closeable {
+
+	private GenericDAO dao;
+	private int batchSize;
+	private long flushInterval;
+
+	private List<Document> buffer;
+	private long lastFlush;
+
+	/**
+	 * @param dao
+	 *            the collection the documents are inserted in.
+	 * @param batchSize
+	 *            the maximum number of buffered documents.
+	 * @param flushInterval
+	 *            the maximum time, in milliseconds, a document waits for its
+	 *            batch, checked when the next document is added.
+	 */
+	public BatchWriter(GenericDAO dao, int batchSize, long flushInterval) {
+		this.dao = dao;
+		this.batchSize = Math.max(1, batchSize);
+		this.flushInterval = flushInterval;
+		buffer = new ArrayList<Document>(this.batchSize);
+		lastFlush = System.currentTimeMillis();
+	}
+
+	public void insert(Document document) {
+		buffer.add(document);
+		if (buffer.size() >= batchSize || System.currentTimeMillis() - lastFlush >= flushInterval)
+			flush();
+	}
+
+	public void flush() {
+		lastFlush = System.currentTimeMillis();
+		if (buffer.isEmpty())
+			return;
+
+		dao.bulkInsert(buffer);
+		buffer = new ArrayList<Document>(batchSize);
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+
+}
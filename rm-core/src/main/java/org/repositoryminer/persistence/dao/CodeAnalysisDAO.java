@@ -2,6 +2,7 @@ package org.repositoryminer.persistence.dao;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.repositoryminer.persistence.IndexManager;
 
 import com.mongodb.client.model.Filters;
 
@@ -12,6 +13,10 @@ public class CodeAnalysisDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "rm_code_analysis";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "filehash", "commit");
+	}
+
 	public CodeAnalysisDAO() {
 		super(COLLECTION_NAME);
 	}
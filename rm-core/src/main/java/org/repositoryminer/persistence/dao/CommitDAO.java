@@ -1,14 +1,18 @@
 package org.repositoryminer.persistence.dao;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
+import org.repositoryminer.persistence.IndexManager;
 
 import com.mongodb.BasicDBObject;
-import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 
 /**
  * This class handles rm_commit collection.
@@ -17,6 +21,10 @@ public class CommitDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "rm_commit";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository");
+	}
+
 	public CommitDAO() {
 		super(COLLECTION_NAME);
 	}
@@ -41,6 +49,41 @@ public class CommitDAO extends GenericDAO {
 		return findMany(whereClause, projection);
 	}
 
+	/**
+	 * Retrieves the ids of the commits from a repository.
+	 * 
+	 * @param repositoryId
+	 *            the repository id.
+	 * @return the commit ids.
+	 */
+	public Set<String> findIdsByRepository(String repositoryId) {
+		Set<String> ids = new HashSet<String>();
+		for (Document doc : findByRepository(repositoryId, Projections.include("_id")))
+			ids.add(doc.getString("_id"));
+		return ids;
+	}
+
+	/**
+	 * Checks which commits of a list are already stored, without reading the
+	 * other commits of the repository.
+	 * 
+	 * @param repositoryId
+	 *            the repository id.
+	 * @param ids
+	 *            the commit ids to look up.
+	 * @return the ids of the stored commits.
+	 */
+	public Set<String> findStoredIds(String repositoryId, Collection<String> ids) {
+		Set<String> stored = new HashSet<String>();
+		if (ids.isEmpty())
+			return stored;
+
+		for (Document doc : findMany(Filters.and(Filters.in("_id", ids),
+				Filters.eq("repository", new ObjectId(repositoryId))), Projections.include("_id")))
+			stored.add(doc.getString("_id"));
+		return stored;
+	}
+
 	/**
 	 * Retrieves commits from a id list. The commits are ordered by commit date.
 	 * 
@@ -53,10 +96,7 @@ public class CommitDAO extends GenericDAO {
 	 * @return a list of commits.
 	 */
 	public List<Document> findByIdList(List<String> idList, Bson projection) {
-		MongoCursor<Document> cursor = collection
-				.find(Filters.in("_id", idList))
-				.sort(new BasicDBObject("commit_date", 1)).projection(projection).iterator();
-		return fromCursorToList(cursor);
+		return collection.find(Filters.in("_id", idList), projection, new BasicDBObject("commit_date", 1), 0);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package org.repositoryminer.persistence.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.repositoryminer.persistence.IndexManager;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+
+/**
+ * This class handles rm_commit_ordinal collection, which numbers the commits
+ * of each repository for the commit ranges of the references.
+ */
+public class CommitOrdinalDAO extends GenericDAO {
+
+	private static final String COLLECTION_NAME = "rm_commit_ordinal";
+
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository", "commit");
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository", "ordinal");
+	}
+
+	public CommitOrdinalDAO() {
+		super(COLLECTION_NAME);
+	}
+
+	/**
+	 * Creates the document that gives an ordinal to a commit.
+	 *
+	 * @param repositoryId
+	 *            the repository id.
+	 * @param commit
+	 *            the commit id.
+	 * @param ordinal
+	 *            the ordinal of the commit in the repository.
+	 * @return the document to be stored.
+	 */
+	public static Document toDocument(String repositoryId, String commit, int ordinal) {
+		return new Document("repository", new ObjectId(repositoryId)).append("commit", commit).append("ordinal",
+				ordinal);
+	}
+
+	/**
+	 * Retrieves the ordinals of all the commits of a repository.
+	 *
+	 * @param repositoryId
+	 *            the repository id.
+	 * @return the ordinals by commit id.
+	 */
+	public Map<String, Integer> findByRepository(String repositoryId) {
+		Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		for (Document doc : findMany(Filters.eq("repository", new ObjectId(repositoryId)),
+				Projections.include("commit", "ordinal")))
+			ordinals.put(doc.getString("commit"), doc.getInteger("ordinal"));
+		return ordinals;
+	}
+
+	/**
+	 * Retrieves the ordinals of some commits of a repository.
+	 *
+	 * @param repositoryId
+	 *            the repository id.
+	 * @param commits
+	 *            the commit ids.
+	 * @return the ordinals by commit id, without the commits that were not
+	 *         numbered.
+	 */
+	public Map<String, Integer> findOrdinals(String repositoryId, Collection<String> commits) {
+		Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		if (commits.isEmpty())
+			return ordinals;
+
+		for (Document doc : findMany(Filters.and(Filters.eq("repository", new ObjectId(repositoryId)),
+				Filters.in("commit", commits)), Projections.include("commit", "ordinal")))
+			ordinals.put(doc.getString("commit"), doc.getInteger("ordinal"));
+		return ordinals;
+	}
+
+	/**
+	 * @param repositoryId
+	 *            the repository id.
+	 * @return the greatest ordinal given in the repository, or -1 if no commit
+	 *         was numbered.
+	 */
+	public int findMaxOrdinal(String repositoryId) {
+		List<Document> docs = collection.find(Filters.eq("repository", new ObjectId(repositoryId)),
+				Projections.include("ordinal"), Sorts.descending("ordinal"), 1);
+		return docs.isEmpty() ? -1 : docs.get(0).getInteger("ordinal");
+	}
+
+	/**
+	 * @param repositoryId
+	 *            the repository id.
+	 * @param commit
+	 *            the commit id.
+	 * @return the ordinal of the commit, or null if it was not numbered.
+	 */
+	public Integer findOrdinal(String repositoryId, String commit) {
+		Document doc = findOne(Filters.and(Filters.eq("repository", new ObjectId(repositoryId)),
+				Filters.eq("commit", commit)), Projections.include("ordinal"));
+		return doc != null ? doc.getInteger("ordinal") : null;
+	}
+
+	/**
+	 * Retrieves the commits of a range of ordinals.
+	 *
+	 * @param repositoryId
+	 *            the repository id.
+	 * @param from
+	 *            the first ordinal.
+	 * @param to
+	 *            the last ordinal.
+	 * @return the commit ids, in the order of their ordinals.
+	 */
+	public List<String> findCommits(String repositoryId, int from, int to) {
+		List<String> commits = new ArrayList<String>(to - from + 1);
+		for (Document doc : collection.find(
+				Filters.and(Filters.eq("repository", new ObjectId(repositoryId)), Filters.gte("ordinal", from),
+						Filters.lte("ordinal", to)),
+				Projections.include("commit"), Sorts.ascending("ordinal"), 0))
+			commits.add(doc.getString("commit"));
+		return commits;
+	}
+
+}
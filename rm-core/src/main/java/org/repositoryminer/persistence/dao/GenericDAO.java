@@ -7,20 +7,21 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
 import org.repositoryminer.persistence.Connection;
+import org.repositoryminer.persistence.IndexManager;
+import org.repositoryminer.persistence.storage.IDocumentCollection;
 
 /**
  * This class handles a generic collection.
  */
 public class GenericDAO {
 
-	protected MongoCollection<Document> collection;
+	protected IDocumentCollection collection;
 
 	/**
 	 * @param collectionName
@@ -28,6 +29,7 @@ public class GenericDAO {
 	 */
 	public GenericDAO(String collectionName) {
 		collection = Connection.getInstance().getCollection(collectionName);
+		IndexManager.getInstance().ensureIndexes(collectionName, collection);
 	}
 
 	/**
@@ -61,6 +63,33 @@ public class GenericDAO {
 		collection.insertMany(documents);
 	}
 
+	/**
+	 * Inserts various documents in a single unordered bulk write, so the
+	 * storage may apply them in any order and does not stop at the first
+	 * error.
+	 * 
+	 * @param documents
+	 *            list of documents to be stored.
+	 */
+	public void bulkInsert(List<Document> documents) {
+		collection.bulkInsert(documents);
+	}
+
+	/**
+	 * Creates a writer that buffers the inserted documents and sends them in
+	 * bulk writes.
+	 * 
+	 * @param batchSize
+	 *            the maximum number of buffered documents.
+	 * @param flushInterval
+	 *            the maximum time, in milliseconds, between two flushes.
+	 * @return the writer, which must be closed to send the remaining
+	 *         documents.
+	 */
+	public BatchWriter createBatchWriter(int batchSize, long flushInterval) {
+		return new BatchWriter(this, batchSize, flushInterval);
+	}
+
 	/**
 	 * Updates one document.
 	 * 
@@ -95,7 +124,7 @@ public class GenericDAO {
 	 * @return the result of delete operation.
 	 */
 	public DeleteResult deleteOne(Bson where) {
-		return collection.deleteOne(where);
+		return DeleteResult.acknowledged(collection.deleteOne(where));
 	}
 
 	/**
@@ -106,7 +135,7 @@ public class GenericDAO {
 	 * @return the result of delete operation.
 	 */
 	public DeleteResult deleteMany(Bson whereClause) {
-		return collection.deleteMany(whereClause);
+		return DeleteResult.acknowledged(collection.deleteMany(whereClause));
 	}
 
 	/**
@@ -132,7 +161,8 @@ public class GenericDAO {
 	 * @return the found document or null.
 	 */
 	public Document findOne(Bson where, Bson projection) {
-		return collection.find(where).projection(projection).first();
+		List<Document> documents = collection.find(where, projection, null, 1);
+		return documents.isEmpty() ? null : documents.get(0);
 	}
 
 	/**
@@ -145,7 +175,7 @@ public class GenericDAO {
 	 * @return a list of documents.
 	 */
 	public List<Document> findMany(Bson where, Bson projection) {
-		return fromCursorToList(collection.find(where).projection(projection).iterator());
+		return collection.find(where, projection, null, 0);
 	}
 
 	/**
@@ -154,7 +184,9 @@ public class GenericDAO {
 	 * @param cursor
 	 *            the query cursor.
 	 * @return a list of documents.
+	 * @deprecated the queries return lists, use {@link #findMany(Bson, Bson)}.
 	 */
+	@Deprecated
 	public List<Document> fromCursorToList(MongoCursor<Document> cursor) {
 		List<Document> list = new ArrayList<Document>();
 
@@ -166,4 +198,4 @@ public class GenericDAO {
 		return list;
 	}
 
-}
\ No newline at end of file
+}
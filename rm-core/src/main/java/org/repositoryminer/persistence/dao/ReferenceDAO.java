@@ -1,22 +1,37 @@
 package org.repositoryminer.persistence.dao;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
+import org.repositoryminer.domain.CommitRanges;
 import org.repositoryminer.domain.ReferenceType;
+import org.repositoryminer.persistence.IndexManager;
 
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 
 /**
- * This class handles rm_reference collection.
+ * This class handles rm_reference collection. The references mined by older
+ * versions keep the list of their commits in the field commits instead of the
+ * commit ranges, so the queries fall back to it. The fallback is a second
+ * query, because an $or of both fields can not use their indexes.
  */
 public class ReferenceDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "rm_reference";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository", "path");
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository", "name", "type");
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository", "commit_ranges.from");
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository", "commits");
+	}
+
+	private CommitOrdinalDAO ordinalDAO = new CommitOrdinalDAO();
+
 	public ReferenceDAO() {
 		super(COLLECTION_NAME);
 	}
@@ -59,11 +74,92 @@ public class ReferenceDAO extends GenericDAO {
 	 *            the commit id.
 	 * @param projection
 	 *            the query projection.
-	 * @return a reference.
+	 * @return a reference or null.
 	 */
 	public Document findByCommit(String repositoryId, String commitId, Bson projection) {
-		return findOne(Filters.and(Filters.eq("repository", new ObjectId(repositoryId)),
-				Filters.in("commits", Arrays.asList(commitId))), projection);
+		Bson repository = Filters.eq("repository", new ObjectId(repositoryId));
+		Integer ordinal = ordinalDAO.findOrdinal(repositoryId, commitId);
+		Document refDoc = null;
+		if (ordinal != null)
+			refDoc = findOne(Filters.and(repository, containsOrdinal(ordinal)), projection);
+		if (refDoc == null)
+			refDoc = findOne(Filters.and(repository, Filters.eq("commits", commitId)), projection);
+		return refDoc;
+	}
+
+	/**
+	 * Checks if a reference contains certain commit.
+	 * 
+	 * @param id
+	 *            reference id.
+	 * @param commitId
+	 *            the commit id.
+	 * @return true if the commit is reachable from the reference.
+	 */
+	public boolean containsCommit(String id, String commitId) {
+		Document refDoc = findById(id, Projections.include("repository"));
+		if (refDoc == null)
+			return false;
+
+		Bson reference = Filters.eq("_id", new ObjectId(id));
+		Integer ordinal = ordinalDAO.findOrdinal(refDoc.getObjectId("repository").toHexString(), commitId);
+		if (ordinal != null && count(Filters.and(reference, containsOrdinal(ordinal))) > 0)
+			return true;
+		return count(Filters.and(reference, Filters.eq("commits", commitId))) > 0;
+	}
+
+	/**
+	 * Retrieves the commits of a reference.
+	 * 
+	 * @param id
+	 *            reference id.
+	 * @param limit
+	 *            the maximum number of commits, or 0 for all of them.
+	 * @return the commits, newest first.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<String> findCommits(String id, int limit) {
+		Document refDoc = findById(id, Projections.include("repository", "commit_ranges", "commits"));
+		List<String> commits = new ArrayList<String>();
+		if (refDoc == null)
+			return commits;
+
+		if (!refDoc.containsKey("commit_ranges")) {
+			List<String> legacyCommits = refDoc.get("commits", List.class);
+			if (legacyCommits != null)
+				commits.addAll(limit > 0 && legacyCommits.size() > limit ? legacyCommits.subList(0, limit)
+						: legacyCommits);
+			return commits;
+		}
+
+		String repositoryId = refDoc.getObjectId("repository").toHexString();
+		CommitRanges ranges = CommitRanges.parseDocuments(refDoc.get("commit_ranges", List.class));
+		for (int i = 0; i < ranges.getRangeCount(); i++) {
+			int to = ranges.getTo(i);
+			if (limit > 0)
+				to = Math.min(to, ranges.getFrom(i) + limit - commits.size() - 1);
+
+			commits.addAll(ordinalDAO.findCommits(repositoryId, ranges.getFrom(i), to));
+			if (limit > 0 && commits.size() >= limit)
+				break;
+		}
+		return commits;
+	}
+
+	/**
+	 * Retrieves the commit ranges of a reference.
+	 * 
+	 * @param id
+	 *            reference id.
+	 * @return the commit ranges, or null if the reference keeps the commits in
+	 *         the legacy list.
+	 */
+	@SuppressWarnings("unchecked")
+	public CommitRanges findCommitRanges(String id) {
+		Document refDoc = findById(id, Projections.include("commit_ranges", "commits"));
+		if (refDoc != null && !refDoc.containsKey("commit_ranges") && refDoc.containsKey("commits"))
+			return null;
+		return CommitRanges.parseDocuments(refDoc != null ? refDoc.get("commit_ranges", List.class) : null);
 	}
 
 	/**
@@ -74,9 +170,36 @@ public class ReferenceDAO extends GenericDAO {
 	 * @param commits
 	 *            the new commits.
 	 */
-	public void updateOnlyCommits(String id, List<String> commits) {
+	public void updateOnlyCommits(String id, CommitRanges commits) {
 		collection.updateOne(Filters.eq("_id", new ObjectId(id)),
-				new Document("$set", new Document("commits", commits)));
+				new Document("$set", new Document("commit_ranges", commits.toDocumentList())).append("$unset",
+						new Document("commits", "")));
+	}
+
+	/**
+	 * Updates the commits in a reference and the commit it points to.
+	 * 
+	 * @param id
+	 *            reference id.
+	 * @param tip
+	 *            the commit pointed by the reference.
+	 * @param commits
+	 *            the new commits.
+	 */
+	public void updateTipAndCommits(String id, String tip, CommitRanges commits) {
+		collection.updateOne(Filters.eq("_id", new ObjectId(id)), new Document("$set",
+				new Document("tip", tip).append("commit_ranges", commits.toDocumentList())).append("$unset",
+						new Document("commits", "")));
+	}
+
+	/**
+	 * Removes a reference.
+	 * 
+	 * @param id
+	 *            reference id.
+	 */
+	public void delete(String id) {
+		deleteOne(Filters.eq("_id", new ObjectId(id)));
 	}
 
 	/**
@@ -97,4 +220,9 @@ public class ReferenceDAO extends GenericDAO {
 				Filters.eq("type", type.toString())), projection);
 	}
 
+	private Bson containsOrdinal(int ordinal) {
+		return Filters.elemMatch("commit_ranges",
+				Filters.and(Filters.lte("from", ordinal), Filters.gte("to", ordinal)));
+	}
+
 }
\ No newline at end of file
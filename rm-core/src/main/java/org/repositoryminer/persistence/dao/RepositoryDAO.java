@@ -5,6 +5,7 @@ import java.util.List;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
+import org.repositoryminer.persistence.IndexManager;
 
 import com.mongodb.client.model.Filters;
 
@@ -15,6 +16,10 @@ public class RepositoryDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "rm_repository";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "key");
+	}
+
 	public RepositoryDAO() {
 		super(COLLECTION_NAME);
 	}
@@ -0,0 +1,434 @@
+package org.repositoryminer.persistence.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * Evaluates the MongoDB queries the DAOs use over the documents of an
+ * {@link EmbeddedCollection}: the comparison, array and logical query
+ * operators, the inclusion, exclusion and slice projections, the sorts and the
+ * $set and $unset updates. As in MongoDB, a path that crosses an array matches
+ * if any of its elements matches.
+ */
+final class DocumentMatcher {
+
+	private DocumentMatcher() {
+	}
+
+	public static boolean matches(BsonDocument document, BsonDocument filter) {
+		for (Entry<String, BsonValue> condition : filter.entrySet()) {
+			String key = condition.getKey();
+			BsonValue value = condition.getValue();
+
+			if (key.equals("$and")) {
+				for (BsonValue clause : value.asArray())
+					if (!matches(document, clause.asDocument()))
+						return false;
+			} else if (key.equals("$or")) {
+				if (!matchesAny(document, value.asArray()))
+					return false;
+			} else if (key.equals("$nor")) {
+				if (matchesAny(document, value.asArray()))
+					return false;
+			} else if (key.startsWith("$")) {
+				throw unsupported(key);
+			} else if (!matchesField(getValues(document, key), value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matchesAny(BsonDocument document, BsonArray clauses) {
+		for (BsonValue clause : clauses)
+			if (matches(document, clause.asDocument()))
+				return true;
+		return false;
+	}
+
+	private static boolean matchesField(List<BsonValue> values, BsonValue condition) {
+		if (!isOperator(condition))
+			return matchesEquality(values, condition);
+
+		for (Entry<String, BsonValue> operator : condition.asDocument().entrySet())
+			if (!matchesOperator(values, operator.getKey(), operator.getValue()))
+				return false;
+		return true;
+	}
+
+	private static boolean matchesOperator(List<BsonValue> values, String operator, BsonValue argument) {
+		if (operator.equals("$eq"))
+			return matchesEquality(values, argument);
+		if (operator.equals("$ne"))
+			return !matchesEquality(values, argument);
+		if (operator.equals("$in"))
+			return matchesIn(values, argument.asArray());
+		if (operator.equals("$nin"))
+			return !matchesIn(values, argument.asArray());
+		if (operator.equals("$exists"))
+			return values.isEmpty() != argument.asBoolean().getValue();
+		if (operator.equals("$elemMatch"))
+			return matchesElement(values, argument);
+
+		int sign;
+		if (operator.equals("$gt") || operator.equals("$gte"))
+			sign = 1;
+		else if (operator.equals("$lt") || operator.equals("$lte"))
+			sign = -1;
+		else
+			throw unsupported(operator);
+
+		boolean inclusive = operator.endsWith("e");
+		for (BsonValue value : expand(values)) {
+			Integer comparison = compare(value, argument);
+			if (comparison != null && (comparison * sign > 0 || (inclusive && comparison == 0)))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean matchesEquality(List<BsonValue> values, BsonValue argument) {
+		if (values.isEmpty())
+			return argument.isNull();
+
+		for (BsonValue value : values)
+			if (equal(value, argument))
+				return true;
+		for (BsonValue value : expand(values))
+			if (equal(value, argument))
+				return true;
+		return false;
+	}
+
+	private static boolean matchesIn(List<BsonValue> values, BsonArray arguments) {
+		for (BsonValue argument : arguments)
+			if (matchesEquality(values, argument))
+				return true;
+		return false;
+	}
+
+	private static boolean matchesElement(List<BsonValue> values, BsonValue condition) {
+		for (BsonValue value : values) {
+			if (!value.isArray())
+				continue;
+
+			for (BsonValue element : value.asArray()) {
+				if (isOperator(condition)) {
+					if (matchesField(Collections.singletonList(element), condition))
+						return true;
+				} else if (element.isDocument() && matches(element.asDocument(), condition.asDocument())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the values of a path, following the arrays of documents, or an
+	 *         empty list if the path is missing.
+	 */
+	public static List<BsonValue> getValues(BsonDocument document, String path) {
+		List<BsonValue> values = new ArrayList<BsonValue>(1);
+		collectValues(document, path.split("\\."), 0, values);
+		return values;
+	}
+
+	private static void collectValues(BsonValue current, String[] parts, int i, List<BsonValue> values) {
+		if (i == parts.length) {
+			values.add(current);
+		} else if (current.isDocument()) {
+			BsonValue child = current.asDocument().get(parts[i]);
+			if (child != null)
+				collectValues(child, parts, i + 1, values);
+		} else if (current.isArray()) {
+			for (BsonValue element : current.asArray())
+				if (element.isDocument())
+					collectValues(element, parts, i, values);
+		}
+	}
+
+	// the values and the elements of the values that are arrays
+	private static List<BsonValue> expand(List<BsonValue> values) {
+		List<BsonValue> expanded = new ArrayList<BsonValue>(values.size());
+		for (BsonValue value : values) {
+			if (value.isArray())
+				expanded.addAll(value.asArray());
+			else
+				expanded.add(value);
+		}
+		return expanded;
+	}
+
+	private static boolean isOperator(BsonValue value) {
+		return value.isDocument() && !value.asDocument().isEmpty()
+				&& value.asDocument().keySet().iterator().next().startsWith("$");
+	}
+
+	private static boolean equal(BsonValue value1, BsonValue value2) {
+		if (value1.isNumber() && value2.isNumber())
+			return compare(value1, value2) == 0;
+		return value1.equals(value2);
+	}
+
+	/**
+	 * @return the comparison of two values of the same type, or null if they
+	 *         are not comparable.
+	 */
+	private static Integer compare(BsonValue value1, BsonValue value2) {
+		if (value1.isNumber() && value2.isNumber()) {
+			if ((value1.isInt32() || value1.isInt64()) && (value2.isInt32() || value2.isInt64()))
+				return compareLongs(value1.asNumber().longValue(), value2.asNumber().longValue());
+			return Double.compare(value1.asNumber().doubleValue(), value2.asNumber().doubleValue());
+		}
+		if (value1.isString() && value2.isString())
+			return value1.asString().getValue().compareTo(value2.asString().getValue());
+		if (value1.isObjectId() && value2.isObjectId())
+			return value1.asObjectId().getValue().compareTo(value2.asObjectId().getValue());
+		if (value1.isDateTime() && value2.isDateTime())
+			return compareLongs(value1.asDateTime().getValue(), value2.asDateTime().getValue());
+		if (value1.isBoolean() && value2.isBoolean())
+			return compareLongs(value1.asBoolean().getValue() ? 1 : 0, value2.asBoolean().getValue() ? 1 : 0);
+		return null;
+	}
+
+	private static int compareLongs(long x, long y) {
+		return x < y ? -1 : (x == y ? 0 : 1);
+	}
+
+	/**
+	 * @return the key of a value in the indexes, where the integral numbers of
+	 *         every type are the same.
+	 */
+	public static BsonValue toIndexKey(BsonValue value) {
+		if (value.isInt32())
+			return new BsonInt64(value.asInt32().getValue());
+		if (value.isDouble()) {
+			double number = value.asDouble().getValue();
+			if (number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE)
+				return new BsonInt64((long) number);
+		}
+		return value;
+	}
+
+	public static Comparator<BsonDocument> createComparator(final BsonDocument sort) {
+		return new Comparator<BsonDocument>() {
+			@Override
+			public int compare(BsonDocument document1, BsonDocument document2) {
+				for (Entry<String, BsonValue> key : sort.entrySet()) {
+					int comparison = compareForSort(getFirstValue(document1, key.getKey()),
+							getFirstValue(document2, key.getKey()));
+					if (comparison != 0)
+						return key.getValue().asNumber().intValue() < 0 ? -comparison : comparison;
+				}
+				return 0;
+			}
+		};
+	}
+
+	private static BsonValue getFirstValue(BsonDocument document, String path) {
+		List<BsonValue> values = getValues(document, path);
+		return values.isEmpty() ? null : values.get(0);
+	}
+
+	// the values of different types are ordered as in MongoDB
+	private static int compareForSort(BsonValue value1, BsonValue value2) {
+		int rank1 = rank(value1);
+		int rank2 = rank(value2);
+		if (rank1 != rank2)
+			return rank1 - rank2;
+
+		Integer comparison = value1 != null ? compare(value1, value2) : null;
+		return comparison != null ? comparison : 0;
+	}
+
+	private static int rank(BsonValue value) {
+		if (value == null || value.isNull())
+			return 0;
+		if (value.isNumber())
+			return 1;
+		if (value.isString())
+			return 2;
+		if (value.isDocument())
+			return 3;
+		if (value.isArray())
+			return 4;
+		if (value.isBinary())
+			return 5;
+		if (value.isObjectId())
+			return 6;
+		if (value.isBoolean())
+			return 7;
+		if (value.isDateTime())
+			return 8;
+		return 9;
+	}
+
+	public static BsonDocument project(BsonDocument document, BsonDocument projection) {
+		if (projection == null || projection.isEmpty())
+			return document;
+
+		boolean inclusion = false;
+		boolean exclusion = false;
+		boolean includeId = true;
+		boolean explicitId = false;
+		for (Entry<String, BsonValue> field : projection.entrySet()) {
+			BsonValue value = field.getValue();
+			if (field.getKey().equals("_id")) {
+				includeId = isTrue(value);
+				explicitId = includeId;
+			} else if (!value.isDocument()) {
+				if (isTrue(value))
+					inclusion = true;
+				else
+					exclusion = true;
+			}
+		}
+
+		// as in MongoDB, {_id: 1} alone keeps only the _id
+		if (explicitId && !exclusion)
+			inclusion = true;
+
+		BsonDocument result;
+		if (inclusion) {
+			result = new BsonDocument();
+			if (includeId && document.containsKey("_id"))
+				result.put("_id", document.get("_id"));
+			for (Entry<String, BsonValue> field : projection.entrySet())
+				if (!field.getKey().equals("_id") && !field.getValue().isDocument())
+					copyPath(document, result, field.getKey().split("\\."), 0);
+		} else {
+			result = copy(document);
+			for (Entry<String, BsonValue> field : projection.entrySet())
+				if (!field.getValue().isDocument() && !isTrue(field.getValue()))
+					removePath(result, field.getKey().split("\\."), 0);
+		}
+
+		for (Entry<String, BsonValue> field : projection.entrySet()) {
+			if (field.getValue().isDocument()) {
+				BsonDocument operator = field.getValue().asDocument();
+				if (!operator.containsKey("$slice"))
+					throw unsupported(operator.keySet().iterator().next());
+				slice(result, field.getKey(), operator.get("$slice").asNumber().intValue());
+			}
+		}
+		return result;
+	}
+
+	private static boolean isTrue(BsonValue value) {
+		if (value.isBoolean())
+			return value.asBoolean().getValue();
+		return value.isNumber() && value.asNumber().intValue() != 0;
+	}
+
+	private static void copyPath(BsonDocument source, BsonDocument target, String[] parts, int i) {
+		BsonValue value = source.get(parts[i]);
+		if (value == null)
+			return;
+
+		if (i == parts.length - 1) {
+			target.put(parts[i], value);
+		} else if (value.isDocument()) {
+			BsonValue child = target.get(parts[i]);
+			BsonDocument projected = child != null && child.isDocument() ? child.asDocument() : new BsonDocument();
+			copyPath(value.asDocument(), projected, parts, i + 1);
+			target.put(parts[i], projected);
+		} else if (value.isArray()) {
+			BsonArray projected = new BsonArray();
+			for (BsonValue element : value.asArray()) {
+				if (element.isDocument()) {
+					BsonDocument projectedElement = new BsonDocument();
+					copyPath(element.asDocument(), projectedElement, parts, i + 1);
+					projected.add(projectedElement);
+				}
+			}
+			target.put(parts[i], projected);
+		}
+	}
+
+	private static void removePath(BsonDocument document, String[] parts, int i) {
+		if (i == parts.length - 1) {
+			document.remove(parts[i]);
+			return;
+		}
+
+		BsonValue child = document.get(parts[i]);
+		if (child != null && child.isDocument()) {
+			BsonDocument copy = copy(child.asDocument());
+			removePath(copy, parts, i + 1);
+			document.put(parts[i], copy);
+		}
+	}
+
+	private static void slice(BsonDocument document, String field, int count) {
+		BsonValue value = document.get(field);
+		if (value == null || !value.isArray())
+			return;
+
+		BsonArray array = value.asArray();
+		int size = array.size();
+		int from = count >= 0 ? 0 : Math.max(0, size + count);
+		int to = count >= 0 ? Math.min(size, count) : size;
+		document.put(field, new BsonArray(new ArrayList<BsonValue>(array.subList(from, to))));
+	}
+
+	/**
+	 * @return the updated copy of a document, the given document is kept.
+	 */
+	public static BsonDocument update(BsonDocument document, BsonDocument update) {
+		if (!isOperator(update)) {
+			BsonDocument replacement = copy(update);
+			if (document.containsKey("_id"))
+				replacement.put("_id", document.get("_id"));
+			return replacement;
+		}
+
+		BsonDocument result = copy(document);
+		for (Entry<String, BsonValue> operator : update.entrySet()) {
+			if (operator.getKey().equals("$set")) {
+				for (Entry<String, BsonValue> field : operator.getValue().asDocument().entrySet())
+					setPath(result, field.getKey().split("\\."), 0, field.getValue());
+			} else if (operator.getKey().equals("$unset")) {
+				for (String field : operator.getValue().asDocument().keySet())
+					removePath(result, field.split("\\."), 0);
+			} else {
+				throw unsupported(operator.getKey());
+			}
+		}
+		return result;
+	}
+
+	private static void setPath(BsonDocument document, String[] parts, int i, BsonValue value) {
+		if (i == parts.length - 1) {
+			document.put(parts[i], value);
+			return;
+		}
+
+		BsonValue child = document.get(parts[i]);
+		BsonDocument copy = child != null && child.isDocument() ? copy(child.asDocument()) : new BsonDocument();
+		setPath(copy, parts, i + 1, value);
+		document.put(parts[i], copy);
+	}
+
+	// the copies share the values, which are never changed in place
+	private static BsonDocument copy(BsonDocument document) {
+		BsonDocument copy = new BsonDocument();
+		copy.putAll(document);
+		return copy;
+	}
+
+	private static RepositoryMinerException unsupported(String operator) {
+		return new RepositoryMinerException(ErrorMessage.STORAGE_UNSUPPORTED_OPERATOR.toString() + " " + operator);
+	}
+
+}
@@ -0,0 +1,374 @@
+package org.repositoryminer.persistence.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * A collection of an {@link EmbeddedStorage}. Every change is appended to the
+ * {@link SegmentLog} of the collection and only the position of the last
+ * record of each document is kept in memory, by "_id", so the documents are
+ * read from the segments when a query checks them.
+ * <p>
+ * The declared indexes whose first field is not nested keep the keys of the
+ * documents by the values of that field, so a query with an equality or $in
+ * on it only reads the documents with those values. The other queries read
+ * every document.
+ */
+public class EmbeddedCollection implements IDocumentCollection {
+
+	private static final CodecRegistry REGISTRY = MongoClient.getDefaultCodecRegistry();
+	private static final Codec<Document> DOCUMENT_CODEC = REGISTRY.get(Document.class);
+
+	private Map<BsonValue, Long> positions = new LinkedHashMap<BsonValue, Long>();
+	private Map<String, Map<BsonValue, Set<BsonValue>>> indexes = new HashMap<String, Map<BsonValue, Set<BsonValue>>>();
+	private SegmentLog log;
+
+	/**
+	 * Opens a collection, reading its segments.
+	 *
+	 * @param directory
+	 *            the directory of the collection segments.
+	 */
+	public EmbeddedCollection(File directory) {
+		log = new SegmentLog(directory);
+		log.open(positions);
+	}
+
+	@Override
+	public synchronized void insertOne(Document document) {
+		insert(document);
+		log.flush();
+	}
+
+	@Override
+	public synchronized void insertMany(List<Document> documents) {
+		try {
+			for (Document document : documents)
+				insert(document);
+		} finally {
+			log.flush();
+		}
+	}
+
+	@Override
+	public synchronized void bulkInsert(List<Document> documents) {
+		RepositoryMinerException failure = null;
+		for (Document document : documents) {
+			try {
+				insert(document);
+			} catch (RepositoryMinerException e) {
+				if (failure == null)
+					failure = e;
+			}
+		}
+
+		log.flush();
+		if (failure != null)
+			throw failure;
+	}
+
+	@Override
+	public synchronized long count(Bson where) {
+		return match(where).size();
+	}
+
+	@Override
+	public synchronized List<Document> find(Bson where, Bson projection, Bson sort, int limit) {
+		List<BsonDocument> matched = match(where);
+		if (sort != null)
+			Collections.sort(matched, DocumentMatcher.createComparator(toBson(sort)));
+		if (limit > 0 && matched.size() > limit)
+			matched = matched.subList(0, limit);
+
+		BsonDocument fields = projection != null ? toBson(projection) : null;
+		List<Document> result = new ArrayList<Document>(matched.size());
+		for (BsonDocument document : matched)
+			result.add(toDocument(DocumentMatcher.project(document, fields)));
+		return result;
+	}
+
+	@Override
+	public synchronized UpdateResult updateOne(Bson where, Bson update) {
+		return update(where, update, true);
+	}
+
+	@Override
+	public synchronized UpdateResult updateMany(Bson where, Bson update) {
+		return update(where, update, false);
+	}
+
+	@Override
+	public synchronized void replaceOne(Bson where, Document replacement, boolean upsert) {
+		List<BsonDocument> matched = match(where);
+		if (!matched.isEmpty()) {
+			put(DocumentMatcher.update(matched.get(0), toBson(replacement)), matched.get(0));
+		} else if (upsert) {
+			insert(replacement);
+		}
+		log.flush();
+	}
+
+	@Override
+	public synchronized long deleteOne(Bson where) {
+		return delete(where, true);
+	}
+
+	@Override
+	public synchronized long deleteMany(Bson where) {
+		return delete(where, false);
+	}
+
+	/**
+	 * Indexes the documents by the first field of the keys, if it is not
+	 * nested. The other fields are checked on the indexed documents.
+	 */
+	@Override
+	public synchronized void createIndex(Bson keys) {
+		String field = toBson(keys).keySet().iterator().next();
+		if (field.equals("_id") || field.contains(".") || indexes.containsKey(field))
+			return;
+
+		indexes.put(field, new HashMap<BsonValue, Set<BsonValue>>());
+		for (Entry<BsonValue, Long> position : positions.entrySet())
+			addToIndex(field, position.getKey(), log.read(position.getValue()));
+	}
+
+	/**
+	 * Writes the pending changes and closes the segments.
+	 */
+	public synchronized void close() {
+		log.flush();
+		log.close();
+	}
+
+	private void insert(Document document) {
+		if (!document.containsKey("_id"))
+			document.put("_id", new ObjectId());
+
+		BsonDocument bson = toBson(document);
+		if (positions.containsKey(DocumentMatcher.toIndexKey(bson.get("_id"))))
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_DUPLICATE_KEY.toString() + " " + bson.get("_id"));
+
+		put(bson, null);
+	}
+
+	/*
+	 * As in MongoDB, a document the update leaves unchanged is not written
+	 * again and is not counted as modified.
+	 */
+	private UpdateResult update(Bson where, Bson update, boolean one) {
+		BsonDocument changes = toBson(update);
+		long matched = 0;
+		long modified = 0;
+		for (BsonDocument document : match(where)) {
+			BsonDocument updated = DocumentMatcher.update(document, changes);
+			if (!updated.equals(document)) {
+				put(updated, document);
+				modified++;
+			}
+			matched++;
+			if (one)
+				break;
+		}
+
+		log.flush();
+		return UpdateResult.acknowledged(matched, modified, null);
+	}
+
+	private long delete(Bson where, boolean one) {
+		long deleted = 0;
+		for (BsonDocument document : match(where)) {
+			BsonValue id = document.get("_id");
+			remove(DocumentMatcher.toIndexKey(id), document);
+			log.delete(id);
+			deleted++;
+			if (one)
+				break;
+		}
+
+		log.flush();
+		return deleted;
+	}
+
+	/*
+	 * The former document, as matched by the caller, is given so its index
+	 * entries are removed without reading it again.
+	 */
+	private void put(BsonDocument document, BsonDocument former) {
+		BsonValue key = DocumentMatcher.toIndexKey(document.get("_id"));
+		if (former != null)
+			remove(key, former);
+		positions.put(key, log.put(document));
+		for (String field : indexes.keySet())
+			addToIndex(field, key, document);
+	}
+
+	private void remove(BsonValue key, BsonDocument document) {
+		positions.remove(key);
+		for (Entry<String, Map<BsonValue, Set<BsonValue>>> index : indexes.entrySet()) {
+			for (BsonValue value : getIndexKeys(document, index.getKey())) {
+				Set<BsonValue> keys = index.getValue().get(value);
+				if (keys != null && keys.remove(key) && keys.isEmpty())
+					index.getValue().remove(value);
+			}
+		}
+	}
+
+	private void addToIndex(String field, BsonValue key, BsonDocument document) {
+		Map<BsonValue, Set<BsonValue>> index = indexes.get(field);
+		for (BsonValue value : getIndexKeys(document, field)) {
+			Set<BsonValue> keys = index.get(value);
+			if (keys == null) {
+				keys = new LinkedHashSet<BsonValue>();
+				index.put(value, keys);
+			}
+			keys.add(key);
+		}
+	}
+
+	// an array is indexed by each of its elements, as in MongoDB
+	private static List<BsonValue> getIndexKeys(BsonDocument document, String field) {
+		BsonValue value = document.get(field);
+		if (value == null)
+			return Collections.<BsonValue> singletonList(BsonNull.VALUE);
+		if (!value.isArray())
+			return Collections.singletonList(DocumentMatcher.toIndexKey(value));
+
+		List<BsonValue> keys = new ArrayList<BsonValue>();
+		for (BsonValue element : value.asArray())
+			keys.add(DocumentMatcher.toIndexKey(element));
+		return keys;
+	}
+
+	/*
+	 * The candidates are read one at a time, so only the matched documents
+	 * are held in memory. They are read into a list before they are changed,
+	 * since a change moves the key of a document to the end of the positions.
+	 */
+	private List<BsonDocument> match(Bson where) {
+		BsonDocument filter = where != null ? toBson(where) : new BsonDocument();
+		List<BsonDocument> matched = new ArrayList<BsonDocument>();
+		for (BsonValue key : getCandidates(filter)) {
+			BsonDocument document = log.read(positions.get(key));
+			if (DocumentMatcher.matches(document, filter))
+				matched.add(document);
+		}
+		return matched;
+	}
+
+	private Collection<BsonValue> getCandidates(BsonDocument filter) {
+		List<BsonValue> ids = getEqualValues(filter, "_id");
+		if (ids != null) {
+			List<BsonValue> candidates = new ArrayList<BsonValue>(ids.size());
+			for (BsonValue id : ids)
+				if (positions.containsKey(id))
+					candidates.add(id);
+			return candidates;
+		}
+
+		for (Entry<String, Map<BsonValue, Set<BsonValue>>> index : indexes.entrySet()) {
+			List<BsonValue> values = getEqualValues(filter, index.getKey());
+			if (values == null)
+				continue;
+
+			Set<BsonValue> keys = new LinkedHashSet<BsonValue>();
+			for (BsonValue value : values) {
+				Set<BsonValue> indexed = index.getValue().get(value);
+				if (indexed != null)
+					keys.addAll(indexed);
+			}
+
+			return keys;
+		}
+
+		return positions.keySet();
+	}
+
+	/*
+	 * Returns the values a field must be equal to, from an equality, $eq or
+	 * $in on the field, in the filter or in one of its $and clauses, or null if
+	 * there is no such condition. Arrays and documents are not looked up.
+	 */
+	private static List<BsonValue> getEqualValues(BsonDocument filter, String field) {
+		BsonValue condition = filter.get(field);
+		if (condition != null) {
+			List<BsonValue> values = null;
+			if (condition.isDocument() && condition.asDocument().containsKey("$eq")) {
+				values = Collections.singletonList(condition.asDocument().get("$eq"));
+			} else if (condition.isDocument() && condition.asDocument().containsKey("$in")) {
+				values = condition.asDocument().get("$in").asArray();
+			} else if (!condition.isDocument()) {
+				values = Collections.singletonList(condition);
+			}
+
+			if (values != null && isScalar(values))
+				return toIndexKeys(values);
+		}
+
+		BsonValue clauses = filter.get("$and");
+		if (clauses != null) {
+			for (BsonValue clause : clauses.asArray()) {
+				List<BsonValue> values = getEqualValues(clause.asDocument(), field);
+				if (values != null)
+					return values;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isScalar(List<BsonValue> values) {
+		for (BsonValue value : values)
+			if (value.isArray() || value.isDocument())
+				return false;
+		return true;
+	}
+
+	private static List<BsonValue> toIndexKeys(List<BsonValue> values) {
+		List<BsonValue> keys = new ArrayList<BsonValue>(values.size());
+		for (BsonValue value : values)
+			keys.add(DocumentMatcher.toIndexKey(value));
+		return keys;
+	}
+
+	private static BsonDocument toBson(Bson bson) {
+		return bson.toBsonDocument(Document.class, REGISTRY);
+	}
+
+	private static BsonDocument toBson(Document document) {
+		BsonDocument bson = new BsonDocument();
+		DOCUMENT_CODEC.encode(new BsonDocumentWriter(bson), document, EncoderContext.builder().build());
+		return bson;
+	}
+
+	private static Document toDocument(BsonDocument bson) {
+		return DOCUMENT_CODEC.decode(new BsonDocumentReader(bson), DecoderContext.builder().build());
+	}
+
+}
@@ -0,0 +1,95 @@
+package org.repositoryminer.persistence.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * Stores each collection in a directory of local files, so the miner runs
+ * without a database server. The collections are opened, replaying their
+ * segments, when first used and only one process may open the directory at a
+ * time.
+ */
+public class EmbeddedStorage implements IStorage {
+
+	private static final String LOCK_FILE = "rm-storage.lock";
+
+	private File directory;
+	private FileLock lock;
+	private Map<String, EmbeddedCollection> collections = new HashMap<String, EmbeddedCollection>();
+
+	/**
+	 * @param directory
+	 *            the directory of the collections, created if it does not
+	 *            exist.
+	 * @throws RepositoryMinerException
+	 *             if the directory is already open.
+	 */
+	public EmbeddedStorage(String directory) {
+		this.directory = new File(directory);
+		this.directory.mkdirs();
+		this.lock = tryLock();
+	}
+
+	@Override
+	public synchronized IDocumentCollection getCollection(String name) {
+		EmbeddedCollection collection = collections.get(name);
+		if (collection == null) {
+			collection = new EmbeddedCollection(new File(directory, name));
+			collections.put(name, collection);
+		}
+		return collection;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (EmbeddedCollection collection : collections.values())
+			collection.close();
+		collections.clear();
+
+		if (lock != null) {
+			try {
+				lock.release();
+				lock.channel().close();
+			} catch (IOException e) {
+				throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+			} finally {
+				lock = null;
+			}
+		}
+	}
+
+	/*
+	 * The operating system drops the lock if the process dies, so a crash does
+	 * not leave the directory locked.
+	 */
+	@SuppressWarnings("resource")
+	private FileLock tryLock() {
+		FileLock fileLock = null;
+		try {
+			RandomAccessFile file = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+			try {
+				fileLock = file.getChannel().tryLock();
+			} catch (OverlappingFileLockException e) {
+				// locked by this process
+			}
+
+			if (fileLock == null)
+				file.close();
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		}
+
+		if (fileLock == null)
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_LOCKED);
+		return fileLock;
+	}
+
+}
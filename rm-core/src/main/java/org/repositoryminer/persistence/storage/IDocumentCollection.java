@@ -0,0 +1,84 @@
+package org.repositoryminer.persistence.storage;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * The operations a storage implements over a collection. The filters,
+ * projections, sorts and updates are given as MongoDB queries, e.g. built with
+ * the {@link com.mongodb.client.model.Filters} helpers, and a null filter
+ * matches every document.
+ */
+public interface IDocumentCollection {
+
+	/**
+	 * Inserts one document, giving it an ObjectId if it has no "_id".
+	 */
+	public void insertOne(Document document);
+
+	public void insertMany(List<Document> documents);
+
+	/**
+	 * Inserts various documents, in any order and without stopping at the first
+	 * error.
+	 */
+	public void bulkInsert(List<Document> documents);
+
+	public long count(Bson where);
+
+	/**
+	 * @param where
+	 *            clause to filter results or null for no filter.
+	 * @param projection
+	 *            the query projection or null for the whole documents.
+	 * @param sort
+	 *            the sort criteria or null for no order.
+	 * @param limit
+	 *            the maximum number of documents, or 0 for no limit.
+	 * @return the found documents.
+	 */
+	public List<Document> find(Bson where, Bson projection, Bson sort, int limit);
+
+	/**
+	 * @return the numbers of matched and modified documents. A document the
+	 *         update leaves unchanged is matched but not modified.
+	 */
+	public UpdateResult updateOne(Bson where, Bson update);
+
+	/**
+	 * @return the numbers of matched and modified documents. A document the
+	 *         update leaves unchanged is matched but not modified.
+	 */
+	public UpdateResult updateMany(Bson where, Bson update);
+
+	/**
+	 * Replaces the first document that matches the filter.
+	 *
+	 * @param upsert
+	 *            true to insert the replacement if no document matches.
+	 */
+	public void replaceOne(Bson where, Document replacement, boolean upsert);
+
+	/**
+	 * @return the number of deleted documents.
+	 */
+	public long deleteOne(Bson where);
+
+	/**
+	 * @return the number of deleted documents.
+	 */
+	public long deleteMany(Bson where);
+
+	/**
+	 * Creates an index, unless it exists.
+	 *
+	 * @param keys
+	 *            the index keys.
+	 */
+	public void createIndex(Bson keys);
+
+}
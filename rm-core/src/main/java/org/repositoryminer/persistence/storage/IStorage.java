@@ -0,0 +1,23 @@
+package org.repositoryminer.persistence.storage;
+
+/**
+ * A database where the DAOs store their collections. The default storage is
+ * {@link MongoStorage}, {@link EmbeddedStorage} keeps the collections in local
+ * files, without a database server.
+ */
+public interface IStorage {
+
+	/**
+	 * @param name
+	 *            the collection name.
+	 * @return the collection handler, the collection is created if it does not
+	 *         exist.
+	 */
+	public IDocumentCollection getCollection(String name);
+
+	/**
+	 * Releases the storage, writing what is pending.
+	 */
+	public void close();
+
+}
@@ -0,0 +1,98 @@
+package org.repositoryminer.persistence.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * A collection of a {@link MongoStorage}.
+ */
+public class MongoDocumentCollection implements IDocumentCollection {
+
+	private static final Bson ALL = new Document();
+
+	private MongoCollection<Document> collection;
+
+	public MongoDocumentCollection(MongoCollection<Document> collection) {
+		this.collection = collection;
+	}
+
+	@Override
+	public void insertOne(Document document) {
+		collection.insertOne(document);
+	}
+
+	@Override
+	public void insertMany(List<Document> documents) {
+		collection.insertMany(documents);
+	}
+
+	@Override
+	public void bulkInsert(List<Document> documents) {
+		List<InsertOneModel<Document>> requests = new ArrayList<InsertOneModel<Document>>(documents.size());
+		for (Document document : documents)
+			requests.add(new InsertOneModel<Document>(document));
+
+		collection.bulkWrite(requests, new BulkWriteOptions().ordered(false));
+	}
+
+	@Override
+	public long count(Bson where) {
+		return collection.count(filter(where));
+	}
+
+	@Override
+	public List<Document> find(Bson where, Bson projection, Bson sort, int limit) {
+		FindIterable<Document> documents = collection.find(filter(where)).projection(projection);
+		if (sort != null)
+			documents.sort(sort);
+		if (limit > 0)
+			documents.limit(limit);
+
+		return documents.into(new ArrayList<Document>());
+	}
+
+	@Override
+	public UpdateResult updateOne(Bson where, Bson update) {
+		return collection.updateOne(filter(where), update);
+	}
+
+	@Override
+	public UpdateResult updateMany(Bson where, Bson update) {
+		return collection.updateMany(filter(where), update);
+	}
+
+	@Override
+	public void replaceOne(Bson where, Document replacement, boolean upsert) {
+		collection.replaceOne(filter(where), replacement, new UpdateOptions().upsert(upsert));
+	}
+
+	@Override
+	public long deleteOne(Bson where) {
+		return collection.deleteOne(filter(where)).getDeletedCount();
+	}
+
+	@Override
+	public long deleteMany(Bson where) {
+		return collection.deleteMany(filter(where)).getDeletedCount();
+	}
+
+	@Override
+	public void createIndex(Bson keys) {
+		collection.createIndex(keys);
+	}
+
+	private static Bson filter(Bson where) {
+		return where != null ? where : ALL;
+	}
+
+}
@@ -0,0 +1,36 @@
+package org.repositoryminer.persistence.storage;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Stores the collections in a MongoDB database.
+ */
+public class MongoStorage implements IStorage {
+
+	private MongoClient client;
+	private MongoDatabase database;
+
+	/**
+	 * @param uri
+	 *            the database URI.
+	 * @param database
+	 *            the database name.
+	 */
+	public MongoStorage(String uri, String database) {
+		client = new MongoClient(new MongoClientURI(uri));
+		this.database = client.getDatabase(database);
+	}
+
+	@Override
+	public IDocumentCollection getCollection(String name) {
+		return new MongoDocumentCollection(database.getCollection(name));
+	}
+
+	@Override
+	public void close() {
+		client.close();
+	}
+
+}
@@ -0,0 +1,311 @@
+package org.repositoryminer.persistence.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.IOUtils;
+import org.bson.BSONException;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * The files of an {@link EmbeddedCollection}: append-only segments of records
+ * that put or delete a document, replayed in order when the collection is
+ * opened to find the position of the last record of each document. The
+ * documents are read from their positions when queried. A segment is closed
+ * when it reaches {@link #SEGMENT_SIZE} and the log is compacted, when opened,
+ * if most of its records are outdated.
+ * <p>
+ * A record is the operation, 'P' or 'D', the length of the document and the
+ * BSON document, which only has the "_id" in a delete. A record cut or
+ * corrupted by a crash ends the segment and is cut off the file, so the new
+ * records are appended after the last good one.
+ * <p>
+ * A position is the segment number in the high bits and the offset of the
+ * record in the segment in the low {@link #OFFSET_BITS} bits.
+ */
+class SegmentLog {
+
+	private static final long SEGMENT_SIZE = 64 * 1024 * 1024;
+	private static final int MIN_COMPACTED_RECORDS = 1000;
+
+	private static final int OFFSET_BITS = 40;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+	private static final int HEADER_SIZE = 5;
+
+	private static final byte PUT = 'P';
+	private static final byte DELETE = 'D';
+
+	private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+	private File directory;
+	private int segment = -1;
+	private long segmentLength;
+	private FileOutputStream file;
+	private DataOutputStream output;
+	private Map<Integer, RandomAccessFile> readers = new HashMap<Integer, RandomAccessFile>();
+
+	public SegmentLog(File directory) {
+		this.directory = directory;
+		directory.mkdirs();
+	}
+
+	/**
+	 * Replays the segments and opens the last one for writing.
+	 *
+	 * @param positions
+	 *            the map that receives the positions of the documents, by key.
+	 */
+	public void open(Map<BsonValue, Long> positions) {
+		int records = 0;
+		for (File file : listSegments()) {
+			segment = Math.max(segment, parseSegment(file));
+			records += replay(file, positions);
+		}
+
+		if (records >= MIN_COMPACTED_RECORDS && records > 2 * positions.size())
+			compact(positions);
+		else
+			openSegment(Math.max(segment, 0));
+	}
+
+	/**
+	 * @return the position of the document.
+	 */
+	public long put(BsonDocument document) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		CODEC.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+		return write(PUT, buffer.toByteArray());
+	}
+
+	public void delete(BsonValue id) {
+		BasicOutputBuffer buffer = new BasicOutputBuffer();
+		CODEC.encode(new BsonBinaryWriter(buffer), new BsonDocument("_id", id), EncoderContext.builder().build());
+		write(DELETE, buffer.toByteArray());
+	}
+
+	/**
+	 * Reads the document put at a position.
+	 */
+	public BsonDocument read(long position) {
+		return decode(readBytes(position));
+	}
+
+	public void flush() {
+		try {
+			output.flush();
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		}
+	}
+
+	public void close() {
+		IOUtils.closeQuietly(output);
+		for (RandomAccessFile reader : readers.values())
+			IOUtils.closeQuietly(reader);
+		readers.clear();
+	}
+
+	private long write(byte operation, byte[] bytes) {
+		if (segmentLength >= SEGMENT_SIZE) {
+			sync();
+			IOUtils.closeQuietly(output);
+			openSegment(segment + 1);
+		}
+
+		long position = ((long) segment << OFFSET_BITS) | segmentLength;
+		try {
+			output.writeByte(operation);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+			segmentLength += HEADER_SIZE + bytes.length;
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		}
+		return position;
+	}
+
+	/*
+	 * The records of the open segment may still be buffered, so they are
+	 * written before one of them is read.
+	 */
+	private byte[] readBytes(long position) {
+		int number = (int) (position >>> OFFSET_BITS);
+		if (number == segment)
+			flush();
+
+		try {
+			RandomAccessFile reader = readers.get(number);
+			if (reader == null) {
+				reader = new RandomAccessFile(getSegment(number), "r");
+				readers.put(number, reader);
+			}
+
+			byte[] header = new byte[HEADER_SIZE];
+			reader.seek(position & OFFSET_MASK);
+			reader.readFully(header);
+			byte[] bytes = new byte[ByteBuffer.wrap(header, 1, 4).getInt()];
+			reader.readFully(bytes);
+			return bytes;
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		}
+	}
+
+	/*
+	 * The documents are replaced by their keys, so the integral ids of every
+	 * type are the same document. The length of a record is checked against
+	 * the rest of the file before it is read, so a corrupted length ends the
+	 * segment too.
+	 */
+	private int replay(File file, Map<BsonValue, Long> positions) {
+		int number = parseSegment(file);
+		int records = 0;
+		long fileLength = file.length();
+		long validLength = 0;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			while (validLength < fileLength) {
+				byte operation = input.readByte();
+				int length = input.readInt();
+				if ((operation != PUT && operation != DELETE) || length < 5
+						|| length > fileLength - validLength - HEADER_SIZE)
+					break;
+
+				byte[] bytes = new byte[length];
+				input.readFully(bytes);
+				BsonDocument document;
+				try {
+					document = decode(bytes);
+				} catch (BSONException e) {
+					break;
+				}
+
+				BsonValue key = DocumentMatcher.toIndexKey(document.get("_id"));
+				if (operation == PUT)
+					positions.put(key, ((long) number << OFFSET_BITS) | validLength);
+				else
+					positions.remove(key);
+				validLength += HEADER_SIZE + length;
+				records++;
+			}
+		} catch (EOFException e) {
+			// the last record was not completely written
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+
+		if (validLength < fileLength)
+			truncate(file, validLength);
+		return records;
+	}
+
+	private static void truncate(File file, long length) {
+		RandomAccessFile output = null;
+		try {
+			output = new RandomAccessFile(file, "rw");
+			output.setLength(length);
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+	}
+
+	/*
+	 * The live records are copied, without being decoded, to new segments and
+	 * synced before the old segments are deleted, so replaying both after a
+	 * crash gives the same documents.
+	 */
+	private void compact(Map<BsonValue, Long> positions) {
+		File[] oldSegments = listSegments();
+		openSegment(segment + 1);
+		for (Entry<BsonValue, Long> position : positions.entrySet())
+			position.setValue(write(PUT, readBytes(position.getValue())));
+		sync();
+
+		for (RandomAccessFile reader : readers.values())
+			IOUtils.closeQuietly(reader);
+		readers.clear();
+		for (File oldSegment : oldSegments)
+			oldSegment.delete();
+	}
+
+	/*
+	 * A full segment is synced before the next one is opened, so the records
+	 * of a later segment are never on the disk without those of the former.
+	 */
+	private void sync() {
+		try {
+			output.flush();
+			file.getFD().sync();
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		}
+	}
+
+	private void openSegment(int number) {
+		segment = number;
+		File segmentFile = getSegment(number);
+		segmentLength = segmentFile.length();
+		try {
+			file = new FileOutputStream(segmentFile, true);
+			output = new DataOutputStream(new BufferedOutputStream(file));
+		} catch (IOException e) {
+			throw new RepositoryMinerException(ErrorMessage.STORAGE_IO_ERROR.toString(), e);
+		}
+	}
+
+	private File getSegment(int number) {
+		return new File(directory, String.format("segment-%06d.log", number));
+	}
+
+	private File[] listSegments() {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith("segment-") && name.endsWith(".log");
+			}
+		});
+
+		if (files == null)
+			return new File[0];
+		Arrays.sort(files);
+		return files;
+	}
+
+	private static int parseSegment(File file) {
+		String name = file.getName();
+		return Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+	}
+
+	private static BsonDocument decode(byte[] bytes) {
+		return CODEC.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DecoderContext.builder().build());
+	}
+
+}
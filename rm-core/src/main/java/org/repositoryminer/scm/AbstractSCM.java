@@ -0,0 +1,158 @@
+package org.repositoryminer.scm;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.repositoryminer.domain.Commit;
+import org.repositoryminer.domain.Reference;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * Base class for the SCMs that only implement the basic operations of
+ * {@link ISCM}: the references, the commits, the commits of a reference, the
+ * checkout and the close. The other operations are built on top of them, so
+ * they hold the whole history in memory, and the files can not be read
+ * without a checkout.
+ */
+public abstract class AbstractSCM implements ISCM {
+
+	@Override
+	public Iterator<Commit> getCommitsIterator() {
+		return getCommits().iterator();
+	}
+
+	@Override
+	public Iterator<Commit> getCommitsIterator(Collection<String> excludedCommits) {
+		List<Commit> commits = getCommits();
+		Set<String> excluded = getAncestors(commits, excludedCommits);
+
+		List<Commit> newCommits = new ArrayList<Commit>();
+		for (Commit commit : commits)
+			if (!excluded.contains(commit.getId()))
+				newCommits.add(commit);
+		return newCommits.iterator();
+	}
+
+	@Override
+	public List<String> getCommitsNames(Reference reference, String since) {
+		List<String> names = getCommitsNames(reference);
+		if (!names.contains(since))
+			return null;
+
+		Set<String> excluded = getAncestors(getCommits(), Collections.singleton(since));
+		List<String> newNames = new ArrayList<String>();
+		for (String name : names)
+			if (!excluded.contains(name))
+				newNames.add(name);
+		return newNames;
+	}
+
+	/*
+	 * The commits are sorted children first and each one is tested against
+	 * the commits of every reference.
+	 */
+	@Override
+	public ReachabilityIndex getReachabilityIndex() {
+		List<Reference> references = getReferences();
+		List<Set<String>> members = new ArrayList<Set<String>>(references.size());
+		for (Reference reference : references)
+			members.add(new HashSet<String>(getCommitsNames(reference)));
+
+		ReachabilityIndex index = new ReachabilityIndex(references);
+		for (String commit : sortTopologically(getCommits())) {
+			BitSet refs = new BitSet();
+			for (int i = 0; i < members.size(); i++)
+				if (members.get(i).contains(commit))
+					refs.set(i);
+
+			if (!refs.isEmpty())
+				index.add(commit, refs);
+		}
+		return index;
+	}
+
+	@Override
+	public byte[] getData(String point, String filePath) {
+		throw new RepositoryMinerException(ErrorMessage.SCM_OPERATION_NOT_SUPPORTED.toString() + " getData");
+	}
+
+	@Override
+	public List<String> getFiles(String point) {
+		throw new RepositoryMinerException(ErrorMessage.SCM_OPERATION_NOT_SUPPORTED.toString() + " getFiles");
+	}
+
+	/*
+	 * The given commits and all of their ancestors among the commits.
+	 */
+	private static Set<String> getAncestors(List<Commit> commits, Collection<String> starts) {
+		Map<String, Commit> byId = new HashMap<String, Commit>();
+		for (Commit commit : commits)
+			byId.put(commit.getId(), commit);
+
+		Set<String> ancestors = new HashSet<String>();
+		Deque<String> stack = new ArrayDeque<String>(starts);
+		while (!stack.isEmpty()) {
+			String id = stack.pop();
+			if (!ancestors.add(id))
+				continue;
+
+			Commit commit = byId.get(id);
+			if (commit != null && commit.getParents() != null)
+				stack.addAll(commit.getParents());
+		}
+		return ancestors;
+	}
+
+	/*
+	 * A commit comes out only after all of its children.
+	 */
+	private static List<String> sortTopologically(List<Commit> commits) {
+		Map<String, Commit> byId = new HashMap<String, Commit>();
+		Map<String, Integer> children = new HashMap<String, Integer>();
+		for (Commit commit : commits) {
+			byId.put(commit.getId(), commit);
+			if (commit.getParents() == null)
+				continue;
+
+			for (String parent : commit.getParents()) {
+				Integer count = children.get(parent);
+				children.put(parent, count == null ? 1 : count + 1);
+			}
+		}
+
+		Deque<String> ready = new ArrayDeque<String>();
+		for (Commit commit : commits)
+			if (!children.containsKey(commit.getId()))
+				ready.add(commit.getId());
+
+		List<String> sorted = new ArrayList<String>(commits.size());
+		while (!ready.isEmpty()) {
+			String id = ready.poll();
+			sorted.add(id);
+
+			Commit commit = byId.get(id);
+			if (commit == null || commit.getParents() == null)
+				continue;
+
+			for (String parent : commit.getParents()) {
+				int count = children.get(parent) - 1;
+				children.put(parent, count);
+				if (count == 0 && byId.containsKey(parent))
+					ready.add(parent);
+			}
+		}
+		return sorted;
+	}
+
+}
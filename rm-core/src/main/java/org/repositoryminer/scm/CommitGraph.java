@@ -0,0 +1,244 @@
+package org.repositoryminer.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Reads a git commit-graph file (objects/info/commit-graph), which stores for
+ * every commit its parents, commit time and generation number. The file is
+ * memory mapped, so no commit object has to be inflated to walk the history.
+ * <p>
+ * Commits are addressed by their position in the file, which follows the
+ * order of the object ids. Only single-file graphs of SHA-1 repositories are
+ * supported.
+ */
+class CommitGraph {
+
+	public static final int NO_PARENT = -1;
+
+	private static final int SIGNATURE = 0x43475048; // CGPH
+	private static final int CHUNK_OID_FANOUT = 0x4f494446; // OIDF
+	private static final int CHUNK_OID_LOOKUP = 0x4f49444c; // OIDL
+	private static final int CHUNK_COMMIT_DATA = 0x43444154; // CDAT
+	private static final int CHUNK_EXTRA_EDGES = 0x45444745; // EDGE
+
+	// git follows the alternates of alternates up to this depth too
+	private static final int MAX_ALTERNATES_DEPTH = 5;
+
+	private static final int HASH_LENGTH = 20;
+	private static final int COMMIT_DATA_LENGTH = HASH_LENGTH + 16;
+	private static final int GRAPH_PARENT_NONE = 0x70000000;
+	private static final int GRAPH_EXTRA_EDGES = 0x80000000;
+	private static final int GRAPH_LAST_EDGE = 0x80000000;
+
+	private ByteBuffer buffer;
+	private int size;
+	private int fanoutOffset;
+	private int lookupOffset;
+	private int dataOffset;
+	private int edgesOffset = -1;
+
+	private CommitGraph(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Maps the commit-graph of a repository. A repository that borrows the
+	 * objects of others (objects/info/alternates), as the workspaces do, uses
+	 * the commit-graph of the first of them that has one when it has none of
+	 * its own. The commits of the repository that are not in that graph are
+	 * parsed by the {@link CommitGraphWalker}.
+	 *
+	 * @param gitDir
+	 *            the repository .git directory.
+	 * @return the commit-graph or null if the repository has none or it can not
+	 *         be read.
+	 * @throws IOException
+	 */
+	public static CommitGraph open(File gitDir) throws IOException {
+		return openObjects(new File(gitDir, "objects"), 0);
+	}
+
+	private static CommitGraph openObjects(File objects, int depth) throws IOException {
+		File file = new File(objects, "info/commit-graph");
+		if (file.isFile())
+			return map(file);
+
+		File alternates = new File(objects, "info/alternates");
+		if (depth == MAX_ALTERNATES_DEPTH || !alternates.isFile())
+			return null;
+
+		for (String line : FileUtils.readLines(alternates, "UTF-8")) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			File alternate = new File(line);
+			if (!alternate.isAbsolute())
+				alternate = new File(objects, line);
+
+			CommitGraph graph = openObjects(alternate, depth + 1);
+			if (graph != null)
+				return graph;
+		}
+
+		return null;
+	}
+
+	private static CommitGraph map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			CommitGraph graph = new CommitGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			return graph.readHeader() ? graph : null;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private boolean readHeader() {
+		if (buffer.limit() < 8 || buffer.getInt(0) != SIGNATURE || buffer.get(4) != 1 || buffer.get(5) != 1)
+			return false;
+
+		int chunks = buffer.get(6) & 0xff;
+		for (int i = 0; i < chunks; i++) {
+			int entry = 8 + i * 12;
+			int id = buffer.getInt(entry);
+			int offset = (int) buffer.getLong(entry + 4);
+
+			if (id == CHUNK_OID_FANOUT)
+				fanoutOffset = offset;
+			else if (id == CHUNK_OID_LOOKUP)
+				lookupOffset = offset;
+			else if (id == CHUNK_COMMIT_DATA)
+				dataOffset = offset;
+			else if (id == CHUNK_EXTRA_EDGES)
+				edgesOffset = offset;
+		}
+
+		if (fanoutOffset == 0 || lookupOffset == 0 || dataOffset == 0)
+			return false;
+
+		size = buffer.getInt(fanoutOffset + 255 * 4);
+		return true;
+	}
+
+	/**
+	 * @return the number of commits in the graph.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param id
+	 *            a commit id.
+	 * @return the position of the commit or -1 if it is not in the graph.
+	 */
+	public int find(AnyObjectId id) {
+		int first = id.getFirstByte();
+		int low = first == 0 ? 0 : buffer.getInt(fanoutOffset + (first - 1) * 4);
+		int high = buffer.getInt(fanoutOffset + first * 4);
+
+		byte[] raw = new byte[HASH_LENGTH];
+		id.copyRawTo(raw, 0);
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(raw, lookupOffset + mid * HASH_LENGTH);
+			if (cmp == 0)
+				return mid;
+			else if (cmp < 0)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * @param position
+	 *            the commit position.
+	 * @return the commit id.
+	 */
+	public ObjectId getObjectId(int position) {
+		byte[] raw = new byte[HASH_LENGTH];
+		int offset = lookupOffset + position * HASH_LENGTH;
+		for (int i = 0; i < HASH_LENGTH; i++)
+			raw[i] = buffer.get(offset + i);
+
+		return ObjectId.fromRaw(raw);
+	}
+
+	/**
+	 * @param position
+	 *            the commit position.
+	 * @return the positions of the parents of the commit.
+	 */
+	public int[] getParents(int position) {
+		int offset = dataOffset + position * COMMIT_DATA_LENGTH + HASH_LENGTH;
+		int first = buffer.getInt(offset);
+		int second = buffer.getInt(offset + 4);
+
+		if (first == GRAPH_PARENT_NONE)
+			return new int[0];
+		if (second == GRAPH_PARENT_NONE)
+			return new int[] { first };
+		if ((second & GRAPH_EXTRA_EDGES) == 0)
+			return new int[] { first, second };
+
+		// octopus merge, the other parents are listed in the extra edges chunk
+		int edge = edgesOffset + (second & ~GRAPH_EXTRA_EDGES) * 4;
+		int count = 1;
+		while ((buffer.getInt(edge + (count - 1) * 4) & GRAPH_LAST_EDGE) == 0)
+			count++;
+
+		int[] parents = new int[count + 1];
+		parents[0] = first;
+		for (int i = 0; i < count; i++)
+			parents[i + 1] = buffer.getInt(edge + i * 4) & ~GRAPH_LAST_EDGE;
+
+		return parents;
+	}
+
+	/**
+	 * @param position
+	 *            the commit position.
+	 * @return the commit time, in seconds.
+	 */
+	public long getCommitTime(int position) {
+		int offset = dataOffset + position * COMMIT_DATA_LENGTH + HASH_LENGTH + 8;
+		long high = buffer.getInt(offset) & 0x3L;
+		return (high << 32) | (buffer.getInt(offset + 4) & 0xffffffffL);
+	}
+
+	/**
+	 * @param position
+	 *            the commit position.
+	 * @return the generation number, 1 for root commits and 1 plus the greatest
+	 *         generation of the parents otherwise.
+	 */
+	public int getGeneration(int position) {
+		int offset = dataOffset + position * COMMIT_DATA_LENGTH + HASH_LENGTH + 8;
+		return buffer.getInt(offset) >>> 2;
+	}
+
+	private int compare(byte[] raw, int offset) {
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			int a = raw[i] & 0xff;
+			int b = buffer.get(offset + i) & 0xff;
+			if (a != b)
+				return a < b ? -1 : 1;
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,239 @@
+package org.repositoryminer.scm;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Walks the history using a {@link CommitGraph}. The commits created after the
+ * graph was written are parsed from the object database and appended to the
+ * graph positions, so the walker always sees the whole history.
+ * <p>
+ * The walker is not thread safe and keeps the parsed commits until it is
+ * closed.
+ */
+class CommitGraphWalker {
+
+	private static final int GENERATION_INFINITY = Integer.MAX_VALUE;
+
+	private CommitGraph graph;
+	private RevWalk revWalk;
+
+	private List<ObjectId> extraIds = new ArrayList<ObjectId>();
+	private List<ObjectId[]> extraParents = new ArrayList<ObjectId[]>();
+	private List<Long> extraTimes = new ArrayList<Long>();
+	private Map<ObjectId, Integer> extraPositions = new HashMap<ObjectId, Integer>();
+
+	private final Comparator<Integer> newestFirst = new Comparator<Integer>() {
+		@Override
+		public int compare(Integer a, Integer b) {
+			int cmp = Long.compare(getCommitTime(b), getCommitTime(a));
+			return cmp != 0 ? cmp : Integer.compare(a, b);
+		}
+	};
+
+	public CommitGraphWalker(CommitGraph graph, Repository repository) {
+		this.graph = graph;
+		this.revWalk = new RevWalk(repository);
+		revWalk.setRetainBody(false);
+	}
+
+	/**
+	 * @param id
+	 *            a commit id.
+	 * @return the node of the commit.
+	 * @throws IOException
+	 */
+	public int resolve(AnyObjectId id) throws IOException {
+		int position = graph.find(id);
+		if (position >= 0)
+			return position;
+
+		ObjectId objectId = id.copy();
+		Integer extra = extraPositions.get(objectId);
+		if (extra != null)
+			return extra;
+
+		RevCommit revCommit = revWalk.parseCommit(objectId);
+		ObjectId[] parents = new ObjectId[revCommit.getParentCount()];
+		for (int i = 0; i < parents.length; i++)
+			parents[i] = revCommit.getParent(i).copy();
+
+		position = graph.size() + extraIds.size();
+		extraIds.add(objectId);
+		extraParents.add(parents);
+		extraTimes.add((long) revCommit.getCommitTime());
+		extraPositions.put(objectId, position);
+		return position;
+	}
+
+	public ObjectId getObjectId(int node) {
+		return node < graph.size() ? graph.getObjectId(node) : extraIds.get(node - graph.size());
+	}
+
+	public int[] getParents(int node) throws IOException {
+		if (node < graph.size())
+			return graph.getParents(node);
+
+		ObjectId[] ids = extraParents.get(node - graph.size());
+		int[] parents = new int[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			parents[i] = resolve(ids[i]);
+
+		return parents;
+	}
+
+	public long getCommitTime(int node) {
+		return node < graph.size() ? graph.getCommitTime(node) : extraTimes.get(node - graph.size());
+	}
+
+	/*
+	 * Commits outside the graph are newer than it, none of them is an ancestor
+	 * of a graph commit, so they are never pruned. A zero generation was
+	 * written by git versions that did not compute them.
+	 */
+	private int getGeneration(int node) {
+		if (node >= graph.size())
+			return GENERATION_INFINITY;
+
+		int generation = graph.getGeneration(node);
+		return generation == 0 ? GENERATION_INFINITY : generation;
+	}
+
+	/**
+	 * Checks the ancestry of two commits. Commits with a generation lower than
+	 * the ancestor candidate are not walked, and if the candidate is outside
+	 * the graph no graph commit is walked.
+	 *
+	 * @return true if ancestor is reachable from descendant.
+	 * @throws IOException
+	 */
+	public boolean isAncestor(int ancestor, int descendant) throws IOException {
+		int minGeneration = ancestor < graph.size() ? graph.getGeneration(ancestor) : GENERATION_INFINITY;
+
+		BitSet seen = new BitSet();
+		Deque<Integer> stack = new ArrayDeque<Integer>();
+		stack.push(descendant);
+		seen.set(descendant);
+
+		while (!stack.isEmpty()) {
+			int node = stack.pop();
+			if (node == ancestor)
+				return true;
+
+			for (int parent : getParents(node)) {
+				if (!seen.get(parent) && getGeneration(parent) >= minGeneration) {
+					seen.set(parent);
+					stack.push(parent);
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Lists the commits reachable from a commit, newest first, as git log does.
+	 *
+	 * @throws IOException
+	 */
+	public List<ObjectId> walkByDate(int start) throws IOException {
+		List<ObjectId> result = new ArrayList<ObjectId>();
+		BitSet seen = new BitSet();
+		PriorityQueue<Integer> queue = new PriorityQueue<Integer>(64, newestFirst);
+		queue.add(start);
+		seen.set(start);
+
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			result.add(getObjectId(node));
+
+			for (int parent : getParents(node)) {
+				if (!seen.get(parent)) {
+					seen.set(parent);
+					queue.add(parent);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sorts the commits reachable from the given ones so that every commit
+	 * comes before its parents, preferring the newest commit when several are
+	 * ready (Kahn's algorithm ordered by commit time).
+	 *
+	 * @throws IOException
+	 */
+	public List<Integer> sortTopologically(List<Integer> starts) throws IOException {
+		List<Integer> nodes = new ArrayList<Integer>();
+		List<int[]> parentsOf = new ArrayList<int[]>();
+		Deque<Integer> stack = new ArrayDeque<Integer>();
+		BitSet seen = new BitSet();
+		for (int start : starts) {
+			if (!seen.get(start)) {
+				seen.set(start);
+				stack.push(start);
+			}
+		}
+
+		while (!stack.isEmpty()) {
+			int node = stack.pop();
+			int[] parents = getParents(node);
+			nodes.add(node);
+			parentsOf.add(parents);
+
+			for (int parent : parents) {
+				if (!seen.get(parent)) {
+					seen.set(parent);
+					stack.push(parent);
+				}
+			}
+		}
+
+		int total = graph.size() + extraIds.size();
+		int[] indexOf = new int[total];
+		int[] pendingChildren = new int[total];
+		for (int i = 0; i < nodes.size(); i++) {
+			indexOf[nodes.get(i)] = i;
+			for (int parent : parentsOf.get(i))
+				pendingChildren[parent]++;
+		}
+
+		PriorityQueue<Integer> ready = new PriorityQueue<Integer>(64, newestFirst);
+		for (int node : nodes)
+			if (pendingChildren[node] == 0)
+				ready.add(node);
+
+		List<Integer> result = new ArrayList<Integer>(nodes.size());
+		while (!ready.isEmpty()) {
+			int node = ready.poll();
+			result.add(node);
+
+			for (int parent : parentsOf.get(indexOf[node]))
+				if (--pendingChildren[parent] == 0)
+					ready.add(parent);
+		}
+
+		return result;
+	}
+
+	public void close() {
+		revWalk.close();
+	}
+
+}
@@ -0,0 +1,157 @@
+package org.repositoryminer.scm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.repositoryminer.domain.Change;
+import org.repositoryminer.domain.ChangeType;
+import org.repositoryminer.domain.Commit;
+
+/**
+ * Converts git commits to {@link org.repositoryminer.domain.Commit},
+ * including the changes and the code churn.
+ * <p>
+ * An extractor owns its own object readers, so it must be used by one thread
+ * at a time. Parallel extraction uses one extractor per worker.
+ */
+class GitCommitExtractor {
+
+	private RevWalk revWalk;
+	private DiffFormatter diffFormatter;
+
+	public GitCommitExtractor(Repository repository, SupportedAlgorithm diffAlgorithm) {
+		revWalk = new RevWalk(repository);
+
+		diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+		diffFormatter.setRepository(repository);
+		diffFormatter.setContext(0);
+		diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+		diffFormatter.setDetectRenames(true);
+		setDiffAlgorithm(diffAlgorithm);
+	}
+
+	public void setDiffAlgorithm(SupportedAlgorithm diffAlgorithm) {
+		if (diffAlgorithm != null)
+			diffFormatter.setDiffAlgorithm(DiffAlgorithm.getAlgorithm(diffAlgorithm));
+	}
+
+	/**
+	 * Parses and converts a commit. The parsed objects are discarded afterwards,
+	 * so the memory used by the extractor does not grow with the history.
+	 *
+	 * @param id
+	 *            the commit id.
+	 * @return the converted commit.
+	 * @throws IOException
+	 */
+	public Commit extract(AnyObjectId id) throws IOException {
+		try {
+			return extract(revWalk.parseCommit(id));
+		} finally {
+			revWalk.dispose();
+		}
+	}
+
+	/**
+	 * Converts a commit already parsed, with its body loaded.
+	 *
+	 * @param revCommit
+	 *            the commit.
+	 * @return the converted commit.
+	 * @throws IOException
+	 */
+	public Commit extract(RevCommit revCommit) throws IOException {
+		PersonIdent author = revCommit.getAuthorIdent();
+		PersonIdent committer = revCommit.getCommitterIdent();
+
+		org.repositoryminer.domain.PersonIdent myAuthor = new org.repositoryminer.domain.PersonIdent(author.getName(),
+				author.getEmailAddress());
+		org.repositoryminer.domain.PersonIdent myCommitter = new org.repositoryminer.domain.PersonIdent(
+				committer.getName(), committer.getEmailAddress());
+
+		List<String> parents = new ArrayList<String>();
+		for (RevCommit parent : revCommit.getParents())
+			parents.add(parent.getName());
+
+		List<Change> changes = getChangesForCommitedFiles(revCommit);
+
+		return new Commit(revCommit.getName(), revCommit.getFullMessage(), author.getWhen(), committer.getWhen(), null,
+				parents, (parents.size() > 1), myAuthor, myCommitter, changes);
+	}
+
+	public void close() {
+		diffFormatter.close();
+		revWalk.close();
+	}
+
+	private List<Change> getChangesForCommitedFiles(RevCommit commit) throws IOException {
+		if (commit.getParentCount() > 1)
+			return new ArrayList<Change>();
+
+		RevCommit parentCommit = commit.getParentCount() > 0 ? commit.getParent(0) : null;
+
+		List<DiffEntry> diffEntries = diffFormatter.scan(parentCommit, commit);
+		List<Change> changes = new ArrayList<Change>(diffEntries.size());
+
+		for (DiffEntry entry : diffEntries) {
+			Change change = processChange(entry);
+			analyzeCodeChurn(change, entry);
+			changes.add(change);
+		}
+
+		return changes;
+	}
+
+	private Change processChange(DiffEntry entry) {
+		switch (entry.getChangeType()) {
+		case ADD:
+			return new Change(entry.getNewPath(), null, 0, 0, ChangeType.ADD);
+
+		case COPY:
+			return new Change(entry.getNewPath(), entry.getOldPath(), 0, 0, ChangeType.COPY);
+
+		case DELETE:
+			return new Change(entry.getOldPath(), null, 0, 0, ChangeType.DELETE);
+
+		case MODIFY:
+			return new Change(entry.getNewPath(), null, 0, 0, ChangeType.MODIFY);
+
+		case RENAME:
+			return new Change(entry.getNewPath(), entry.getOldPath(), 0, 0, ChangeType.MOVE);
+
+		default:
+			return null;
+		}
+	}
+
+	/*
+	 * The churn is taken from the edit list computed for the entry, so the
+	 * diff is never rendered as text. Binary files produce no edits.
+	 */
+	private void analyzeCodeChurn(Change change, DiffEntry entry) throws IOException {
+		int added = 0;
+		int removed = 0;
+
+		for (Edit edit : diffFormatter.toFileHeader(entry).toEditList()) {
+			added += edit.getLengthB();
+			removed += edit.getLengthA();
+		}
+
+		change.setLinesAdded(added);
+		change.setLinesRemoved(removed);
+	}
+
+}
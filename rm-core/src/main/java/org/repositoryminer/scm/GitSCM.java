@@ -1,33 +1,47 @@
 package org.repositoryminer.scm;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.PathFilter;
-import org.eclipse.jgit.util.io.DisabledOutputStream;
-import org.repositoryminer.domain.Change;
-import org.repositoryminer.domain.ChangeType;
 import org.repositoryminer.domain.Commit;
 import org.repositoryminer.domain.Reference;
 import org.repositoryminer.domain.ReferenceType;
@@ -45,8 +59,13 @@ public class GitSCM implements ISCM {
 	private Git git;
 	private RevWalk revWalk;
 	private TreeWalk treeWalk;
-	private DiffFormatter diffFormatter;
+	private GitCommitExtractor extractor;
+	private SupportedAlgorithm diffAlgorithm;
+	private int extractionThreads = 1;
+	private boolean commitGraphEnabled = true;
+	private CommitGraph commitGraph;
 	private String repoPath;
+	private Set<ParallelCommitIterator> parallelIterators = new HashSet<ParallelCommitIterator>();
 
 	@Override
 	public SCMType getSCM() {
@@ -72,13 +91,53 @@ public class GitSCM implements ISCM {
 		revWalk = new RevWalk(repository);
 		treeWalk = new TreeWalk(repository);
 		repoPath = path;
+		extractor = new GitCommitExtractor(repository, diffAlgorithm);
 
-		diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
-		diffFormatter.setRepository(repository);
-		diffFormatter.setContext(0);
-		diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
-		diffFormatter.setDetectRenames(true);
-		diffFormatter.setBinaryFileThreshold(2048);
+		try {
+			commitGraph = CommitGraph.open(repository.getDirectory());
+		} catch (IOException e) {
+			LOGGER.warn("The commit-graph could not be read, the commits will be parsed.", e);
+		}
+	}
+
+	/**
+	 * Selects the algorithm used to compute the code churn. If it is not set
+	 * the algorithm configured in the repository (diff.algorithm) is used.
+	 * 
+	 * @param diffAlgorithm
+	 *            the diff algorithm (e.g. MYERS or HISTOGRAM).
+	 */
+	public void setDiffAlgorithm(SupportedAlgorithm diffAlgorithm) {
+		this.diffAlgorithm = diffAlgorithm;
+		if (extractor != null) {
+			extractor.setDiffAlgorithm(diffAlgorithm);
+		}
+	}
+
+	/**
+	 * Sets how many threads extract the commits. With more than one thread the
+	 * commits are still enumerated by a single walk, but parsing, diffing and
+	 * churn computation are spread over a pool of workers, each one with its
+	 * own object readers. The commits are delivered in the walk order.
+	 * 
+	 * @param extractionThreads
+	 *            the number of worker threads, 1 (the default) extracts the
+	 *            commits in the caller thread.
+	 */
+	public void setExtractionThreads(int extractionThreads) {
+		this.extractionThreads = Math.max(1, extractionThreads);
+	}
+
+	/**
+	 * Enables the use of the repository commit-graph file
+	 * (objects/info/commit-graph), when there is one, to walk the history
+	 * without parsing commit objects. It is enabled by default.
+	 * 
+	 * @param commitGraphEnabled
+	 *            false to always parse the commits.
+	 */
+	public void setCommitGraphEnabled(boolean commitGraphEnabled) {
+		this.commitGraphEnabled = commitGraphEnabled;
 	}
 
 	@Override
@@ -98,6 +157,7 @@ public class GitSCM implements ISCM {
 
 			int i = b.getName().lastIndexOf("/") + 1;
 			Reference r = new Reference(null, null, b.getName().substring(i), b.getName(), ReferenceType.BRANCH, null);
+			r.setTip(getTip(b));
 			refs.add(r);
 		}
 
@@ -111,6 +171,7 @@ public class GitSCM implements ISCM {
 		for (Ref t : tags) {
 			int i = t.getName().lastIndexOf("/") + 1;
 			Reference r = new Reference(null, null, t.getName().substring(i), t.getName(), ReferenceType.TAG, null);
+			r.setTip(getTip(t));
 			refs.add(r);
 		}
 
@@ -120,18 +181,57 @@ public class GitSCM implements ISCM {
 	@Override
 	public List<Commit> getCommits() {
 		List<Commit> commits = new ArrayList<Commit>();
+		Iterator<Commit> it = getCommitsIterator();
+		while (it.hasNext())
+			commits.add(it.next());
+
+		return commits;
+	}
+
+	@Override
+	public Iterator<Commit> getCommitsIterator() {
+		return getCommitsIterator(Collections.<String> emptyList());
+	}
+
+	@Override
+	public Iterator<Commit> getCommitsIterator(Collection<String> excludedCommits) {
+		RevWalk walk = new RevWalk(repository);
+		walk.setRetainBody(false);
+
 		try {
-			for (RevCommit revCommit : git.log().all().call())
-				commits.add(processCommit(revCommit));
-		} catch (GitAPIException | IOException e) {
+			for (String excluded : excludedCommits) {
+				try {
+					walk.markUninteresting(walk.parseCommit(ObjectId.fromString(excluded)));
+				} catch (MissingObjectException e) {
+					// the commit does not exist anymore (e.g. it was garbage collected)
+				}
+			}
+
+			// the same roots as the references, whose tips are the excluded
+			// commits of the next update
+			for (Reference reference : getReferences()) {
+				try {
+					walk.markStart(walk.parseCommit(ObjectId.fromString(reference.getTip())));
+				} catch (MissingObjectException | IncorrectObjectTypeException e) {
+					// the reference does not point to a commit
+				}
+			}
+		} catch (IOException e) {
+			walk.close();
 			errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(), e);
 		}
 
-		return commits;
+		if (extractionThreads > 1)
+			return new ParallelCommitIterator(walk, extractionThreads);
+
+		return new CommitIterator(walk);
 	}
 
 	@Override
 	public List<String> getCommitsNames(Reference reference) {
+		if (isCommitGraphUsed())
+			return getCommitsNamesFromGraph(reference);
+
 		Iterable<RevCommit> revCommits;
 		if (reference.getType() == ReferenceType.BRANCH) {
 			revCommits = getCommitsFromBranch(reference.getName());
@@ -151,9 +251,205 @@ public class GitSCM implements ISCM {
 		return names;
 	}
 
+	/*
+	 * The walk emits children before parents, so the bit set of a commit is
+	 * complete when it comes out: it holds its own references plus the ones
+	 * propagated by its children. A parent shares the bit set of its child
+	 * until another child brings references the first one does not have.
+	 */
+	@Override
+	public ReachabilityIndex getReachabilityIndex() {
+		List<Reference> references = getReferences();
+		if (isCommitGraphUsed())
+			return getReachabilityIndexFromGraph(references);
+
+		ReachabilityIndex index = new ReachabilityIndex(references);
+
+		RevWalk walk = new RevWalk(repository);
+		walk.setRetainBody(false);
+		walk.sort(RevSort.TOPO);
+		walk.sort(RevSort.COMMIT_TIME_DESC, true);
+
+		Map<RevCommit, BitSet> pending = new HashMap<RevCommit, BitSet>();
+		try {
+			for (int i = 0; i < references.size(); i++) {
+				RevCommit tip;
+				try {
+					tip = walk.parseCommit(ObjectId.fromString(references.get(i).getTip()));
+				} catch (IncorrectObjectTypeException e) {
+					continue;
+				}
+
+				BitSet refs = pending.get(tip);
+				if (refs == null) {
+					refs = new BitSet();
+					pending.put(tip, refs);
+					walk.markStart(tip);
+				}
+				refs.set(i);
+			}
+
+			for (RevCommit revCommit : walk) {
+				BitSet refs = pending.remove(revCommit);
+				index.add(revCommit.getName(), refs);
+
+				for (RevCommit parent : revCommit.getParents())
+					pending.put(parent, merge(pending.get(parent), refs));
+			}
+		} catch (IOException e) {
+			errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(), e);
+		} finally {
+			walk.close();
+		}
+
+		return index;
+	}
+
+	private ReachabilityIndex getReachabilityIndexFromGraph(List<Reference> references) {
+		ReachabilityIndex index = new ReachabilityIndex(references);
+		CommitGraphWalker walker = new CommitGraphWalker(commitGraph, repository);
+
+		Map<Integer, BitSet> pending = new HashMap<Integer, BitSet>();
+		List<Integer> tips = new ArrayList<Integer>();
+		try {
+			for (int i = 0; i < references.size(); i++) {
+				int tip;
+				try {
+					tip = walker.resolve(ObjectId.fromString(references.get(i).getTip()));
+				} catch (IncorrectObjectTypeException e) {
+					continue;
+				}
+
+				BitSet refs = pending.get(tip);
+				if (refs == null) {
+					refs = new BitSet();
+					pending.put(tip, refs);
+					tips.add(tip);
+				}
+				refs.set(i);
+			}
+
+			for (int node : walker.sortTopologically(tips)) {
+				BitSet refs = pending.remove(node);
+				index.add(walker.getObjectId(node).getName(), refs);
+
+				for (int parent : walker.getParents(node))
+					pending.put(parent, merge(pending.get(parent), refs));
+			}
+		} catch (IOException e) {
+			errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(), e);
+		} finally {
+			walker.close();
+		}
+
+		return index;
+	}
+
+	private BitSet merge(BitSet current, BitSet incoming) {
+		if (current == null || current == incoming)
+			return incoming;
+
+		for (int i = incoming.nextSetBit(0); i >= 0; i = incoming.nextSetBit(i + 1)) {
+			if (!current.get(i)) {
+				BitSet merged = (BitSet) current.clone();
+				merged.or(incoming);
+				return merged;
+			}
+		}
+
+		return current;
+	}
+
+	@Override
+	public List<String> getCommitsNames(Reference reference, String since) {
+		RevWalk walk = new RevWalk(repository);
+		try {
+			Ref ref = repository.getRef(reference.getPath());
+			if (ref == null)
+				return null;
+
+			RevCommit tip = walk.parseCommit(ObjectId.fromString(getTip(ref)));
+			RevCommit base;
+			try {
+				base = walk.parseCommit(ObjectId.fromString(since));
+			} catch (MissingObjectException e) {
+				return null;
+			}
+
+			if (!isAncestor(base, tip, walk))
+				return null;
+
+			walk.reset();
+			walk.setRetainBody(false);
+			walk.markStart(tip);
+			walk.markUninteresting(base);
+
+			List<String> names = new ArrayList<String>();
+			for (RevCommit revCommit : walk)
+				names.add(revCommit.getName());
+
+			return names;
+		} catch (IOException e) {
+			errorHandler(ErrorMessage.GIT_BRANCH_COMMITS_ERROR.toString(), e);
+			return null;
+		} finally {
+			walk.close();
+		}
+	}
+
+	@Override
+	public byte[] getData(String hash, String filePath) {
+		ObjectReader reader = repository.newObjectReader();
+		RevWalk walk = new RevWalk(reader);
+		try {
+			RevCommit revCommit = walk.parseCommit(ObjectId.fromString(hash));
+			TreeWalk tw = TreeWalk.forPath(reader, filePath, revCommit.getTree());
+			if (tw == null)
+				return null;
+
+			try {
+				if ((tw.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE)
+					return null;
+
+				return reader.open(tw.getObjectId(0)).getBytes(Integer.MAX_VALUE);
+			} finally {
+				tw.close();
+			}
+		} catch (IOException e) {
+			errorHandler(ErrorMessage.GIT_RETRIEVE_DATA_ERROR.toString(), e);
+			return null;
+		} finally {
+			walk.close();
+			reader.close();
+		}
+	}
+
+	@Override
+	public List<String> getFiles(String hash) {
+		List<String> files = new ArrayList<String>();
+		ObjectReader reader = repository.newObjectReader();
+		RevWalk walk = new RevWalk(reader);
+		TreeWalk tw = new TreeWalk(reader);
+		try {
+			RevCommit revCommit = walk.parseCommit(ObjectId.fromString(hash));
+			tw.addTree(revCommit.getTree());
+			tw.setRecursive(true);
+			while (tw.next())
+				if ((tw.getRawMode(0) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE)
+					files.add(tw.getPathString());
+		} catch (IOException e) {
+			errorHandler(ErrorMessage.GIT_LIST_FILES_ERROR.toString(), e);
+		} finally {
+			tw.close();
+			walk.close();
+			reader.close();
+		}
+		return files;
+	}
+
 	@Override
 	public void checkout(String hash) {
-		File lockFile = new File(repoPath, "git/index.lock");
+		File lockFile = new File(repoPath, ".git/index.lock");
 		if (lockFile.exists())
 			lockFile.delete();
 
@@ -164,9 +460,16 @@ public class GitSCM implements ISCM {
 		}
 	}
 
+	/**
+	 * Terminates the analysis and free resources, including the workers of
+	 * the commit iterators that were not consumed to the end.
+	 */
 	@Override
 	public void close() {
-		diffFormatter.close();
+		for (ParallelCommitIterator iterator : new ArrayList<ParallelCommitIterator>(parallelIterators))
+			iterator.dispose();
+
+		extractor.close();
 		treeWalk.close();
 		revWalk.close();
 		git.close();
@@ -179,131 +482,252 @@ public class GitSCM implements ISCM {
 		throw new RepositoryMinerException(errorMessage, e);
 	}
 
-	private Commit processCommit(RevCommit revCommit) {
-		PersonIdent author = revCommit.getAuthorIdent();
-		PersonIdent committer = revCommit.getCommitterIdent();
+	private List<String> getCommitsNamesFromGraph(Reference reference) {
+		List<String> names = new ArrayList<String>();
+		CommitGraphWalker walker = new CommitGraphWalker(commitGraph, repository);
+		try {
+			Ref ref = repository.getRef(reference.getPath());
+			if (ref == null)
+				return names;
+
+			for (ObjectId id : walker.walkByDate(walker.resolve(ObjectId.fromString(getTip(ref)))))
+				names.add(id.getName());
+		} catch (IOException e) {
+			errorHandler(ErrorMessage.GIT_BRANCH_COMMITS_ERROR.toString(), e);
+		} finally {
+			walker.close();
+		}
 
-		org.repositoryminer.domain.PersonIdent myAuthor = new org.repositoryminer.domain.PersonIdent(author.getName(),
-				author.getEmailAddress());
-		org.repositoryminer.domain.PersonIdent myCommitter = new org.repositoryminer.domain.PersonIdent(
-				committer.getName(), committer.getEmailAddress());
+		return names;
+	}
 
-		List<String> parents = new ArrayList<String>();
-		for (RevCommit parent : revCommit.getParents())
-			parents.add(parent.getName());
+	private boolean isAncestor(RevCommit ancestor, RevCommit descendant, RevWalk walk) throws IOException {
+		if (!isCommitGraphUsed())
+			return walk.isMergedInto(ancestor, descendant);
 
-		List<Change> changes = null;
+		CommitGraphWalker walker = new CommitGraphWalker(commitGraph, repository);
 		try {
-			changes = getChangesForCommitedFiles(revCommit.getName());
-		} catch (IOException e) {
-			errorHandler(ErrorMessage.GIT_RETRIEVE_CHANGES_ERROR.toString(), e);
+			return walker.isAncestor(walker.resolve(ancestor), walker.resolve(descendant));
+		} finally {
+			walker.close();
 		}
+	}
 
-		return new Commit(revCommit.getName(), revCommit.getFullMessage(), author.getWhen(), committer.getWhen(), null,
-				parents, (parents.size() > 1), myAuthor, myCommitter, changes);
+	boolean isCommitGraphUsed() {
+		return commitGraphEnabled && commitGraph != null;
 	}
 
-	private List<Change> getChangesForCommitedFiles(String hash) throws IOException {
-		RevCommit commit = revWalk.parseCommit(ObjectId.fromString(hash));
+	private String getTip(Ref ref) {
+		Ref peeledRef = repository.peel(ref);
+		if (peeledRef.getPeeledObjectId() != null)
+			return peeledRef.getPeeledObjectId().getName();
+		return ref.getObjectId().getName();
+	}
 
-		if (commit.getParentCount() > 1)
-			return new ArrayList<Change>();
+	private Iterable<RevCommit> getCommitsFromTag(final String refName) {
+		try {
+			Ref ref = repository.getRef(Constants.R_TAGS + refName);
+			if (ref == null)
+				return null;
 
-		RevCommit parentCommit = commit.getParentCount() > 0
-				? revWalk.parseCommit(ObjectId.fromString(commit.getParent(0).getName()))
-						: null;
+			return git.log().add(ObjectId.fromString(getTip(ref))).call();
+		} catch (GitAPIException | IOException e) {
+			errorHandler(ErrorMessage.GIT_BRANCH_COMMITS_ERROR.toString(), e);
+			return null;
+		}
+	}
 
-				List<DiffEntry> diffEntries = diffFormatter.scan(parentCommit, commit);
-				List<Change> changes = new ArrayList<Change>();
+	private Iterable<RevCommit> getCommitsFromBranch(final String refName) {
+		try {
+			return git.log().add(repository.resolve(refName)).call();
+		} catch (RevisionSyntaxException | GitAPIException | IOException e) {
+			errorHandler(ErrorMessage.GIT_TAG_COMMITS_ERROR.toString(), e);
+			return null;
+		}
+	}
 
-				for (DiffEntry entry : diffEntries) {
-					Change change = processChange(entry);
-					analyzeCodeChurn(change, parentCommit, commit);
-					changes.add(change);
-				}
+	/*
+	 * Walks the history with body retention off. The body of each commit is
+	 * loaded only while the commit is converted and dropped right after.
+	 */
+	private class CommitIterator implements Iterator<Commit> {
 
-				return changes;
-	}
+		private RevWalk walk;
+		private RevCommit next;
 
-	private Change processChange(DiffEntry entry) {
-		switch (entry.getChangeType()) {
-		case ADD:
-			return new Change(entry.getNewPath(), null, 0, 0, ChangeType.ADD);
+		public CommitIterator(RevWalk walk) {
+			this.walk = walk;
+			advance();
+		}
 
-		case COPY:
-			return new Change(entry.getNewPath(), entry.getOldPath(), 0, 0, ChangeType.COPY);
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
 
-		case DELETE:
-			return new Change(entry.getOldPath(), null, 0, 0, ChangeType.DELETE);
+		@Override
+		public Commit next() {
+			if (next == null)
+				throw new NoSuchElementException();
+
+			RevCommit revCommit = next;
+			Commit commit = null;
+			try {
+				walk.parseBody(revCommit);
+				commit = extractor.extract(revCommit);
+			} catch (IOException e) {
+				walk.close();
+				errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(), e);
+			}
 
-		case MODIFY:
-			return new Change(entry.getNewPath(), null, 0, 0, ChangeType.MODIFY);
+			revCommit.disposeBody();
+			advance();
+			return commit;
+		}
 
-		case RENAME:
-			return new Change(entry.getNewPath(), entry.getOldPath(), 0, 0, ChangeType.MOVE);
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 
-		default:
-			return null;
+		private void advance() {
+			try {
+				next = walk.next();
+			} catch (IOException e) {
+				walk.close();
+				errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(), e);
+			}
+
+			if (next == null)
+				walk.close();
 		}
+
 	}
 
-	private void analyzeCodeChurn(Change change, RevCommit parentCommit, RevCommit commit) throws IOException {
-		ByteArrayOutputStream output = new ByteArrayOutputStream();
-		DiffFormatter formatter = new DiffFormatter(output);
+	/*
+	 * Enumerates the commits with a single walk and extracts them on a worker
+	 * pool. A bounded window of pending extractions keeps the results in walk
+	 * order without holding more than a few commits per worker in memory. The
+	 * workers are daemon threads and an iterator that is not consumed to the
+	 * end is disposed when the SCM is closed.
+	 */
+	private class ParallelCommitIterator implements Iterator<Commit> {
+
+		private static final int COMMITS_PER_WORKER = 4;
+
+		private RevWalk walk;
+		private ExecutorService executor;
+		private BlockingQueue<GitCommitExtractor> extractors;
+		private Queue<Future<Commit>> pending = new ArrayDeque<Future<Commit>>();
+		private int window;
+		private boolean exhausted;
+		private boolean disposed;
+
+		public ParallelCommitIterator(RevWalk walk, int threads) {
+			this.walk = walk;
+			this.window = threads * COMMITS_PER_WORKER;
+
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "repositoryminer-extractor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			extractors = new ArrayBlockingQueue<GitCommitExtractor>(threads);
+			for (int i = 0; i < threads; i++)
+				extractors.add(new GitCommitExtractor(repository, diffAlgorithm));
+
+			parallelIterators.add(this);
+			fill();
+		}
 
-		formatter.setRepository(repository);
-		formatter.setContext(0);
-		formatter.setPathFilter(PathFilter.create(change.getPath()));
-		formatter.format(parentCommit, commit);
+		@Override
+		public boolean hasNext() {
+			return !pending.isEmpty();
+		}
 
-		Scanner scanner = new Scanner(output.toString());
-		int added = 0;
-		int removed = 0;
+		@Override
+		public Commit next() {
+			if (pending.isEmpty())
+				throw new NoSuchElementException();
+
+			Commit commit = null;
+			try {
+				commit = pending.poll().get();
+			} catch (InterruptedException | ExecutionException e) {
+				dispose();
+				errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(),
+						e instanceof ExecutionException ? e.getCause() : e);
+			}
 
-		while (scanner.hasNextLine()) {
-			String line = scanner.nextLine();
-			if (line.startsWith("+") && !line.startsWith("+++"))
-				added++;
-			else if (line.startsWith("-") && !line.startsWith("---"))
-				removed++;
+			fill();
+			return commit;
 		}
 
-		output.close();
-		formatter.close();
-		scanner.close();
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 
-		change.setLinesAdded(added);
-		change.setLinesRemoved(removed);
-	}
+		private void fill() {
+			while (!exhausted && pending.size() < window) {
+				RevCommit revCommit = null;
+				try {
+					revCommit = walk.next();
+				} catch (IOException e) {
+					dispose();
+					errorHandler(ErrorMessage.GIT_LOG_COMMIT_ERROR.toString(), e);
+				}
 
-	private Iterable<RevCommit> getCommitsFromTag(final String refName) {
-		try {
-			final List<Ref> call = git.tagList().call();
-			for (Ref ref : call) {
-				if (ref.getName().endsWith(refName)) {
-					LogCommand log = git.log();
-					Ref peeledRef = repository.peel(ref);
-
-					if (peeledRef.getPeeledObjectId() != null)
-						return log.add(peeledRef.getPeeledObjectId()).call();
-					else
-						return log.add(ref.getObjectId()).call();
+				if (revCommit == null) {
+					exhausted = true;
+					break;
 				}
+
+				final ObjectId id = revCommit.copy();
+				pending.add(executor.submit(new Callable<Commit>() {
+					@Override
+					public Commit call() throws Exception {
+						GitCommitExtractor worker = extractors.take();
+						try {
+							return worker.extract(id);
+						} finally {
+							extractors.put(worker);
+						}
+					}
+				}));
 			}
-			return null;
-		} catch (GitAPIException | IncorrectObjectTypeException | MissingObjectException e) {
-			errorHandler(ErrorMessage.GIT_BRANCH_COMMITS_ERROR.toString(), e);
-			return null;
+
+			if (pending.isEmpty())
+				dispose();
 		}
-	}
 
-	private Iterable<RevCommit> getCommitsFromBranch(final String refName) {
-		try {
-			return git.log().add(repository.resolve(refName)).call();
-		} catch (RevisionSyntaxException | GitAPIException | IOException e) {
-			errorHandler(ErrorMessage.GIT_TAG_COMMITS_ERROR.toString(), e);
-			return null;
+		/*
+		 * The running extractions are waited for, so no extractor is closed
+		 * while a worker uses it.
+		 */
+		private void dispose() {
+			if (disposed)
+				return;
+
+			disposed = true;
+			exhausted = true;
+			pending.clear();
+			parallelIterators.remove(this);
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			walk.close();
+			for (GitCommitExtractor worker : extractors)
+				worker.close();
 		}
+
 	}
-	
+
 }
\ No newline at end of file
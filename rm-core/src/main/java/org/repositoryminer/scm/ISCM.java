@@ -1,5 +1,7 @@
 package org.repositoryminer.scm;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import org.repositoryminer.domain.Commit;
@@ -8,6 +10,10 @@ import org.repositoryminer.domain.SCMType;
 
 /**
  * Interface that define what is needed to support a repository.
+ * <p>
+ * New operations are added to this interface as the mining evolves, so an SCM
+ * should extend {@link AbstractSCM}, which implements them on top of the
+ * basic ones.
  */
 public interface ISCM {
 
@@ -34,6 +40,26 @@ public interface ISCM {
 	 */
 	public List<Commit> getCommits();
 
+	/**
+	 * Iterates over the commits reachable from the references building each one
+	 * only when it is requested, so the history is never entirely held in
+	 * memory.
+	 * 
+	 * @return an iterator over all commits.
+	 */
+	public Iterator<Commit> getCommitsIterator();
+
+	/**
+	 * Iterates over the commits reachable from the references that are not
+	 * reachable from the given ones, i.e. the history created after they were
+	 * mined.
+	 * 
+	 * @param excludedCommits
+	 *            the commits whose history must be skipped.
+	 * @return an iterator over the new commits.
+	 */
+	public Iterator<Commit> getCommitsIterator(Collection<String> excludedCommits);
+
 	/**
 	 * @param reference
 	 *            the reference.
@@ -41,6 +67,25 @@ public interface ISCM {
 	 */
 	public List<String> getCommitsNames(Reference reference);
 
+	/**
+	 * Builds, in a single traversal of the history, the membership of the
+	 * commits in all the references.
+	 * 
+	 * @return the reachability index of the references.
+	 */
+	public ReachabilityIndex getReachabilityIndex();
+
+	/**
+	 * @param reference
+	 *            the reference.
+	 * @param since
+	 *            a commit previously pointed by the reference.
+	 * @return the commits associated to the reference that are not reachable
+	 *         from since, or null if since is not an ancestor of the reference
+	 *         anymore (e.g. after a history rewrite).
+	 */
+	public List<String> getCommitsNames(Reference reference, String since);
+
 	/**
 	 * Does a checkout to a given point.
 	 * 
@@ -49,6 +94,27 @@ public interface ISCM {
 	 */
 	public void checkout(String point);
 
+	/**
+	 * Retrieves the content of a file at a given point, without touching the
+	 * working tree.
+	 * 
+	 * @param point
+	 *            the commit.
+	 * @param filePath
+	 *            the file path, relative to the repository root.
+	 * @return the file content or null if the path is not a file at that point.
+	 */
+	public byte[] getData(String point, String filePath);
+
+	/**
+	 * Lists the files of a given point, without touching the working tree.
+	 * 
+	 * @param point
+	 *            the commit.
+	 * @return the file paths, relative to the repository root.
+	 */
+	public List<String> getFiles(String point);
+
 	/**
 	 * Terminates the analysis and free resources.
 	 */
@@ -0,0 +1,116 @@
+package org.repositoryminer.scm;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.repositoryminer.domain.Reference;
+
+/**
+ * Tells which commits belong to each reference and which references contain
+ * each commit. It is built from a single traversal of the history, where
+ * every commit holds a bit set over the references that reach it.
+ * <p>
+ * The commits are kept in the traversal order, newest first. Commits reached
+ * by the same references share the same bit set instance.
+ */
+public class ReachabilityIndex {
+
+	private List<Reference> references;
+	private List<String> commits = new ArrayList<String>();
+	private List<BitSet> reachedBy = new ArrayList<BitSet>();
+	private Map<String, Integer> positions = new HashMap<String, Integer>();
+
+	/**
+	 * @param references
+	 *            the indexed references, the reference at position i is
+	 *            represented by the bit i.
+	 */
+	public ReachabilityIndex(List<Reference> references) {
+		this.references = references;
+	}
+
+	/**
+	 * Appends a commit. The commits must be added children first.
+	 *
+	 * @param commit
+	 *            the commit id.
+	 * @param refs
+	 *            the references that reach the commit.
+	 */
+	public void add(String commit, BitSet refs) {
+		positions.put(commit, commits.size());
+		commits.add(commit);
+		reachedBy.add(refs);
+	}
+
+	/**
+	 * @return the indexed references.
+	 */
+	public List<Reference> getReferences() {
+		return references;
+	}
+
+	/**
+	 * @return all the indexed commits, in the traversal order.
+	 */
+	public List<String> getCommits() {
+		return Collections.unmodifiableList(commits);
+	}
+
+	/**
+	 * @param reference
+	 *            an indexed reference.
+	 * @return the commits reachable from the reference, newest first.
+	 */
+	public List<String> getCommits(Reference reference) {
+		int bit = references.indexOf(reference);
+		List<String> result = new ArrayList<String>();
+		if (bit < 0)
+			return result;
+
+		BitSet last = null;
+		boolean lastReached = false;
+		for (int i = 0; i < commits.size(); i++) {
+			BitSet refs = reachedBy.get(i);
+			if (refs != last) {
+				last = refs;
+				lastReached = refs.get(bit);
+			}
+
+			if (lastReached)
+				result.add(commits.get(i));
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param commit
+	 *            the commit id.
+	 * @return the references that contain the commit.
+	 */
+	public List<Reference> getReferences(String commit) {
+		List<Reference> result = new ArrayList<Reference>();
+		Integer position = positions.get(commit);
+		if (position == null)
+			return result;
+
+		BitSet refs = reachedBy.get(position);
+		for (int i = refs.nextSetBit(0); i >= 0; i = refs.nextSetBit(i + 1))
+			result.add(references.get(i));
+
+		return result;
+	}
+
+	/**
+	 * @return the number of indexed commits.
+	 */
+	public int size() {
+		return commits.size();
+	}
+
+}
@@ -0,0 +1,295 @@
+package org.repositoryminer.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+import org.repositoryminer.exception.ErrorMessage;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+/**
+ * Creates the working copies used to analyze a repository.
+ * <p>
+ * Instead of copying the whole repository, a workspace is a git repository
+ * that borrows the objects of the original one (objects/info/alternates) and
+ * only holds a copy of its references, its configuration, its shallow and
+ * grafts files and a working tree. Workspaces live in a configurable directory
+ * and are reused by later runs; a workspace in use is locked, so concurrent
+ * miners of the same repository get different workspaces.
+ */
+public class WorkspaceManager {
+
+	private static final String LOCK_FILE = "rm-workspace.lock";
+	private static final String OBJECTS = "objects";
+	private static final String ALTERNATES = "objects/info/alternates";
+	private static final String CONFIG = "config";
+	private static final String SHALLOW = "shallow";
+	private static final String GRAFTS = "info/grafts";
+
+	private File workspaceDirectory;
+	private boolean reuse = true;
+	private Map<String, FileLock> locks = new HashMap<String, FileLock>();
+
+	public WorkspaceManager() {
+		this(new File(System.getProperty("java.io.tmpdir"), "rm-workspaces").getAbsolutePath());
+	}
+
+	/**
+	 * @param workspaceDirectory
+	 *            the directory where the workspaces are created.
+	 */
+	public WorkspaceManager(String workspaceDirectory) {
+		this.workspaceDirectory = new File(workspaceDirectory);
+	}
+
+	/**
+	 * Creates or reuses a workspace for a repository. The workspace references
+	 * are synchronized with the original repository and the working tree is
+	 * reset to its HEAD.
+	 *
+	 * @param repositoryPath
+	 *            the original repository path.
+	 * @param name
+	 *            the workspace name (e.g. the repository name).
+	 * @return the workspace path.
+	 * @throws IOException
+	 */
+	public synchronized String acquire(String repositoryPath, String name) throws IOException {
+		File sourceGitDir = new File(repositoryPath, Constants.DOT_GIT);
+		if (!sourceGitDir.exists())
+			throw new RepositoryMinerException(ErrorMessage.REPOSITORY_NOT_FOUND.toString());
+
+		FileUtils.forceMkdir(workspaceDirectory);
+
+		File workspace = new File(workspaceDirectory, name);
+		FileLock lock = tryLock(workspace);
+		for (int i = 1; lock == null; i++) {
+			workspace = new File(workspaceDirectory, name + "-" + i);
+			lock = tryLock(workspace);
+		}
+
+		String workspacePath = FilenameUtils.normalize(workspace.getAbsolutePath(), true);
+		locks.put(workspacePath, lock);
+
+		try {
+			File objects = new File(sourceGitDir, OBJECTS).getCanonicalFile();
+			initialize(workspace, objects);
+			synchronize(sourceGitDir, workspace);
+		} catch (IOException | RuntimeException e) {
+			release(workspacePath);
+			throw e;
+		}
+
+		return workspacePath;
+	}
+
+	/**
+	 * Releases a workspace. It is kept for the next runs unless the reuse is
+	 * disabled, in which case it is deleted.
+	 *
+	 * @param workspacePath
+	 *            the path returned by {@link #acquire(String, String)}.
+	 * @throws IOException
+	 */
+	public synchronized void release(String workspacePath) throws IOException {
+		FileLock lock = locks.remove(workspacePath);
+		if (lock != null) {
+			lock.release();
+			lock.channel().close();
+		}
+
+		if (!reuse)
+			delete(workspacePath);
+	}
+
+	/**
+	 * Deletes a workspace.
+	 *
+	 * @param workspacePath
+	 *            the workspace path.
+	 * @throws IOException
+	 */
+	public void delete(String workspacePath) throws IOException {
+		File workspace = new File(workspacePath);
+		if (workspace.exists())
+			FileUtils.deleteDirectory(workspace);
+
+		new File(workspaceDirectory, workspace.getName() + "." + LOCK_FILE).delete();
+	}
+
+	/*
+	 * The lock file sits beside the workspace, so it survives the workspace
+	 * being recreated. The operating system drops the lock if the process dies.
+	 */
+	@SuppressWarnings("resource")
+	private FileLock tryLock(File workspace) throws IOException {
+		File lockFile = new File(workspaceDirectory, workspace.getName() + "." + LOCK_FILE);
+		RandomAccessFile file = new RandomAccessFile(lockFile, "rw");
+
+		FileLock lock = null;
+		try {
+			lock = file.getChannel().tryLock();
+		} catch (OverlappingFileLockException e) {
+			// locked by this process
+		}
+
+		if (lock == null)
+			file.close();
+
+		return lock;
+	}
+
+	private void initialize(File workspace, File objects) throws IOException {
+		File gitDir = new File(workspace, Constants.DOT_GIT);
+		File alternates = new File(gitDir, ALTERNATES);
+
+		String objectsPath = FilenameUtils.normalize(objects.getAbsolutePath(), true);
+		if (alternates.exists() && FileUtils.readFileToString(alternates, "UTF-8").trim().equals(objectsPath))
+			return;
+
+		if (workspace.exists())
+			FileUtils.deleteDirectory(workspace);
+
+		try {
+			Git.init().setDirectory(workspace).call().close();
+		} catch (GitAPIException e) {
+			throw new RepositoryMinerException(ErrorMessage.GIT_REPOSITORY_IOERROR.toString(), e);
+		}
+
+		FileUtils.writeStringToFile(alternates, objectsPath + "\n", "UTF-8");
+	}
+
+	private void synchronize(File sourceGitDir, File workspace) throws IOException {
+		File targetGitDir = new File(workspace, Constants.DOT_GIT);
+		copyConfig(sourceGitDir, targetGitDir);
+		refresh(new File(sourceGitDir, SHALLOW), new File(targetGitDir, SHALLOW));
+		refresh(new File(sourceGitDir, GRAFTS), new File(targetGitDir, GRAFTS));
+
+		Repository source = new FileRepositoryBuilder().setGitDir(sourceGitDir).build();
+		Repository target = new FileRepositoryBuilder().setGitDir(targetGitDir).build();
+
+		try {
+			Map<String, Ref> sourceRefs = source.getRefDatabase().getRefs(RefDatabase.ALL);
+
+			for (Ref ref : sourceRefs.values()) {
+				if (ref.isSymbolic() || ref.getObjectId() == null)
+					continue;
+
+				RefUpdate update = target.updateRef(ref.getName());
+				update.setNewObjectId(ref.getObjectId());
+				update.setForceUpdate(true);
+				update.update();
+			}
+
+			Ref head = source.exactRef(Constants.HEAD);
+			if (head == null || head.getObjectId() == null)
+				return;
+
+			RefUpdate headUpdate = target.updateRef(Constants.HEAD, !head.isSymbolic());
+			if (head.isSymbolic()) {
+				headUpdate.link(head.getTarget().getName());
+			} else {
+				headUpdate.setNewObjectId(head.getObjectId());
+				headUpdate.setForceUpdate(true);
+				headUpdate.update();
+			}
+
+			// HEAD must be moved before, the current branch can not be deleted
+			for (Ref ref : target.getRefDatabase().getRefs(RefDatabase.ALL).values()) {
+				if (!ref.isSymbolic() && !sourceRefs.containsKey(ref.getName())) {
+					RefUpdate update = target.updateRef(ref.getName());
+					update.setForceUpdate(true);
+					update.delete();
+				}
+			}
+
+			File indexLock = new File(target.getDirectory(), "index.lock");
+			if (indexLock.exists())
+				indexLock.delete();
+
+			Git git = new Git(target);
+			git.reset().setMode(ResetType.HARD).setRef(Constants.HEAD).call();
+			git.clean().setCleanDirectories(true).setIgnore(false).call();
+		} catch (GitAPIException e) {
+			throw new RepositoryMinerException(ErrorMessage.GIT_RESET_ERROR.toString(), e);
+		} finally {
+			target.close();
+			source.close();
+		}
+	}
+
+	/*
+	 * The configuration is copied so the workspace diffs and checks out files
+	 * as the original repository does (e.g. diff.algorithm, core.autocrlf). A
+	 * work tree set in the original configuration is not the workspace one.
+	 */
+	private void copyConfig(File sourceGitDir, File targetGitDir) throws IOException {
+		File sourceConfig = new File(sourceGitDir, CONFIG);
+		if (!sourceConfig.isFile())
+			return;
+
+		File targetConfig = new File(targetGitDir, CONFIG);
+		FileUtils.copyFile(sourceConfig, targetConfig);
+
+		FileBasedConfig config = new FileBasedConfig(targetConfig, FS.DETECTED);
+		try {
+			config.load();
+		} catch (ConfigInvalidException e) {
+			throw new RepositoryMinerException(ErrorMessage.GIT_REPOSITORY_IOERROR.toString(), e);
+		}
+
+		config.unset(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_WORKTREE);
+		config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_BARE, false);
+		config.save();
+	}
+
+	/*
+	 * The shallow file lists the commits whose parents were not fetched and the
+	 * grafts file overrides the parents of commits, so the walks of the
+	 * workspace must see the same files as the original repository.
+	 */
+	private void refresh(File source, File target) throws IOException {
+		if (source.isFile())
+			FileUtils.copyFile(source, target);
+		else if (target.exists())
+			FileUtils.forceDelete(target);
+	}
+
+	/*** Getters and Setters ***/
+
+	public String getWorkspaceDirectory() {
+		return workspaceDirectory.getAbsolutePath();
+	}
+
+	public boolean isReuse() {
+		return reuse;
+	}
+
+	/**
+	 * @param reuse
+	 *            if false, the workspaces are deleted when released.
+	 */
+	public void setReuse(boolean reuse) {
+		this.reuse = reuse;
+	}
+
+}
@@ -1,51 +1,108 @@
-package org.repositoryminer.util;
-
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
-
-/**
- * This class handles string hashing operations.
- */
-public class HashingUtils {
-
-	/**
-	 * Hashes the input using SHA1 algorithm.
-	 * 
-	 * @param input
-	 *            the input string.
-	 * @return the hashed input string.
-	 */
-	public static String encodeToSHA1(final String input) {
-		MessageDigest mDigest;
-		try {
-			mDigest = MessageDigest.getInstance("SHA1");
-		} catch (NoSuchAlgorithmException e) {
-			e.printStackTrace();
-			return null;
-		}
-
-		byte[] result = mDigest.digest(input.getBytes());
-		StringBuffer sb = new StringBuffer();
-		for (int i = 0; i < result.length; i++) {
-			sb.append(Integer.toString((result[i] & 0xff) + 0x100, 16).substring(1));
-		}
-		return sb.toString();
-	}
-
-	/**
-	 * Hashes the input using CRC32 algorithm.
-	 * 
-	 * @param input
-	 *            the input string.
-	 * @return the hashed input string.
-	 */
-	public static long encodeToCRC32(final String input) {
-		byte bytes[] = input.getBytes();
-		Checksum checksum = new CRC32();
-		checksum.update(bytes, 0, bytes.length);
-		return checksum.getValue();
-	}
-
+package org.repositoryminer.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * This class handles string hashing operations.
+ */
+public class HashingUtils {
+
+	/**
+	 * Hashes the input using SHA1 algorithm.
+	 * 
+	 * @param input
+	 *            the input string.
+	 * @return the hashed input string.
+	 */
+	public static String encodeToSHA1(final String input) {
+		MessageDigest mDigest;
+		try {
+			mDigest = MessageDigest.getInstance("SHA1");
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		byte[] result = mDigest.digest(input.getBytes());
+		return toHex(result);
+	}
+
+	/**
+	 * Hashes the content of a file using SHA1 algorithm, reading it in chunks.
+	 * 
+	 * @param file
+	 *            the file.
+	 * @return the hashed file content.
+	 * @throws IOException
+	 */
+	public static String encodeToSHA1(final File file) throws IOException {
+		MessageDigest mDigest;
+		try {
+			mDigest = MessageDigest.getInstance("SHA1");
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			for (int n = input.read(buffer); n != -1; n = input.read(buffer))
+				mDigest.update(buffer, 0, n);
+		} finally {
+			input.close();
+		}
+		return toHex(mDigest.digest());
+	}
+
+	/**
+	 * Hashes a file content as git does for blobs, i.e. the SHA1 of the
+	 * content prefixed by "blob &lt;size&gt;\0".
+	 * 
+	 * @param data
+	 *            the file content.
+	 * @return the git blob id of the content.
+	 */
+	public static String encodeToGitBlobId(final byte[] data) {
+		MessageDigest mDigest;
+		try {
+			mDigest = MessageDigest.getInstance("SHA1");
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		mDigest.update(("blob " + data.length + "\0").getBytes());
+		return toHex(mDigest.digest(data));
+	}
+
+	/**
+	 * Hashes the input using CRC32 algorithm.
+	 * 
+	 * @param input
+	 *            the input string.
+	 * @return the hashed input string.
+	 */
+	public static long encodeToCRC32(final String input) {
+		byte bytes[] = input.getBytes();
+		Checksum checksum = new CRC32();
+		checksum.update(bytes, 0, bytes.length);
+		return checksum.getValue();
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < bytes.length; i++) {
+			sb.append(Integer.toString((bytes[i] & 0xff) + 0x100, 16).substring(1));
+		}
+		return sb.toString();
+	}
+
 }
\ No newline at end of file
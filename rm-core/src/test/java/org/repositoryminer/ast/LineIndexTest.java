@@ -0,0 +1,85 @@
+package org.repositoryminer.ast;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class LineIndexTest {
+
+	private static final Pattern LINE_BREAK = Pattern.compile("(\r\n)|(\n)|(\r)");
+
+	@Test
+	public void emptySourceHasNoLines() {
+		assertEquals(0, new LineIndex(null).getLineCount());
+		assertEquals(0, new LineIndex("").getLineCount());
+		assertEquals(0, new LineIndex("").countLines(0, 0));
+	}
+
+	@Test
+	public void countsEachKindOfLineBreak() {
+		assertEquals(1, new LineIndex("a").getLineCount());
+		assertEquals(2, new LineIndex("a\nb").getLineCount());
+		assertEquals(2, new LineIndex("a\r\nb").getLineCount());
+		assertEquals(2, new LineIndex("a\rb").getLineCount());
+		assertEquals(2, new LineIndex("a\n").getLineCount());
+	}
+
+	@Test
+	public void loneCarriageReturnsAreLineBreaks() {
+		assertEquals(3, new LineIndex("a\n\rb").getLineCount());
+		assertEquals(3, new LineIndex("a\r\r\nb").getLineCount());
+		assertEquals(4, new LineIndex("\r\r\r").getLineCount());
+	}
+
+	@Test
+	public void emptyRangeHasNoLines() {
+		LineIndex index = new LineIndex("a\nb\nc");
+		assertEquals(0, index.countLines(2, 2));
+		assertEquals(0, index.countLines(3, 1));
+	}
+
+	@Test
+	public void findsTheLineOfAnOffset() {
+		LineIndex index = new LineIndex("a\r\nb\rc\nd");
+		assertEquals(1, index.getLineNumber(0));
+		assertEquals(1, index.getLineNumber(2));
+		assertEquals(2, index.getLineNumber(3));
+		assertEquals(3, index.getLineNumber(5));
+		assertEquals(4, index.getLineNumber(7));
+	}
+
+	/*
+	 * The ranges of the types and methods end at a brace, never between the
+	 * \r and the \n of a line break, so those ranges are not compared.
+	 */
+	@Test
+	public void countsTheSameLinesAsTheRegularExpression() {
+		String source = "class A {\r\n\tint a;\n\r\tvoid m() {\r\r\n\t}\n}\r\n\n";
+		LineIndex index = new LineIndex(source);
+
+		for (int start = 0; start <= source.length(); start++) {
+			for (int end = start; end <= source.length(); end++) {
+				if (end > 0 && end < source.length() && source.charAt(end - 1) == '\r' && source.charAt(end) == '\n')
+					continue;
+
+				assertEquals(source.substring(start, end).replace("\r", "\\r").replace("\n", "\\n"),
+						countWithRegex(source.substring(start, end)), index.countLines(start, end));
+			}
+		}
+	}
+
+	private static int countWithRegex(String source) {
+		if (source.length() == 0)
+			return 0;
+
+		int lines = 1;
+		Matcher matcher = LINE_BREAK.matcher(source);
+		while (matcher.find())
+			lines++;
+		return lines;
+	}
+
+}
@@ -0,0 +1,194 @@
+package org.repositoryminer.ast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.repositoryminer.metric.CYCLO;
+import org.repositoryminer.metric.TCC;
+
+/**
+ * Checks the conversions between the {@link StatementStore} and the deprecated
+ * statement classes, which are kept for the parsers and metrics written
+ * against them, and compares the bytes allocated to record the statements of
+ * generated methods in both forms, printing the amounts of both.
+ */
+@SuppressWarnings("deprecation")
+public class StatementStoreTest {
+
+	private static final int METHODS = 20000;
+	private static final int STATEMENTS = 50;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 10;
+
+	@Test
+	public void buildsTheFormerStatements() {
+		StatementStore store = new StatementStore(new SymbolTable());
+		store.addDecision(NodeType.IF, 1);
+		store.addVariableDeclaration("i");
+		store.addFieldAccess("balance", "bank.Account", true, false);
+		store.addMethodInvocation("getOwner()", "bank.Account", "owner");
+
+		List<AbstractStatement> statements = store.toStatements();
+		assertEquals(4, statements.size());
+		assertEquals(NodeType.IF, statements.get(0).getNodeType());
+		assertNull(statements.get(0).getExpression());
+		assertEquals("i", statements.get(1).getExpression());
+
+		AbstractFieldAccess fieldAccess = (AbstractFieldAccess) statements.get(2);
+		assertEquals("balance", fieldAccess.getExpression());
+		assertEquals("bank.Account", fieldAccess.getDeclaringClass());
+		assertTrue(fieldAccess.isPrimitive());
+
+		AbstractMethodInvocation invocation = (AbstractMethodInvocation) statements.get(3);
+		assertEquals("getOwner()", invocation.getExpression());
+		assertTrue(invocation.isAccessor());
+		assertEquals("owner", invocation.getAccessedField());
+	}
+
+	@Test
+	public void countsTheOperatorsOfTheFormerConditions() {
+		AbstractMethod method = new AbstractMethod();
+		method.setStatements(Arrays.asList(new AbstractStatement(NodeType.IF, "a && b || c"),
+				new AbstractStatement(NodeType.WHILE, "a | b"),
+				new AbstractStatement(NodeType.CATCH, "IOException | SQLException"),
+				new AbstractStatement(NodeType.SWITCH_CASE, "1"), new AbstractStatement(NodeType.RETURN)));
+
+		// 1 + (1 + 2) + 1 + (1 + 1) + 1
+		assertEquals(8, new CYCLO().calculate(method));
+	}
+
+	/*
+	 * The methods set through the former API do not share a symbol table of a
+	 * file, but the fields they access must still be seen as the same.
+	 */
+	@Test
+	public void connectsTheMethodsSetThroughTheFormerApi() {
+		List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+		methods.add(createMethod("m1", "a"));
+		methods.add(createMethod("m2", "a"));
+
+		AbstractType type = new AbstractType();
+		type.setName("bank.Account");
+		type.setMethods(methods);
+
+		assertEquals(1f, new TCC().calculate(type), 0);
+		assertEquals("a", ((AbstractFieldAccess) methods.get(0).getStatements().get(0)).getExpression());
+	}
+
+	/*
+	 * Each method has a decision, a field access, a getter invocation, a
+	 * variable declaration and an expression statement in turn. The former
+	 * form keeps the conditions and expressions as rendered strings, as the
+	 * parser did with the JDT nodes.
+	 */
+	@Test
+	public void storeAllocatesLessThanTheFormerStatements() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		String[] fields = new String[STATEMENTS];
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = "field" + i;
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			recordStores(fields);
+			recordStatements(fields);
+		}
+
+		long storeBytes = 0;
+		long statementBytes = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = threads.getThreadAllocatedBytes(thread);
+			recordStores(fields);
+			storeBytes += threads.getThreadAllocatedBytes(thread) - start;
+
+			start = threads.getThreadAllocatedBytes(thread);
+			recordStatements(fields);
+			statementBytes += threads.getThreadAllocatedBytes(thread) - start;
+		}
+
+		System.out.println(String.format("%d methods of %d statements: %.1f MB in stores, %.1f MB in statement "
+				+ "objects (average of %d rounds)", METHODS, STATEMENTS, storeBytes / 1e6 / ROUNDS,
+				statementBytes / 1e6 / ROUNDS, ROUNDS));
+
+		assertTrue(storeBytes < statementBytes);
+	}
+
+	private static List<StatementStore> recordStores(String[] fields) {
+		SymbolTable symbols = new SymbolTable();
+		List<StatementStore> stores = new ArrayList<StatementStore>(METHODS);
+		for (int m = 0; m < METHODS; m++) {
+			StatementStore store = new StatementStore(symbols);
+			for (int i = 0; i < STATEMENTS; i++) {
+				switch (i % 5) {
+				case 0:
+					store.addDecision(NodeType.IF, 1);
+					break;
+				case 1:
+					store.addFieldAccess(fields[i], "bench.Type", true, false);
+					break;
+				case 2:
+					store.addMethodInvocation("getField()", "bench.Type", fields[i]);
+					break;
+				case 3:
+					store.addVariableDeclaration(fields[i]);
+					break;
+				default:
+					store.addStatement(NodeType.EXPRESSION);
+					break;
+				}
+			}
+			stores.add(store);
+		}
+		return stores;
+	}
+
+	private static List<List<AbstractStatement>> recordStatements(String[] fields) {
+		List<List<AbstractStatement>> methods = new ArrayList<List<AbstractStatement>>(METHODS);
+		for (int m = 0; m < METHODS; m++) {
+			List<AbstractStatement> statements = new ArrayList<AbstractStatement>();
+			for (int i = 0; i < STATEMENTS; i++) {
+				switch (i % 5) {
+				case 0:
+					statements.add(new AbstractStatement(NodeType.IF, new StringBuilder().append(fields[i])
+							.append(" > ").append(m).append(" && value < ").append(fields[i]).toString()));
+					break;
+				case 1:
+					statements.add(new AbstractFieldAccess(fields[i], "int", "bench.Type", true, false));
+					break;
+				case 2:
+					statements.add(new AbstractMethodInvocation("getField()", "bench.Type", true, fields[i]));
+					break;
+				case 3:
+					statements.add(new AbstractVariableDeclaration(fields[i], "int", null));
+					break;
+				default:
+					statements.add(new AbstractStatement(NodeType.EXPRESSION,
+							new StringBuilder().append(fields[i]).append(" += value").toString()));
+					break;
+				}
+			}
+			methods.add(statements);
+		}
+		return methods;
+	}
+
+	private static AbstractMethod createMethod(String name, String field) {
+		List<AbstractStatement> statements = new ArrayList<AbstractStatement>();
+		statements.add(new AbstractFieldAccess(field, "int", "bank.Account", true, false));
+
+		AbstractMethod method = new AbstractMethod();
+		method.setName(name);
+		method.setModifiers(Arrays.asList("public"));
+		method.setStatements(statements);
+		return method;
+	}
+
+}
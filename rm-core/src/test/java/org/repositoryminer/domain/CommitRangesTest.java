@@ -0,0 +1,97 @@
+package org.repositoryminer.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.Test;
+
+public class CommitRangesTest {
+
+	@Test
+	public void mergesConsecutiveOrdinals() {
+		CommitRanges ranges = CommitRanges.fromOrdinals(Arrays.asList(3, 4, 5, 9, 10, 0));
+
+		assertEquals(3, ranges.getRangeCount());
+		assertEquals(6, ranges.size());
+		assertRange(ranges, 0, 3, 5);
+		assertRange(ranges, 1, 9, 10);
+		assertRange(ranges, 2, 0, 0);
+	}
+
+	@Test
+	public void containsOnlyTheOrdinalsOfTheRanges() {
+		CommitRanges ranges = CommitRanges.fromOrdinals(Arrays.asList(3, 4, 5, 9));
+
+		assertTrue(ranges.contains(3));
+		assertTrue(ranges.contains(5));
+		assertTrue(ranges.contains(9));
+		assertFalse(ranges.contains(2));
+		assertFalse(ranges.contains(6));
+		assertFalse(ranges.contains(10));
+	}
+
+	@Test
+	public void roundTripsThroughDocuments() {
+		CommitRanges ranges = CommitRanges.fromOrdinals(Arrays.asList(7, 8, 1, 2, 3, 20));
+		List<Document> documents = ranges.toDocumentList();
+		assertEquals(new Document("from", 7).append("to", 8), documents.get(0));
+
+		CommitRanges parsed = CommitRanges.parseDocuments(documents);
+		assertEquals(ranges.getRangeCount(), parsed.getRangeCount());
+		assertEquals(ranges.size(), parsed.size());
+		for (int i = 0; i < ranges.getRangeCount(); i++)
+			assertRange(parsed, i, ranges.getFrom(i), ranges.getTo(i));
+		assertEquals(documents, parsed.toDocumentList());
+	}
+
+	@Test
+	public void parsesMissingRangesAsEmpty() {
+		CommitRanges ranges = CommitRanges.parseDocuments(null);
+
+		assertEquals(0, ranges.getRangeCount());
+		assertEquals(0, ranges.size());
+		assertTrue(ranges.toDocumentList().isEmpty());
+	}
+
+	/*
+	 * The new commits of a reference come first and the stored ranges are
+	 * appended, joining the last new range with the first stored one when they
+	 * are consecutive.
+	 */
+	@Test
+	public void appendsStoredRanges() {
+		CommitRanges stored = CommitRanges.fromOrdinals(Arrays.asList(2, 3, 4, 0));
+		CommitRanges ranges = CommitRanges.fromOrdinals(Arrays.asList(10, 1));
+		ranges.addAll(stored);
+
+		assertEquals(3, ranges.getRangeCount());
+		assertEquals(6, ranges.size());
+		assertRange(ranges, 0, 10, 10);
+		assertRange(ranges, 1, 1, 4);
+		assertRange(ranges, 2, 0, 0);
+	}
+
+	@Test
+	public void growsBeyondTheInitialCapacity() {
+		List<Integer> ordinals = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++)
+			ordinals.add(i * 2);
+
+		CommitRanges ranges = CommitRanges.fromOrdinals(ordinals);
+		assertEquals(100, ranges.getRangeCount());
+		assertRange(ranges, 99, 198, 198);
+		assertEquals(ordinals.size(), CommitRanges.parseDocuments(ranges.toDocumentList()).size());
+	}
+
+	private static void assertRange(CommitRanges ranges, int range, int from, int to) {
+		assertEquals(from, ranges.getFrom(range));
+		assertEquals(to, ranges.getTo(range));
+	}
+
+}
@@ -0,0 +1,285 @@
+package org.repositoryminer.metric;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
+
+/**
+ * Checks {@link TCC} and {@link LCC} on classes whose method pairs are known,
+ * and compares their field masks with the pairwise comparison of the lists of
+ * accessed fields on generated large classes, printing the times of both.
+ */
+public class CohesionTest {
+
+	private static final String CLASS = "bank.Account";
+	private static final int TYPES = 20;
+	private static final int METHODS = 250;
+	private static final int FIELDS = 400;
+	private static final int ACCESSES = 2;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 20;
+
+	private SymbolTable symbols = new SymbolTable();
+
+	/*
+	 * m1-m2 share a, m2-m3 share b through a getter and m4 is alone: 2 of the 6
+	 * pairs are connected directly and 3 of them indirectly.
+	 */
+	@Test
+	public void calculatesTheConnectedPairs() {
+		List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+		methods.add(createMethod("m1", fieldAccess("a")));
+		methods.add(createMethod("m2", fieldAccess("a"), fieldAccess("b")));
+		methods.add(createMethod("m3", getter("b")));
+		methods.add(createMethod("m4", fieldAccess("c")));
+		AbstractType type = createType(methods);
+
+		assertEquals(0.33f, new TCC().calculate(type), 0);
+		assertEquals(0.5f, new LCC().calculate(type), 0);
+	}
+
+	@Test
+	public void ignoresConstructorsAbstractMethodsAndOtherClasses() {
+		AbstractMethod constructor = createMethod("Account", fieldAccess("a"));
+		constructor.setConstructor(true);
+		AbstractMethod abstractMethod = createMethod("m0", fieldAccess("a"));
+		abstractMethod.setModifiers(Arrays.asList("public", "abstract"));
+
+		List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+		methods.add(constructor);
+		methods.add(abstractMethod);
+		methods.add(createMethod("m1", fieldAccess("a")));
+		methods.add(createMethod("m2", new String[] { "a", "bank.Other" }));
+		AbstractType type = createType(methods);
+
+		assertEquals(0f, new TCC().calculate(type), 0);
+		assertEquals(0f, new LCC().calculate(type), 0);
+		assertEquals(Collections.singletonList("a"), new TCC().processAccessedFields(type, methods.get(2)));
+	}
+
+	@Test
+	public void hasNoPairsWithASingleMethod() {
+		AbstractType type = createType(Arrays.asList(createMethod("m1", fieldAccess("a"))));
+
+		assertEquals(0f, new TCC().calculate(type), 0);
+		assertEquals(0f, new LCC().calculate(type), 0);
+	}
+
+	/*
+	 * A chain of 200 methods, each one sharing a field with the next, so the
+	 * masks span several words: 199 of the 19900 pairs are connected directly
+	 * and all of them indirectly.
+	 */
+	@Test
+	public void connectsLargeClassesThroughChains() {
+		List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+		for (int i = 0; i < 200; i++)
+			methods.add(createMethod("m" + i, fieldAccess("f" + i), fieldAccess("f" + (i + 1))));
+		AbstractType type = createType(methods);
+
+		assertEquals(0.01f, new TCC().calculate(type), 0);
+		assertEquals(1f, new LCC().calculate(type), 0);
+	}
+
+	@Test
+	public void walkGivesTheSameResults() {
+		List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+		methods.add(createMethod("m1", fieldAccess("a")));
+		methods.add(createMethod("m2", fieldAccess("a"), fieldAccess("b")));
+		methods.add(createMethod("m3", getter("b")));
+		methods.add(createMethod("m4", fieldAccess("c")));
+		AbstractType type = createType(methods);
+
+		AST ast = new AST();
+		ast.setTypes(Arrays.asList(type));
+		ast.setMethods(new ArrayList<AbstractMethod>());
+		new MetricEngine(Arrays.<IMetric> asList(new TCC(), new LCC())).calculate(ast);
+
+		assertEquals(0.33f, type.getMetrics().getFloat(MetricID.TCC), 0);
+		assertEquals(0.5f, type.getMetrics().getFloat(MetricID.LCC), 0);
+	}
+
+	/*
+	 * Each method reads two random fields, one of them through a getter at
+	 * times, so the classes have several groups of connected methods.
+	 */
+	@Test
+	public void masksMatchThePairwiseComparison() {
+		Random random = new Random(42);
+		List<AbstractType> types = new ArrayList<AbstractType>();
+		for (int t = 0; t < TYPES; t++) {
+			List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+			for (int m = 0; m < METHODS; m++) {
+				String[][] accesses = new String[ACCESSES][];
+				for (int a = 0; a < ACCESSES; a++) {
+					String field = "f" + random.nextInt(FIELDS);
+					accesses[a] = random.nextInt(4) == 0 ? getter(field) : fieldAccess(field);
+				}
+				methods.add(createMethod("m" + m, accesses));
+			}
+			types.add(createType(methods));
+		}
+
+		float[][] results = new float[4][TYPES];
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+			for (int variant = 0; variant < results.length; variant++)
+				calculate(variant, types, results[variant]);
+
+		long[] times = new long[results.length];
+		for (int i = 0; i < ROUNDS; i++) {
+			for (int variant = 0; variant < results.length; variant++) {
+				long start = System.nanoTime();
+				calculate(variant, types, results[variant]);
+				times[variant] += System.nanoTime() - start;
+			}
+		}
+
+		System.out.println(String.format("%d classes of %d methods: TCC %.2f ms with masks, %.2f ms pairwise; "
+				+ "LCC %.2f ms with masks, %.2f ms pairwise (average of %d rounds)", TYPES, METHODS,
+				times[0] / 1e6 / ROUNDS, times[1] / 1e6 / ROUNDS, times[2] / 1e6 / ROUNDS, times[3] / 1e6 / ROUNDS,
+				ROUNDS));
+
+		for (int i = 0; i < TYPES; i++) {
+			assertEquals(results[1][i], results[0][i], 0);
+			assertEquals(results[3][i], results[2][i], 0);
+		}
+	}
+
+	/*
+	 * The variants are TCC with masks, TCC pairwise, LCC with masks and LCC
+	 * pairwise.
+	 */
+	private static void calculate(int variant, List<AbstractType> types, float[] results) {
+		TCC tcc = new TCC();
+		LCC lcc = new LCC();
+		for (int i = 0; i < types.size(); i++) {
+			AbstractType type = types.get(i);
+			switch (variant) {
+			case 0:
+				results[i] = tcc.calculate(type);
+				break;
+			case 1:
+				results[i] = calculatePairwise(type, false);
+				break;
+			case 2:
+				results[i] = lcc.calculate(type);
+				break;
+			default:
+				results[i] = calculatePairwise(type, true);
+				break;
+			}
+		}
+	}
+
+	/*
+	 * The former calculation: the lists of accessed fields of every pair of
+	 * methods are compared, and the indirect connections are found by a search
+	 * from every method over the direct ones.
+	 */
+	private static float calculatePairwise(AbstractType type, boolean indirect) {
+		TCC tcc = new TCC();
+		List<List<String>> fields = new ArrayList<List<String>>();
+		for (AbstractMethod method : type.getMethods())
+			if (TCC.isConsidered(method))
+				fields.add(tcc.processAccessedFields(type, method));
+
+		int n = fields.size();
+		List<List<Integer>> connections = new ArrayList<List<Integer>>();
+		for (int i = 0; i < n; i++)
+			connections.add(new ArrayList<Integer>());
+
+		int ndc = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++) {
+				for (String field : fields.get(i)) {
+					if (fields.get(j).contains(field)) {
+						connections.get(i).add(j);
+						connections.get(j).add(i);
+						ndc++;
+						break;
+					}
+				}
+			}
+		}
+
+		int npc = (n * (n - 1)) / 2;
+		if (!indirect)
+			return round(npc > 0 ? ndc * 1.0f / npc : 0);
+
+		int nic = 0;
+		for (int i = 0; i < n; i++) {
+			boolean[] reached = new boolean[n];
+			Deque<Integer> queue = new ArrayDeque<Integer>();
+			reached[i] = true;
+			queue.add(i);
+			while (!queue.isEmpty()) {
+				for (int j : connections.get(queue.poll())) {
+					if (!reached[j]) {
+						reached[j] = true;
+						queue.add(j);
+						if (j > i)
+							nic++;
+					}
+				}
+			}
+		}
+
+		return round(npc > 0 ? nic * 1.0f / npc : 0);
+	}
+
+	private static float round(float value) {
+		return new BigDecimal(value).setScale(2, BigDecimal.ROUND_HALF_UP).floatValue();
+	}
+
+	private AbstractType createType(List<AbstractMethod> methods) {
+		AbstractType type = new AbstractType();
+		type.setName(CLASS);
+		type.setMethods(methods);
+		return type;
+	}
+
+	/*
+	 * Each access is a field and its declaring class, or an accessor when the
+	 * field name starts with "get:".
+	 */
+	private AbstractMethod createMethod(String name, String[]... accesses) {
+		StatementStore statements = new StatementStore(symbols);
+		for (String[] access : accesses) {
+			if (access[0].startsWith("get:")) {
+				String field = access[0].substring("get:".length());
+				statements.addMethodInvocation("get" + field + "()", access[1], field);
+			} else {
+				statements.addFieldAccess(access[0], access[1], true, false);
+			}
+		}
+
+		AbstractMethod method = new AbstractMethod();
+		method.setName(name);
+		method.setModifiers(Arrays.asList("public"));
+		method.setStatementStore(statements);
+		return method;
+	}
+
+	private static String[] fieldAccess(String field) {
+		return new String[] { field, CLASS };
+	}
+
+	private static String[] getter(String field) {
+		return new String[] { "get:" + field, CLASS };
+	}
+
+}
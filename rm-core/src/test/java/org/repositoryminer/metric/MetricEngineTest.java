@@ -0,0 +1,266 @@
+package org.repositoryminer.metric;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractClass;
+import org.repositoryminer.ast.AbstractField;
+import org.repositoryminer.ast.AbstractImport;
+import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.AbstractParameter;
+import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.ast.LineIndex;
+import org.repositoryminer.ast.NodeType;
+import org.repositoryminer.ast.StatementStore;
+import org.repositoryminer.ast.SymbolTable;
+import org.repositoryminer.parser.java.JavaParser;
+
+/**
+ * Compares the single walk of {@link MetricEngine} with one walk per metric,
+ * on generated classes parsed with bindings and on the same classes built
+ * without the parser. The results must be the same and the times of both are
+ * printed.
+ */
+public class MetricEngineTest {
+
+	private static final int FILES = 50;
+	private static final int FIELDS = 20;
+	private static final int METHODS = 60;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 20;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void singleWalkMatchesOneWalkPerMetric() throws IOException {
+		File repository = folder.newFolder("repository");
+		List<String> filenames = new ArrayList<String>();
+		for (int i = 0; i < FILES; i++) {
+			String filename = "src/bench/Type" + i + ".java";
+			FileUtils.writeStringToFile(new File(repository, filename), createSource(i), "UTF-8");
+			filenames.add(filename);
+		}
+
+		JavaParser parser = new JavaParser();
+		String repositoryPath = repository.getAbsolutePath();
+		parser.scanRepository(repositoryPath);
+		List<AST> singleWalkAsts = new ArrayList<AST>(parser.generate(repositoryPath, filenames).values());
+		List<AST> metricWalkAsts = new ArrayList<AST>(parser.generate(repositoryPath, filenames).values());
+
+		compareWalks(singleWalkAsts, metricWalkAsts, "parsed files");
+	}
+
+	/*
+	 * The same classes, built without the parser (e.g. where the JDT is not
+	 * at hand), with the statements the parser records for them.
+	 */
+	@Test
+	public void singleWalkMatchesOneWalkPerMetricOnBuiltAsts() {
+		List<AST> singleWalkAsts = new ArrayList<AST>();
+		List<AST> metricWalkAsts = new ArrayList<AST>();
+		for (int i = 0; i < FILES; i++) {
+			singleWalkAsts.add(createAST(i));
+			metricWalkAsts.add(createAST(i));
+		}
+
+		compareWalks(singleWalkAsts, metricWalkAsts, "built files");
+	}
+
+	private static void compareWalks(List<AST> singleWalkAsts, List<AST> metricWalkAsts, String description) {
+		MetricGraph graph = new MetricGraph();
+		for (MetricID id : MetricID.values()) {
+			IMetric metric = MetricFactory.getMetric(id);
+			if (metric instanceof IVisitorMetric)
+				graph.addMetric(metric);
+		}
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			calculateInSingleWalk(graph, singleWalkAsts);
+			calculateInWalkPerMetric(graph, metricWalkAsts);
+		}
+
+		long singleWalkTime = 0;
+		long metricWalkTime = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			calculateInSingleWalk(graph, singleWalkAsts);
+			singleWalkTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			calculateInWalkPerMetric(graph, metricWalkAsts);
+			metricWalkTime += System.nanoTime() - start;
+		}
+
+		System.out.println(String.format("%d metrics, %d %s of %d methods: single walk %.2f ms, "
+				+ "one walk per metric %.2f ms (average of %d rounds)", graph.getMetrics().size(), FILES,
+				description, METHODS, singleWalkTime / 1e6 / ROUNDS, metricWalkTime / 1e6 / ROUNDS, ROUNDS));
+
+		assertSameMetrics(singleWalkAsts, metricWalkAsts);
+	}
+
+	private static void calculateInSingleWalk(MetricGraph graph, List<AST> asts) {
+		for (AST ast : asts)
+			graph.calculate(ast);
+	}
+
+	private static void calculateInWalkPerMetric(MetricGraph graph, List<AST> asts) {
+		for (AST ast : asts)
+			for (IMetric metric : graph.getMetrics())
+				metric.calculate(ast);
+	}
+
+	private static void assertSameMetrics(List<AST> expected, List<AST> actual) {
+		assertEquals(expected.size(), actual.size());
+		Map<String, AST> actualByName = new HashMap<String, AST>();
+		for (AST ast : actual)
+			actualByName.put(ast.getName(), ast);
+
+		for (AST expectedAst : expected) {
+			AST actualAst = actualByName.get(expectedAst.getName());
+			assertEquals(expectedAst.getMetrics().toDocument(), actualAst.getMetrics().toDocument());
+			assertEquals(expectedAst.getTypes().size(), actualAst.getTypes().size());
+
+			for (int i = 0; i < expectedAst.getTypes().size(); i++) {
+				AbstractType expectedType = expectedAst.getTypes().get(i);
+				AbstractType actualType = actualAst.getTypes().get(i);
+				assertEquals(expectedType.getName(), expectedType.getMetrics().toDocument(),
+						actualType.getMetrics().toDocument());
+
+				for (int j = 0; j < expectedType.getMethods().size(); j++) {
+					AbstractMethod expectedMethod = expectedType.getMethods().get(j);
+					AbstractMethod actualMethod = actualType.getMethods().get(j);
+					assertEquals(expectedMethod.getName(), expectedMethod.getMetrics().toDocument(),
+							actualMethod.getMetrics().toDocument());
+				}
+			}
+		}
+	}
+
+	/*
+	 * The AST of the source of createSource, with the positions of its
+	 * declarations and the statements of its methods.
+	 */
+	private static AST createAST(int index) {
+		String source = createSource(index);
+		String typeName = "bench.Type" + index;
+		String otherName = "bench.Type" + (index + 1) % FILES;
+		SymbolTable symbols = new SymbolTable();
+
+		List<AbstractField> fields = new ArrayList<AbstractField>();
+		for (int f = 0; f < FIELDS; f++) {
+			AbstractField field = new AbstractField();
+			field.setName("field" + f);
+			field.setType("int");
+			field.setModifiers(Arrays.asList("private"));
+			field.setPrimitive(true);
+			field.setBuiltIn(true);
+			fields.add(field);
+		}
+
+		List<AbstractMethod> methods = new ArrayList<AbstractMethod>();
+		for (int m = 0; m < METHODS; m++) {
+			StatementStore statements = new StatementStore(symbols);
+			statements.addVariableDeclaration("result");
+			statements.addFieldAccess("field" + m % FIELDS, typeName, true, true);
+			statements.addDecision(NodeType.IF, 1);
+			statements.addFieldAccess("field" + (m + 1) % FIELDS, typeName, true, true);
+			statements.addDecision(NodeType.FOR, 0);
+			statements.addVariableDeclaration("i");
+			statements.addStatement(NodeType.EXPRESSION);
+			statements.addMethodInvocation("getField" + (m + 2) % FIELDS + "()", otherName,
+					"field" + (m + 2) % FIELDS);
+			statements.addDecision(NodeType.IF, 1);
+			statements.addStatement(NodeType.EXPRESSION);
+			statements.addStatement(NodeType.RETURN);
+
+			AbstractMethod method = createMethod(source, "method" + m, statements);
+			method.setParameters(Arrays.asList(new AbstractParameter("int", "value"),
+					new AbstractParameter(otherName, "other")));
+			method.setMaxDepth(3);
+			methods.add(method);
+		}
+
+		for (int f = 0; f < FIELDS; f++) {
+			StatementStore statements = new StatementStore(symbols);
+			statements.addStatement(NodeType.RETURN);
+			statements.addFieldAccess("field" + f, typeName, true, true);
+
+			AbstractMethod method = createMethod(source, "getField" + f, statements);
+			method.setParameters(new ArrayList<AbstractParameter>());
+			method.setAccessor(true);
+			method.setAccessoredField("field" + f);
+			methods.add(method);
+		}
+
+		AbstractClass type = new AbstractClass();
+		type.setName(typeName);
+		type.setNodeType(NodeType.CLASS_DECLARATION);
+		type.setStartPosition(source.indexOf("public class"));
+		type.setEndPosition(source.length() - 1);
+		type.setFields(fields);
+		type.setMethods(methods);
+
+		AST ast = new AST();
+		ast.setName("src/bench/Type" + index + ".java");
+		ast.setSource(source);
+		ast.setLineIndex(new LineIndex(source));
+		ast.setLanguage("JAVA");
+		ast.setPackageDeclaration("bench");
+		ast.setImports(new ArrayList<AbstractImport>());
+		ast.setTypes(Arrays.<AbstractType> asList(type));
+		ast.setMethods(new ArrayList<AbstractMethod>());
+		return ast;
+	}
+
+	private static AbstractMethod createMethod(String source, String name, StatementStore statements) {
+		int start = source.indexOf("public int " + name + "(");
+		AbstractMethod method = new AbstractMethod();
+		method.setName(name);
+		method.setStartPosition(start);
+		method.setEndPosition(source.indexOf("\n\t}\n", start) + 3);
+		method.setReturnType("int");
+		method.setModifiers(Arrays.asList("public"));
+		method.setThrownsExceptions(new ArrayList<String>());
+		method.setStatementStore(statements);
+		return method;
+	}
+
+	private static String createSource(int index) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("package bench;\n\npublic class Type").append(index).append(" {\n\n");
+		for (int f = 0; f < FIELDS; f++)
+			sb.append("\tprivate int field").append(f).append(";\n");
+
+		for (int m = 0; m < METHODS; m++) {
+			sb.append("\n\tpublic int method").append(m).append("(int value, Type").append((index + 1) % FILES)
+					.append(" other) {\n");
+			sb.append("\t\tint result = field").append(m % FIELDS).append(" + value;\n");
+			sb.append("\t\tif (result > ").append(m).append(" && value < field").append((m + 1) % FIELDS)
+					.append(") {\n");
+			sb.append("\t\t\tfor (int i = 0; i < value; i++) {\n");
+			sb.append("\t\t\t\tresult += other.getField").append((m + 2) % FIELDS).append("();\n");
+			sb.append("\t\t\t}\n\t\t} else if (result < 0 || value == 0) {\n");
+			sb.append("\t\t\tresult = -result;\n\t\t}\n\t\treturn result;\n\t}\n");
+		}
+
+		for (int f = 0; f < FIELDS; f++)
+			sb.append("\n\tpublic int getField").append(f).append("() {\n\t\treturn field").append(f)
+					.append(";\n\t}\n");
+
+		return sb.append("}\n").toString();
+	}
+
+}
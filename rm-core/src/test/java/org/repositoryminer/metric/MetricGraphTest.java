@@ -0,0 +1,145 @@
+package org.repositoryminer.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.repositoryminer.ast.AST;
+import org.repositoryminer.ast.AbstractMethod;
+import org.repositoryminer.ast.AbstractType;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+public class MetricGraphTest {
+
+	private List<MetricID> calculated = new ArrayList<MetricID>();
+
+	@Test
+	public void sortsTheMetricsAfterTheirRequirements() {
+		MetricGraph graph = new MetricGraph();
+		graph.addMetric(new StubMetric(MetricID.AMW, MetricID.WMC, MetricID.NOM));
+		graph.addMetric(new StubMetric(MetricID.WMC, MetricID.CYCLO));
+		graph.addMetric(new StubMetric(MetricID.NOM));
+		graph.addMetric(new StubMetric(MetricID.CYCLO));
+
+		List<MetricID> order = getIds(graph.getMetrics());
+		assertEquals(4, order.size());
+		assertTrue(order.indexOf(MetricID.CYCLO) < order.indexOf(MetricID.WMC));
+		assertTrue(order.indexOf(MetricID.WMC) < order.indexOf(MetricID.AMW));
+		assertTrue(order.indexOf(MetricID.NOM) < order.indexOf(MetricID.AMW));
+	}
+
+	@Test
+	public void calculatesTheEagerMetricsInOrder() {
+		MetricGraph graph = new MetricGraph();
+		graph.addMetric(new StubMetric(MetricID.AMW, MetricID.WMC));
+		graph.addMetric(new StubMetric(MetricID.WMC, MetricID.CYCLO));
+		graph.addMetric(new StubMetric(MetricID.CYCLO));
+
+		graph.calculate(createAST());
+		assertEquals(Arrays.asList(MetricID.CYCLO, MetricID.WMC, MetricID.AMW), calculated);
+	}
+
+	@Test
+	public void addsTheMissingRequirementsAsEager() {
+		MetricGraph graph = new MetricGraph();
+		graph.addMetric(new StubMetric(MetricID.WMC, MetricID.CYCLO));
+
+		List<MetricID> order = getIds(graph.getMetrics());
+		assertEquals(Arrays.asList(MetricID.CYCLO, MetricID.WMC), order);
+		assertTrue(graph.getMetrics().get(0) instanceof CYCLO);
+		assertFalse(graph.isLazy(MetricID.CYCLO));
+	}
+
+	@Test
+	public void keepsTheLazyMetricsOutOfTheWalk() {
+		MetricGraph graph = new MetricGraph();
+		graph.addMetric(new StubMetric(MetricID.LOC));
+		graph.addMetric(MetricID.NOM, true);
+
+		AST ast = createAST();
+		MetricEvaluation evaluation = graph.calculate(ast);
+		assertTrue(graph.isLazy(MetricID.NOM));
+		assertFalse(ast.getTypes().get(0).getMetrics().contains(MetricID.NOM));
+
+		evaluation.require(MetricID.NOM);
+		assertEquals(1, ast.getTypes().get(0).getMetrics().getInt(MetricID.NOM));
+	}
+
+	@Test
+	public void makesEagerTheLazyMetricsRequiredByEagerOnes() {
+		MetricGraph graph = new MetricGraph();
+		graph.addMetric(MetricID.CYCLO, true);
+		graph.addMetric(new StubMetric(MetricID.WMC, MetricID.CYCLO));
+
+		assertFalse(graph.isLazy(MetricID.CYCLO));
+	}
+
+	@Test(expected = RepositoryMinerException.class)
+	public void rejectsCycles() {
+		MetricGraph graph = new MetricGraph();
+		graph.addMetric(new StubMetric(MetricID.LOC, MetricID.WMC));
+		graph.addMetric(new StubMetric(MetricID.WMC, MetricID.CYCLO));
+		graph.addMetric(new StubMetric(MetricID.CYCLO, MetricID.LOC));
+		graph.getMetrics();
+	}
+
+	private static List<MetricID> getIds(List<IMetric> metrics) {
+		List<MetricID> ids = new ArrayList<MetricID>();
+		for (IMetric metric : metrics)
+			ids.add(metric.getId());
+		return ids;
+	}
+
+	private static AST createAST() {
+		AbstractMethod method = new AbstractMethod();
+		method.setName("m");
+		method.setModifiers(new ArrayList<String>());
+
+		AbstractType type = new AbstractType();
+		type.setName("A");
+		type.setMethods(Arrays.asList(method));
+
+		AST ast = new AST();
+		ast.setTypes(Arrays.asList(type));
+		ast.setMethods(new ArrayList<AbstractMethod>());
+		return ast;
+	}
+
+	private class StubMetric implements IMetric {
+
+		private MetricID id;
+		private MetricID[] requiredMetrics;
+
+		public StubMetric(MetricID id, MetricID... requiredMetrics) {
+			this.id = id;
+			this.requiredMetrics = requiredMetrics.length > 0 ? requiredMetrics : null;
+		}
+
+		@Override
+		public void calculate(AST ast) {
+			calculated.add(id);
+		}
+
+		@Override
+		public MetricID getId() {
+			return id;
+		}
+
+		@Override
+		public MetricID[] getRequiredMetrics() {
+			return requiredMetrics;
+		}
+
+		@Override
+		public boolean requiresBindings() {
+			return false;
+		}
+
+	}
+
+}
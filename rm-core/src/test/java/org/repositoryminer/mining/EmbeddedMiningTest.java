@@ -0,0 +1,173 @@
+package org.repositoryminer.mining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.bson.Document;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.domain.ReferenceType;
+import org.repositoryminer.metric.CYCLO;
+import org.repositoryminer.metric.IMetric;
+import org.repositoryminer.metric.LOC;
+import org.repositoryminer.parser.IParser;
+import org.repositoryminer.parser.java.JavaParser;
+import org.repositoryminer.persistence.Connection;
+import org.repositoryminer.persistence.dao.CommitDAO;
+import org.repositoryminer.persistence.dao.GenericDAO;
+import org.repositoryminer.persistence.dao.ReferenceDAO;
+import org.repositoryminer.persistence.dao.RepositoryDAO;
+import org.repositoryminer.persistence.storage.EmbeddedStorage;
+import org.repositoryminer.scm.GitSCM;
+import org.repositoryminer.scm.WorkspaceManager;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+
+/**
+ * Mines a small Git repository into an {@link EmbeddedStorage}, reopens the
+ * storage and updates the mining with a new commit.
+ */
+public class EmbeddedMiningTest {
+
+	private static final String KEY = "embedded";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File repository;
+	private File storage;
+	private Git git;
+	private List<String> commits = new ArrayList<String>();
+
+	@Before
+	public void createRepository() throws IOException, GitAPIException {
+		repository = folder.newFolder("repository");
+		storage = folder.newFolder("storage");
+		git = Git.init().setDirectory(repository).call();
+
+		write("src/app/Main.java", "package app;\n\npublic class Main {\n\n\tpublic static void main(String[] args) {\n"
+				+ "\t\tSystem.out.println(\"main\");\n\t}\n\n}\n");
+		commit("Add the main class");
+
+		write("src/app/Main.java", "package app;\n\npublic class Main {\n\n\tpublic static void main(String[] args) {\n"
+				+ "\t\tif (args.length > 0)\n\t\t\tnew Util().print(args[0]);\n\t}\n\n}\n");
+		write("src/app/Util.java", "package app;\n\npublic class Util {\n\n\tpublic void print(String text) {\n"
+				+ "\t\tfor (int i = 0; i < 2; i++)\n\t\t\tSystem.out.println(text);\n\t}\n\n}\n");
+		commit("Print the first argument");
+	}
+
+	@After
+	public void close() {
+		git.close();
+	}
+
+	@Test
+	public void minesIntoTheEmbeddedStorage() throws IOException, GitAPIException {
+		mine(false);
+		assertMined();
+	}
+
+	@Test
+	public void minesWithoutCheckoutIntoTheEmbeddedStorage() throws IOException, GitAPIException {
+		mine(true);
+		assertMined();
+	}
+
+	private void mine(boolean checkoutFree) throws IOException, GitAPIException {
+		Connection.getInstance().connect(new EmbeddedStorage(storage.getAbsolutePath()));
+		try {
+			createMiner(checkoutFree).mine();
+		} finally {
+			Connection.getInstance().close();
+		}
+
+		// a new commit is mined incrementally, after the storage is reopened
+		write("src/app/Util.java", "package app;\n\npublic class Util {\n\n\tpublic void print(String text) {\n"
+				+ "\t\tSystem.out.println(text);\n\t}\n\n}\n");
+		commit("Print once");
+
+		Connection.getInstance().connect(new EmbeddedStorage(storage.getAbsolutePath()));
+		try {
+			RepositoryMiner rm = createMiner(checkoutFree);
+			rm.setIncremental(true);
+			rm.mine();
+		} finally {
+			Connection.getInstance().close();
+		}
+	}
+
+	private void assertMined() {
+		Connection.getInstance().connect(new EmbeddedStorage(storage.getAbsolutePath()));
+		try {
+			Document repositoryDoc = new RepositoryDAO().findByKey(KEY, Projections.include("_id"));
+			String repositoryId = repositoryDoc.getObjectId("_id").toHexString();
+
+			assertEquals(new HashSet<String>(commits), new CommitDAO().findIdsByRepository(repositoryId));
+
+			ReferenceDAO referenceDAO = new ReferenceDAO();
+			Document master = referenceDAO.findByNameAndType("master", ReferenceType.BRANCH, repositoryId,
+					Projections.include("_id", "tip"));
+			List<String> newestFirst = new ArrayList<String>(commits);
+			Collections.reverse(newestFirst);
+			assertEquals(newestFirst.get(0), master.getString("tip"));
+			assertEquals(newestFirst, referenceDAO.findCommits(master.getObjectId("_id").toHexString(), 0));
+
+			// each commit has the analyses of the files it changed
+			List<Document> analyses = new GenericDAO("rm_code_analysis").findMany(
+					Filters.eq("repository", repositoryDoc.getObjectId("_id")),
+					Projections.include("commit", "filename", "metrics"));
+			Set<String> analyzed = new HashSet<String>();
+			for (Document analysis : analyses) {
+				analyzed.add(analysis.getString("commit"));
+				assertTrue(analysis.get("metrics", Document.class).containsKey("LOC"));
+			}
+			assertEquals(4, analyses.size());
+			assertEquals(new HashSet<String>(commits), analyzed);
+		} finally {
+			Connection.getInstance().close();
+		}
+	}
+
+	private RepositoryMiner createMiner(boolean checkoutFree) throws IOException {
+		RepositoryMiner rm = new RepositoryMiner();
+		rm.setRepositoryKey(KEY);
+		rm.setRepositoryName("Embedded");
+		rm.setRepositoryDescription("A repository mined into the embedded storage.");
+		rm.setRepositoryPath(repository.getAbsolutePath());
+		rm.setScm(new GitSCM());
+		rm.setParsers(Arrays.<IParser> asList(new JavaParser()));
+		rm.setMetrics(Arrays.<IMetric> asList(new LOC(), new CYCLO()));
+		rm.setReferences(new HashSet<ReferenceEntry>(Arrays.asList(new ReferenceEntry("master",
+				ReferenceType.BRANCH))));
+		rm.setCheckoutFree(checkoutFree);
+		rm.setWorkspaceManager(new WorkspaceManager(new File(folder.getRoot(), "workspaces").getAbsolutePath()));
+		return rm;
+	}
+
+	private void write(String filename, String source) throws IOException {
+		FileUtils.writeStringToFile(new File(repository, filename), source, "UTF-8");
+	}
+
+	private void commit(String message) throws GitAPIException {
+		git.add().addFilepattern(".").call();
+		commits.add(git.commit().setMessage(message).setAuthor("Tester", "tester@repositoryminer.org")
+				.setCommitter("Tester", "tester@repositoryminer.org").call().getName());
+	}
+
+}
@@ -0,0 +1,73 @@
+package org.repositoryminer.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.repositoryminer.ast.AST;
+
+/**
+ * Checks that the default fingerprint of a parser is the same across instances,
+ * so the persistent analysis cache is hit by later runs, and that it changes
+ * with the parser configuration.
+ */
+public class AbstractParserTest {
+
+	@Test
+	public void fingerprintIsStableAcrossInstances() {
+		assertEquals(new ScriptParser("src").getFingerprint(), new ScriptParser("src").getFingerprint());
+	}
+
+	@Test
+	public void fingerprintChangesWithTheConfiguration() {
+		assertFalse(new ScriptParser("src").getFingerprint().equals(new ScriptParser("lib").getFingerprint()));
+	}
+
+	@Test
+	public void fingerprintChangesWithTheParser() {
+		assertFalse(new ScriptParser("src").getFingerprint().equals(new OtherScriptParser("src").getFingerprint()));
+	}
+
+	private static class ScriptParser extends AbstractParser {
+
+		private String srcFolder;
+
+		public ScriptParser(String srcFolder) {
+			this.srcFolder = srcFolder;
+		}
+
+		@Override
+		public AST generate(String filename, String source) {
+			return new AST();
+		}
+
+		@Override
+		public boolean accept(String filepath) {
+			return filepath.endsWith(".script");
+		}
+
+		@Override
+		public Language getLanguage() {
+			return Language.JAVA;
+		}
+
+		@Override
+		public void scanRepository(String repositoryPath) {
+		}
+
+		@Override
+		protected String getConfiguration() {
+			return "script|src:" + srcFolder;
+		}
+
+	}
+
+	private static class OtherScriptParser extends ScriptParser {
+
+		public OtherScriptParser(String srcFolder) {
+			super(srcFolder);
+		}
+
+	}
+
+}
@@ -0,0 +1,275 @@
+package org.repositoryminer.persistence;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.repositoryminer.domain.CommitRanges;
+import org.repositoryminer.domain.ReferenceType;
+import org.repositoryminer.persistence.dao.CodeAnalysisDAO;
+import org.repositoryminer.persistence.dao.CommitDAO;
+import org.repositoryminer.persistence.dao.CommitOrdinalDAO;
+import org.repositoryminer.persistence.dao.ReferenceDAO;
+import org.repositoryminer.persistence.dao.RepositoryDAO;
+import org.repositoryminer.persistence.storage.IDocumentCollection;
+import org.repositoryminer.persistence.storage.IStorage;
+import org.repositoryminer.persistence.storage.MongoStorage;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Runs the queries of the DAOs against MongoDB, records their filters and
+ * checks with explain that none of them scans a whole collection. It is
+ * skipped unless the URI of a test server is given in the system property
+ * repositoryminer.test.mongodb.
+ */
+public class IndexUsageTest {
+
+	private static final String MONGODB_PROPERTY = "repositoryminer.test.mongodb";
+	private static final String DATABASE = "rm_test_indexes";
+
+	private MongoClient client;
+	private MongoDatabase database;
+	private List<Query> queries = new ArrayList<Query>();
+
+	private String repositoryId = new ObjectId().toHexString();
+
+	@Before
+	public void connect() {
+		String uri = System.getProperty(MONGODB_PROPERTY);
+		Assume.assumeNotNull(uri);
+
+		client = new MongoClient(new MongoClientURI(uri));
+		database = client.getDatabase(DATABASE);
+		database.drop();
+		Connection.getInstance().connect(new RecordingStorage(new MongoStorage(uri, DATABASE)));
+	}
+
+	@After
+	public void close() {
+		if (client == null)
+			return;
+
+		Connection.getInstance().close();
+		database.drop();
+		client.close();
+	}
+
+	@Test
+	public void codeAnalysisQueriesUseIndexes() {
+		new CodeAnalysisDAO().findByFileAndCommit(42L, "c1", null);
+		assertIndexesUsed();
+	}
+
+	@Test
+	public void commitQueriesUseIndexes() {
+		new CommitDAO().findIdsByRepository(repositoryId);
+
+		CommitOrdinalDAO ordinalDAO = new CommitOrdinalDAO();
+		ordinalDAO.findOrdinal(repositoryId, "c1");
+		ordinalDAO.findOrdinals(repositoryId, Arrays.asList("c1", "c2"));
+		ordinalDAO.findMaxOrdinal(repositoryId);
+		ordinalDAO.findCommits(repositoryId, 0, 10);
+		ordinalDAO.findByRepository(repositoryId);
+		assertIndexesUsed();
+	}
+
+	@Test
+	public void referenceQueriesUseIndexes() {
+		CommitOrdinalDAO ordinalDAO = new CommitOrdinalDAO();
+		ordinalDAO.insert(CommitOrdinalDAO.toDocument(repositoryId, "c1", 0));
+		ordinalDAO.insert(CommitOrdinalDAO.toDocument(repositoryId, "c2", 1));
+
+		CommitRanges ranges = new CommitRanges();
+		ranges.add(0);
+		ReferenceDAO referenceDAO = new ReferenceDAO();
+		Document refDoc = new Document("repository", new ObjectId(repositoryId)).append("name", "master")
+				.append("path", "refs/heads/master").append("type", ReferenceType.BRANCH.toString())
+				.append("commit_ranges", ranges.toDocumentList());
+		referenceDAO.insert(refDoc);
+
+		referenceDAO.findByNameAndType("master", ReferenceType.BRANCH, repositoryId, Projections.include("_id"));
+		referenceDAO.findByPath("refs/heads/master", repositoryId, null);
+		referenceDAO.findByRepository(repositoryId, null);
+		// found in the ranges, then only in the legacy list
+		referenceDAO.findByCommit(repositoryId, "c1", null);
+		referenceDAO.findByCommit(repositoryId, "c2", null);
+		referenceDAO.containsCommit(refDoc.getObjectId("_id").toHexString(), "c2");
+		referenceDAO.findCommits(refDoc.getObjectId("_id").toHexString(), 0);
+		assertIndexesUsed();
+	}
+
+	@Test
+	public void repositoryQueriesUseIndexes() {
+		new RepositoryDAO().findByKey("junit4", null);
+		assertIndexesUsed();
+	}
+
+	private void assertIndexesUsed() {
+		assertFalse(queries.isEmpty());
+		for (Query query : queries) {
+			Document find = new Document("find", query.collection).append("filter", query.where);
+			if (query.sort != null)
+				find.append("sort", query.sort);
+
+			Document explain = database
+					.runCommand(new Document("explain", find).append("verbosity", "queryPlanner"));
+			Object plan = ((Document) explain.get("queryPlanner")).get("winningPlan");
+			assertTrue(query.collection + " " + query.where.toJson() + ": " + plan, !scansCollection(plan));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean scansCollection(Object plan) {
+		if (plan instanceof Document) {
+			Document stage = (Document) plan;
+			if ("COLLSCAN".equals(stage.get("stage")))
+				return true;
+
+			for (Object value : stage.values())
+				if (scansCollection(value))
+					return true;
+		} else if (plan instanceof List) {
+			for (Object value : (List<Object>) plan)
+				if (scansCollection(value))
+					return true;
+		}
+		return false;
+	}
+
+	private static BsonDocument toBsonDocument(Bson bson) {
+		return bson != null ? bson.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry()) : null;
+	}
+
+	private static class Query {
+
+		private String collection;
+		private BsonDocument where;
+		private BsonDocument sort;
+
+		public Query(String collection, Bson where, Bson sort) {
+			this.collection = collection;
+			this.where = toBsonDocument(where);
+			this.sort = toBsonDocument(sort);
+		}
+
+	}
+
+	/*
+	 * Keeps the filters of the queries that read the collections. The queries
+	 * by _id always use an index and are left out.
+	 */
+	private class RecordingStorage implements IStorage {
+
+		private IStorage storage;
+
+		public RecordingStorage(IStorage storage) {
+			this.storage = storage;
+		}
+
+		@Override
+		public IDocumentCollection getCollection(String name) {
+			return new RecordingCollection(name, storage.getCollection(name));
+		}
+
+		@Override
+		public void close() {
+			storage.close();
+		}
+
+		private void record(String collection, Bson where, Bson sort) {
+			if (where == null)
+				return;
+
+			Query query = new Query(collection, where, sort);
+			if (!query.where.containsKey("_id"))
+				queries.add(query);
+		}
+
+		private class RecordingCollection implements IDocumentCollection {
+
+			private String name;
+			private IDocumentCollection collection;
+
+			public RecordingCollection(String name, IDocumentCollection collection) {
+				this.name = name;
+				this.collection = collection;
+			}
+
+			@Override
+			public void insertOne(Document document) {
+				collection.insertOne(document);
+			}
+
+			@Override
+			public void insertMany(List<Document> documents) {
+				collection.insertMany(documents);
+			}
+
+			@Override
+			public void bulkInsert(List<Document> documents) {
+				collection.bulkInsert(documents);
+			}
+
+			@Override
+			public long count(Bson where) {
+				record(name, where, null);
+				return collection.count(where);
+			}
+
+			@Override
+			public List<Document> find(Bson where, Bson projection, Bson sort, int limit) {
+				record(name, where, sort);
+				return collection.find(where, projection, sort, limit);
+			}
+
+			@Override
+			public UpdateResult updateOne(Bson where, Bson update) {
+				return collection.updateOne(where, update);
+			}
+
+			@Override
+			public UpdateResult updateMany(Bson where, Bson update) {
+				return collection.updateMany(where, update);
+			}
+
+			@Override
+			public void replaceOne(Bson where, Document replacement, boolean upsert) {
+				collection.replaceOne(where, replacement, upsert);
+			}
+
+			@Override
+			public long deleteOne(Bson where) {
+				return collection.deleteOne(where);
+			}
+
+			@Override
+			public long deleteMany(Bson where) {
+				return collection.deleteMany(where);
+			}
+
+			@Override
+			public void createIndex(Bson keys) {
+				collection.createIndex(keys);
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.repositoryminer.persistence.dao;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.persistence.Connection;
+import org.repositoryminer.persistence.storage.EmbeddedStorage;
+
+/**
+ * Inserts the same documents one by one, through a {@link BatchWriter} and
+ * through an {@link AsyncWriter}, and prints the throughput of each. The
+ * MongoDB run is skipped unless the URI of a test server is given in the
+ * system property repositoryminer.test.mongodb, e.g. gradle test
+ * -Drepositoryminer.test.mongodb=mongodb://localhost.
+ */
+public class BatchWriterTest {
+
+	private static final String MONGODB_PROPERTY = "repositoryminer.test.mongodb";
+	private static final String DATABASE = "rm_test";
+
+	private static final int DOCUMENTS = 20000;
+	private static final int BATCH_SIZE = 1000;
+	private static final long FLUSH_INTERVAL = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private boolean connected;
+
+	@After
+	public void close() {
+		if (connected)
+			Connection.getInstance().close();
+	}
+
+	@Test
+	public void embeddedStorageThroughput() throws IOException {
+		Connection.getInstance().connect(new EmbeddedStorage(folder.newFolder().getAbsolutePath()));
+		connected = true;
+		measure("embedded storage");
+	}
+
+	@Test
+	public void mongoDBThroughput() {
+		String uri = System.getProperty(MONGODB_PROPERTY);
+		Assume.assumeNotNull(uri);
+
+		Connection.getInstance().connect(uri, DATABASE);
+		connected = true;
+		measure("MongoDB");
+	}
+
+	private void measure(String storage) {
+		GenericDAO single = createDAO("rm_test_single");
+		long start = System.nanoTime();
+		for (int i = 0; i < DOCUMENTS; i++)
+			single.insert(createDocument(i));
+		long singleTime = System.nanoTime() - start;
+
+		GenericDAO batch = createDAO("rm_test_batch");
+		start = System.nanoTime();
+		BatchWriter batchWriter = batch.createBatchWriter(BATCH_SIZE, FLUSH_INTERVAL);
+		for (int i = 0; i < DOCUMENTS; i++)
+			batchWriter.insert(createDocument(i));
+		batchWriter.close();
+		long batchTime = System.nanoTime() - start;
+
+		GenericDAO async = createDAO("rm_test_async");
+		start = System.nanoTime();
+		AsyncWriter asyncWriter = new AsyncWriter(10 * BATCH_SIZE, BATCH_SIZE, FLUSH_INTERVAL);
+		for (int i = 0; i < DOCUMENTS; i++)
+			asyncWriter.insert(async, createDocument(i));
+		asyncWriter.close();
+		long asyncTime = System.nanoTime() - start;
+
+		System.out.println(String.format("%s, %d documents: one by one %.0f docs/s, batch writer %.0f docs/s, "
+				+ "async writer %.0f docs/s", storage, DOCUMENTS, throughput(singleTime), throughput(batchTime),
+				throughput(asyncTime)));
+
+		assertEquals(DOCUMENTS, single.count(new Document()));
+		assertEquals(DOCUMENTS, batch.count(new Document()));
+		assertEquals(DOCUMENTS, async.count(new Document()));
+	}
+
+	private static GenericDAO createDAO(String collection) {
+		GenericDAO dao = new GenericDAO(collection);
+		dao.deleteMany(new Document());
+		return dao;
+	}
+
+	private static Document createDocument(int i) {
+		return new Document("commit", Integer.toHexString(i)).append("filename", "src/File" + i + ".java")
+				.append("metrics", new Document("LOC", i % 500).append("CYCLO", i % 20));
+	}
+
+	private static double throughput(long nanos) {
+		return DOCUMENTS / (nanos / 1e9);
+	}
+
+}
@@ -0,0 +1,102 @@
+package org.repositoryminer.persistence.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.domain.CommitRanges;
+import org.repositoryminer.domain.Reference;
+import org.repositoryminer.persistence.Connection;
+import org.repositoryminer.persistence.storage.EmbeddedStorage;
+
+import com.mongodb.client.model.Projections;
+
+/**
+ * Checks the commits of references stored as ranges and of references mined by
+ * older versions, which only have the list of their commits.
+ */
+public class ReferenceDAOTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String repositoryId = new ObjectId().toHexString();
+	private ReferenceDAO referenceDAO;
+
+	@Before
+	public void connect() throws IOException {
+		Connection.getInstance().connect(new EmbeddedStorage(folder.newFolder().getAbsolutePath()));
+		referenceDAO = new ReferenceDAO();
+
+		CommitOrdinalDAO ordinalDAO = new CommitOrdinalDAO();
+		String[] commits = { "c3", "c2", "c1" };
+		for (int i = 0; i < commits.length; i++)
+			ordinalDAO.insert(CommitOrdinalDAO.toDocument(repositoryId, commits[i], i));
+	}
+
+	@After
+	public void close() {
+		Connection.getInstance().close();
+	}
+
+	@Test
+	public void readsTheCommitRanges() {
+		String id = insert(new Document("commit_ranges", CommitRanges.fromOrdinals(Arrays.asList(0, 1, 2))
+				.toDocumentList()));
+
+		assertEquals(Arrays.asList("c3", "c2", "c1"), referenceDAO.findCommits(id, 0));
+		assertEquals(Arrays.asList("c3", "c2"), referenceDAO.findCommits(id, 2));
+		assertEquals(3, referenceDAO.findCommitRanges(id).size());
+		assertEquals(id, referenceDAO.findByCommit(repositoryId, "c2", Projections.include("_id")).getObjectId("_id")
+				.toHexString());
+		assertTrue(referenceDAO.containsCommit(id, "c1"));
+		assertFalse(referenceDAO.containsCommit(id, "c0"));
+	}
+
+	@Test
+	public void fallsBackToTheLegacyCommits() {
+		String id = insert(new Document("commits", Arrays.asList("l3", "l2", "l1")));
+
+		assertEquals(Arrays.asList("l3", "l2", "l1"), referenceDAO.findCommits(id, 0));
+		assertEquals(Arrays.asList("l3"), referenceDAO.findCommits(id, 1));
+		assertNull(referenceDAO.findCommitRanges(id));
+		assertEquals(id, referenceDAO.findByCommit(repositoryId, "l2", Projections.include("_id")).getObjectId("_id")
+				.toHexString());
+		assertTrue(referenceDAO.containsCommit(id, "l1"));
+		assertNull(referenceDAO.findByCommit(repositoryId, "l0", null));
+
+		Reference reference = Reference.parseDocument(referenceDAO.findById(id, null));
+		assertEquals("l3", reference.getTip());
+	}
+
+	@Test
+	public void replacesTheLegacyCommitsByRanges() {
+		String id = insert(new Document("commits", Arrays.asList("c3", "c2", "c1")));
+		referenceDAO.updateTipAndCommits(id, "c3", CommitRanges.fromOrdinals(Arrays.asList(0, 1, 2)));
+
+		Document refDoc = referenceDAO.findById(id, null);
+		assertFalse(refDoc.containsKey("commits"));
+		assertEquals(Arrays.asList("c3", "c2", "c1"), referenceDAO.findCommits(id, 0));
+		assertEquals(3, referenceDAO.findCommitRanges(id).size());
+	}
+
+	private String insert(Document commits) {
+		Document refDoc = new Document("repository", new ObjectId(repositoryId)).append("name", "master")
+				.append("path", "refs/heads/master").append("type", "BRANCH");
+		refDoc.putAll(commits);
+		referenceDAO.insert(refDoc);
+		return refDoc.getObjectId("_id").toHexString();
+	}
+
+}
@@ -0,0 +1,226 @@
+package org.repositoryminer.persistence.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.exception.RepositoryMinerException;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Checks the queries and updates of the {@link EmbeddedCollection}, the replay
+ * and compaction of its segments and the lock of the {@link EmbeddedStorage}
+ * directory.
+ */
+public class EmbeddedCollectionTest {
+
+	private static final String COLLECTION = "rm_test";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+	private EmbeddedStorage storage;
+	private IDocumentCollection collection;
+
+	@Before
+	public void open() throws IOException {
+		directory = folder.newFolder("storage");
+		reopen();
+		collection.createIndex(Indexes.ascending("repository", "commit"));
+		collection.insertMany(Arrays.asList(
+				new Document("_id", 1).append("repository", "r1").append("commit", "c1").append("loc", 10)
+						.append("tags", Arrays.asList("a", "b")),
+				new Document("_id", 2).append("repository", "r1").append("commit", "c2").append("loc", 30)
+						.append("ranges", Arrays.asList(new Document("from", 0).append("to", 4))),
+				new Document("_id", 3).append("repository", "r2").append("commit", "c1").append("loc", 20)));
+	}
+
+	@After
+	public void close() {
+		if (storage != null)
+			storage.close();
+	}
+
+	@Test
+	public void findsByFilters() {
+		assertIds(collection.find(Filters.eq("repository", "r1"), null, null, 0), 1, 2);
+		assertIds(collection.find(Filters.in("commit", "c2", "c3"), null, null, 0), 2);
+		assertIds(collection.find(Filters.and(Filters.gte("loc", 20), Filters.lt("loc", 30)), null, null, 0), 3);
+		assertIds(collection.find(Filters.or(Filters.eq("_id", 1), Filters.eq("repository", "r2")), null, null, 0),
+				1, 3);
+		assertIds(collection.find(Filters.and(Filters.eq("repository", "r1"), Filters.eq("commit", "c1")), null,
+				null, 0), 1);
+		assertIds(collection.find(Filters.eq("tags", "b"), null, null, 0), 1);
+		assertIds(collection.find(Filters.exists("ranges"), null, null, 0), 2);
+		assertIds(collection.find(Filters.elemMatch("ranges", Filters.and(Filters.lte("from", 3),
+				Filters.gte("to", 3))), null, null, 0), 2);
+		assertIds(collection.find(Filters.elemMatch("ranges", Filters.gte("from", 5)), null, null, 0));
+		assertEquals(2, collection.count(Filters.eq("commit", "c1")));
+	}
+
+	@Test
+	public void sortsLimitsAndProjects() {
+		List<Document> found = collection.find(null, Projections.include("loc"), Sorts.descending("loc"), 2);
+
+		assertIds(found, 2, 3);
+		assertEquals(new Document("_id", 2).append("loc", 30), found.get(0));
+	}
+
+	@Test
+	public void projectsTheIdAlone() {
+		List<Document> found = collection.find(Filters.eq("_id", 3), Projections.include("_id"), null, 0);
+		assertEquals(Arrays.asList(new Document("_id", 3)), found);
+
+		found = collection.find(Filters.eq("_id", 3), Projections.exclude("_id"), null, 0);
+		assertEquals(Arrays.asList(new Document("repository", "r2").append("commit", "c1").append("loc", 20)), found);
+
+		found = collection.find(Filters.eq("_id", 3), Projections.fields(Projections.include("_id"),
+				Projections.exclude("repository", "commit")), null, 0);
+		assertEquals(Arrays.asList(new Document("_id", 3).append("loc", 20)), found);
+	}
+
+	@Test
+	public void setsAndUnsetsFields() {
+		assertEquals(2, collection.updateMany(Filters.eq("repository", "r1"),
+				Updates.combine(Updates.set("loc", 0), Updates.unset("tags"))).getModifiedCount());
+		assertEquals(1, collection.updateOne(Filters.eq("repository", "r1"), Updates.set("checked", true))
+				.getModifiedCount());
+
+		assertIds(collection.find(Filters.eq("loc", 0), null, null, 0), 1, 2);
+		assertIds(collection.find(Filters.exists("tags"), null, null, 0));
+		assertEquals(1, collection.count(Filters.eq("checked", true)));
+	}
+
+	@Test
+	public void countsOnlyTheModifiedDocuments() {
+		UpdateResult result = collection.updateMany(Filters.eq("repository", "r1"), Updates.set("loc", 30));
+		assertEquals(2, result.getMatchedCount());
+		assertEquals(1, result.getModifiedCount());
+
+		result = collection.updateOne(Filters.eq("_id", 3), Updates.unset("tags"));
+		assertEquals(1, result.getMatchedCount());
+		assertEquals(0, result.getModifiedCount());
+	}
+
+	@Test
+	public void rejectsDuplicateKeys() {
+		try {
+			collection.insertOne(new Document("_id", 1));
+			fail("The duplicate key was inserted.");
+		} catch (RepositoryMinerException e) {
+			// expected
+		}
+		assertEquals(3, collection.count(null));
+	}
+
+	@Test
+	public void keepsTheChangesAfterReopening() {
+		collection.deleteOne(Filters.eq("_id", 3));
+		collection.updateOne(Filters.eq("_id", 1), Updates.set("loc", 11));
+		reopen();
+
+		assertIds(collection.find(Filters.eq("repository", "r1"), null, Sorts.ascending("_id"), 0), 1, 2);
+		assertEquals(1, collection.count(Filters.eq("loc", 11)));
+		assertEquals(2, collection.count(null));
+	}
+
+	/*
+	 * A crash while a record is written leaves a partial record at the end of
+	 * the segment, which is cut off so the records appended later are read.
+	 */
+	@Test
+	public void truncatesATornRecord() throws IOException {
+		storage.close();
+		File segment = new File(new File(directory, COLLECTION), "segment-000000.log");
+		long length = segment.length();
+		FileOutputStream out = new FileOutputStream(segment, true);
+		try {
+			out.write(new byte[] { 'P', 100, 0, 0, 0, 1, 2 });
+		} finally {
+			out.close();
+		}
+
+		reopen();
+		assertEquals(3, collection.count(null));
+		assertEquals(length, segment.length());
+
+		collection.insertOne(new Document("_id", 4).append("repository", "r2"));
+		reopen();
+		assertIds(collection.find(Filters.eq("repository", "r2"), null, Sorts.ascending("_id"), 0), 3, 4);
+	}
+
+	/*
+	 * Most of the records are outdated updates, so the live ones are copied to
+	 * a new segment when the collection is opened again.
+	 */
+	@Test
+	public void compactsTheOutdatedRecords() {
+		for (int i = 0; i < 1000; i++)
+			collection.updateOne(Filters.eq("_id", 1), Updates.set("loc", i));
+		collection.deleteOne(Filters.eq("_id", 3));
+		File segments = new File(directory, COLLECTION);
+		long length = new File(segments, "segment-000000.log").length();
+
+		reopen();
+		assertFalse(new File(segments, "segment-000000.log").exists());
+		assertTrue(new File(segments, "segment-000001.log").length() < length / 100);
+		assertIds(collection.find(Filters.eq("repository", "r1"), null, Sorts.ascending("_id"), 0), 1, 2);
+		assertEquals(1, collection.count(Filters.eq("loc", 999)));
+
+		collection.updateOne(Filters.eq("_id", 2), Updates.set("loc", 31));
+		reopen();
+		assertEquals(2, collection.count(null));
+		assertEquals(1, collection.count(Filters.eq("loc", 31)));
+	}
+
+	@Test
+	public void locksTheDirectory() {
+		try {
+			new EmbeddedStorage(directory.getAbsolutePath());
+			fail("The storage was opened twice.");
+		} catch (RepositoryMinerException e) {
+			// expected
+		}
+
+		storage.close();
+		storage = new EmbeddedStorage(directory.getAbsolutePath());
+		collection = storage.getCollection(COLLECTION);
+		assertEquals(3, collection.count(null));
+	}
+
+	private void reopen() {
+		if (storage != null)
+			storage.close();
+		storage = new EmbeddedStorage(directory.getAbsolutePath());
+		collection = storage.getCollection(COLLECTION);
+	}
+
+	private static void assertIds(List<Document> documents, Integer... ids) {
+		List<Integer> found = new ArrayList<Integer>();
+		for (Document document : documents)
+			found.add(document.getInteger("_id"));
+		assertEquals(Arrays.asList(ids), found);
+	}
+
+}
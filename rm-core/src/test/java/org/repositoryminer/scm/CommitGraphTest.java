@@ -0,0 +1,248 @@
+package org.repositoryminer.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.domain.Reference;
+
+/**
+ * Checks that the commit-graph of a repository is used through a workspace and
+ * compares the history walks of {@link GitSCM} with and without the graph on a
+ * generated history, printing the times of both. The commit-graph files are
+ * written by the git command line, so the tests are skipped without it.
+ */
+public class CommitGraphTest {
+
+	private static final int COMMITS = 50000;
+	private static final int MERGE_INTERVAL = 10;
+	private static final int TAG_INTERVAL = 1000;
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int ROUNDS = 5;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void usesTheGraphOfTheRepositoryInAWorkspace() throws IOException, GitAPIException {
+		File repository = folder.newFolder("repository");
+		Git git = Git.init().setDirectory(repository).call();
+		try {
+			for (int i = 1; i <= 3; i++) {
+				FileUtils.writeStringToFile(new File(repository, "File.java"), "class File" + i + " {}\n", "UTF-8");
+				git.add().addFilepattern(".").call();
+				git.commit().setMessage("Commit " + i).call();
+			}
+			Assume.assumeTrue(runGit(repository, "commit-graph", "write", "--reachable"));
+
+			// a commit created after the graph is parsed from its object
+			FileUtils.writeStringToFile(new File(repository, "File.java"), "class File4 {}\n", "UTF-8");
+			git.add().addFilepattern(".").call();
+			git.commit().setMessage("Commit 4").call();
+		} finally {
+			git.close();
+		}
+
+		WorkspaceManager manager = new WorkspaceManager(folder.newFolder("workspaces").getAbsolutePath());
+		String workspace = manager.acquire(repository.getAbsolutePath(), "graph");
+		try {
+			assertTrue(new File(workspace, ".git/objects/info/alternates").exists());
+			CommitGraph graph = CommitGraph.open(new File(workspace, Constants.DOT_GIT));
+			assertNotNull(graph);
+			assertEquals(3, graph.size());
+
+			GitSCM withGraph = open(workspace, true);
+			GitSCM withoutGraph = open(workspace, false);
+			try {
+				assertTrue(withGraph.isCommitGraphUsed());
+				Reference master = getReference(withGraph, "master");
+				List<String> commits = withGraph.getCommitsNames(master);
+				assertEquals(4, commits.size());
+				assertEquals(withoutGraph.getCommitsNames(master), commits);
+			} finally {
+				withGraph.close();
+				withoutGraph.close();
+			}
+		} finally {
+			manager.release(workspace);
+		}
+	}
+
+	@Test
+	public void walksTheHistoryWithAndWithoutTheGraph() throws IOException, GitAPIException {
+		File repository = folder.newFolder("history");
+		Git git = Git.init().setDirectory(repository).call();
+		try {
+			createHistory(git.getRepository());
+		} finally {
+			git.close();
+		}
+		Assume.assumeTrue(runGit(repository, "repack", "-a", "-d", "-q"));
+		Assume.assumeTrue(runGit(repository, "commit-graph", "write", "--reachable"));
+
+		GitSCM withGraph = open(repository.getAbsolutePath(), true);
+		GitSCM withoutGraph = open(repository.getAbsolutePath(), false);
+		try {
+			assertTrue(withGraph.isCommitGraphUsed());
+			Reference master = getReference(withGraph, "master");
+
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				withGraph.getCommitsNames(master);
+				withoutGraph.getCommitsNames(master);
+				withGraph.getReachabilityIndex();
+				withoutGraph.getReachabilityIndex();
+			}
+
+			long[] times = new long[4];
+			List<String> graphCommits = null;
+			List<String> parsedCommits = null;
+			ReachabilityIndex graphIndex = null;
+			ReachabilityIndex parsedIndex = null;
+			for (int i = 0; i < ROUNDS; i++) {
+				long start = System.nanoTime();
+				graphCommits = withGraph.getCommitsNames(master);
+				times[0] += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				parsedCommits = withoutGraph.getCommitsNames(master);
+				times[1] += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				graphIndex = withGraph.getReachabilityIndex();
+				times[2] += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				parsedIndex = withoutGraph.getReachabilityIndex();
+				times[3] += System.nanoTime() - start;
+			}
+
+			System.out.println(String.format("%d commits, %d references: commits of a branch %.1f ms with the "
+					+ "graph, %.1f ms parsing; reachability index %.1f ms with the graph, %.1f ms parsing "
+					+ "(average of %d rounds)", graphIndex.getCommits().size(), graphIndex.getReferences().size(),
+					times[0] / 1e6 / ROUNDS, times[1] / 1e6 / ROUNDS, times[2] / 1e6 / ROUNDS,
+					times[3] / 1e6 / ROUNDS, ROUNDS));
+
+			assertEquals(parsedCommits, graphCommits);
+			assertEquals(parsedIndex.getCommits().size(), graphIndex.getCommits().size());
+			for (Reference reference : parsedIndex.getReferences())
+				assertEquals(reference.getName(), parsedIndex.getCommits(reference).size(),
+						graphIndex.getCommits(reference).size());
+		} finally {
+			withGraph.close();
+			withoutGraph.close();
+		}
+	}
+
+	/*
+	 * A main line where every tenth commit merges a side commit forked five
+	 * commits before, with a tag every thousand commits. The objects are
+	 * written directly, all commits share the empty tree.
+	 */
+	private static void createHistory(Repository repository) throws IOException {
+		ObjectInserter inserter = repository.newObjectInserter();
+		try {
+			ObjectId tree = inserter.insert(new TreeFormatter());
+			List<ObjectId> mainLine = new ArrayList<ObjectId>();
+			List<Integer> tags = new ArrayList<Integer>();
+			long time = 1000000000L;
+
+			for (int i = 0; i < COMMITS; i++) {
+				List<ObjectId> parents = new ArrayList<ObjectId>();
+				if (i > 0)
+					parents.add(mainLine.get(i - 1));
+				if (i > 5 && i % MERGE_INTERVAL == 0)
+					parents.add(insertCommit(inserter, tree, time++, "Side " + i, mainLine.get(i - 5)));
+
+				ObjectId id = insertCommit(inserter, tree, time++, "Commit " + i,
+						parents.toArray(new ObjectId[parents.size()]));
+				mainLine.add(id);
+
+				if (i % TAG_INTERVAL == 0)
+					tags.add(i);
+			}
+
+			inserter.flush();
+			for (int tag : tags)
+				updateRef(repository, Constants.R_TAGS + "v" + tag, mainLine.get(tag));
+			updateRef(repository, Constants.R_HEADS + "master", mainLine.get(COMMITS - 1));
+		} finally {
+			inserter.close();
+		}
+	}
+
+	private static ObjectId insertCommit(ObjectInserter inserter, ObjectId tree, long time, String message,
+			ObjectId... parents) throws IOException {
+		PersonIdent ident = new PersonIdent("Tester", "tester@repositoryminer.org", new Date(time * 1000),
+				TimeZone.getTimeZone("UTC"));
+		CommitBuilder commit = new CommitBuilder();
+		commit.setTreeId(tree);
+		commit.setParentIds(parents);
+		commit.setAuthor(ident);
+		commit.setCommitter(ident);
+		commit.setMessage(message);
+		return inserter.insert(commit);
+	}
+
+	private static void updateRef(Repository repository, String name, ObjectId id) throws IOException {
+		RefUpdate update = repository.updateRef(name);
+		update.setNewObjectId(id);
+		update.setForceUpdate(true);
+		update.update();
+	}
+
+	private static GitSCM open(String path, boolean commitGraphEnabled) {
+		GitSCM scm = new GitSCM();
+		scm.setCommitGraphEnabled(commitGraphEnabled);
+		scm.open(path);
+		return scm;
+	}
+
+	private static Reference getReference(GitSCM scm, String name) {
+		for (Reference reference : scm.getReferences())
+			if (reference.getName().equals(name))
+				return reference;
+		return null;
+	}
+
+	private static boolean runGit(File repository, String... args) {
+		List<String> command = new ArrayList<String>();
+		command.add("git");
+		for (String arg : args)
+			command.add(arg);
+
+		try {
+			Process process = new ProcessBuilder(command).directory(repository).redirectErrorStream(true).start();
+			IOUtils.toString(process.getInputStream(), "UTF-8");
+			return process.waitFor() == 0;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+package org.repositoryminer.scm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Scanner;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.repositoryminer.domain.Change;
+import org.repositoryminer.domain.ChangeType;
+import org.repositoryminer.domain.Commit;
+
+/**
+ * Compares the code churn taken from the edit lists of {@link GitCommitExtractor}
+ * with the former churn, which formatted a diff filtered to each changed file
+ * and counted its lines, on a generated history of large commits. The churn
+ * must be the same and the commits per second of both are printed.
+ */
+public class GitCommitExtractorTest {
+
+	private static final int COMMITS = 8;
+	private static final int FILES = 1500;
+	private static final int LINES = 200;
+	private static final int CHANGED_LINES = 10;
+	private static final int WARMUP_ROUNDS = 1;
+	private static final int ROUNDS = 2;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void editListsMatchTheFormattedDiffs() throws IOException, GitAPIException {
+		File directory = folder.newFolder("repository");
+		Git git = Git.init().setDirectory(directory).call();
+		Repository repository = git.getRepository();
+		RevWalk revWalk = new RevWalk(repository);
+		GitCommitExtractor extractor = new GitCommitExtractor(repository, null);
+		try {
+			List<RevCommit> commits = new ArrayList<RevCommit>();
+			for (ObjectId id : createHistory(repository))
+				commits.add(revWalk.parseCommit(id));
+
+			List<Commit> extracted = null;
+			List<List<Change>> formatted = null;
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				extractCommits(extractor, commits);
+				formatCommits(repository, commits);
+			}
+
+			long extractedTime = 0;
+			long formattedTime = 0;
+			for (int i = 0; i < ROUNDS; i++) {
+				long start = System.nanoTime();
+				extracted = extractCommits(extractor, commits);
+				extractedTime += System.nanoTime() - start;
+
+				start = System.nanoTime();
+				formatted = formatCommits(repository, commits);
+				formattedTime += System.nanoTime() - start;
+			}
+
+			System.out.println(String.format("%d commits of %d changed files: %.2f commits/s from the edit lists, "
+					+ "%.2f commits/s formatting a diff per file (average of %d rounds)", COMMITS, FILES,
+					COMMITS * ROUNDS / (extractedTime / 1e9), COMMITS * ROUNDS / (formattedTime / 1e9), ROUNDS));
+
+			for (int i = 0; i < COMMITS; i++) {
+				List<Change> expected = formatted.get(i);
+				List<Change> actual = extracted.get(i).getDiffs();
+				assertEquals(expected.size(), actual.size());
+				for (int j = 0; j < expected.size(); j++) {
+					assertEquals(expected.get(j).getPath(), actual.get(j).getPath());
+					assertEquals(expected.get(j).getPath(), expected.get(j).getLinesAdded(),
+							actual.get(j).getLinesAdded());
+					assertEquals(expected.get(j).getPath(), expected.get(j).getLinesRemoved(),
+							actual.get(j).getLinesRemoved());
+				}
+			}
+		} finally {
+			extractor.close();
+			revWalk.close();
+			git.close();
+		}
+	}
+
+	private static List<Commit> extractCommits(GitCommitExtractor extractor, List<RevCommit> commits)
+			throws IOException {
+		List<Commit> result = new ArrayList<Commit>();
+		for (RevCommit commit : commits)
+			result.add(extractor.extract(commit));
+		return result;
+	}
+
+	/*
+	 * The changes are scanned as the extractor does, but the churn of each
+	 * one is counted from a formatted diff filtered to its path.
+	 */
+	private static List<List<Change>> formatCommits(Repository repository, List<RevCommit> commits)
+			throws IOException {
+		DiffFormatter scanner = new DiffFormatter(DisabledOutputStream.INSTANCE);
+		scanner.setRepository(repository);
+		scanner.setDetectRenames(true);
+		try {
+			List<List<Change>> result = new ArrayList<List<Change>>();
+			for (RevCommit commit : commits) {
+				RevCommit parentCommit = commit.getParentCount() > 0 ? commit.getParent(0) : null;
+				List<Change> changes = new ArrayList<Change>();
+				for (DiffEntry entry : scanner.scan(parentCommit, commit)) {
+					Change change = new Change(entry.getNewPath(), null, 0, 0, ChangeType.MODIFY);
+					formatCodeChurn(repository, change, parentCommit, commit);
+					changes.add(change);
+				}
+				result.add(changes);
+			}
+			return result;
+		} finally {
+			scanner.close();
+		}
+	}
+
+	private static void formatCodeChurn(Repository repository, Change change, RevCommit parentCommit,
+			RevCommit commit) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DiffFormatter formatter = new DiffFormatter(output);
+
+		formatter.setRepository(repository);
+		formatter.setContext(0);
+		formatter.setPathFilter(PathFilter.create(change.getPath()));
+		formatter.format(parentCommit, commit);
+
+		Scanner scanner = new Scanner(output.toString());
+		int added = 0;
+		int removed = 0;
+
+		while (scanner.hasNextLine()) {
+			String line = scanner.nextLine();
+			if (line.startsWith("+") && !line.startsWith("+++"))
+				added++;
+			else if (line.startsWith("-") && !line.startsWith("---"))
+				removed++;
+		}
+
+		output.close();
+		formatter.close();
+		scanner.close();
+
+		change.setLinesAdded(added);
+		change.setLinesRemoved(removed);
+	}
+
+	/*
+	 * Every commit changes a few lines of each file, at a place that moves
+	 * from commit to commit. The objects are written directly.
+	 */
+	private static List<ObjectId> createHistory(Repository repository) throws IOException {
+		ObjectInserter inserter = repository.newObjectInserter();
+		try {
+			List<ObjectId> commits = new ArrayList<ObjectId>();
+			ObjectId parent = null;
+			for (int c = 0; c < COMMITS; c++) {
+				TreeFormatter tree = new TreeFormatter();
+				for (int f = 0; f < FILES; f++) {
+					byte[] content = createSource(f, c).getBytes("UTF-8");
+					tree.append(String.format("File%05d.java", f), FileMode.REGULAR_FILE,
+							inserter.insert(Constants.OBJ_BLOB, content));
+				}
+
+				PersonIdent ident = new PersonIdent("Tester", "tester@repositoryminer.org",
+						new Date(1000000000000L + c * 1000L), TimeZone.getTimeZone("UTC"));
+				CommitBuilder commit = new CommitBuilder();
+				commit.setTreeId(inserter.insert(tree));
+				if (parent != null)
+					commit.setParentId(parent);
+				commit.setAuthor(ident);
+				commit.setCommitter(ident);
+				commit.setMessage("Commit " + c);
+				parent = inserter.insert(commit);
+				commits.add(parent);
+			}
+			inserter.flush();
+			return commits;
+		} finally {
+			inserter.close();
+		}
+	}
+
+	private static String createSource(int file, int commit) {
+		StringBuilder sb = new StringBuilder();
+		int changed = (file + commit * 7) % (LINES - CHANGED_LINES);
+		for (int l = 0; l < LINES; l++) {
+			sb.append("\tint line").append(l).append(" = ");
+			if (l >= changed && l < changed + CHANGED_LINES)
+				sb.append(commit).append(" * ").append(file);
+			else
+				sb.append(l);
+			sb.append(";\n");
+		}
+		return sb.toString();
+	}
+
+}
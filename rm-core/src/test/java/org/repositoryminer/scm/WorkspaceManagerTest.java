@@ -0,0 +1,156 @@
+package org.repositoryminer.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that a workspace sees the history and the configuration of the
+ * original repository.
+ */
+public class WorkspaceManagerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File repository;
+	private Git git;
+	private WorkspaceManager manager;
+	private List<RevCommit> commits = new ArrayList<RevCommit>();
+
+	@Before
+	public void createRepository() throws IOException, GitAPIException {
+		repository = folder.newFolder("repository");
+		git = Git.init().setDirectory(repository).call();
+		for (int i = 1; i <= 3; i++) {
+			FileUtils.writeStringToFile(new File(repository, "File.java"), "class File" + i + " {}\n", "UTF-8");
+			git.add().addFilepattern(".").call();
+			commits.add(git.commit().setMessage("Commit " + i).call());
+		}
+
+		manager = new WorkspaceManager(folder.newFolder("workspaces").getAbsolutePath());
+	}
+
+	@After
+	public void close() {
+		git.close();
+	}
+
+	/*
+	 * A shallow clone lacks the parents of its boundary commits. It is made
+	 * here by marking the second commit as shallow and removing the first one.
+	 */
+	@Test
+	public void keepsTheShallowBoundary() throws IOException {
+		File gitDir = new File(repository, Constants.DOT_GIT);
+		String boundary = commits.get(1).getName();
+		FileUtils.writeStringToFile(new File(gitDir, "shallow"), boundary + "\n", "UTF-8");
+		String root = commits.get(0).getName();
+		assertTrue(new File(gitDir, "objects/" + root.substring(0, 2) + "/" + root.substring(2)).delete());
+
+		String workspace = manager.acquire(repository.getAbsolutePath(), "shallow");
+		try {
+			File shallow = new File(workspace, Constants.DOT_GIT + "/shallow");
+			assertEquals(boundary, FileUtils.readFileToString(shallow, "UTF-8").trim());
+
+			List<String> walked = walk(workspace);
+			assertEquals(2, walked.size());
+			assertEquals(commits.get(2).getName(), walked.get(0));
+			assertEquals(boundary, walked.get(1));
+		} finally {
+			manager.release(workspace);
+		}
+
+		// the file is removed when the repository is not shallow anymore
+		new File(gitDir, "shallow").delete();
+		workspace = manager.acquire(repository.getAbsolutePath(), "shallow");
+		try {
+			assertFalse(new File(workspace, Constants.DOT_GIT + "/shallow").exists());
+		} finally {
+			manager.release(workspace);
+		}
+	}
+
+	@Test
+	public void usesTheConfigurationOfTheRepository() throws IOException {
+		StoredConfig config = git.getRepository().getConfig();
+		config.setString(ConfigConstants.CONFIG_DIFF_SECTION, null, ConfigConstants.CONFIG_KEY_ALGORITHM,
+				"histogram");
+		config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_AUTOCRLF, true);
+		config.save();
+
+		String workspace = manager.acquire(repository.getAbsolutePath(), "config");
+		try {
+			assertConfig(workspace, "histogram", true);
+		} finally {
+			manager.release(workspace);
+		}
+
+		// a reused workspace follows the changes of the configuration
+		config.setString(ConfigConstants.CONFIG_DIFF_SECTION, null, ConfigConstants.CONFIG_KEY_ALGORITHM, "myers");
+		config.unset(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_AUTOCRLF);
+		config.save();
+
+		workspace = manager.acquire(repository.getAbsolutePath(), "config");
+		try {
+			assertConfig(workspace, "myers", false);
+		} finally {
+			manager.release(workspace);
+		}
+	}
+
+	private static void assertConfig(String workspace, String algorithm, boolean autoCRLF)
+			throws IOException {
+		Repository repository = open(workspace);
+		try {
+			assertEquals(algorithm, repository.getConfig().getString(ConfigConstants.CONFIG_DIFF_SECTION, null,
+					ConfigConstants.CONFIG_KEY_ALGORITHM));
+			assertEquals(autoCRLF, repository.getConfig().getBoolean(ConfigConstants.CONFIG_CORE_SECTION, null,
+					ConfigConstants.CONFIG_KEY_AUTOCRLF, false));
+			assertFalse(repository.isBare());
+		} finally {
+			repository.close();
+		}
+	}
+
+	private static List<String> walk(String workspace) throws IOException {
+		Repository repository = open(workspace);
+		RevWalk walk = new RevWalk(repository);
+		try {
+			walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
+			List<String> names = new ArrayList<String>();
+			for (RevCommit commit : walk)
+				names.add(commit.getName());
+			return names;
+		} finally {
+			walk.close();
+			repository.close();
+		}
+	}
+
+	private static Repository open(String workspace) throws IOException {
+		return new FileRepositoryBuilder().setGitDir(new File(workspace, Constants.DOT_GIT)).build();
+	}
+
+}
@@ -83,10 +83,10 @@ public class ExCommentMiner {
 	}
 
 	public void execute(String name, ReferenceType type) throws IOException {
-		Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.slice("commits", 1));
+		Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.exclude("commit_ranges"));
 		Reference reference = Reference.parseDocument(refDoc);
 
-		String commitId = reference.getCommits().get(0);
+		String commitId = reference.getTip();
 		persistAnalysis(commitId, reference);
 	}
 
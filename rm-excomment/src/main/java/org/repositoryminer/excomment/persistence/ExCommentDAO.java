@@ -2,6 +2,7 @@ package org.repositoryminer.excomment.persistence;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.repositoryminer.persistence.IndexManager;
 import org.repositoryminer.persistence.dao.GenericDAO;
 
 import com.mongodb.BasicDBObject;
@@ -10,6 +11,10 @@ import com.mongodb.client.model.Filters;
 public class ExCommentDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "excomment_comments_analysis";
+
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "filehash", "commit");
+	}
 	
 	public ExCommentDAO() {
 		super(COLLECTION_NAME);
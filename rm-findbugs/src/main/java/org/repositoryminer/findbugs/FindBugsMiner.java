@@ -23,13 +23,14 @@ import org.repositoryminer.findbugs.configuration.Effort;
 import org.repositoryminer.findbugs.configuration.Priority;
 import org.repositoryminer.findbugs.model.ReportedBug;
 import org.repositoryminer.findbugs.persistence.FindBugsDAO;
+import org.repositoryminer.persistence.dao.AsyncWriter;
 import org.repositoryminer.persistence.dao.CommitDAO;
 import org.repositoryminer.persistence.dao.ReferenceDAO;
 import org.repositoryminer.persistence.dao.RepositoryDAO;
 import org.repositoryminer.scm.ISCM;
 import org.repositoryminer.scm.SCMFactory;
+import org.repositoryminer.scm.WorkspaceManager;
 import org.repositoryminer.util.HashingUtils;
-import org.repositoryminer.util.RMFileUtils;
 
 import com.mongodb.client.model.Projections;
 
@@ -69,9 +70,11 @@ public class FindBugsMiner {
 	private final FindBugsDAO findBugsPersist = new FindBugsDAO();
 	private final CommitDAO commitPersist = new CommitDAO();
 	private final ReferenceDAO refPersist = new ReferenceDAO();
+	private AsyncWriter writer;
 
 	private ISCM scm;
 	private String tempRepository;
+	private WorkspaceManager workspaceManager = new WorkspaceManager();
 	private Repository repository;
 
 	private Priority priority;
@@ -92,7 +95,7 @@ public class FindBugsMiner {
 
 	public void prepare() throws IOException {
 		File repositoryFolder = new File(repository.getPath());
-		tempRepository = RMFileUtils.copyFolderToTmp(repositoryFolder.getAbsolutePath(), repository.getName());
+		tempRepository = workspaceManager.acquire(repositoryFolder.getAbsolutePath(), repository.getName());
 
 		scm = SCMFactory.getSCM(repository.getScm());
 		scm.open(tempRepository);
@@ -100,7 +103,7 @@ public class FindBugsMiner {
 
 	public void dispose() throws IOException {
 		scm.close();
-		RMFileUtils.deleteFolder(tempRepository);
+		workspaceManager.release(tempRepository);
 	}
 
 	public void execute(String hash) throws IllegalStateException, IOException, InterruptedException {
@@ -109,10 +112,10 @@ public class FindBugsMiner {
 
 	public void execute(String name, ReferenceType type)
 			throws IllegalStateException, IOException, InterruptedException {
-		Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.slice("commits", 1));
+		Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.exclude("commit_ranges"));
 		Reference reference = Reference.parseDocument(refDoc);
 
-		String commitId = reference.getCommits().get(0);
+		String commitId = reference.getTip();
 		persistAnalysis(commitId, reference);
 	}
 
@@ -154,7 +157,10 @@ public class FindBugsMiner {
 			documents.add(doc);
 		}
 
-		findBugsPersist.insertMany(documents);
+		if (writer != null)
+			writer.insertMany(findBugsPersist, documents);
+		else
+			findBugsPersist.insertMany(documents);
 	}
 
 	private List<String> getFiles(String dir) {
@@ -197,4 +203,26 @@ public class FindBugsMiner {
 		return sourceDirectories.add(srcDir);
 	}
 
-}
\ No newline at end of file
+	public WorkspaceManager getWorkspaceManager() {
+		return workspaceManager;
+	}
+
+	public void setWorkspaceManager(WorkspaceManager workspaceManager) {
+		this.workspaceManager = workspaceManager;
+	}
+
+	public AsyncWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @param writer
+	 *            a writer to queue the analyses in, shared with other miners,
+	 *            instead of writing them before returning. It is closed by the
+	 *            caller.
+	 */
+	public void setWriter(AsyncWriter writer) {
+		this.writer = writer;
+	}
+
+}
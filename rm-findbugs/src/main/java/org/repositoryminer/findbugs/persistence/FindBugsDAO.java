@@ -2,6 +2,7 @@ package org.repositoryminer.findbugs.persistence;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.repositoryminer.persistence.IndexManager;
 import org.repositoryminer.persistence.dao.GenericDAO;
 
 import com.mongodb.BasicDBObject;
@@ -11,6 +12,11 @@ public class FindBugsDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "findbugs_bugs_analysis";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "filehash", "commit");
+		IndexManager.getInstance().declare(COLLECTION_NAME, "commit", "bugs.class");
+	}
+
 	public FindBugsDAO() {
 		super(COLLECTION_NAME);
 	}
@@ -5,12 +5,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FilenameUtils;
-import org.repositoryminer.metric.LOC;
+import org.repositoryminer.ast.LineIndex;
 import org.repositoryminer.pmd.cpd.model.FileInfo;
 import org.repositoryminer.pmd.cpd.model.Occurrence;
 import org.repositoryminer.util.HashingUtils;
@@ -39,7 +41,8 @@ public class CPDExecutor{
 	private String repositoryFolder;
 	private Set<org.repositoryminer.parser.Language> languages;
 	
-	private LOC locMetric = new LOC();
+	// lines of the files with duplications, a file is in several matches
+	private Map<String, Integer> linesByFile = new HashMap<String, Integer>();
 
 	public CPDExecutor(String repositoryFolder) {
 		this.repositoryFolder = repositoryFolder;
@@ -105,6 +108,7 @@ public class CPDExecutor{
 			}
 		}
 
+		linesByFile.clear();
 		return occurrences;
 	}
 
@@ -118,12 +122,18 @@ public class CPDExecutor{
 	}
 
 	private float getDuplicatedPercentage(String filename, int lineCount) {
-		try {
-			String source = new String(Files.readAllBytes(Paths.get(filename)));
-			return (lineCount * 1.0f) / locMetric.calculate(source);
-		} catch (IOException e) {
-			return 0.0f;
+		Integer lines = linesByFile.get(filename);
+		if (lines == null) {
+			try {
+				String source = new String(Files.readAllBytes(Paths.get(filename)));
+				lines = new LineIndex(source).getLineCount();
+			} catch (IOException e) {
+				return 0.0f;
+			}
+			linesByFile.put(filename, lines);
 		}
+
+		return (lineCount * 1.0f) / lines;
 	}
 
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import org.repositoryminer.domain.Reference;
 import org.repositoryminer.domain.ReferenceType;
 import org.repositoryminer.domain.Repository;
 import org.repositoryminer.parser.Language;
+import org.repositoryminer.persistence.dao.AsyncWriter;
 import org.repositoryminer.persistence.dao.CommitDAO;
 import org.repositoryminer.persistence.dao.ReferenceDAO;
 import org.repositoryminer.persistence.dao.RepositoryDAO;
@@ -21,7 +22,7 @@ import org.repositoryminer.pmd.cpd.model.Occurrence;
 import org.repositoryminer.pmd.cpd.persistence.CPDDAO;
 import org.repositoryminer.scm.ISCM;
 import org.repositoryminer.scm.SCMFactory;
-import org.repositoryminer.util.RMFileUtils;
+import org.repositoryminer.scm.WorkspaceManager;
 
 import com.mongodb.client.model.Projections;
 
@@ -29,6 +30,7 @@ public class CPDMiner {
 
 	private ISCM scm;
 	private String tempRepository;
+	private WorkspaceManager workspaceManager = new WorkspaceManager();
 	
 	private Repository repository;
 	private CPDExecutor cpdExecutor;
@@ -36,6 +38,7 @@ public class CPDMiner {
 	private CPDDAO cpdPersist = new CPDDAO();
 	private CommitDAO commitPersist = new CommitDAO();
 	private ReferenceDAO refPersist = new ReferenceDAO();
+	private AsyncWriter writer;
 
 	private int minTokens = 100;
 	private String charset = "UTF-8";
@@ -84,7 +87,7 @@ public class CPDMiner {
 
 	public void prepare() throws IOException {
 		File repositoryFolder = new File(repository.getPath());
-		tempRepository = RMFileUtils.copyFolderToTmp(repositoryFolder.getAbsolutePath(), repository.getName());
+		tempRepository = workspaceManager.acquire(repositoryFolder.getAbsolutePath(), repository.getName());
 		
 		scm = SCMFactory.getSCM(repository.getScm());
 		scm.open(tempRepository);
@@ -94,14 +97,14 @@ public class CPDMiner {
 	
 	public void dispose() throws IOException {
 		scm.close();
-		RMFileUtils.deleteFolder(tempRepository);
+		workspaceManager.release(tempRepository);
 	}
 	
 	public void execute(String name, ReferenceType type) throws IOException {
-		Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.slice("commits", 1));
+		Document refDoc = refPersist.findByNameAndType(name, type, repository.getId(), Projections.exclude("commit_ranges"));
 		Reference reference = Reference.parseDocument(refDoc);
 
-		String commitId = reference.getCommits().get(0);
+		String commitId = reference.getTip();
 		persistAnalysis(commitId, reference);
 	}
 	
@@ -131,7 +134,10 @@ public class CPDMiner {
 			documents.add(doc);
 		}
 
-		cpdPersist.insertMany(documents);
+		if (writer != null)
+			writer.insertMany(cpdPersist, documents);
+		else
+			cpdPersist.insertMany(documents);
 	}
 
 	private void configureCPD() {
@@ -140,4 +146,26 @@ public class CPDMiner {
 		cpdExecutor.setMinTokens(minTokens);
 	}
 
-}
\ No newline at end of file
+	public WorkspaceManager getWorkspaceManager() {
+		return workspaceManager;
+	}
+
+	public void setWorkspaceManager(WorkspaceManager workspaceManager) {
+		this.workspaceManager = workspaceManager;
+	}
+
+	public AsyncWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @param writer
+	 *            a writer to queue the analyses in, shared with other miners,
+	 *            instead of writing them before returning. It is closed by the
+	 *            caller.
+	 */
+	public void setWriter(AsyncWriter writer) {
+		this.writer = writer;
+	}
+
+}
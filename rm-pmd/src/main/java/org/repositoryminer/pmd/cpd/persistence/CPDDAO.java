@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.repositoryminer.persistence.IndexManager;
 import org.repositoryminer.persistence.dao.GenericDAO;
 
 import com.mongodb.BasicDBObject;
@@ -12,6 +13,10 @@ import com.mongodb.BasicDBObject;
 public class CPDDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "pmd_cpd_analysis";
+
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "files_info.filehash", "commit");
+	}
 	
 	public CPDDAO() {
 		super(COLLECTION_NAME);
@@ -1,6 +1,7 @@
 package org.repositoryminer.remoteminer.persistence;
 
 import org.bson.types.ObjectId;
+import org.repositoryminer.persistence.IndexManager;
 import org.repositoryminer.persistence.dao.GenericDAO;
 
 import com.mongodb.BasicDBObject;
@@ -9,6 +10,10 @@ public class IssueDAO extends GenericDAO {
 
 	private static final String COLLECTION_NAME = "rm_issues";
 
+	static {
+		IndexManager.getInstance().declare(COLLECTION_NAME, "repository");
+	}
+
 	public IssueDAO() {
 		super(COLLECTION_NAME);
 	}
@@ -12,6 +12,7 @@ import org.bson.types.ObjectId;
 import org.repositoryminer.domain.Commit;
 import org.repositoryminer.domain.Reference;
 import org.repositoryminer.domain.ReferenceType;
+import org.repositoryminer.persistence.dao.AsyncWriter;
 import org.repositoryminer.persistence.dao.CommitDAO;
 import org.repositoryminer.persistence.dao.ReferenceDAO;
 import org.repositoryminer.technicaldebt.persistence.TechnicalCodeDebtDAO;
@@ -49,6 +50,8 @@ public class TechnicalDebtAnalyzer {
 	private final CommitDAO commitPersist = new CommitDAO();
 	private final TechnicalCodeDebtDAO codeTDHandler = new TechnicalCodeDebtDAO();
 
+	private AsyncWriter writer;
+
 	private final CodeIndicatorsAnalyzer indicatorsAnalyzer = new CodeIndicatorsAnalyzer();
 	private final WorkingTreeCreator workingTreeCreator = new WorkingTreeCreator();
 	
@@ -63,8 +66,18 @@ public class TechnicalDebtAnalyzer {
 	}
 
 	public void execute(final String name, final ReferenceType type) {
-		final Document refDoc = refPersist.findByNameAndType(name, type, repositoryId, null);
+		final Document refDoc = refPersist.findByNameAndType(name, type, repositoryId,
+				Projections.exclude("commit_ranges", "commits"));
+		if (refDoc == null) {
+			return;
+		}
+
 		final Reference reference = Reference.parseDocument(refDoc);
+		reference.setCommits(refPersist.findCommits(reference.getId(), 0));
+		if (reference.getCommits().isEmpty()) {
+			return;
+		}
+
 		final String commitId = reference.getCommits().get(0);
 		persistAnalysis(commitId, reference);
 	}
@@ -125,7 +138,24 @@ public class TechnicalDebtAnalyzer {
 			documents.add(doc);
 		}
 
-		codeTDHandler.insertMany(documents);
+		if (writer != null)
+			writer.insertMany(codeTDHandler, documents);
+		else
+			codeTDHandler.insertMany(documents);
+	}
+
+	public AsyncWriter getWriter() {
+		return writer;
+	}
+
+	/**
+	 * @param writer
+	 *            a writer to queue the analyses in, shared with other miners,
+	 *            instead of writing them before returning. It is closed by the
+	 *            caller.
+	 */
+	public void setWriter(AsyncWriter writer) {
+		this.writer = writer;
 	}
 
-}
\ No newline at end of file
+}
@@ -27,12 +27,15 @@ public class WorkingTreeCreator {
 		return workingTree;
 	}
 
-	@SuppressWarnings("unchecked")
 	public Map<String, String> createFromCommit(String commitId, String repositoryId) {
 		workingTree = new HashMap<String, String>();
 		
-		Document refDoc = refDAO.findByCommit(repositoryId, commitId, Projections.include("commits"));
-		List<String> commits = (List<String>) refDoc.get("commits");
+		Document refDoc = refDAO.findByCommit(repositoryId, commitId, Projections.include("_id"));
+		if (refDoc == null) {
+			return workingTree;
+		}
+
+		List<String> commits = refDAO.findCommits(refDoc.getObjectId("_id").toHexString(), 0);
 		commits.subList(0, commits.indexOf(commitId)).clear();
 		Collections.reverse(commits);
 		